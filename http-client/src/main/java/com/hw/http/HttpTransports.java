@@ -0,0 +1,105 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.hw.http;
+
+import okhttp3.ConnectionPool;
+import okhttp3.Dispatcher;
+import okhttp3.OkHttpClient;
+import okhttp3.Protocol;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static java.util.Objects.requireNonNull;
+
+/**
+ * Registry of the HTTP transports shared by all clients, one {@link OkHttpClient} per {@link TransportProfile}.
+ * <p>
+ * Clients derive their own instance with {@code HttpTransports.get(profile).newBuilder()}, which keeps the connection
+ * pool and dispatcher of the profile while adding interceptors, timeouts or a proxy. TCP connections and TLS sessions
+ * are thus reused across every client of the profile.
+ *
+ * @author HamaWhite
+ */
+public class HttpTransports {
+
+    private HttpTransports() {
+    }
+
+    private static final Map<TransportProfile, OkHttpClient> TRANSPORTS = new ConcurrentHashMap<>();
+
+    /**
+     * Return the transport of the default profile.
+     */
+    public static OkHttpClient get() {
+        return get(TransportProfile.DEFAULT);
+    }
+
+    /**
+     * Return the transport of the profile, creating it on first use.
+     */
+    public static OkHttpClient get(TransportProfile profile) {
+        requireNonNull(profile, "profile");
+        return TRANSPORTS.computeIfAbsent(profile, HttpTransports::createTransport);
+    }
+
+    /**
+     * Cancel the calls and close the connections of every transport. Clients derived from them must not be used
+     * afterward, while the next {@link #get(TransportProfile)} creates a new transport.
+     */
+    public static void shutdown() {
+        TRANSPORTS.values().removeIf(client -> {
+            client.dispatcher().cancelAll();
+            client.connectionPool().evictAll();
+            client.dispatcher().executorService().shutdown();
+            return true;
+        });
+    }
+
+    static OkHttpClient createTransport(TransportProfile profile) {
+        // daemon threads, so that a shared transport never keeps the JVM alive
+        AtomicInteger counter = new AtomicInteger();
+        ThreadPoolExecutor executor = new ThreadPoolExecutor(0, Integer.MAX_VALUE, 60, TimeUnit.SECONDS,
+                new SynchronousQueue<>(), runnable -> {
+                    Thread thread = new Thread(runnable,
+                            "OkHttp " + profile.getName() + " Dispatcher-" + counter.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                });
+        Dispatcher dispatcher = new Dispatcher(executor);
+        dispatcher.setMaxRequests(profile.getMaxRequests());
+        dispatcher.setMaxRequestsPerHost(profile.getMaxRequestsPerHost());
+
+        List<Protocol> protocols = profile.isHttp2()
+                ? List.of(Protocol.HTTP_2, Protocol.HTTP_1_1)
+                : List.of(Protocol.HTTP_1_1);
+        return new OkHttpClient.Builder()
+                .dispatcher(dispatcher)
+                .connectionPool(new ConnectionPool(profile.getMaxIdleConnections(),
+                        profile.getKeepAlive().toMillis(), TimeUnit.MILLISECONDS))
+                .protocols(protocols)
+                .pingInterval(profile.getPingInterval())
+                .build();
+    }
+}
@@ -0,0 +1,76 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.hw.http;
+
+import lombok.Builder;
+import lombok.Value;
+
+import java.time.Duration;
+
+/**
+ * Connection pool and dispatcher settings of a shared HTTP transport. Equal profiles share the same connections,
+ * so a distinct {@code name} is only needed to isolate the pool of a host from the others.
+ *
+ * @author HamaWhite
+ */
+@Value
+@Builder(toBuilder = true)
+public class TransportProfile {
+
+    public static final TransportProfile DEFAULT = TransportProfile.builder().build();
+
+    @Builder.Default
+    String name = "default";
+
+    /**
+     * Maximum number of idle connections kept in the pool.
+     */
+    @Builder.Default
+    int maxIdleConnections = 32;
+
+    /**
+     * How long an idle connection is kept alive before it is evicted.
+     */
+    @Builder.Default
+    Duration keepAlive = Duration.ofMinutes(5);
+
+    /**
+     * Maximum number of asynchronous requests executing concurrently.
+     */
+    @Builder.Default
+    int maxRequests = 64;
+
+    /**
+     * Maximum number of asynchronous requests executing concurrently against a single host.
+     */
+    @Builder.Default
+    int maxRequestsPerHost = 16;
+
+    /**
+     * Whether HTTP/2 is negotiated through ALPN, multiplexing the requests to a host over one connection.
+     */
+    @Builder.Default
+    boolean http2 = true;
+
+    /**
+     * Interval of the HTTP/2 pings detecting broken connections, zero disables them.
+     */
+    @Builder.Default
+    Duration pingInterval = Duration.ZERO;
+}
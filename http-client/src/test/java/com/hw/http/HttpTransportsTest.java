@@ -0,0 +1,104 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.hw.http;
+
+import com.sun.net.httpserver.HttpServer;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import okhttp3.OkHttpClient;
+import okhttp3.Protocol;
+import okhttp3.Request;
+import okhttp3.Response;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+/**
+ * @author HamaWhite
+ */
+class HttpTransportsTest {
+
+    @AfterEach
+    void tearDown() {
+        HttpTransports.shutdown();
+    }
+
+    @Test
+    void testEqualProfilesShareTransport() {
+        TransportProfile profile = TransportProfile.builder().maxRequestsPerHost(4).http2(false).build();
+        OkHttpClient transport = HttpTransports.get(profile);
+
+        assertSame(transport, HttpTransports.get(profile.toBuilder().build()));
+        assertNotSame(transport, HttpTransports.get());
+        assertNotSame(transport, HttpTransports.get(profile.toBuilder().name("pinecone").build()));
+
+        assertEquals(4, transport.dispatcher().getMaxRequestsPerHost());
+        assertEquals(64, transport.dispatcher().getMaxRequests());
+        assertEquals(List.of(Protocol.HTTP_1_1), transport.protocols());
+        assertEquals(List.of(Protocol.HTTP_2, Protocol.HTTP_1_1), HttpTransports.get().protocols());
+    }
+
+    @Test
+    void testDerivedClientsReuseConnections() throws IOException {
+        HttpServer server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+        server.createContext("/", exchange -> {
+            byte[] body = "ok".getBytes(StandardCharsets.UTF_8);
+            exchange.sendResponseHeaders(200, body.length);
+            exchange.getResponseBody().write(body);
+            exchange.close();
+        });
+        server.start();
+        try {
+            OkHttpClient first = HttpTransports.get().newBuilder().readTimeout(Duration.ofSeconds(5)).build();
+            OkHttpClient second = HttpTransports.get().newBuilder().addInterceptor(chain -> chain.proceed(
+                    chain.request().newBuilder().header("Api-Key", "test").build())).build();
+            assertSame(first.connectionPool(), second.connectionPool());
+            assertSame(first.dispatcher(), second.dispatcher());
+
+            String url = "http://localhost:" + server.getAddress().getPort() + "/";
+            for (OkHttpClient client : List.of(first, second, first, second)) {
+                try (Response response = client.newCall(new Request.Builder().url(url).build()).execute()) {
+                    assertThat(response.body().string()).isEqualTo("ok");
+                }
+            }
+            assertEquals(1, HttpTransports.get().connectionPool().connectionCount());
+        } finally {
+            server.stop(0);
+        }
+    }
+
+    @Test
+    void testShutdownReleasesTransports() {
+        OkHttpClient transport = HttpTransports.get();
+        HttpTransports.shutdown();
+
+        assertThat(transport.dispatcher().executorService().isShutdown()).isTrue();
+        assertNotSame(transport, HttpTransports.get());
+    }
+}
@@ -19,6 +19,8 @@
 package com.hw.langchain.agents.chat.output.parser;
 
 import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import com.google.gson.ToNumberPolicy;
 import com.google.gson.reflect.TypeToken;
 import com.hw.langchain.agents.agent.AgentOutputParser;
 import com.hw.langchain.schema.AgentAction;
@@ -50,8 +52,8 @@ public class ChatOutputParser extends AgentOutputParser {
             }.getType();
             /*
              * 20230308:修复通过GSON反序列化时将long类型的数值错误的转成了double类型科学计数法
-             * */
-            Map<String, Object> response = GSON_JSON.fromJson(action.strip(),mapType);
+             */
+            Map<String, Object> response = GSON_JSON.fromJson(action.strip(), mapType);
             boolean includesAction = response.containsKey("action") && response.containsKey("action_input");
             if (includesAnswer && includesAction) {
                 throw new OutputParserException(
@@ -91,6 +91,13 @@ public interface BaseLanguageModel {
         throw new UnsupportedOperationException("not supported yet.");
     }
 
+    /**
+     * Predict message from messages async.
+     */
+    default Flux<BaseMessage> asyncPredictMessages(List<BaseMessage> messages) {
+        return asyncPredictMessages(messages, null);
+    }
+
     /**
      * Predict message from messages async.
      */
@@ -0,0 +1,66 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.hw.langchain.cache;
+
+import com.hw.langchain.schema.Generation;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Cache of the generations of a language model, keyed by the prompt and the llm string describing the model and its
+ * parameters.
+ *
+ * @author HamaWhite
+ */
+public interface BaseCache {
+
+    /**
+     * Look up the generations of a prompt.
+     *
+     * @return the cached generations, null when the prompt is not cached
+     */
+    List<Generation> lookup(String prompt, String llmString);
+
+    /**
+     * Cache the generations of a prompt, overwriting existing ones.
+     */
+    void update(String prompt, String llmString, List<Generation> generations);
+
+    /**
+     * Look up the generations of the prompts.
+     *
+     * @return one element per prompt, null when the prompt is not cached
+     */
+    default List<List<Generation>> lookup(List<String> prompts, String llmString) {
+        return prompts.stream().map(prompt -> lookup(prompt, llmString)).toList();
+    }
+
+    /**
+     * Cache the generations of the prompts, keyed by prompt.
+     */
+    default void update(Map<String, List<Generation>> generations, String llmString) {
+        generations.forEach((prompt, value) -> update(prompt, llmString, value));
+    }
+
+    /**
+     * Remove every cached generation.
+     */
+    void clear();
+}
@@ -0,0 +1,196 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.hw.langchain.cache;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.google.common.hash.Hashing;
+import com.hw.langchain.exception.LangChainException;
+import com.hw.langchain.schema.BaseMessage;
+import com.hw.langchain.schema.ChatGeneration;
+import com.hw.langchain.schema.Generation;
+import com.hw.langchain.schema.LLMResult;
+
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+import java.util.function.Function;
+
+/**
+ * Key derivation, serialization and lookup shared by the language models and the cache backends.
+ *
+ * @author HamaWhite
+ */
+public class CacheUtils {
+
+    private CacheUtils() {
+    }
+
+    private static final ObjectMapper OBJECT_MAPPER = new ObjectMapper();
+
+    /**
+     * Describe a model call by the type of the model, its parameters sorted by name, and the stop words.
+     */
+    public static String llmString(String llmType, Map<String, Object> params, List<String> stop) {
+        Map<String, Object> identity = new TreeMap<>(params);
+        identity.put("_type", llmType);
+        identity.put("stop", stop);
+        return toJson(identity);
+    }
+
+    /**
+     * Serialize the messages of a chat prompt into a cache prompt.
+     */
+    public static String messagesToPrompt(List<BaseMessage> messages) {
+        return toJson(messages.stream().map(BaseMessage::toMap).toList());
+    }
+
+    /**
+     * Conversational text of a cache prompt, to be embedded by the semantic caches: the contents of the messages, one
+     * per line, for a prompt serialized by {@link #messagesToPrompt(List)}, and the prompt itself otherwise. The
+     * serialized structure is the same for every chat prompt and would dominate the similarity of short messages.
+     */
+    public static String promptText(String prompt) {
+        if (!prompt.startsWith("[{")) {
+            return prompt;
+        }
+        try {
+            List<Map<String, Object>> messages = OBJECT_MAPPER.readValue(prompt, new TypeReference<>() {
+            });
+            StringJoiner text = new StringJoiner("\n");
+            for (Map<String, Object> message : messages) {
+                if (!(message.get("data")instanceof Map<?, ?> data) || !message.containsKey("type")) {
+                    return prompt;
+                }
+                text.add(String.valueOf(data.get("content")));
+            }
+            return text.toString();
+        } catch (JsonProcessingException e) {
+            return prompt;
+        }
+    }
+
+    /**
+     * Hash of the prompt and the llm string, used as the key of the persistent backends.
+     */
+    public static String hash(String prompt, String llmString) {
+        return Hashing.sha256().newHasher()
+                .putString(llmString, StandardCharsets.UTF_8)
+                .putByte((byte) 0)
+                .putString(prompt, StandardCharsets.UTF_8)
+                .hash()
+                .toString();
+    }
+
+    public static String encode(List<Generation> generations) {
+        List<Map<String, Object>> values = new ArrayList<>(generations.size());
+        for (Generation generation : generations) {
+            Map<String, Object> value = new HashMap<>(4);
+            value.put("text", generation.getText());
+            value.put("generation_info", generation.getGenerationInfo());
+            if (generation instanceof ChatGeneration chatGeneration) {
+                value.put("message", chatGeneration.getMessage().toMap());
+            }
+            values.add(value);
+        }
+        return toJson(values);
+    }
+
+    @SuppressWarnings("unchecked")
+    public static List<Generation> decode(String json) {
+        try {
+            List<Map<String, Object>> values = OBJECT_MAPPER.readValue(json, new TypeReference<>() {
+            });
+            List<Generation> generations = new ArrayList<>(values.size());
+            for (Map<String, Object> value : values) {
+                Generation generation = value.get("message")instanceof Map<?, ?> message
+                        ? new ChatGeneration(BaseMessage.fromMap((Map<String, Object>) message))
+                        : new Generation((String) value.get("text"));
+                generation.setGenerationInfo((Map<String, Object>) value.get("generation_info"));
+                generations.add(generation);
+            }
+            return generations;
+        } catch (JsonProcessingException e) {
+            throw new LangChainException("Failed to decode cached generations", e);
+        }
+    }
+
+    private static String toJson(Object value) {
+        try {
+            return OBJECT_MAPPER.writeValueAsString(value);
+        } catch (JsonProcessingException e) {
+            throw new LangChainException("Failed to serialize " + value, e);
+        }
+    }
+
+    /**
+     * Serve the prompts from the cache, and generate the missing ones in a single call.
+     * <p>
+     * A prompt repeated in the batch is generated once. The generations of the missing prompts are cached, except
+     * for the prompts reported in {@link LLMResult#getErrors()}.
+     *
+     * @param cache     the cache to look up and update
+     * @param llmString the description of the model call
+     * @param prompts   the cache prompt of each input
+     * @param generator generates the inputs at the given indexes, returning one generation list per index
+     * @return the result of every input, with the llm output of the generator or an empty one if all were cached
+     */
+    public static LLMResult generate(BaseCache cache, String llmString, List<String> prompts,
+            Function<List<Integer>, LLMResult> generator) {
+        List<List<Generation>> cached = cache.lookup(prompts, llmString);
+        // first index of every prompt missing from the cache
+        Map<String, Integer> missing = new LinkedHashMap<>();
+        for (int i = 0; i < prompts.size(); i++) {
+            if (cached.get(i) == null) {
+                missing.putIfAbsent(prompts.get(i), i);
+            }
+        }
+
+        Map<String, List<Generation>> generated = new HashMap<>(missing.size());
+        Map<String, Throwable> failed = new HashMap<>();
+        Map<String, Object> llmOutput = Map.of();
+        if (!missing.isEmpty()) {
+            List<String> missingPrompts = List.copyOf(missing.keySet());
+            LLMResult result = generator.apply(List.copyOf(missing.values()));
+            for (int i = 0; i < missingPrompts.size(); i++) {
+                Throwable error = result.getErrors().get(i);
+                if (error != null) {
+                    failed.put(missingPrompts.get(i), error);
+                } else {
+                    generated.put(missingPrompts.get(i), List.copyOf(result.getGenerations().get(i)));
+                }
+            }
+            cache.update(generated, llmString);
+            llmOutput = result.getLlmOutput();
+        }
+
+        List<List<Generation>> generations = new ArrayList<>(prompts.size());
+        Map<Integer, Throwable> errors = new TreeMap<>();
+        for (int i = 0; i < prompts.size(); i++) {
+            String prompt = prompts.get(i);
+            if (failed.containsKey(prompt)) {
+                errors.put(i, failed.get(prompt));
+            }
+            generations.add(cached.get(i) != null ? cached.get(i) : generated.getOrDefault(prompt, List.of()));
+        }
+        LLMResult llmResult = new LLMResult(generations, llmOutput);
+        llmResult.setErrors(errors);
+        return llmResult;
+    }
+}
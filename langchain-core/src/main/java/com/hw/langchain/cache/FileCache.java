@@ -0,0 +1,98 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.hw.langchain.cache;
+
+import com.hw.langchain.exception.LangChainException;
+import com.hw.langchain.schema.Generation;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.List;
+import java.util.stream.Stream;
+
+/**
+ * Local disk cache keeping the generations of each prompt in a JSON file of the directory, named by the hash of the
+ * prompt and the llm string. A file is written to a temporary file first and then moved in place, so that a crash
+ * never leaves a partial entry behind and concurrent processes can share the directory.
+ *
+ * @author HamaWhite
+ */
+public class FileCache implements BaseCache {
+
+    private static final String SUFFIX = ".json";
+
+    private final Path directory;
+
+    public FileCache(Path directory) {
+        this.directory = directory;
+        try {
+            Files.createDirectories(directory);
+        } catch (IOException e) {
+            throw new LangChainException("Failed to create cache directory " + directory, e);
+        }
+    }
+
+    private Path path(String prompt, String llmString) {
+        return directory.resolve(CacheUtils.hash(prompt, llmString) + SUFFIX);
+    }
+
+    @Override
+    public List<Generation> lookup(String prompt, String llmString) {
+        Path path = path(prompt, llmString);
+        try {
+            return CacheUtils.decode(Files.readString(path, StandardCharsets.UTF_8));
+        } catch (NoSuchFileException e) {
+            return null;
+        } catch (IOException e) {
+            throw new LangChainException("Failed to read cache entry " + path, e);
+        }
+    }
+
+    @Override
+    public void update(String prompt, String llmString, List<Generation> generations) {
+        Path path = path(prompt, llmString);
+        try {
+            Path temp = Files.createTempFile(directory, "entry", ".tmp");
+            Files.writeString(temp, CacheUtils.encode(generations), StandardCharsets.UTF_8);
+            Files.move(temp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            throw new LangChainException("Failed to write cache entry " + path, e);
+        }
+    }
+
+    @Override
+    public void clear() {
+        try (Stream<Path> paths = Files.list(directory)) {
+            paths.filter(path -> path.getFileName().toString().endsWith(SUFFIX)).forEach(path -> {
+                try {
+                    Files.deleteIfExists(path);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+        } catch (IOException | UncheckedIOException e) {
+            throw new LangChainException("Failed to clear cache directory " + directory, e);
+        }
+    }
+}
@@ -0,0 +1,78 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.hw.langchain.cache;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.hw.langchain.schema.Generation;
+
+import java.time.Duration;
+import java.util.List;
+
+import static com.google.common.base.Preconditions.checkArgument;
+
+/**
+ * In-memory cache evicting the least recently used prompts once it holds {@code maxSize} of them, and the prompts
+ * cached for longer than the time to live.
+ *
+ * @author HamaWhite
+ */
+public class InMemoryCache implements BaseCache {
+
+    private final Cache<Key, List<Generation>> cache;
+
+    public InMemoryCache(long maxSize) {
+        this(maxSize, null);
+    }
+
+    /**
+     * @param maxSize    maximum number of cached prompts
+     * @param timeToLive how long a prompt stays cached, forever when null
+     */
+    public InMemoryCache(long maxSize, Duration timeToLive) {
+        checkArgument(maxSize > 0, "maxSize must be positive, got %s", maxSize);
+        CacheBuilder<Object, Object> builder = CacheBuilder.newBuilder().maximumSize(maxSize);
+        if (timeToLive != null) {
+            builder.expireAfterWrite(timeToLive);
+        }
+        this.cache = builder.build();
+    }
+
+    @Override
+    public List<Generation> lookup(String prompt, String llmString) {
+        return cache.getIfPresent(new Key(prompt, llmString));
+    }
+
+    @Override
+    public void update(String prompt, String llmString, List<Generation> generations) {
+        cache.put(new Key(prompt, llmString), List.copyOf(generations));
+    }
+
+    @Override
+    public void clear() {
+        cache.invalidateAll();
+    }
+
+    public long size() {
+        return cache.size();
+    }
+
+    private record Key(String prompt, String llmString) {
+    }
+}
@@ -0,0 +1,107 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.hw.langchain.cache;
+
+import com.hw.langchain.schema.Generation;
+
+import org.redisson.api.RBatch;
+import org.redisson.api.RedissonClient;
+import org.redisson.client.codec.StringCodec;
+
+import lombok.Builder;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+
+/**
+ * Redis cache shared by every process using the same Redis, the generations are stored as JSON under the hash of
+ * the prompt and the llm string. A batch lookup is a single MGET and a batch update a single pipelined batch.
+ *
+ * @author HamaWhite
+ */
+@Builder
+public class RedisCache implements BaseCache {
+
+    private RedissonClient redissonClient;
+
+    @Builder.Default
+    private String keyPrefix = "llm_cache:";
+
+    /**
+     * Expiration of the cached generations, they never expire when null.
+     */
+    private Integer ttlSeconds;
+
+    /**
+     * Validate parameters
+     */
+    public RedisCache init() {
+        checkNotNull(redissonClient, "redissonClient must not be null");
+        return this;
+    }
+
+    private String key(String prompt, String llmString) {
+        return keyPrefix + CacheUtils.hash(prompt, llmString);
+    }
+
+    @Override
+    public List<Generation> lookup(String prompt, String llmString) {
+        return lookup(List.of(prompt), llmString).get(0);
+    }
+
+    @Override
+    public List<List<Generation>> lookup(List<String> prompts, String llmString) {
+        List<String> keys = prompts.stream().map(prompt -> key(prompt, llmString)).toList();
+        Map<String, String> values = redissonClient.getBuckets(StringCodec.INSTANCE).get(keys.toArray(String[]::new));
+        return keys.stream()
+                .map(values::get)
+                .map(value -> value == null ? null : CacheUtils.decode(value))
+                .toList();
+    }
+
+    @Override
+    public void update(String prompt, String llmString, List<Generation> generations) {
+        update(Map.of(prompt, generations), llmString);
+    }
+
+    @Override
+    public void update(Map<String, List<Generation>> generations, String llmString) {
+        if (generations.isEmpty()) {
+            return;
+        }
+        RBatch batch = redissonClient.createBatch();
+        generations.forEach((prompt, value) -> {
+            var bucket = batch.<String>getBucket(key(prompt, llmString), StringCodec.INSTANCE);
+            if (ttlSeconds != null) {
+                bucket.setAsync(CacheUtils.encode(value), ttlSeconds, TimeUnit.SECONDS);
+            } else {
+                bucket.setAsync(CacheUtils.encode(value));
+            }
+        });
+        batch.execute();
+    }
+
+    @Override
+    public void clear() {
+        redissonClient.getKeys().deleteByPattern(keyPrefix + "*");
+    }
+}
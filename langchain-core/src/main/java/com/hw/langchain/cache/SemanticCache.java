@@ -0,0 +1,309 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.hw.langchain.cache;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.hw.langchain.embeddings.base.DenseVector;
+import com.hw.langchain.embeddings.base.Embeddings;
+import com.hw.langchain.schema.Generation;
+import com.hw.langchain.vectorstores.hnsw.HnswIndex;
+
+import lombok.Builder;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.util.*;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+
+/**
+ * Cache returning the generations of the most similar cached prompt, when its cosine similarity to the prompt is at
+ * least the threshold. The conversational text of the prompts is embedded, see {@link CacheUtils#promptText(String)},
+ * and searched in an in-process {@link HnswIndex}, a prompt cached verbatim is served without embedding it.
+ * <p>
+ * The least recently used prompts are evicted beyond {@code maxSize}, and prompts older than the time to live are
+ * ignored and evicted. Evicted prompts are marked as deleted in the index, which is rebuilt once they outnumber the
+ * live ones.
+ *
+ * @author HamaWhite
+ */
+@Builder
+public class SemanticCache implements BaseCache {
+
+    private static final int M = 16;
+
+    private static final int EF_CONSTRUCTION = 100;
+
+    private static final int EF_SEARCH = 50;
+
+    private Embeddings embeddings;
+
+    /**
+     * Minimum cosine similarity between a prompt and a cached prompt to return the cached generations.
+     */
+    @Builder.Default
+    private float similarityThreshold = 0.95f;
+
+    /**
+     * Maximum number of cached prompts.
+     */
+    @Builder.Default
+    private int maxSize = 10_000;
+
+    /**
+     * How long a prompt stays cached, forever when null.
+     */
+    private Duration timeToLive;
+
+    @Builder.Default
+    private Clock clock = Clock.systemUTC();
+
+    private HnswIndex<Entry> index;
+
+    /**
+     * Live entries by node id, in access order.
+     */
+    private LinkedHashMap<Integer, Entry> entries;
+
+    private Map<Key, Entry> exactEntries;
+
+    /**
+     * Vectors of the prompts just looked up, so that caching their generations does not embed them again.
+     */
+    private Cache<String, float[]> recentVectors;
+
+    private final AtomicLong hits = new AtomicLong();
+
+    private final AtomicLong misses = new AtomicLong();
+
+    private final AtomicLong evictions = new AtomicLong();
+
+    /**
+     * Validate parameters
+     */
+    public SemanticCache init() {
+        checkNotNull(embeddings, "embeddings must not be null");
+        checkArgument(similarityThreshold > 0 && similarityThreshold <= 1,
+                "similarityThreshold must be in (0, 1], got %s", similarityThreshold);
+        checkArgument(maxSize > 0, "maxSize must be positive, got %s", maxSize);
+        recentVectors = CacheBuilder.newBuilder().maximumSize(1024).build();
+        clear();
+        return this;
+    }
+
+    @Override
+    public List<Generation> lookup(String prompt, String llmString) {
+        return lookup(List.of(prompt), llmString).get(0);
+    }
+
+    @Override
+    public List<List<Generation>> lookup(List<String> prompts, String llmString) {
+        List<List<Generation>> results = new ArrayList<>(Collections.nCopies(prompts.size(), null));
+        List<Integer> notExact = new ArrayList<>();
+        synchronized (this) {
+            for (int i = 0; i < prompts.size(); i++) {
+                Entry entry = exactEntries.get(new Key(prompts.get(i), llmString));
+                if (entry != null && touch(entry)) {
+                    results.set(i, entry.generations);
+                } else {
+                    notExact.add(i);
+                }
+            }
+        }
+
+        if (!notExact.isEmpty()) {
+            List<float[]> vectors = embed(notExact.stream().map(prompts::get).toList());
+            for (int i = 0; i < notExact.size(); i++) {
+                results.set(notExact.get(i), searchSimilar(vectors.get(i), llmString));
+            }
+        }
+        results.forEach(result -> (result != null ? hits : misses).incrementAndGet());
+        return results;
+    }
+
+    private List<Generation> searchSimilar(float[] vector, String llmString) {
+        HnswIndex<Entry> current;
+        synchronized (this) {
+            current = index;
+        }
+        long now = clock.millis();
+        var results = current.search(vector, 1, EF_SEARCH,
+                entry -> entry.key.llmString().equals(llmString) && !isExpired(entry, now));
+        if (results.isEmpty() || results.get(0).similarity() < similarityThreshold) {
+            return null;
+        }
+        synchronized (this) {
+            Entry entry = results.get(0).item();
+            return touch(entry) ? entry.generations : null;
+        }
+    }
+
+    @Override
+    public void update(String prompt, String llmString, List<Generation> generations) {
+        update(Map.of(prompt, generations), llmString);
+    }
+
+    @Override
+    public void update(Map<String, List<Generation>> generations, String llmString) {
+        if (generations.isEmpty()) {
+            return;
+        }
+        List<String> prompts = List.copyOf(generations.keySet());
+        List<float[]> vectors = embed(prompts);
+        long now = clock.millis();
+        synchronized (this) {
+            for (int i = 0; i < prompts.size(); i++) {
+                Key key = new Key(prompts.get(i), llmString);
+                Entry previous = exactEntries.remove(key);
+                if (previous != null) {
+                    remove(previous);
+                }
+                Entry entry = new Entry(key, List.copyOf(generations.get(prompts.get(i))), now);
+                entry.id = index.add(vectors.get(i), entry);
+                entries.put(entry.id, entry);
+                exactEntries.put(key, entry);
+            }
+            while (entries.size() > maxSize) {
+                remove(entries.values().iterator().next());
+                evictions.incrementAndGet();
+            }
+            if (index.size() > 2 * entries.size() + M) {
+                rebuildIndex();
+            }
+        }
+    }
+
+    /**
+     * Embed the prompts in a single call, reusing the vectors of the prompts just looked up.
+     */
+    private List<float[]> embed(List<String> prompts) {
+        float[][] vectors = new float[prompts.size()][];
+        List<Integer> missing = new ArrayList<>();
+        for (int i = 0; i < prompts.size(); i++) {
+            vectors[i] = recentVectors.getIfPresent(prompts.get(i));
+            if (vectors[i] == null) {
+                missing.add(i);
+            }
+        }
+        if (!missing.isEmpty()) {
+            List<DenseVector> embedded = embeddings.embedDocumentVectors(
+                    missing.stream().map(i -> CacheUtils.promptText(prompts.get(i))).toList());
+            for (int i = 0; i < missing.size(); i++) {
+                String prompt = prompts.get(missing.get(i));
+                vectors[missing.get(i)] = embedded.get(i).values();
+                recentVectors.put(prompt, vectors[missing.get(i)]);
+            }
+        }
+        return Arrays.asList(vectors);
+    }
+
+    /**
+     * Mark the entry as recently used, evicting it instead when it has expired.
+     *
+     * @return whether the entry is still cached
+     */
+    private boolean touch(Entry entry) {
+        if (entries.get(entry.id) != entry) {
+            return false;
+        }
+        if (isExpired(entry, clock.millis())) {
+            remove(entry);
+            evictions.incrementAndGet();
+            return false;
+        }
+        return true;
+    }
+
+    private boolean isExpired(Entry entry, long now) {
+        return timeToLive != null && now - entry.createdAt >= timeToLive.toMillis();
+    }
+
+    private void remove(Entry entry) {
+        entries.remove(entry.id);
+        exactEntries.remove(entry.key, entry);
+        index.markDeleted(entry.id);
+    }
+
+    /**
+     * Rebuild the index from the live entries, dropping the nodes marked as deleted.
+     */
+    private void rebuildIndex() {
+        HnswIndex<Entry> rebuilt = new HnswIndex<>(M, EF_CONSTRUCTION);
+        LinkedHashMap<Integer, Entry> rebuiltEntries = new LinkedHashMap<>(16, 0.75f, true);
+        for (Entry entry : entries.values()) {
+            float[] vector = index.vector(entry.id);
+            entry.id = rebuilt.add(vector, entry);
+            rebuiltEntries.put(entry.id, entry);
+        }
+        index = rebuilt;
+        entries = rebuiltEntries;
+    }
+
+    @Override
+    public synchronized void clear() {
+        index = new HnswIndex<>(M, EF_CONSTRUCTION);
+        entries = new LinkedHashMap<>(16, 0.75f, true);
+        exactEntries = new HashMap<>();
+    }
+
+    public Stats stats() {
+        int size;
+        synchronized (this) {
+            size = entries.size();
+        }
+        return new Stats(hits.get(), misses.get(), evictions.get(), size);
+    }
+
+    /**
+     * Hit and miss counts of the lookups, and eviction count of the LRU and time to live policies.
+     */
+    public record Stats(long hitCount, long missCount, long evictionCount, int size) {
+
+        public double hitRate() {
+            long requestCount = hitCount + missCount;
+            return requestCount == 0 ? 1.0 : (double) hitCount / requestCount;
+        }
+    }
+
+    private record Key(String prompt, String llmString) {
+    }
+
+    private static final class Entry {
+
+        private final Key key;
+
+        private final List<Generation> generations;
+
+        private final long createdAt;
+
+        /**
+         * Node id in the current index.
+         */
+        private int id;
+
+        private Entry(Key key, List<Generation> generations, long createdAt) {
+            this.key = key;
+            this.generations = generations;
+            this.createdAt = createdAt;
+        }
+    }
+}
@@ -27,6 +27,9 @@ import reactor.core.publisher.Flux;
 
 import java.util.*;
 
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.hw.langchain.utils.ThreadPoolUtil.mapConcurrently;
+
 /**
  * Base interface that all chains should implement.
  *
@@ -129,10 +132,33 @@ public abstract class Chain {
         return asyncPrepOutputs(inputs, outputs, returnOnlyOutputs);
     }
 
+    /**
+     * Run the chain on every inputs one after another.
+     *
+     * @param inputList the inputs of each run
+     * @return the outputs of each run, including the inputs, in the order of the inputs
+     */
+    public List<Map<String, String>> batch(List<Map<String, Object>> inputList) {
+        return batch(inputList, 1);
+    }
+
+    /**
+     * Run the chain on every inputs, up to maxConcurrency runs at the same time. A chain with memory runs them one
+     * after another, so that each run sees the context saved by the previous ones.
+     *
+     * @param inputList      the inputs of each run
+     * @param maxConcurrency maximum number of runs at the same time
+     * @return the outputs of each run, including the inputs, in the order of the inputs
+     */
+    public List<Map<String, String>> batch(List<Map<String, Object>> inputList, int maxConcurrency) {
+        checkArgument(maxConcurrency > 0, "maxConcurrency must be positive, got %s", maxConcurrency);
+        return mapConcurrently(inputList, memory != null ? 1 : maxConcurrency, inputs -> call(inputs, false));
+    }
+
     /**
      * Validate and prep outputs.
      */
-    private Map<String, String> prepOutputs(Map<String, Object> inputs, Map<String, String> outputs,
+    protected Map<String, String> prepOutputs(Map<String, Object> inputs, Map<String, String> outputs,
             boolean returnOnlyOutputs) {
         validateOutputs(outputs);
         if (memory != null) {
@@ -18,8 +18,11 @@
 
 package com.hw.langchain.chains.llm;
 
+import com.google.common.collect.Lists;
 import com.hw.langchain.base.language.BaseLanguageModel;
 import com.hw.langchain.chains.base.Chain;
+import com.hw.langchain.exception.LangChainException;
+import com.hw.langchain.llms.openai.BaseOpenAI;
 import com.hw.langchain.prompts.base.BasePromptTemplate;
 import com.hw.langchain.schema.*;
 
@@ -33,6 +36,11 @@ import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.TreeMap;
+import java.util.stream.IntStream;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.hw.langchain.utils.ThreadPoolUtil.mapConcurrently;
 
 /**
  * Chain to run queries against LLMs
@@ -100,6 +108,7 @@ public class LLMChain extends Chain {
     @Override
     protected Map<String, String> innerCall(Map<String, Object> inputs) {
         LLMResult response = generate(List.of(inputs));
+        throwFirstError(response.getErrors());
         return createOutputs(response).get(0);
     }
 
@@ -109,6 +118,76 @@ public class LLMChain extends Chain {
         return response.get(0).map(this::createAsyncOutputs);
     }
 
+    /**
+     * Utilize the LLM generate method for speed gains, see {@link #apply(List, int)}.
+     */
+    public List<Map<String, String>> apply(List<Map<String, Object>> inputList) {
+        return apply(inputList, 1);
+    }
+
+    /**
+     * Format the prompts of all inputs and generate them in micro-batches, the batch size of the OpenAI model or a
+     * single prompt for the other models, up to maxConcurrency micro-batches at the same time.
+     *
+     * @param inputList      the inputs of each prompt
+     * @param maxConcurrency maximum number of micro-batches generated at the same time
+     * @return the outputs of each prompt, in the order of the inputs
+     * @throws RuntimeException the failure of the first failed prompt, when the model records failures instead of
+     *                          throwing them
+     */
+    public List<Map<String, String>> apply(List<Map<String, Object>> inputList, int maxConcurrency) {
+        checkArgument(maxConcurrency > 0, "maxConcurrency must be positive, got %s", maxConcurrency);
+        if (inputList.isEmpty()) {
+            return List.of();
+        }
+        List<String> stop = prepStop(inputList);
+        List<PromptValue> prompts = prepPrompts(inputList);
+        int batchSize = llm instanceof BaseOpenAI openAI ? openAI.getBatchSize() : 1;
+
+        List<LLMResult> results = mapConcurrently(Lists.partition(prompts, batchSize), maxConcurrency,
+                batch -> llm.generatePrompt(batch, stop));
+        List<List<? extends Generation>> generations = new ArrayList<>(prompts.size());
+        // the errors of the micro-batches, by position of the input
+        Map<Integer, Throwable> errors = new TreeMap<>();
+        for (LLMResult result : results) {
+            int offset = generations.size();
+            result.getErrors().forEach((index, error) -> errors.put(offset + index, error));
+            generations.addAll(result.getGenerations());
+        }
+        throwFirstError(errors);
+        return createOutputs(new LLMResult(generations));
+    }
+
+    /**
+     * Throw the failure of the first failed prompt, a failed prompt has no generation to parse.
+     */
+    private static void throwFirstError(Map<Integer, Throwable> errors) {
+        if (errors.isEmpty()) {
+            return;
+        }
+        var first = errors.entrySet().stream().min(Map.Entry.comparingByKey()).orElseThrow();
+        if (first.getValue()instanceof RuntimeException e) {
+            throw e;
+        }
+        throw new LangChainException("Failed to generate the prompt of input " + first.getKey(), first.getValue());
+    }
+
+    /**
+     * Run the chain on every inputs through {@link #apply(List, int)}. A chain with memory runs them one after
+     * another instead, so that each run sees the context saved by the previous ones.
+     */
+    @Override
+    public List<Map<String, String>> batch(List<Map<String, Object>> inputList, int maxConcurrency) {
+        if (memory != null) {
+            return super.batch(inputList, maxConcurrency);
+        }
+        List<Map<String, Object>> preparedInputs = inputList.stream().map(this::prepInputs).toList();
+        List<Map<String, String>> outputs = apply(preparedInputs, maxConcurrency);
+        return IntStream.range(0, outputs.size())
+                .mapToObj(i -> prepOutputs(preparedInputs.get(i), outputs.get(i), false))
+                .toList();
+    }
+
     /**
      * Generate LLM result from inputs.
      */
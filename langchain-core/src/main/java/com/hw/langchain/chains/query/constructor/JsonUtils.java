@@ -39,6 +39,9 @@ public class JsonUtils {
 
     private static final ObjectMapper OBJECT_MAPPER = createObjectMapper();
 
+    private static final ObjectWriter COMPACT_WRITER =
+            OBJECT_MAPPER.writer().without(SerializationFeature.INDENT_OUTPUT);
+
     private static ObjectMapper createObjectMapper() {
         ObjectMapper objectMapper = new ObjectMapper();
         objectMapper.enable(SerializationFeature.INDENT_OUTPUT);
@@ -60,8 +63,7 @@ public class JsonUtils {
 
     public static String writeValueAsString(Object object) {
         try {
-            ObjectMapper objectMapper = new ObjectMapper();
-            return objectMapper.writeValueAsString(object);
+            return COMPACT_WRITER.writeValueAsString(object);
         } catch (JsonProcessingException e) {
             throw new LangChainException("Failed to format attribute info.", e);
         }
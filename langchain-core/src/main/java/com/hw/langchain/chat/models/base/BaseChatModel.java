@@ -19,12 +19,28 @@
 package com.hw.langchain.chat.models.base;
 
 import com.hw.langchain.base.language.BaseLanguageModel;
+import com.hw.langchain.cache.BaseCache;
+import com.hw.langchain.cache.CacheUtils;
+import com.hw.langchain.exception.LangChainException;
 import com.hw.langchain.schema.*;
+import com.hw.langchain.utils.ThreadPoolUtil;
 
+import lombok.Builder;
 import lombok.experimental.SuperBuilder;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
 
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
+import java.util.Objects;
+import java.util.TreeMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+
+import static com.google.common.base.Preconditions.checkArgument;
 
 /**
  * @author HamaWhite
@@ -37,6 +53,35 @@ public abstract class BaseChatModel implements BaseLanguageModel {
      */
     private List<String> tags;
 
+    /**
+     * Maximum number of prompts generated at the same time, 1 generates them one after another.
+     */
+    @Builder.Default
+    protected int maxConcurrency = 1;
+
+    /**
+     * What a failed prompt does to the other prompts of a generation.
+     */
+    @Builder.Default
+    protected FailurePolicy failurePolicy = FailurePolicy.FAIL_FAST;
+
+    /**
+     * Cache of the generations, the model is called for every prompt when null.
+     */
+    protected BaseCache cache;
+
+    /**
+     * Runs the prompts generated concurrently, the shared executor of {@link ThreadPoolUtil} when null.
+     */
+    protected Executor executor;
+
+    /**
+     * Parameters changing the output of the model, part of the cache key.
+     */
+    public Map<String, Object> identifyingParams() {
+        return Map.of();
+    }
+
     public Map<String, Object> combineLlmOutputs(List<Map<String, Object>> llmOutputs) {
         return Map.of();
     }
@@ -47,21 +92,112 @@ public abstract class BaseChatModel implements BaseLanguageModel {
 
     /**
      * Top Level call
+     * <p>
+     * The prompts are generated concurrently when maxConcurrency is greater than 1, and the generations keep the
+     * order of the prompts. A failure is thrown or recorded in the result according to the failurePolicy. Only the
+     * prompts missing from the cache reach the model.
      */
     public LLMResult generate(List<List<BaseMessage>> messages, List<String> stop) {
-        List<ChatResult> results = messages.stream()
-                .map(message -> innerGenerate(message, stop))
-                .toList();
+        checkArgument(maxConcurrency > 0, "maxConcurrency must be positive, got %s", maxConcurrency);
+        if (cache == null) {
+            return generateUncached(messages, stop);
+        }
+        String llmString = CacheUtils.llmString(llmType(), identifyingParams(), stop);
+        List<String> prompts = messages.stream().map(CacheUtils::messagesToPrompt).toList();
+        return CacheUtils.generate(cache, llmString, prompts,
+                indexes -> generateUncached(indexes.stream().map(messages::get).toList(), stop));
+    }
+
+    private LLMResult generateUncached(List<List<BaseMessage>> messages, List<String> stop) {
+        Map<Integer, Throwable> errors = new TreeMap<>();
+        List<ChatResult> results = maxConcurrency == 1 || messages.size() <= 1
+                ? generateSequentially(messages, stop, errors)
+                : generateConcurrently(messages, stop, errors);
 
         List<Map<String, Object>> llmOutputs = results.stream()
+                .filter(Objects::nonNull)
                 .map(ChatResult::getLlmOutput)
                 .toList();
         Map<String, Object> llmOutput = combineLlmOutputs(llmOutputs);
 
         List<List<ChatGeneration>> generations = results.stream()
-                .map(ChatResult::getGenerations)
+                .map(result -> result != null ? result.getGenerations() : List.<ChatGeneration>of())
                 .toList();
-        return new LLMResult(generations, llmOutput);
+        LLMResult llmResult = new LLMResult(generations, llmOutput);
+        llmResult.setErrors(errors);
+        return llmResult;
+    }
+
+    /**
+     * Generate the prompts one after another, a failed prompt has a null result.
+     */
+    private List<ChatResult> generateSequentially(List<List<BaseMessage>> messages, List<String> stop,
+            Map<Integer, Throwable> errors) {
+        List<ChatResult> results = new ArrayList<>(messages.size());
+        for (int i = 0; i < messages.size(); i++) {
+            try {
+                results.add(innerGenerate(messages.get(i), stop));
+            } catch (RuntimeException e) {
+                if (failurePolicy == FailurePolicy.FAIL_FAST) {
+                    throw e;
+                }
+                errors.put(i, e);
+                results.add(null);
+            }
+        }
+        return results;
+    }
+
+    /**
+     * Generate up to maxConcurrency prompts at the same time, a failed prompt has a null result.
+     */
+    private List<ChatResult> generateConcurrently(List<List<BaseMessage>> messages, List<String> stop,
+            Map<Integer, Throwable> errors) {
+        Executor limited = ThreadPoolUtil.limit(executor != null ? executor : ThreadPoolUtil.sharedExecutor(),
+                Math.min(maxConcurrency, messages.size()));
+        List<CompletableFuture<ChatResult>> futures = messages.stream()
+                .map(message -> CompletableFuture.supplyAsync(() -> innerGenerate(message, stop), limited))
+                .toList();
+        try {
+            CompletableFuture<Throwable> firstFailure = new CompletableFuture<>();
+            if (failurePolicy == FailurePolicy.FAIL_FAST) {
+                futures.forEach(future -> future.whenComplete((result, e) -> {
+                    if (e != null) {
+                        firstFailure.complete(e instanceof CompletionException ? e.getCause() : e);
+                    }
+                }));
+            }
+            // wait until every prompt is done, or until the first failure when failing fast
+            CompletableFuture.anyOf(CompletableFuture.allOf(futures.toArray(CompletableFuture[]::new)), firstFailure)
+                    .exceptionally(e -> null)
+                    .join();
+            if (firstFailure.isDone()) {
+                throw propagate(firstFailure.join());
+            }
+
+            List<ChatResult> results = new ArrayList<>(messages.size());
+            for (int i = 0; i < futures.size(); i++) {
+                try {
+                    results.add(futures.get(i).join());
+                } catch (CompletionException e) {
+                    // the wait may return before the failure is relayed to firstFailure, when the failing prompt
+                    // completes last, so failing fast is decided here as well
+                    if (failurePolicy == FailurePolicy.FAIL_FAST) {
+                        throw propagate(e.getCause());
+                    }
+                    errors.put(i, e.getCause());
+                    results.add(null);
+                }
+            }
+            return results;
+        } finally {
+            // the prompts not started yet are skipped when failing fast
+            futures.forEach(future -> future.cancel(false));
+        }
+    }
+
+    private static RuntimeException propagate(Throwable cause) {
+        return cause instanceof RuntimeException runtimeException ? runtimeException : new LangChainException(cause);
     }
 
     @Override
@@ -77,12 +213,39 @@ public abstract class BaseChatModel implements BaseLanguageModel {
      */
     public abstract ChatResult innerGenerate(List<BaseMessage> messages, List<String> stop);
 
+    /**
+     * Generate the response as a stream of chunks, each holding a {@link ChatGeneration} of the content added since
+     * the previous chunk. Models without streaming support emit the whole response as a single chunk, generated on
+     * the bounded elastic scheduler. The cache is not consulted.
+     */
+    protected Flux<AsyncLLMResult> asyncInnerGenerate(List<BaseMessage> messages, List<String> stop) {
+        return Mono.fromCallable(() -> innerGenerate(messages, stop))
+                .subscribeOn(Schedulers.boundedElastic())
+                .map(result -> new AsyncLLMResult(result.getGenerations(), result.getLlmOutput()))
+                .flux();
+    }
+
+    @Override
+    public List<Flux<AsyncLLMResult>> asyncGeneratePrompt(List<PromptValue> prompts, List<String> stop) {
+        return prompts.stream()
+                .map(prompt -> asyncInnerGenerate(prompt.toMessages(), stop))
+                .toList();
+    }
+
     public BaseMessage call(List<BaseMessage> messages) {
         return call(messages, null);
     }
 
+    /**
+     * Generate a single prompt, a failure recorded by the {@link FailurePolicy#PARTIAL_RESULTS} policy is thrown.
+     */
     public BaseMessage call(List<BaseMessage> messages, List<String> stop) {
-        var generation = generate(List.of(messages), stop).getGenerations().get(0).get(0);
+        LLMResult result = generate(List.of(messages), stop);
+        Throwable error = result.getErrors().get(0);
+        if (error != null) {
+            throw propagate(error);
+        }
+        var generation = result.getGenerations().get(0).get(0);
         if (generation instanceof ChatGeneration chatGeneration) {
             return chatGeneration.getMessage();
         } else {
@@ -105,6 +268,22 @@ public abstract class BaseChatModel implements BaseLanguageModel {
         return call(messages, copyStop);
     }
 
+    @Override
+    public Flux<String> asyncPredict(String text, List<String> stop) {
+        return asyncPredictMessages(List.of(new HumanMessage(text)), stop).map(BaseMessage::getContent);
+    }
+
+    @Override
+    public Flux<BaseMessage> asyncPredictMessages(List<BaseMessage> messages, List<String> stop) {
+        List<String> copyStop = stop != null ? List.copyOf(stop) : null;
+        return asyncInnerGenerate(messages, copyStop).map(result -> {
+            if (result.getGenerations().get(0)instanceof ChatGeneration chatGeneration) {
+                return chatGeneration.getMessage();
+            }
+            throw new IllegalArgumentException("Unexpected generation type");
+        });
+    }
+
     /**
      * Return type of chat model.
      */
@@ -0,0 +1,38 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.hw.langchain.chat.models.base;
+
+/**
+ * What a failed prompt does to a batch generation.
+ *
+ * @author HamaWhite
+ */
+public enum FailurePolicy {
+
+    /**
+     * Throw the first failure and cancel the prompts still running.
+     */
+    FAIL_FAST,
+
+    /**
+     * Generate every prompt, leaving the generations of the failed ones empty and recording their errors in
+     * {@link com.hw.langchain.schema.LLMResult#getErrors()}.
+     */
+    PARTIAL_RESULTS
+}
@@ -19,6 +19,8 @@
 package com.hw.langchain.chat.models.openai;
 
 import com.hw.langchain.chat.models.base.BaseChatModel;
+import com.hw.langchain.schema.AIMessage;
+import com.hw.langchain.schema.AsyncLLMResult;
 import com.hw.langchain.schema.BaseMessage;
 import com.hw.langchain.schema.ChatGeneration;
 import com.hw.langchain.schema.ChatResult;
@@ -28,15 +30,19 @@ import com.hw.openai.entity.chat.ChatCompletion;
 import com.hw.openai.entity.chat.ChatCompletionResp;
 import com.hw.openai.entity.chat.ChatMessage;
 import com.hw.openai.entity.completions.Usage;
+import com.hw.openai.ratelimit.OpenAiRateLimiter;
 
 import lombok.Builder;
 import lombok.experimental.SuperBuilder;
 import okhttp3.Interceptor;
+import reactor.adapter.rxjava.RxJava2Adapter;
+import reactor.core.publisher.Flux;
 
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
+import java.util.stream.Collectors;
 
 import static com.hw.langchain.chat.models.openai.OpenAI.convertOpenAiToLangChain;
 import static com.hw.langchain.utils.Resilience4jRetryUtils.retryWithExponentialBackoff;
@@ -122,6 +128,11 @@ public class ChatOpenAI extends BaseChatModel {
      */
     private List<Interceptor> interceptorList;
 
+    /**
+     * Limiter shared with the other clients calling with the same quota, requests are not limited when it is null.
+     */
+    private OpenAiRateLimiter rateLimiter;
+
     /**
      * Validate parameters and init client
      */
@@ -141,6 +152,7 @@ public class ChatOpenAI extends BaseChatModel {
                 .openaiProxy(openaiProxy)
                 .requestTimeout(requestTimeout)
                 .interceptorList(interceptorList)
+                .rateLimiter(rateLimiter)
                 .build()
                 .init();
 
@@ -155,34 +167,60 @@ public class ChatOpenAI extends BaseChatModel {
 
     @Override
     public Map<String, Object> combineLlmOutputs(List<Map<String, Object>> llmOutputs) {
-        Usage usage = llmOutputs.stream()
+        // streamed outputs carry no usage, so they are skipped rather than counted as zero
+        return llmOutputs.stream()
                 .filter(Objects::nonNull)
                 .map(e -> (Usage) e.get("token_usage"))
+                .filter(Objects::nonNull)
                 .reduce((a1, a2) -> new Usage(
                         a1.getPromptTokens() + a2.getPromptTokens(),
                         a1.getCompletionTokens() + a2.getCompletionTokens(),
                         a1.getTotalTokens() + a2.getTotalTokens()))
-                .orElse(new Usage());
-
-        return Map.of("token_usage", usage, "model_name", this.model);
+                .<Map<String, Object>>map(usage -> Map.of("token_usage", usage, "model_name", this.model))
+                .orElse(Map.of("model_name", this.model));
     }
 
+    /**
+     * Generate the response, from the concatenated chunks of a stream when {@link #stream} is set.
+     */
     @Override
     public ChatResult innerGenerate(List<BaseMessage> messages, List<String> stop) {
-        var chatMessages = convertMessages(messages);
+        if (stream) {
+            String content = asyncInnerGenerate(messages, stop)
+                    .map(result -> result.getGenerations().get(0).getText())
+                    .collect(Collectors.joining())
+                    .block();
+            // the usage is not reported by streams
+            return new ChatResult(List.of(new ChatGeneration(new AIMessage(content))), Map.of("model_name", model));
+        }
+        ChatCompletion chatCompletion = createChatCompletion(messages, stop);
+        var response = retryWithExponentialBackoff(maxRetries, () -> client.createChatCompletion(chatCompletion));
+        return createChatResult(response);
+    }
+
+    /**
+     * Stream the response, a chunk per token delta of the completion.
+     */
+    @Override
+    protected Flux<AsyncLLMResult> asyncInnerGenerate(List<BaseMessage> messages, List<String> stop) {
+        if (n > 1) {
+            throw new IllegalArgumentException("n must be 1 when streaming.");
+        }
+        ChatCompletion chatCompletion = createChatCompletion(messages, stop);
+        return RxJava2Adapter.flowableToFlux(client.streamChatCompletion(chatCompletion))
+                .mapNotNull(OpenAI::chunkContent)
+                .map(content -> new AsyncLLMResult(List.of(new ChatGeneration(new AIMessage(content))), null));
+    }
 
-        ChatCompletion chatCompletion = ChatCompletion.builder()
+    private ChatCompletion createChatCompletion(List<BaseMessage> messages, List<String> stop) {
+        return ChatCompletion.builder()
                 .model(model)
                 .temperature(temperature)
-                .messages(chatMessages)
+                .messages(convertMessages(messages))
                 .maxTokens(maxTokens)
-                .stream(stream)
                 .n(n)
                 .stop(stop)
                 .build();
-
-        var response = retryWithExponentialBackoff(maxRetries, () -> client.createChatCompletion(chatCompletion));
-        return createChatResult(response);
     }
 
     public List<ChatMessage> convertMessages(List<BaseMessage> messages) {
@@ -204,6 +242,16 @@ public class ChatOpenAI extends BaseChatModel {
         return new ChatResult(generations, llmOutput);
     }
 
+    @Override
+    public Map<String, Object> identifyingParams() {
+        Map<String, Object> params = new HashMap<>(modelKwargs);
+        params.put("model", model);
+        params.put("temperature", temperature);
+        params.put("max_tokens", maxTokens);
+        params.put("n", n);
+        return params;
+    }
+
     @Override
     public String llmType() {
         return "openai-chat";
@@ -19,6 +19,7 @@
 package com.hw.langchain.chat.models.openai;
 
 import com.hw.langchain.schema.*;
+import com.hw.openai.entity.chat.ChatCompletionChunk;
 import com.hw.openai.entity.chat.ChatMessage;
 import com.hw.openai.entity.chat.ChatMessageRole;
 
@@ -65,4 +66,16 @@ public class OpenAI {
             }
         }
     }
+
+    /**
+     * The content added by a chunk of a chat completion stream, null for the chunks carrying only the role or the
+     * finish reason.
+     */
+    public static String chunkContent(ChatCompletionChunk chunk) {
+        if (chunk.getChoices() == null || chunk.getChoices().isEmpty()) {
+            return null;
+        }
+        ChatMessage delta = chunk.getChoices().get(0).getMessage();
+        return delta != null ? delta.getContent() : null;
+    }
 }
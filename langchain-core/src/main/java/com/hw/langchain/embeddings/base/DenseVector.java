@@ -0,0 +1,98 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.hw.langchain.embeddings.base;
+
+import com.google.common.primitives.Floats;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static java.util.Objects.requireNonNull;
+
+/**
+ * A dense embedding vector backed by a primitive {@code float[]}.
+ * <p>
+ * A 1536-dimension embedding takes about 6KB instead of about 30KB as a {@code List<Float>}. The vector wraps its
+ * array without copying, so it must not be modified once the vector has been created.
+ *
+ * @author HamaWhite
+ */
+public final class DenseVector {
+
+    private final float[] values;
+
+    private DenseVector(float[] values) {
+        this.values = requireNonNull(values, "values must not be null");
+    }
+
+    /**
+     * Wrap the array without copying it.
+     */
+    public static DenseVector of(float[] values) {
+        return new DenseVector(values);
+    }
+
+    /**
+     * Unbox a list into a new vector.
+     */
+    public static DenseVector copyOf(List<Float> values) {
+        return new DenseVector(Floats.toArray(values));
+    }
+
+    /**
+     * The backing array, callers must not modify it.
+     */
+    public float[] values() {
+        return values;
+    }
+
+    public int dimension() {
+        return values.length;
+    }
+
+    public float get(int index) {
+        return values[index];
+    }
+
+    /**
+     * Read-only {@code List<Float>} view over the backing array, elements are boxed on access.
+     */
+    public List<Float> asList() {
+        return Collections.unmodifiableList(Floats.asList(values));
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        return o instanceof DenseVector that && Arrays.equals(values, that.values);
+    }
+
+    @Override
+    public int hashCode() {
+        return Arrays.hashCode(values);
+    }
+
+    @Override
+    public String toString() {
+        return Arrays.toString(values);
+    }
+}
@@ -36,4 +36,19 @@ public interface Embeddings {
      * Embed query text.
      */
     List<Float> embedQuery(String text);
+
+    /**
+     * Embed search docs into primitive vectors. Implementations which decode embeddings into {@code float[]} should
+     * override this and adapt {@link #embedDocuments(List)} to it.
+     */
+    default List<DenseVector> embedDocumentVectors(List<String> texts) {
+        return embedDocuments(texts).stream().map(DenseVector::copyOf).toList();
+    }
+
+    /**
+     * Embed query text into a primitive vector.
+     */
+    default DenseVector embedQueryVector(String text) {
+        return DenseVector.copyOf(embedQuery(text));
+    }
 }
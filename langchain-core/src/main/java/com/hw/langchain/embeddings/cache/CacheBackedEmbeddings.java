@@ -0,0 +1,131 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.hw.langchain.embeddings.cache;
+
+import com.google.common.hash.Hashing;
+import com.hw.langchain.embeddings.base.DenseVector;
+import com.hw.langchain.embeddings.base.Embeddings;
+
+import lombok.Builder;
+
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+
+/**
+ * Embeddings decorator caching the document embeddings of an underlying model.
+ * <p>
+ * The document embeddings are looked up in the stores from the first to the last, and only the texts missing from
+ * every store are sent to the underlying embeddings. A vector found in a later store is copied into the earlier ones,
+ * and a newly embedded vector is written to all of them. The key of a text is the namespace followed by the SHA-256
+ * hash of the text.
+ * <p>
+ * Query embeddings are not cached, queries rarely repeat.
+ *
+ * @author HamaWhite
+ */
+@Builder
+public class CacheBackedEmbeddings implements Embeddings {
+
+    private Embeddings underlyingEmbeddings;
+
+    /**
+     * Prefix of the keys, use the model name so that vectors of different models never mix.
+     */
+    private String namespace;
+
+    /**
+     * Stores ordered from the fastest to the slowest, for example in memory, local disk and Redis.
+     */
+    private List<EmbeddingStore> stores;
+
+    /**
+     * Validate parameters
+     */
+    public CacheBackedEmbeddings init() {
+        checkNotNull(underlyingEmbeddings, "underlyingEmbeddings must not be null");
+        checkNotNull(namespace, "namespace must not be null, use the model name");
+        checkArgument(stores != null && !stores.isEmpty(), "stores must not be empty");
+        return this;
+    }
+
+    private String key(String text) {
+        return namespace + ":" + Hashing.sha256().hashString(text, StandardCharsets.UTF_8);
+    }
+
+    @Override
+    public List<List<Float>> embedDocuments(List<String> texts) {
+        return embedDocumentVectors(texts).stream().map(DenseVector::asList).toList();
+    }
+
+    @Override
+    public List<DenseVector> embedDocumentVectors(List<String> texts) {
+        DenseVector[] vectors = new DenseVector[texts.size()];
+        // positions of the texts still missing by key, so that duplicated texts are embedded once
+        Map<String, List<Integer>> missing = new LinkedHashMap<>();
+        for (int i = 0; i < texts.size(); i++) {
+            missing.computeIfAbsent(key(texts.get(i)), k -> new ArrayList<>()).add(i);
+        }
+
+        for (int tier = 0; tier < stores.size() && !missing.isEmpty(); tier++) {
+            List<String> keys = new ArrayList<>(missing.keySet());
+            List<float[]> found = stores.get(tier).mget(keys);
+            Map<String, float[]> hits = new HashMap<>();
+            for (int i = 0; i < keys.size(); i++) {
+                float[] vector = found.get(i);
+                if (vector != null) {
+                    hits.put(keys.get(i), vector);
+                    for (int position : missing.remove(keys.get(i))) {
+                        vectors[position] = DenseVector.of(vector);
+                    }
+                }
+            }
+            if (!hits.isEmpty()) {
+                stores.subList(0, tier).forEach(store -> store.mset(hits));
+            }
+        }
+
+        if (!missing.isEmpty()) {
+            List<String> missingTexts = missing.values().stream().map(positions -> texts.get(positions.get(0)))
+                    .toList();
+            List<DenseVector> embedded = underlyingEmbeddings.embedDocumentVectors(missingTexts);
+            Map<String, float[]> fresh = new LinkedHashMap<>();
+            int i = 0;
+            for (var e : missing.entrySet()) {
+                DenseVector vector = embedded.get(i++);
+                fresh.put(e.getKey(), vector.values());
+                e.getValue().forEach(position -> vectors[position] = vector);
+            }
+            stores.forEach(store -> store.mset(fresh));
+        }
+        return List.of(vectors);
+    }
+
+    @Override
+    public List<Float> embedQuery(String text) {
+        return underlyingEmbeddings.embedQuery(text);
+    }
+
+    @Override
+    public DenseVector embedQueryVector(String text) {
+        return underlyingEmbeddings.embedQueryVector(text);
+    }
+}
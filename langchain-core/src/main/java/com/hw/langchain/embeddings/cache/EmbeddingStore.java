@@ -0,0 +1,46 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.hw.langchain.embeddings.cache;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Key-value store of embedding vectors used as a tier of {@link CacheBackedEmbeddings}.
+ * <p>
+ * The arrays passed to {@link #mset(Map)} and returned by {@link #mget(List)} end up in the vectors returned to the
+ * caller, which may modify them, so a store keeping arrays in memory must copy them.
+ *
+ * @author HamaWhite
+ */
+public interface EmbeddingStore {
+
+    /**
+     * Get the vectors of the keys.
+     *
+     * @param keys keys to look up
+     * @return one element per key, null when the key is not in the store
+     */
+    List<float[]> mget(List<String> keys);
+
+    /**
+     * Set the vectors of the keys, overwriting existing values.
+     */
+    void mset(Map<String, float[]> vectors);
+}
@@ -0,0 +1,187 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.hw.langchain.embeddings.cache;
+
+import com.hw.langchain.exception.LangChainException;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.Closeable;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Local disk store backed by an append-only file, only the key index is held in memory.
+ * <p>
+ * Each record is the UTF-8 key and the little-endian float32 vector, both prefixed with their length. Overwriting a
+ * key appends a new record, and the index is rebuilt by scanning the file when it is reopened. A record torn by a
+ * crash at the end of the file is truncated.
+ *
+ * @author HamaWhite
+ */
+public class FileEmbeddingStore implements EmbeddingStore, Closeable {
+
+    private static final Logger LOG = LoggerFactory.getLogger(FileEmbeddingStore.class);
+
+    private final Path path;
+
+    private final FileChannel channel;
+
+    private final Map<String, Entry> index = new ConcurrentHashMap<>();
+
+    private long end;
+
+    public FileEmbeddingStore(Path path) {
+        this.path = path;
+        try {
+            this.channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                    StandardOpenOption.WRITE);
+            this.end = loadIndex();
+            if (end < channel.size()) {
+                LOG.warn("Truncating incomplete record at offset {} of {}", end, path);
+                channel.truncate(end);
+            }
+        } catch (IOException e) {
+            throw new LangChainException("Failed to open embedding store " + path, e);
+        }
+    }
+
+    private long loadIndex() throws IOException {
+        ByteBuffer length = ByteBuffer.allocate(Integer.BYTES).order(ByteOrder.LITTLE_ENDIAN);
+        long position = 0;
+        long size = channel.size();
+        while (position < size) {
+            try {
+                int keyLength = readInt(length, position);
+                ByteBuffer key = ByteBuffer.allocate(keyLength);
+                readFully(key, position + Integer.BYTES);
+                long vectorPosition = position + Integer.BYTES + keyLength;
+                int dimension = readInt(length, vectorPosition);
+                long next = vectorPosition + Integer.BYTES + (long) dimension * Float.BYTES;
+                if (next > size) {
+                    break;
+                }
+                index.put(new String(key.array(), StandardCharsets.UTF_8), new Entry(vectorPosition, dimension));
+                position = next;
+            } catch (EOFException e) {
+                break;
+            }
+        }
+        return position;
+    }
+
+    private int readInt(ByteBuffer buffer, long position) throws IOException {
+        buffer.clear();
+        readFully(buffer, position);
+        return buffer.getInt(0);
+    }
+
+    private void readFully(ByteBuffer buffer, long position) throws IOException {
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer, position + buffer.position()) < 0) {
+                throw new EOFException();
+            }
+        }
+    }
+
+    @Override
+    public List<float[]> mget(List<String> keys) {
+        List<float[]> vectors = new ArrayList<>(keys.size());
+        try {
+            for (String key : keys) {
+                Entry entry = index.get(key);
+                vectors.add(entry == null ? null : read(entry));
+            }
+        } catch (IOException e) {
+            throw new LangChainException("Failed to read embedding store " + path, e);
+        }
+        return vectors;
+    }
+
+    private float[] read(Entry entry) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(entry.dimension() * Float.BYTES).order(ByteOrder.LITTLE_ENDIAN);
+        readFully(buffer, entry.position() + Integer.BYTES);
+        float[] vector = new float[entry.dimension()];
+        buffer.flip().asFloatBuffer().get(vector);
+        return vector;
+    }
+
+    @Override
+    public synchronized void mset(Map<String, float[]> vectors) {
+        try {
+            for (var e : vectors.entrySet()) {
+                byte[] key = e.getKey().getBytes(StandardCharsets.UTF_8);
+                float[] vector = e.getValue();
+                ByteBuffer buffer = ByteBuffer.allocate(2 * Integer.BYTES + key.length + vector.length * Float.BYTES)
+                        .order(ByteOrder.LITTLE_ENDIAN);
+                buffer.putInt(key.length).put(key).putInt(vector.length);
+                buffer.asFloatBuffer().put(vector);
+                buffer.clear();
+                while (buffer.hasRemaining()) {
+                    channel.write(buffer, end + buffer.position());
+                }
+                index.put(e.getKey(), new Entry(end + Integer.BYTES + key.length, vector.length));
+                end += buffer.capacity();
+            }
+        } catch (IOException e) {
+            throw new LangChainException("Failed to write embedding store " + path, e);
+        }
+    }
+
+    public int size() {
+        return index.size();
+    }
+
+    /**
+     * Flush appended records to the storage device.
+     */
+    public void force() {
+        try {
+            channel.force(false);
+        } catch (IOException e) {
+            throw new LangChainException("Failed to flush embedding store " + path, e);
+        }
+    }
+
+    @Override
+    public void close() {
+        try {
+            channel.close();
+        } catch (IOException e) {
+            throw new LangChainException("Failed to close embedding store " + path, e);
+        }
+    }
+
+    /**
+     * Position of the dimension prefix of a vector, and its dimension.
+     */
+    private record Entry(long position, int dimension) {
+    }
+}
@@ -0,0 +1,64 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.hw.langchain.embeddings.cache;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+
+import java.util.List;
+import java.util.Map;
+
+import static com.google.common.base.Preconditions.checkArgument;
+
+/**
+ * In-memory store evicting the least recently used vectors once it holds {@code maxSize} of them.
+ * <p>
+ * Vectors are copied when they are set and when they are returned, so the arrays handed out by
+ * {@link CacheBackedEmbeddings} can be modified without corrupting the store.
+ *
+ * @author HamaWhite
+ */
+public class InMemoryEmbeddingStore implements EmbeddingStore {
+
+    private final Cache<String, float[]> cache;
+
+    public InMemoryEmbeddingStore(long maxSize) {
+        checkArgument(maxSize > 0, "maxSize must be positive, got %s", maxSize);
+        this.cache = CacheBuilder.newBuilder()
+                .maximumSize(maxSize)
+                .build();
+    }
+
+    @Override
+    public List<float[]> mget(List<String> keys) {
+        return keys.stream().map(key -> {
+            float[] vector = cache.getIfPresent(key);
+            return vector == null ? null : vector.clone();
+        }).toList();
+    }
+
+    @Override
+    public void mset(Map<String, float[]> vectors) {
+        vectors.forEach((key, vector) -> cache.put(key, vector.clone()));
+    }
+
+    public long size() {
+        return cache.size();
+    }
+}
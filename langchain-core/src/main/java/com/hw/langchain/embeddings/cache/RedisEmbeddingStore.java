@@ -0,0 +1,104 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.hw.langchain.embeddings.cache;
+
+import org.redisson.api.RBatch;
+import org.redisson.api.RedissonClient;
+import org.redisson.client.codec.ByteArrayCodec;
+
+import lombok.Builder;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+
+/**
+ * Redis store shared by every process using the same Redis, vectors are stored as little-endian float32 bytes.
+ * A lookup is a single MGET and a write a single pipelined batch.
+ *
+ * @author HamaWhite
+ */
+@Builder
+public class RedisEmbeddingStore implements EmbeddingStore {
+
+    private RedissonClient redissonClient;
+
+    @Builder.Default
+    private String keyPrefix = "embedding_store:";
+
+    /**
+     * Expiration of the vectors, they never expire when null.
+     */
+    private Integer ttlSeconds;
+
+    /**
+     * Validate parameters
+     */
+    public RedisEmbeddingStore init() {
+        checkNotNull(redissonClient, "redissonClient must not be null");
+        return this;
+    }
+
+    private String key(String key) {
+        return keyPrefix == null ? key : keyPrefix + key;
+    }
+
+    @Override
+    public List<float[]> mget(List<String> keys) {
+        String[] redisKeys = keys.stream().map(this::key).toArray(String[]::new);
+        Map<String, byte[]> values = redissonClient.getBuckets(ByteArrayCodec.INSTANCE).get(redisKeys);
+        return keys.stream()
+                .map(key -> values.get(key(key)))
+                .map(value -> value == null ? null : toVector(value))
+                .toList();
+    }
+
+    @Override
+    public void mset(Map<String, float[]> vectors) {
+        if (vectors.isEmpty()) {
+            return;
+        }
+        RBatch batch = redissonClient.createBatch();
+        vectors.forEach((key, vector) -> {
+            var bucket = batch.<byte[]>getBucket(key(key), ByteArrayCodec.INSTANCE);
+            if (ttlSeconds != null) {
+                bucket.setAsync(toBytes(vector), ttlSeconds, TimeUnit.SECONDS);
+            } else {
+                bucket.setAsync(toBytes(vector));
+            }
+        });
+        batch.execute();
+    }
+
+    private static byte[] toBytes(float[] vector) {
+        ByteBuffer buffer = ByteBuffer.allocate(vector.length * Float.BYTES).order(ByteOrder.LITTLE_ENDIAN);
+        buffer.asFloatBuffer().put(vector);
+        return buffer.array();
+    }
+
+    private static float[] toVector(byte[] bytes) {
+        float[] vector = new float[bytes.length / Float.BYTES];
+        ByteBuffer.wrap(bytes).order(ByteOrder.LITTLE_ENDIAN).asFloatBuffer().get(vector);
+        return vector;
+    }
+}
@@ -20,6 +20,7 @@ package com.hw.langchain.embeddings.ollama;
 
 import com.fasterxml.jackson.core.type.TypeReference;
 import com.hw.langchain.chains.query.constructor.JsonUtils;
+import com.hw.langchain.embeddings.base.DenseVector;
 import com.hw.langchain.embeddings.base.Embeddings;
 import com.hw.langchain.requests.TextRequestsWrapper;
 
@@ -52,19 +53,29 @@ public class OllamaEmbeddings implements Embeddings {
 
     @Override
     public List<List<Float>> embedDocuments(List<String> texts) {
-        return texts.stream().map(this::embeddings).toList();
+        return embedDocumentVectors(texts).stream().map(DenseVector::asList).toList();
     }
 
     @Override
     public List<Float> embedQuery(String text) {
+        return embedQueryVector(text).asList();
+    }
+
+    @Override
+    public List<DenseVector> embedDocumentVectors(List<String> texts) {
+        return texts.stream().map(this::embeddings).toList();
+    }
+
+    @Override
+    public DenseVector embedQueryVector(String text) {
         return embeddings(text);
     }
 
-    private List<Float> embeddings(String prompt) {
+    private DenseVector embeddings(String prompt) {
         Map<String, Object> body = Map.of("model", model, "prompt", prompt);
         String response = requestsWrapper.post(baseUrl + "/api/embeddings", body);
-        Map<String, List<Float>> parsedResponse = JsonUtils.convertFromJsonStr(response, new TypeReference<>() {
+        Map<String, float[]> parsedResponse = JsonUtils.convertFromJsonStr(response, new TypeReference<>() {
         });
-        return parsedResponse.get("embedding");
+        return DenseVector.of(parsedResponse.get("embedding"));
     }
 }
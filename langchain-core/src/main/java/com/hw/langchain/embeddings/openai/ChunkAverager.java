@@ -0,0 +1,94 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.hw.langchain.embeddings.openai;
+
+import java.util.Arrays;
+
+import static com.hw.langchain.math.utils.MathUtils.norm;
+
+/**
+ * Combine the embeddings of the chunks of a long text into the normalized average of the chunk embeddings, weighted
+ * by the number of tokens of each chunk.
+ * <p>
+ * The accumulator is reused from one text to the next. Dividing by the total weight is skipped because the
+ * normalization cancels it. A text made of a single chunk is normalized in place without copying.
+ *
+ * @author HamaWhite
+ */
+final class ChunkAverager {
+
+    private float[] sum = new float[0];
+
+    private float[] first;
+
+    private int firstWeight;
+
+    private int count;
+
+    /**
+     * Add the embedding of a chunk, the averager may normalize it in place.
+     */
+    void add(float[] embedding, int numTokens) {
+        if (count == 0) {
+            first = embedding;
+            firstWeight = numTokens;
+            count++;
+            return;
+        }
+        if (embedding.length != first.length) {
+            throw new IllegalArgumentException(String.format(
+                    "Chunk embeddings must have the same dimension, got %d and %d.", first.length, embedding.length));
+        }
+        if (count == 1) {
+            if (sum.length != first.length) {
+                sum = new float[first.length];
+            }
+            for (int i = 0; i < first.length; i++) {
+                sum[i] = first[i] * firstWeight;
+            }
+        }
+        for (int i = 0; i < embedding.length; i++) {
+            sum[i] += embedding[i] * numTokens;
+        }
+        count++;
+    }
+
+    boolean isEmpty() {
+        return count == 0;
+    }
+
+    /**
+     * Return the normalized weighted average of the chunks added since the last call, and reset the averager.
+     */
+    float[] averageAndReset() {
+        if (count == 0) {
+            throw new IllegalStateException("No chunk embeddings to average.");
+        }
+        float[] average = count == 1 ? first : Arrays.copyOf(sum, sum.length);
+        float norm = norm(average);
+        if (norm > 0) {
+            for (int i = 0; i < average.length; i++) {
+                average[i] /= norm;
+            }
+        }
+        first = null;
+        count = 0;
+        return average;
+    }
+}
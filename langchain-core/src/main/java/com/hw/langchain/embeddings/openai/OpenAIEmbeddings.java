@@ -18,26 +18,29 @@
 
 package com.hw.langchain.embeddings.openai;
 
-import com.google.common.primitives.Doubles;
-import com.google.common.primitives.Floats;
+import com.google.common.collect.Lists;
+import com.hw.langchain.embeddings.base.DenseVector;
 import com.hw.langchain.embeddings.base.Embeddings;
-import com.hw.langchain.exception.LangChainException;
+import com.hw.langchain.utils.EncodingUtils;
 import com.hw.openai.OpenAiClient;
 import com.hw.openai.common.OpenaiApiType;
 import com.hw.openai.entity.embeddings.Embedding;
 import com.hw.openai.entity.embeddings.EmbeddingResp;
-import com.knuddels.jtokkit.Encodings;
+import com.hw.openai.entity.embeddings.EncodingFormat;
+import com.hw.openai.exception.OpenAiException;
+import com.hw.openai.ratelimit.OpenAiRateLimiter;
 import com.knuddels.jtokkit.api.Encoding;
 
-import org.nd4j.linalg.api.ndarray.INDArray;
-import org.nd4j.linalg.factory.Nd4j;
-
 import lombok.AllArgsConstructor;
 import lombok.Builder;
+import retrofit2.HttpException;
 
+import java.io.IOException;
 import java.util.*;
-import java.util.stream.IntStream;
 
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.hw.langchain.utils.Resilience4jRetryUtils.retryWithExponentialBackoff;
+import static com.hw.langchain.utils.ThreadPoolUtil.mapConcurrently;
 import static com.hw.langchain.utils.Utils.getOrEnvOrDefault;
 
 /**
@@ -94,15 +97,52 @@ public class OpenAIEmbeddings implements Embeddings {
     @Builder.Default
     protected long requestTimeout = 16;
 
+    /**
+     * Maximum number of batches sent to the embedding endpoint at the same time, 1 sends them one after another.
+     */
+    @Builder.Default
+    private int maxConcurrency = 1;
+
+    /**
+     * Requests per minute allowed by the account quota, zero disables the limit.
+     */
+    private int requestsPerMinute;
+
+    /**
+     * Tokens per minute allowed by the account quota, zero disables the limit.
+     */
+    private int tokensPerMinute;
+
+    /**
+     * Format of the returned embeddings, base64 by default for OpenAI and the server default for Azure.
+     */
+    private EncodingFormat encodingFormat;
+
+    /**
+     * Limiter shared with the other clients calling with the same quota. When it is null, one is created from
+     * requestsPerMinute and tokensPerMinute if either of them is set.
+     */
+    private OpenAiRateLimiter rateLimiter;
+
     /**
      * Validate parameters and init client
      */
     public OpenAIEmbeddings init() {
+        checkArgument(maxConcurrency > 0, "maxConcurrency must be positive, got %s", maxConcurrency);
+        checkArgument(requestsPerMinute >= 0, "requestsPerMinute must not be negative, got %s", requestsPerMinute);
+        checkArgument(tokensPerMinute >= 0, "tokensPerMinute must not be negative, got %s", tokensPerMinute);
         openaiApiKey = getOrEnvOrDefault(openaiApiKey, "OPENAI_API_KEY");
         openaiApiBase = getOrEnvOrDefault(openaiApiBase, "OPENAI_API_BASE", "");
         openaiProxy = getOrEnvOrDefault(openaiProxy, "OPENAI_PROXY", "");
         openaiOrganization = getOrEnvOrDefault(openaiOrganization, "OPENAI_ORGANIZATION", "");
         openaiApiVersion = getOrEnvOrDefault(openaiApiVersion, "OPENAI_API_VERSION", "");
+        if (rateLimiter == null && (requestsPerMinute > 0 || tokensPerMinute > 0)) {
+            rateLimiter = OpenAiRateLimiter.builder()
+                    .requestsPerMinute(requestsPerMinute)
+                    .tokensPerMinute(tokensPerMinute)
+                    .build()
+                    .init();
+        }
 
         this.client = OpenAiClient.builder()
                 .openaiApiBase(openaiApiBase)
@@ -112,22 +152,25 @@ public class OpenAIEmbeddings implements Embeddings {
                 .openaiOrganization(openaiOrganization)
                 .openaiProxy(openaiProxy)
                 .requestTimeout(requestTimeout)
+                .rateLimiter(rateLimiter)
                 .build()
                 .init();
+
+        if (encodingFormat == null && openaiApiType == OpenaiApiType.OPENAI) {
+            encodingFormat = EncodingFormat.BASE64;
+        }
         return this;
     }
 
     /**
      * <a href="https://github.com/openai/openai-cookbook/blob/main/examples/Embedding_long_inputs.ipynb">Embedding texts that are longer than the model's maximum context length</a>
      */
-    private List<List<Float>> getLenSafeEmbeddings(List<String> texts) {
-        List<List<Float>> embeddings = new ArrayList<>(texts.size());
+    private List<DenseVector> getLenSafeEmbeddings(List<String> texts) {
+        List<DenseVector> embeddings = new ArrayList<>(texts.size());
 
         List<List<Integer>> tokens = new ArrayList<>();
         List<Integer> indices = new ArrayList<>();
-        Encoding encoding = Encodings.newDefaultEncodingRegistry()
-                .getEncodingForModel(model)
-                .orElseThrow(() -> new LangChainException("Encoding not found."));
+        Encoding encoding = getEncoding();
 
         for (int i = 0; i < texts.size(); i++) {
             String text = texts.get(i);
@@ -143,42 +186,50 @@ public class OpenAIEmbeddings implements Embeddings {
             }
         }
 
-        List<List<Float>> batchedEmbeddings = new ArrayList<>();
-        for (int i = 0; i < tokens.size(); i += chunkSize) {
-            List<?> input = tokens.subList(i, Math.min(i + chunkSize, tokens.size()));
-            var response = embedWithRetry(input);
-            response.getData().forEach(result -> batchedEmbeddings.add(result.getEmbedding()));
-        }
-
-        List<? extends List<List<Float>>> results = IntStream.range(0, texts.size())
-                .mapToObj(i -> new ArrayList<List<Float>>())
-                .toList();
-        List<? extends List<Integer>> numTokensInBatch = IntStream.range(0, texts.size())
-                .mapToObj(i -> new ArrayList<Integer>())
-                .toList();
-        for (int i = 0; i < indices.size(); i++) {
-            int index = indices.get(i);
-            results.get(index).add(batchedEmbeddings.get(i));
-            numTokensInBatch.get(index).add(tokens.get(i).size());
+        List<float[]> batchedEmbeddings = new ArrayList<>(tokens.size());
+        for (var response : embedBatches(Lists.partition(tokens, chunkSize))) {
+            response.getData().forEach(result -> batchedEmbeddings.add(result.getEmbeddingArray()));
         }
 
+        // the chunks of a text are consecutive, average them into one embedding per text
+        ChunkAverager averager = new ChunkAverager();
+        int chunk = 0;
         for (int i = 0; i < texts.size(); i++) {
-            INDArray average;
-            try (INDArray resultArray =
-                    Nd4j.create(results.get(i).stream().map(Floats::toArray).toArray(float[][]::new))) {
-                INDArray weightsArray = Nd4j.create(Doubles.toArray(numTokensInBatch.get(i)));
-                average = resultArray.mulRowVector(weightsArray).sum(0).div(weightsArray.sum(0));
+            for (; chunk < indices.size() && indices.get(chunk) == i; chunk++) {
+                averager.add(batchedEmbeddings.get(chunk), tokens.get(chunk).size());
+            }
+            if (averager.isEmpty()) {
+                // an empty text has no tokens to embed
+                averager.add(embedWithRetry(List.of("")).getData().get(0).getEmbeddingArray(), 1);
             }
-            INDArray normalizedAverage = average.div(average.norm2Number());
-            embeddings.add(Floats.asList(normalizedAverage.toFloatVector()));
+            embeddings.add(DenseVector.of(averager.averageAndReset()));
         }
         return embeddings;
     }
 
+    /**
+     * Embed the batches, concurrently when maxConcurrency is greater than 1, and return the responses in the order of
+     * the batches.
+     */
+    private List<EmbeddingResp> embedBatches(List<? extends List<?>> batches) {
+        return mapConcurrently(batches, maxConcurrency, this::embedWithRetry);
+    }
+
+    private Encoding getEncoding() {
+        return EncodingUtils.getEncodingForModel(model);
+    }
+
     /**
      * Call out to OpenAI's embedding endpoint.
      */
     public List<Float> embeddingFunc(String text) {
+        return embeddingVectorFunc(text).asList();
+    }
+
+    /**
+     * Call out to OpenAI's embedding endpoint, keeping the embedding as a primitive vector.
+     */
+    public DenseVector embeddingVectorFunc(String text) {
         if (text.length() > embeddingCtxLength) {
             return getLenSafeEmbeddings(List.of(text)).get(0);
         } else {
@@ -187,7 +238,7 @@ public class OpenAIEmbeddings implements Embeddings {
                 // replace newlines, which can negatively affect performance.
                 text = text.replace("\n", " ");
             }
-            return embedWithRetry(List.of(text)).getData().get(0).getEmbedding();
+            return DenseVector.of(embedWithRetry(List.of(text)).getData().get(0).getEmbeddingArray());
         }
     }
 
@@ -199,6 +250,11 @@ public class OpenAIEmbeddings implements Embeddings {
      */
     @Override
     public List<List<Float>> embedDocuments(List<String> texts) {
+        return embedDocumentVectors(texts).stream().map(DenseVector::asList).toList();
+    }
+
+    @Override
+    public List<DenseVector> embedDocumentVectors(List<String> texts) {
         // NOTE: to keep things simple, we assume the list may contain texts longer
         // than the maximum context and use length-safe embedding function.
         return this.getLenSafeEmbeddings(texts);
@@ -215,11 +271,34 @@ public class OpenAIEmbeddings implements Embeddings {
         return embeddingFunc(text);
     }
 
+    @Override
+    public DenseVector embedQueryVector(String text) {
+        return embeddingVectorFunc(text);
+    }
+
+    /**
+     * Call the embedding endpoint within the rate limits, retrying rate limit, server and network errors with
+     * exponential backoff.
+     *
+     * @param input texts or token arrays to embed
+     */
     public EmbeddingResp embedWithRetry(List<?> input) {
         var embedding = Embedding.builder()
                 .model(model)
                 .input(input)
+                .encodingFormat(encodingFormat)
                 .build();
-        return client.createEmbedding(embedding);
+        return retryWithExponentialBackoff(maxRetries, () -> client.createEmbedding(embedding),
+                OpenAIEmbeddings::isRetryable);
+    }
+
+    private static boolean isRetryable(Throwable e) {
+        if (e instanceof OpenAiException openAiException) {
+            return openAiException.statusCode == 429 || openAiException.statusCode >= 500;
+        }
+        if (e instanceof HttpException httpException) {
+            return httpException.code() == 429 || httpException.code() >= 500;
+        }
+        return e instanceof IOException || e.getCause() instanceof IOException;
     }
 }
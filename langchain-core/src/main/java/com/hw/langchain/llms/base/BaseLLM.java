@@ -19,6 +19,8 @@
 package com.hw.langchain.llms.base;
 
 import com.hw.langchain.base.language.BaseLanguageModel;
+import com.hw.langchain.cache.BaseCache;
+import com.hw.langchain.cache.CacheUtils;
 import com.hw.langchain.schema.AsyncLLMResult;
 import com.hw.langchain.schema.BaseMessage;
 import com.hw.langchain.schema.LLMResult;
@@ -28,6 +30,7 @@ import lombok.experimental.SuperBuilder;
 import reactor.core.publisher.Flux;
 
 import java.util.List;
+import java.util.Map;
 
 /**
  * LLM wrapper should take in a prompt and return a string.
@@ -36,11 +39,23 @@ import java.util.List;
 @SuperBuilder
 public abstract class BaseLLM implements BaseLanguageModel {
 
+    /**
+     * Cache of the generations, the model is called for every prompt when null.
+     */
+    protected BaseCache cache;
+
     /**
      * Return type of llm.
      */
     public abstract String llmType();
 
+    /**
+     * Parameters changing the output of the model, part of the cache key.
+     */
+    public Map<String, Object> identifyingParams() {
+        return Map.of();
+    }
+
     /**
      * Run the LLM on the given prompts.
      */
@@ -62,10 +77,15 @@ public abstract class BaseLLM implements BaseLanguageModel {
     }
 
     /**
-     * Run the LLM on the given prompt and input.
+     * Run the LLM on the given prompt and input, only the prompts missing from the cache reach the model.
      */
     public LLMResult generate(List<String> prompts, List<String> stop) {
-        return innerGenerate(prompts, stop);
+        if (cache == null) {
+            return innerGenerate(prompts, stop);
+        }
+        String llmString = CacheUtils.llmString(llmType(), identifyingParams(), stop);
+        return CacheUtils.generate(cache, llmString, prompts,
+                indexes -> innerGenerate(indexes.stream().map(prompts::get).toList(), stop));
     }
 
     @Override
@@ -89,6 +89,19 @@ public class ChatGLM extends LLM {
         return this;
     }
 
+    /**
+     * The history is part of the parameters, as it changes the answer of the model.
+     */
+    @Override
+    public Map<String, Object> identifyingParams() {
+        return Map.of(
+                "endpoint_url", endpointUrl,
+                "max_length", maxToken,
+                "temperature", temperature,
+                "top_p", topP,
+                "history", List.copyOf(history));
+    }
+
     @Override
     public String llmType() {
         return "chat_glm";
@@ -21,8 +21,9 @@ package com.hw.langchain.llms.ollama;
 import com.fasterxml.jackson.core.type.TypeReference;
 import com.google.common.collect.Maps;
 import com.hw.langchain.chains.query.constructor.JsonUtils;
+import com.hw.langchain.exception.LangChainException;
 import com.hw.langchain.llms.base.BaseLLM;
-import com.hw.langchain.requests.TextRequestsWrapper;
+import com.hw.langchain.requests.Requests;
 import com.hw.langchain.schema.AsyncLLMResult;
 import com.hw.langchain.schema.GenerationChunk;
 import com.hw.langchain.schema.LLMResult;
@@ -31,8 +32,14 @@ import org.apache.commons.lang3.StringUtils;
 
 import lombok.Builder;
 import lombok.experimental.SuperBuilder;
+import okhttp3.Call;
+import okhttp3.Response;
+import okhttp3.ResponseBody;
+import okio.BufferedSource;
 import reactor.core.publisher.Flux;
+import reactor.core.scheduler.Schedulers;
 
+import java.io.IOException;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
@@ -56,7 +63,7 @@ public class Ollama extends BaseLLM {
     @Builder.Default
     private String model = "llama2";
 
-    private TextRequestsWrapper requestsWrapper;
+    private Requests requests;
 
     /**
      * Enable Mirostat sampling for controlling perplexity. (0 = disabled, 1 = Mirostat, 2 = Mirostat 2.0)
@@ -145,9 +152,16 @@ public class Ollama extends BaseLLM {
         return "ollama-llm";
     }
 
+    @Override
+    public Map<String, Object> identifyingParams() {
+        Map<String, Object> params = createParams(null);
+        params.put("model", model);
+        return params;
+    }
+
     public Ollama init() {
         Map<String, String> headers = Map.of("Content-Type", "application/json");
-        this.requestsWrapper = new TextRequestsWrapper(headers);
+        this.requests = new Requests(headers);
         return this;
     }
 
@@ -171,12 +185,72 @@ public class Ollama extends BaseLLM {
     }
 
     public List<String> createStream(String prompt, List<String> stop) {
+        return streamLines(prompt, stop).collectList().block();
+    }
+
+    /**
+     * Stream the NDJSON lines of the generate endpoint as they arrive. The response is read on the bounded elastic
+     * scheduler as the subscriber requests lines, and cancelling the subscription cancels the call, which closes the
+     * connection.
+     */
+    private Flux<String> streamLines(String prompt, List<String> stop) {
         Map<String, Object> body = Map.of(
                 "model", model,
                 "prompt", prompt,
                 "options", createParams(stop));
-        String response = requestsWrapper.post(baseUrl + "/api/generate", body);
-        return response.lines().toList();
+        return Flux.defer(() -> {
+            Call call = requests.newCall(baseUrl + "/api/generate", "POST", body);
+            return Flux.<String, BufferedSource>generate(() -> execute(call), (source, sink) -> {
+                try {
+                    String line = source.readUtf8Line();
+                    if (line == null) {
+                        sink.complete();
+                    } else {
+                        sink.next(line);
+                    }
+                } catch (IOException e) {
+                    if (call.isCanceled()) {
+                        sink.complete();
+                    } else {
+                        sink.error(new LangChainException("An error occurred while reading the stream.", e));
+                    }
+                }
+                return source;
+            }, Ollama::closeQuietly).doOnCancel(call::cancel);
+        }).subscribeOn(Schedulers.boundedElastic());
+    }
+
+    private static BufferedSource execute(Call call) throws IOException {
+        Response response = call.execute();
+        ResponseBody responseBody = response.body();
+        if (!response.isSuccessful() || responseBody == null) {
+            response.close();
+            throw new LangChainException("Failed with status code %d. messages: %s", response.code(),
+                    response.message());
+        }
+        return responseBody.source();
+    }
+
+    private static void closeQuietly(BufferedSource source) {
+        try {
+            source.close();
+        } catch (IOException e) {
+            // the call is over
+        }
+    }
+
+    /**
+     * Stream the generation of the prompt, a chunk per line of the response as it arrives. The last chunk holds the
+     * final statistics of the generation in its generation info.
+     *
+     * @param prompt The prompt to pass into the model.
+     * @param stop   list of stop words to use when generating.
+     * @return the chunks of the generation
+     */
+    public Flux<GenerationChunk> streamGenerate(String prompt, List<String> stop) {
+        return streamLines(prompt, stop)
+                .filter(StringUtils::isNotEmpty)
+                .map(Ollama::streamResponseToGenerationChunk);
     }
 
     /**
@@ -191,18 +265,7 @@ public class Ollama extends BaseLLM {
         List<List<GenerationChunk>> generations = new ArrayList<>();
 
         for (String prompt : prompts) {
-            GenerationChunk finalChunk = null;
-
-            for (String streamResp : createStream(prompt, stop)) {
-                if (StringUtils.isNotEmpty(streamResp)) {
-                    GenerationChunk chunk = streamResponseToGenerationChunk(streamResp);
-                    if (finalChunk == null) {
-                        finalChunk = chunk;
-                    } else {
-                        finalChunk = finalChunk.add(chunk);
-                    }
-                }
-            }
+            GenerationChunk finalChunk = streamGenerate(prompt, stop).reduce(GenerationChunk::add).block();
             generations.add(List.of(requireNonNull(finalChunk)));
         }
         return new LLMResult(generations);
@@ -210,7 +273,9 @@ public class Ollama extends BaseLLM {
 
     @Override
     protected Flux<AsyncLLMResult> asyncInnerGenerate(List<String> prompts, List<String> stop) {
-        throw new UnsupportedOperationException("not supported yet.");
+        return Flux.fromIterable(prompts)
+                .concatMap(prompt -> streamGenerate(prompt, stop))
+                .map(chunk -> new AsyncLLMResult(List.of(chunk), null));
     }
 
     /**
@@ -28,9 +28,11 @@ import com.hw.openai.entity.completions.Choice;
 import com.hw.openai.entity.completions.Completion;
 import com.hw.openai.entity.completions.CompletionChunk;
 import com.hw.openai.entity.completions.CompletionResp;
+import com.hw.openai.ratelimit.OpenAiRateLimiter;
 
 import io.reactivex.Flowable;
 import lombok.Builder;
+import lombok.Getter;
 import lombok.experimental.SuperBuilder;
 import okhttp3.Interceptor;
 import reactor.adapter.rxjava.RxJava2Adapter;
@@ -142,6 +144,7 @@ public class BaseOpenAI extends BaseLLM {
     /**
      * Batch size to use when passing multiple documents to generate.
      */
+    @Getter
     @Builder.Default
     protected int batchSize = 20;
 
@@ -182,6 +185,26 @@ public class BaseOpenAI extends BaseLLM {
      */
     protected List<Interceptor> interceptorList;
 
+    /**
+     * Limiter shared with the other clients calling with the same quota, requests are not limited when it is null.
+     */
+    protected OpenAiRateLimiter rateLimiter;
+
+    @Override
+    public Map<String, Object> identifyingParams() {
+        Map<String, Object> params = new HashMap<>(10);
+        params.put("model", model);
+        params.put("temperature", temperature);
+        params.put("max_tokens", maxTokens);
+        params.put("top_p", topP);
+        params.put("frequency_penalty", frequencyPenalty);
+        params.put("presence_penalty", presencePenalty);
+        params.put("n", n);
+        params.put("best_of", bestOf);
+        params.put("logit_bias", logitBias);
+        return params;
+    }
+
     @Override
     public String llmType() {
         return "openai";
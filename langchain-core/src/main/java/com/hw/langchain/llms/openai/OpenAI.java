@@ -56,6 +56,7 @@ public class OpenAI extends BaseOpenAI {
                 .proxyPassword(proxyPassword)
                 .requestTimeout(requestTimeout)
                 .interceptorList(interceptorList)
+                .rateLimiter(rateLimiter)
                 .build()
                 .init();
         return this;
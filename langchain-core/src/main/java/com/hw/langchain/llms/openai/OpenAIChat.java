@@ -18,6 +18,7 @@
 
 package com.hw.langchain.llms.openai;
 
+import com.hw.langchain.chat.models.openai.OpenAI;
 import com.hw.langchain.llms.base.BaseLLM;
 import com.hw.langchain.schema.AsyncLLMResult;
 import com.hw.langchain.schema.Generation;
@@ -28,15 +29,17 @@ import com.hw.openai.common.OpenaiApiType;
 import com.hw.openai.entity.chat.ChatCompletion;
 import com.hw.openai.entity.chat.ChatCompletionResp;
 import com.hw.openai.entity.chat.ChatMessage;
+import com.hw.openai.ratelimit.OpenAiRateLimiter;
 
 import lombok.Builder;
 import lombok.experimental.SuperBuilder;
+import reactor.adapter.rxjava.RxJava2Adapter;
 import reactor.core.publisher.Flux;
 
 import java.util.*;
+import java.util.stream.Collectors;
 
 import static com.google.common.base.Preconditions.checkArgument;
-
 /**
  * Wrapper around OpenAI Chat large language models.
  * @author HamaWhite
@@ -146,6 +149,11 @@ public class OpenAIChat extends BaseLLM {
      */
     protected boolean stream;
 
+    /**
+     * Limiter shared with the other clients calling with the same quota, requests are not limited when it is null.
+     */
+    private OpenAiRateLimiter rateLimiter;
+
     public OpenAIChat init() {
         openaiApiBase = Utils.getOrEnvOrDefault(openaiApiBase, "OPENAI_API_BASE", "");
         openaiApiKey = Utils.getOrEnvOrDefault(openaiApiKey, "OPENAI_API_KEY");
@@ -161,11 +169,27 @@ public class OpenAIChat extends BaseLLM {
                 .openaiOrganization(openaiOrganization)
                 .openaiProxy(openaiProxy)
                 .requestTimeout(requestTimeout)
+                .rateLimiter(rateLimiter)
                 .build()
                 .init();
         return this;
     }
 
+    @Override
+    public Map<String, Object> identifyingParams() {
+        Map<String, Object> params = new HashMap<>(10);
+        params.put("model", model);
+        params.put("temperature", temperature);
+        params.put("max_tokens", maxTokens);
+        params.put("top_p", topP);
+        params.put("frequency_penalty", frequencyPenalty);
+        params.put("presence_penalty", presencePenalty);
+        params.put("n", n);
+        params.put("logit_bias", logitBias);
+        params.put("prefix_messages", prefixMessages);
+        return params;
+    }
+
     @Override
     public String llmType() {
         return "openai-chat";
@@ -174,21 +198,15 @@ public class OpenAIChat extends BaseLLM {
     @Override
     protected LLMResult innerGenerate(List<String> prompts, List<String> stop) {
         List<ChatMessage> messages = getChatMessages(prompts);
+        if (stream) {
+            String text = asyncInnerGenerate(prompts, stop)
+                    .map(result -> result.getGenerations().get(0).getText())
+                    .collect(Collectors.joining())
+                    .block();
+            return new LLMResult(List.of(List.of(new Generation(text))), Map.of("model_name", model));
+        }
 
-        ChatCompletion chatCompletion = ChatCompletion.builder()
-                .model(model)
-                .temperature(temperature)
-                .messages(messages)
-                .maxTokens(maxTokens)
-                .topP(topP)
-                .frequencyPenalty(frequencyPenalty)
-                .presencePenalty(presencePenalty)
-                .n(n)
-                .logitBias(logitBias)
-                .stop(stop)
-                .build();
-
-        ChatCompletionResp response = client.createChatCompletion(chatCompletion);
+        ChatCompletionResp response = client.createChatCompletion(createChatCompletion(messages, stop));
 
         List<List<Generation>> generations = new ArrayList<>();
         Generation generation = Generation.builder()
@@ -204,9 +222,30 @@ public class OpenAIChat extends BaseLLM {
         return new LLMResult(generations, llmOutput);
     }
 
+    /**
+     * Stream the response, a chunk per token delta of the completion.
+     */
     @Override
     protected Flux<AsyncLLMResult> asyncInnerGenerate(List<String> prompts, List<String> stop) {
-        throw new UnsupportedOperationException("not supported yet.");
+        ChatCompletion chatCompletion = createChatCompletion(getChatMessages(prompts), stop);
+        return RxJava2Adapter.flowableToFlux(client.streamChatCompletion(chatCompletion))
+                .mapNotNull(OpenAI::chunkContent)
+                .map(text -> new AsyncLLMResult(List.of(new Generation(text)), null));
+    }
+
+    private ChatCompletion createChatCompletion(List<ChatMessage> messages, List<String> stop) {
+        return ChatCompletion.builder()
+                .model(model)
+                .temperature(temperature)
+                .messages(messages)
+                .maxTokens(maxTokens)
+                .topP(topP)
+                .frequencyPenalty(frequencyPenalty)
+                .presencePenalty(presencePenalty)
+                .n(n)
+                .logitBias(logitBias)
+                .stop(stop)
+                .build();
     }
 
     private List<ChatMessage> getChatMessages(List<String> prompts) {
@@ -65,4 +65,48 @@ public class MathUtils {
         }
         return allCosineSimilarities(xArray, yArray, xArray.rank() - 1);
     }
+
+    /**
+     * Dot product of two equal-length vectors.
+     * <p>
+     * Four independent accumulators break the dependency chain of the float additions, which lets the JIT pipeline
+     * the multiply-adds instead of waiting on a single running sum.
+     */
+    public static float dot(float[] x, float[] y) {
+        if (x.length != y.length) {
+            throw new IllegalArgumentException(
+                    String.format("Vectors must have the same length, got %d and %d.", x.length, y.length));
+        }
+        float s0 = 0;
+        float s1 = 0;
+        float s2 = 0;
+        float s3 = 0;
+        int i = 0;
+        int bound = x.length & ~3;
+        for (; i < bound; i += 4) {
+            s0 += x[i] * y[i];
+            s1 += x[i + 1] * y[i + 1];
+            s2 += x[i + 2] * y[i + 2];
+            s3 += x[i + 3] * y[i + 3];
+        }
+        for (; i < x.length; i++) {
+            s0 += x[i] * y[i];
+        }
+        return (s0 + s1) + (s2 + s3);
+    }
+
+    /**
+     * Euclidean norm of a vector.
+     */
+    public static float norm(float[] x) {
+        return (float) Math.sqrt(dot(x, x));
+    }
+
+    /**
+     * Cosine similarity between two equal-length vectors, 0 when either of them is the zero vector.
+     */
+    public static float cosineSimilarity(float[] x, float[] y) {
+        float normProduct = norm(x) * norm(y);
+        return normProduct == 0 ? 0 : dot(x, y) / normProduct;
+    }
 }
@@ -19,6 +19,8 @@
 package com.hw.langchain.memory.buffer;
 
 import com.hw.langchain.exception.LangChainException;
+import com.hw.langchain.memory.chat.message.histories.database.DataBaseChatMessageHistory;
+import com.hw.langchain.schema.BaseChatMessageHistory;
 import com.hw.langchain.schema.BaseMessage;
 
 import java.util.List;
@@ -46,4 +48,13 @@ public class BufferWindowMemoryMessagePicker implements MemoryMessagePicker {
         }
         return memoryMessages;
     }
+
+    @Override
+    public List<BaseMessage> pickMemoryMessage(BaseChatMessageHistory chatMessageHistory) {
+        // read only the last 2 * k messages from the database instead of the whole history
+        if (chatMessageHistory instanceof DataBaseChatMessageHistory dataBaseChatMessageHistory) {
+            return dataBaseChatMessageHistory.getLastMessages(2 * k);
+        }
+        return pickMemoryMessage(chatMessageHistory.getMessages());
+    }
 }
@@ -49,6 +49,6 @@ public class ConversationBufferLimitedMemory extends ConversationBufferMemory {
 
     @Override
     protected List<BaseMessage> getMemoryMessages() {
-        return memoryMessagePicker.pickMemoryMessage(super.getMemoryMessages());
+        return memoryMessagePicker.pickMemoryMessage(chatMemory);
     }
 }
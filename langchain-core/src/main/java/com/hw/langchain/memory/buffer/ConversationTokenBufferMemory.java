@@ -0,0 +1,43 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.hw.langchain.memory.buffer;
+
+import com.hw.langchain.schema.BaseChatMessageHistory;
+
+/**
+ * Conversation memory keeping the newest messages that fit within a token budget, counted with the encoding of the
+ * model.
+ *
+ * @author HamaWhite
+ */
+public class ConversationTokenBufferMemory extends ConversationBufferLimitedMemory {
+
+    public ConversationTokenBufferMemory(String modelName, int maxTokenLimit) {
+        super(new TokenBufferMemoryMessagePicker(modelName, maxTokenLimit));
+    }
+
+    public ConversationTokenBufferMemory(String modelName, int maxTokenLimit, boolean returnMessages) {
+        super(new TokenBufferMemoryMessagePicker(modelName, maxTokenLimit), returnMessages);
+    }
+
+    public ConversationTokenBufferMemory(String modelName, int maxTokenLimit, boolean returnMessages,
+            BaseChatMessageHistory chatMessageHistory) {
+        super(new TokenBufferMemoryMessagePicker(modelName, maxTokenLimit), returnMessages, chatMessageHistory);
+    }
+}
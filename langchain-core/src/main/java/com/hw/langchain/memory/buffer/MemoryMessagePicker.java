@@ -18,6 +18,7 @@
 
 package com.hw.langchain.memory.buffer;
 
+import com.hw.langchain.schema.BaseChatMessageHistory;
 import com.hw.langchain.schema.BaseMessage;
 
 import java.util.List;
@@ -37,4 +38,14 @@ public interface MemoryMessagePicker {
      * @return memory messages picked
      */
     List<BaseMessage> pickMemoryMessage(List<BaseMessage> memoryMessages);
+
+    /**
+     * pick up memory messages from the chat message history, pickers able to push the selection down to the
+     * history's storage should override it to avoid loading every message.
+     * @param chatMessageHistory history of the conversation
+     * @return memory messages picked
+     */
+    default List<BaseMessage> pickMemoryMessage(BaseChatMessageHistory chatMessageHistory) {
+        return pickMemoryMessage(chatMessageHistory.getMessages());
+    }
 }
@@ -0,0 +1,124 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.hw.langchain.memory.buffer;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.hw.langchain.exception.LangChainException;
+import com.hw.langchain.memory.chat.message.histories.database.DataBaseChatMessageHistory;
+import com.hw.langchain.schema.BaseChatMessageHistory;
+import com.hw.langchain.schema.BaseMessage;
+import com.hw.langchain.utils.EncodingUtils;
+import com.knuddels.jtokkit.api.Encoding;
+
+import java.util.List;
+
+/**
+ * Picks the newest messages whose tokens fit within a budget, so that the history fills the context window of the
+ * model without overflowing it.
+ * <p>
+ * A message costs the tokens of its content plus a fixed overhead for the role and separators. The token counts are
+ * memoized by content, so each turn only encodes the messages it has not seen yet, even when the history store
+ * returns new message instances on every load.
+ *
+ * @author HamaWhite
+ */
+public class TokenBufferMemoryMessagePicker implements MemoryMessagePicker {
+
+    /**
+     * Tokens added by the chat format around each message, see the OpenAI cookbook on counting tokens.
+     */
+    public static final int DEFAULT_TOKENS_PER_MESSAGE = 4;
+
+    private static final int INITIAL_TAIL_SIZE = 16;
+
+    private final Encoding encoding;
+
+    private final int maxTokenLimit;
+
+    private final int tokensPerMessage;
+
+    private final Cache<String, Integer> tokenCounts;
+
+    public TokenBufferMemoryMessagePicker(String modelName, int maxTokenLimit) {
+        this(EncodingUtils.getEncodingForModel(modelName), maxTokenLimit, DEFAULT_TOKENS_PER_MESSAGE, 10_000);
+    }
+
+    public TokenBufferMemoryMessagePicker(Encoding encoding, int maxTokenLimit, int tokensPerMessage,
+            long maxCachedCounts) {
+        if (maxTokenLimit <= 0) {
+            throw new LangChainException("max token limit musts larger than zero");
+        }
+        if (tokensPerMessage < 0) {
+            throw new LangChainException("tokens per message musts not be negative");
+        }
+        this.encoding = encoding;
+        this.maxTokenLimit = maxTokenLimit;
+        this.tokensPerMessage = tokensPerMessage;
+        this.tokenCounts = CacheBuilder.newBuilder().maximumSize(maxCachedCounts).build();
+    }
+
+    /**
+     * Number of tokens the message takes in the prompt.
+     */
+    public int countTokens(BaseMessage message) {
+        String content = message.getContent() != null ? message.getContent() : "";
+        Integer count = tokenCounts.getIfPresent(content);
+        if (count == null) {
+            // ordinary encoding, so that special tokens typed by the user are counted as text
+            count = encoding.countTokensOrdinary(content);
+            tokenCounts.put(content, count);
+        }
+        return count + tokensPerMessage;
+    }
+
+    @Override
+    public List<BaseMessage> pickMemoryMessage(List<BaseMessage> memoryMessages) {
+        int tokens = 0;
+        int from = memoryMessages.size();
+        while (from > 0) {
+            tokens += countTokens(memoryMessages.get(from - 1));
+            if (tokens > maxTokenLimit) {
+                break;
+            }
+            from--;
+        }
+        return memoryMessages.subList(from, memoryMessages.size());
+    }
+
+    /**
+     * Read a database backed history from its tail, doubling the number of messages read until the budget is full
+     * or the history is exhausted, instead of loading it all.
+     */
+    @Override
+    public List<BaseMessage> pickMemoryMessage(BaseChatMessageHistory chatMessageHistory) {
+        if (!(chatMessageHistory instanceof DataBaseChatMessageHistory dataBaseChatMessageHistory)) {
+            return pickMemoryMessage(chatMessageHistory.getMessages());
+        }
+        int n = INITIAL_TAIL_SIZE;
+        while (true) {
+            List<BaseMessage> tail = dataBaseChatMessageHistory.getLastMessages(n);
+            List<BaseMessage> picked = pickMemoryMessage(tail);
+            if (picked.size() < tail.size() || tail.size() < n || n > Integer.MAX_VALUE / 2) {
+                return picked;
+            }
+            n *= 2;
+        }
+    }
+}
@@ -19,12 +19,15 @@
 package com.hw.langchain.memory.chat.memory;
 
 import com.hw.langchain.memory.chat.message.histories.in.memory.ChatMessageHistory;
+import com.hw.langchain.schema.AIMessage;
 import com.hw.langchain.schema.BaseChatMessageHistory;
 import com.hw.langchain.schema.BaseMemory;
+import com.hw.langchain.schema.HumanMessage;
 
 import org.apache.commons.lang3.tuple.Pair;
 
 import java.util.ArrayList;
+import java.util.List;
 import java.util.Map;
 
 import static com.hw.langchain.output.parsers.list.Utils.getPromptInputKey;
@@ -80,8 +83,7 @@ public abstract class BaseChatMemory implements BaseMemory {
         String inputStr = inputOutputPair.getLeft();
         String outputStr = inputOutputPair.getRight();
 
-        chatMemory.addUserMessage(inputStr);
-        chatMemory.addAIMessage(outputStr);
+        chatMemory.addMessages(List.of(new HumanMessage(inputStr), new AIMessage(outputStr)));
     }
 
     @Override
@@ -22,6 +22,8 @@ import com.hw.langchain.schema.BaseMessage;
 
 import java.util.List;
 
+import static com.google.common.base.Preconditions.checkArgument;
+
 /**
  * interface for database supported chat message repository;
  *
@@ -38,6 +40,40 @@ public interface ChatMessageRepository {
      */
     List<BaseMessage> loadMessage(String sessionId);
 
+    /**
+     * Loads the chat messages of the given sessionId between fromIndex, inclusive, and toIndex, exclusive, oldest
+     * first. Indexes beyond the end of the history are clamped.
+     * <p>
+     * The default implementation loads the whole history, repositories able to read a range server-side should
+     * override it.
+     *
+     * @param sessionId The unique identifier of the chat session.
+     * @param fromIndex index of the first message to load.
+     * @param toIndex   index after the last message to load.
+     * @return A List of BaseMessage containing the messages in the range.
+     */
+    default List<BaseMessage> loadMessages(String sessionId, int fromIndex, int toIndex) {
+        checkArgument(fromIndex >= 0 && fromIndex <= toIndex, "invalid range [%s, %s)", fromIndex, toIndex);
+        List<BaseMessage> messages = loadMessage(sessionId);
+        return messages.subList(Math.min(fromIndex, messages.size()), Math.min(toIndex, messages.size()));
+    }
+
+    /**
+     * Loads the last n chat messages of the given sessionId, oldest first.
+     * <p>
+     * The default implementation loads the whole history, repositories able to read the tail server-side should
+     * override it.
+     *
+     * @param sessionId The unique identifier of the chat session.
+     * @param n         maximum number of messages to load.
+     * @return A List of BaseMessage containing at most n messages.
+     */
+    default List<BaseMessage> loadLastMessages(String sessionId, int n) {
+        checkArgument(n >= 0, "n must be non-negative, got %s", n);
+        List<BaseMessage> messages = loadMessage(sessionId);
+        return messages.subList(Math.max(0, messages.size() - n), messages.size());
+    }
+
     /**
      * Saves a chat message to the specified sessionId.
      *
@@ -46,6 +82,19 @@ public interface ChatMessageRepository {
      */
     void saveMessage(String sessionId, BaseMessage baseMessage);
 
+    /**
+     * Saves several chat messages to the specified sessionId, in order.
+     * <p>
+     * The default implementation saves them one by one, repositories able to write them in a single round-trip
+     * should override it.
+     *
+     * @param sessionId The unique identifier of the chat session.
+     * @param messages  The messages to be saved.
+     */
+    default void saveMessages(String sessionId, List<BaseMessage> messages) {
+        messages.forEach(message -> saveMessage(sessionId, message));
+    }
+
     /**
      * Clears all chat messages for the specified sessionId.
      *
@@ -44,6 +44,11 @@ public class DataBaseChatMessageHistory extends BaseChatMessageHistory {
         chatMessageRepository.saveMessage(sessionId, message);
     }
 
+    @Override
+    public void addMessages(List<BaseMessage> messages) {
+        chatMessageRepository.saveMessages(sessionId, messages);
+    }
+
     @Override
     public void clear() {
         chatMessageRepository.clearSessionChatMessage(sessionId);
@@ -53,4 +58,18 @@ public class DataBaseChatMessageHistory extends BaseChatMessageHistory {
     public List<BaseMessage> getMessages() {
         return chatMessageRepository.loadMessage(sessionId);
     }
+
+    /**
+     * Return the messages between fromIndex, inclusive, and toIndex, exclusive, read from the repository.
+     */
+    public List<BaseMessage> getMessages(int fromIndex, int toIndex) {
+        return chatMessageRepository.loadMessages(sessionId, fromIndex, toIndex);
+    }
+
+    /**
+     * Return the last n messages, read from the repository without loading the whole history when it supports it.
+     */
+    public List<BaseMessage> getLastMessages(int n) {
+        return chatMessageRepository.loadLastMessages(sessionId, n);
+    }
 }
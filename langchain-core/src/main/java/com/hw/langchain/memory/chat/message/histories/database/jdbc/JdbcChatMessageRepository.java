@@ -0,0 +1,532 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.hw.langchain.memory.chat.message.histories.database.jdbc;
+
+import com.hw.langchain.exception.LangChainException;
+import com.hw.langchain.memory.chat.message.histories.database.ChatMessageRepository;
+import com.hw.langchain.schema.BaseMessage;
+import com.hw.langchain.schema.codec.MessageCodec;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import lombok.Builder;
+
+import javax.sql.DataSource;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BiConsumer;
+import java.util.regex.Pattern;
+
+import static com.google.common.base.Preconditions.checkArgument;
+
+/**
+ * Chat message repository storing one row per message in a relational table:
+ * <pre>
+ * seq        BIGINT, auto-generated, primary key
+ * session_id VARCHAR(255)
+ * message    the message encoded by the codec
+ * </pre>
+ * with an index on {@code (session_id, seq)}, so that loading a session or its tail is an index range scan. Tail reads
+ * fetch the newest rows in descending order with a LIMIT, and full loads page through the session by keyset on
+ * {@code seq} instead of OFFSET.
+ * <p>
+ * The messages of a {@link #saveMessages(String, List)} are inserted with a single JDBC batch in one transaction.
+ * Connections are borrowed from the {@link DataSource}, which should be a pool such as HikariCP in production.
+ * <p>
+ * With {@code writeBehind}, saves only append to an in-memory buffer flushed by a background thread, which takes the
+ * database off the critical path of the request. Reads and clears of a session first insert the buffered messages of
+ * that session, or wait for the flush already inserting them, so they always see the saved messages. A failed
+ * background flush is retried with exponential backoff, and after {@code maxAttempts} failures its messages are handed
+ * to the {@code deadLetterHandler}. The buffer holds at most {@code maxBufferSize} messages, beyond which saves insert
+ * synchronously. Buffered messages are lost if the process dies before they are flushed, call {@link #close()} on
+ * shutdown.
+ *
+ * @author HamaWhite
+ */
+@Builder
+public class JdbcChatMessageRepository implements ChatMessageRepository, AutoCloseable {
+
+    private static final Logger LOG = LoggerFactory.getLogger(JdbcChatMessageRepository.class);
+
+    private static final Duration MAX_RETRY_BACKOFF = Duration.ofMinutes(1);
+
+    private static final Pattern TABLE_NAME = Pattern.compile("[A-Za-z_][A-Za-z0-9_]*(\\.[A-Za-z_][A-Za-z0-9_]*)?");
+
+    private DataSource dataSource;
+
+    @Builder.Default
+    private String tableName = "chat_message";
+
+    /**
+     * Codec of the stored messages.
+     */
+    @Builder.Default
+    private MessageCodec codec = MessageCodec.json();
+
+    /**
+     * Number of rows fetched per query when loading a whole session.
+     */
+    @Builder.Default
+    private int pageSize = 500;
+
+    /**
+     * Whether to create the table and its index when missing.
+     */
+    private boolean createTable;
+
+    /**
+     * Whether to buffer the saved messages and insert them asynchronously.
+     */
+    private boolean writeBehind;
+
+    /**
+     * Maximum number of buffered messages, a save beyond it inserts synchronously on the caller thread.
+     */
+    @Builder.Default
+    private int maxBufferSize = 10_000;
+
+    /**
+     * Number of consecutive failed background flushes after which the buffered messages are dead-lettered.
+     */
+    @Builder.Default
+    private int maxAttempts = 5;
+
+    /**
+     * Delay before retrying a failed background flush, doubled on each further failure up to one minute.
+     */
+    @Builder.Default
+    private Duration retryBackoff = Duration.ofSeconds(1);
+
+    /**
+     * Receives the messages of a session dropped after {@code maxAttempts} failed flushes, they are logged when absent.
+     */
+    private BiConsumer<String, List<BaseMessage>> deadLetterHandler;
+
+    /**
+     * Buffered messages per session, in the order they were saved.
+     */
+    private final Map<String, List<BaseMessage>> buffer = new LinkedHashMap<>();
+
+    /**
+     * Sessions taken from the buffer by a flush that has not committed yet, guarded by {@code buffer}.
+     */
+    private final Set<String> flushing = new HashSet<>();
+
+    /**
+     * Write-behind state, held apart so that the builder does not expose it.
+     */
+    private final WriteBehindState state = new WriteBehindState();
+
+    private final Object flushLock = new Object();
+
+    /**
+     * Its thread is only started by the first write-behind flush.
+     */
+    private final ScheduledThreadPoolExecutor flushExecutor = createFlushExecutor();
+
+    private static ScheduledThreadPoolExecutor createFlushExecutor() {
+        ScheduledThreadPoolExecutor executor = new ScheduledThreadPoolExecutor(1, runnable -> {
+            Thread thread = new Thread(runnable, "jdbc-chat-message-flush");
+            thread.setDaemon(true);
+            return thread;
+        });
+        // close() flushes by itself instead of waiting out a retry backoff
+        executor.setExecuteExistingDelayedTasksAfterShutdownPolicy(false);
+        return executor;
+    }
+
+    public JdbcChatMessageRepository init() {
+        checkArgument(dataSource != null, "dataSource is required");
+        checkArgument(TABLE_NAME.matcher(tableName).matches(), "invalid table name: %s", tableName);
+        checkArgument(pageSize > 0, "pageSize must be positive");
+        checkArgument(maxBufferSize > 0, "maxBufferSize must be positive");
+        checkArgument(maxAttempts > 0, "maxAttempts must be positive");
+        checkArgument(!retryBackoff.isNegative(), "retryBackoff must not be negative");
+        if (createTable) {
+            createTableIfNotExists();
+        }
+        return this;
+    }
+
+    private void createTableIfNotExists() {
+        try (Connection connection = dataSource.getConnection(); Statement statement = connection.createStatement()) {
+            String product = connection.getMetaData().getDatabaseProductName().toLowerCase();
+            String index = tableName.replace('.', '_') + "_session_seq";
+            if (product.contains("mysql") || product.contains("mariadb")) {
+                statement.execute("CREATE TABLE IF NOT EXISTS " + tableName
+                        + " (seq BIGINT AUTO_INCREMENT PRIMARY KEY, session_id VARCHAR(255) NOT NULL,"
+                        + " message MEDIUMBLOB NOT NULL, INDEX " + index + " (session_id, seq))");
+            } else {
+                String binaryType = product.contains("postgresql") ? "BYTEA" : "BLOB";
+                statement.execute("CREATE TABLE IF NOT EXISTS " + tableName
+                        + " (seq BIGINT GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,"
+                        + " session_id VARCHAR(255) NOT NULL, message " + binaryType + " NOT NULL)");
+                statement.execute("CREATE INDEX IF NOT EXISTS " + index + " ON " + tableName + " (session_id, seq)");
+            }
+        } catch (SQLException e) {
+            throw new LangChainException("Failed to create table " + tableName, e);
+        }
+    }
+
+    @Override
+    public List<BaseMessage> loadMessage(String sessionId) {
+        flush(sessionId);
+        String sql = "SELECT seq, message FROM " + tableName + " WHERE session_id = ? AND seq > ? ORDER BY seq LIMIT ?";
+        List<BaseMessage> messages = new ArrayList<>();
+        try (Connection connection = dataSource.getConnection();
+                PreparedStatement statement = connection.prepareStatement(sql)) {
+            long lastSeq = Long.MIN_VALUE;
+            int rows;
+            do {
+                statement.setString(1, sessionId);
+                statement.setLong(2, lastSeq);
+                statement.setInt(3, pageSize);
+                rows = 0;
+                try (ResultSet resultSet = statement.executeQuery()) {
+                    while (resultSet.next()) {
+                        lastSeq = resultSet.getLong(1);
+                        messages.add(codec.decode(resultSet.getBytes(2)));
+                        rows++;
+                    }
+                }
+            } while (rows == pageSize);
+        } catch (SQLException e) {
+            throw new LangChainException("Failed to load messages of session " + sessionId, e);
+        }
+        return messages;
+    }
+
+    @Override
+    public List<BaseMessage> loadMessages(String sessionId, int fromIndex, int toIndex) {
+        checkArgument(fromIndex >= 0 && fromIndex <= toIndex, "invalid range [%s, %s)", fromIndex, toIndex);
+        if (fromIndex == toIndex) {
+            return List.of();
+        }
+        flush(sessionId);
+        String sql = "SELECT message FROM " + tableName + " WHERE session_id = ? ORDER BY seq LIMIT ? OFFSET ?";
+        return query(sql, sessionId, toIndex - fromIndex, fromIndex);
+    }
+
+    /**
+     * Read the newest n rows backwards on the index and return them oldest first.
+     */
+    @Override
+    public List<BaseMessage> loadLastMessages(String sessionId, int n) {
+        checkArgument(n >= 0, "n must be non-negative, got %s", n);
+        if (n == 0) {
+            return List.of();
+        }
+        flush(sessionId);
+        String sql = "SELECT message FROM " + tableName + " WHERE session_id = ? ORDER BY seq DESC LIMIT ?";
+        List<BaseMessage> messages = query(sql, sessionId, n);
+        Collections.reverse(messages);
+        return messages;
+    }
+
+    private List<BaseMessage> query(String sql, String sessionId, int... parameters) {
+        List<BaseMessage> messages = new ArrayList<>();
+        try (Connection connection = dataSource.getConnection();
+                PreparedStatement statement = connection.prepareStatement(sql)) {
+            statement.setString(1, sessionId);
+            for (int i = 0; i < parameters.length; i++) {
+                statement.setInt(i + 2, parameters[i]);
+            }
+            try (ResultSet resultSet = statement.executeQuery()) {
+                while (resultSet.next()) {
+                    messages.add(codec.decode(resultSet.getBytes(1)));
+                }
+            }
+        } catch (SQLException e) {
+            throw new LangChainException("Failed to load messages of session " + sessionId, e);
+        }
+        return messages;
+    }
+
+    @Override
+    public void saveMessage(String sessionId, BaseMessage baseMessage) {
+        saveMessages(sessionId, List.of(baseMessage));
+    }
+
+    @Override
+    public void saveMessages(String sessionId, List<BaseMessage> messages) {
+        if (messages.isEmpty()) {
+            return;
+        }
+        if (!writeBehind) {
+            insert(Map.of(sessionId, messages));
+            return;
+        }
+        synchronized (buffer) {
+            if (state.closed) {
+                throw new IllegalStateException("Cannot save chat messages, the write-behind repository is closed");
+            }
+            if (state.buffered + messages.size() <= maxBufferSize) {
+                buffer.computeIfAbsent(sessionId, key -> new ArrayList<>()).addAll(messages);
+                state.buffered += messages.size();
+                // a single flush task drains everything buffered until it runs
+                if (!state.flushScheduled) {
+                    state.flushScheduled = true;
+                    flushExecutor.execute(this::flushInBackground);
+                }
+                return;
+            }
+        }
+        // the buffer is full, the caller inserts and so is slowed down to the pace of the database
+        flush();
+        insert(Map.of(sessionId, messages));
+    }
+
+    /**
+     * Insert the buffered messages, in the order they were saved. It is a no-op without write-behind.
+     *
+     * @throws LangChainException when the insert fails, the messages are kept in the buffer to be retried
+     */
+    public void flush() {
+        if (writeBehind) {
+            insertBuffered(null);
+        }
+    }
+
+    /**
+     * Insert the buffered messages of a session, or wait for the flush inserting them, so that a read sees them.
+     */
+    private void flush(String sessionId) {
+        if (!writeBehind) {
+            return;
+        }
+        synchronized (buffer) {
+            if (!buffer.containsKey(sessionId) && !flushing.contains(sessionId)) {
+                return;
+            }
+        }
+        insertBuffered(sessionId);
+    }
+
+    private void insertBuffered(String sessionId) {
+        synchronized (flushLock) {
+            Map<String, List<BaseMessage>> pending = take(sessionId);
+            if (pending.isEmpty()) {
+                return;
+            }
+            boolean inserted = false;
+            try {
+                insert(pending);
+                inserted = true;
+            } catch (RuntimeException e) {
+                requeue(pending);
+                throw e;
+            } finally {
+                done(pending, inserted);
+            }
+        }
+    }
+
+    private void flushInBackground() {
+        synchronized (flushLock) {
+            Map<String, List<BaseMessage>> pending = take(null);
+            boolean removed = true;
+            try {
+                if (!pending.isEmpty()) {
+                    insert(pending);
+                }
+                state.failures = 0;
+            } catch (RuntimeException e) {
+                if (++state.failures < maxAttempts) {
+                    LOG.warn("Failed to flush chat messages, attempt {} of {}", state.failures, maxAttempts, e);
+                    requeue(pending);
+                    removed = false;
+                } else {
+                    LOG.error("Failed to flush chat messages {} times, dropping them", state.failures, e);
+                    state.failures = 0;
+                    deadLetter(pending);
+                }
+            } finally {
+                done(pending, removed);
+            }
+        }
+        synchronized (buffer) {
+            if (buffer.isEmpty() || state.closed) {
+                state.flushScheduled = false;
+                return;
+            }
+            flushExecutor.schedule(this::flushInBackground, retryDelay(), TimeUnit.MILLISECONDS);
+        }
+    }
+
+    private long retryDelay() {
+        if (state.failures == 0) {
+            return 0;
+        }
+        long delay = retryBackoff.toMillis() << Math.min(state.failures - 1, 16);
+        return Math.min(delay, MAX_RETRY_BACKOFF.toMillis());
+    }
+
+    private void deadLetter(Map<String, List<BaseMessage>> pending) {
+        pending.forEach((sessionId, messages) -> {
+            if (deadLetterHandler == null) {
+                LOG.error("Dropped {} chat messages of session {}", messages.size(), sessionId);
+                return;
+            }
+            try {
+                deadLetterHandler.accept(sessionId, messages);
+            } catch (RuntimeException e) {
+                LOG.error("Dead letter handler failed for session {}", sessionId, e);
+            }
+        });
+    }
+
+    /**
+     * Remove the buffered messages of a session, or of all sessions when it is null, and mark them as flushing.
+     */
+    private Map<String, List<BaseMessage>> take(String sessionId) {
+        Map<String, List<BaseMessage>> pending = new LinkedHashMap<>();
+        synchronized (buffer) {
+            if (sessionId == null) {
+                pending.putAll(buffer);
+                buffer.clear();
+            } else if (buffer.containsKey(sessionId)) {
+                pending.put(sessionId, buffer.remove(sessionId));
+            }
+            flushing.addAll(pending.keySet());
+        }
+        return pending;
+    }
+
+    /**
+     * Put back messages that failed to insert ahead of those buffered since.
+     */
+    private void requeue(Map<String, List<BaseMessage>> pending) {
+        synchronized (buffer) {
+            pending.forEach((sessionId, messages) -> {
+                List<BaseMessage> requeued = new ArrayList<>(messages);
+                List<BaseMessage> newer = buffer.remove(sessionId);
+                if (newer != null) {
+                    requeued.addAll(newer);
+                }
+                buffer.put(sessionId, requeued);
+            });
+        }
+    }
+
+    private void done(Map<String, List<BaseMessage>> pending, boolean removed) {
+        synchronized (buffer) {
+            flushing.removeAll(pending.keySet());
+            if (removed) {
+                pending.values().forEach(messages -> state.buffered -= messages.size());
+            }
+        }
+    }
+
+    private void insert(Map<String, List<BaseMessage>> pending) {
+        String sql = "INSERT INTO " + tableName + " (session_id, message) VALUES (?, ?)";
+        int count = pending.values().stream().mapToInt(List::size).sum();
+        try (Connection connection = dataSource.getConnection()) {
+            boolean autoCommit = connection.getAutoCommit();
+            connection.setAutoCommit(false);
+            try (PreparedStatement statement = connection.prepareStatement(sql)) {
+                for (Map.Entry<String, List<BaseMessage>> entry : pending.entrySet()) {
+                    for (BaseMessage message : entry.getValue()) {
+                        statement.setString(1, entry.getKey());
+                        statement.setBytes(2, codec.encode(message));
+                        statement.addBatch();
+                    }
+                }
+                statement.executeBatch();
+                connection.commit();
+            } catch (SQLException e) {
+                connection.rollback();
+                throw e;
+            } finally {
+                connection.setAutoCommit(autoCommit);
+            }
+        } catch (SQLException e) {
+            throw new LangChainException("Failed to save " + count + " chat messages", e);
+        }
+    }
+
+    @Override
+    public void clearSessionChatMessage(String sessionId) {
+        flush(sessionId);
+        try (Connection connection = dataSource.getConnection();
+                PreparedStatement statement =
+                        connection.prepareStatement("DELETE FROM " + tableName + " WHERE session_id = ?")) {
+            statement.setString(1, sessionId);
+            statement.executeUpdate();
+        } catch (SQLException e) {
+            throw new LangChainException("Failed to clear messages of session " + sessionId, e);
+        }
+    }
+
+    /**
+     * Flush the buffered messages and stop the background flush. Later write-behind saves are rejected.
+     */
+    @Override
+    public void close() {
+        synchronized (buffer) {
+            state.closed = true;
+        }
+        flushExecutor.shutdown();
+        try {
+            if (!flushExecutor.awaitTermination(10, TimeUnit.SECONDS)) {
+                LOG.warn("Timed out waiting for the background flush of chat messages");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        flush();
+    }
+
+    private static final class WriteBehindState {
+
+        /**
+         * Number of buffered and flushing messages, guarded by {@code buffer}.
+         */
+        private int buffered;
+
+        /**
+         * Whether a background flush is pending, guarded by {@code buffer}.
+         */
+        private boolean flushScheduled;
+
+        /**
+         * Guarded by {@code buffer}.
+         */
+        private boolean closed;
+
+        /**
+         * Consecutive failed background flushes, guarded by {@code flushLock}.
+         */
+        private int failures;
+    }
+}
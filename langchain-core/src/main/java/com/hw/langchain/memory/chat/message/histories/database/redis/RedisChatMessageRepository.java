@@ -18,21 +18,26 @@
 
 package com.hw.langchain.memory.chat.message.histories.database.redis;
 
-import com.fasterxml.jackson.core.type.TypeReference;
-import com.hw.langchain.chains.query.constructor.JsonUtils;
 import com.hw.langchain.memory.chat.message.histories.database.ChatMessageRepository;
 import com.hw.langchain.schema.BaseMessage;
+import com.hw.langchain.schema.codec.JsonMessageCodec;
+import com.hw.langchain.schema.codec.MessageCodec;
 
+import org.redisson.api.RBatch;
+import org.redisson.api.RList;
+import org.redisson.api.RListAsync;
 import org.redisson.api.RQueue;
 import org.redisson.api.RedissonClient;
 
 import lombok.Builder;
 import lombok.experimental.Tolerate;
 
+import java.nio.charset.StandardCharsets;
 import java.time.Duration;
 import java.time.temporal.ChronoUnit;
 import java.util.List;
-import java.util.Map;
+
+import static com.google.common.base.Preconditions.checkArgument;
 
 /**
  * @author zhangxiaojia002
@@ -45,6 +50,12 @@ public class RedisChatMessageRepository implements ChatMessageRepository {
     private String keyPrefix = "message_store";
     private Integer ttlSeconds;
 
+    /**
+     * Codec of the stored messages, compact JSON strings by default. Binary codecs store byte arrays, and JSON strings
+     * written before switching codec remain readable.
+     */
+    private MessageCodec codec;
+
     @Tolerate
     public RedisChatMessageRepository(RedissonClient redissonClient) {
         this.redissonClient = redissonClient;
@@ -70,28 +81,80 @@ public class RedisChatMessageRepository implements ChatMessageRepository {
 
     @Override
     public List<BaseMessage> loadMessage(String sessionId) {
-        RQueue<String> messageQueue = redissonClient.getQueue(key(sessionId));
-        List<String> messageJSonStrList = messageQueue.readAll();
-        return messageJSonStrList.stream().map(x -> {
-            Map<String, Object> data =
-                    JsonUtils.convertFromJsonStr(x, new TypeReference<>() {
-                    });
-            return BaseMessage.fromMap(data);
-        }).toList();
+        RQueue<Object> messageQueue = redissonClient.getQueue(key(sessionId));
+        return decode(messageQueue.readAll());
+    }
+
+    /**
+     * Read the range with a single LRANGE instead of the whole list.
+     */
+    @Override
+    public List<BaseMessage> loadMessages(String sessionId, int fromIndex, int toIndex) {
+        checkArgument(fromIndex >= 0 && fromIndex <= toIndex, "invalid range [%s, %s)", fromIndex, toIndex);
+        if (fromIndex == toIndex) {
+            return List.of();
+        }
+        RList<Object> messageList = redissonClient.getList(key(sessionId));
+        return decode(messageList.range(fromIndex, toIndex - 1));
+    }
+
+    /**
+     * Read the tail with a single LRANGE using negative indexes, so only the last n messages are transferred and
+     * decoded.
+     */
+    @Override
+    public List<BaseMessage> loadLastMessages(String sessionId, int n) {
+        checkArgument(n >= 0, "n must be non-negative, got %s", n);
+        if (n == 0) {
+            return List.of();
+        }
+        RList<Object> messageList = redissonClient.getList(key(sessionId));
+        return decode(messageList.range(-n, -1));
+    }
+
+    private MessageCodec codec() {
+        return codec != null ? codec : MessageCodec.json();
+    }
+
+    private Object encode(BaseMessage message) {
+        byte[] bytes = codec().encode(message);
+        return codec().isBinary() ? bytes : new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private List<BaseMessage> decode(List<Object> elements) {
+        return elements.stream()
+                .map(element -> element instanceof byte[] bytes
+                        ? codec().decode(bytes)
+                        : JsonMessageCodec.INSTANCE.decode((String) element))
+                .toList();
     }
 
     @Override
     public void saveMessage(String sessionId, BaseMessage baseMessage) {
-        RQueue<String> messageQueue = redissonClient.getQueue(key(sessionId));
-        messageQueue.add(JsonUtils.toJsonStringWithIndent(baseMessage.toMap()));
+        saveMessages(sessionId, List.of(baseMessage));
+    }
+
+    /**
+     * Pipeline the RPUSH of all messages and the EXPIRE in a single batch, so a whole turn costs one round-trip. The
+     * messages are encoded by the codec.
+     */
+    @Override
+    public void saveMessages(String sessionId, List<BaseMessage> messages) {
+        if (messages.isEmpty()) {
+            return;
+        }
+        RBatch batch = redissonClient.createBatch();
+        RListAsync<Object> messageList = batch.getList(key(sessionId));
+        messageList.addAllAsync(messages.stream().map(this::encode).toList());
         if (this.ttlSeconds != null) {
-            messageQueue.expire(Duration.of(ttlSeconds, ChronoUnit.SECONDS));
+            messageList.expireAsync(Duration.of(ttlSeconds, ChronoUnit.SECONDS));
         }
+        batch.execute();
     }
 
     @Override
     public void clearSessionChatMessage(String sessionId) {
-        RQueue<String> messageQueue = redissonClient.getQueue(key(sessionId));
+        RQueue<Object> messageQueue = redissonClient.getQueue(key(sessionId));
         messageQueue.delete();
     }
 }
@@ -19,6 +19,7 @@
 package com.hw.langchain.requests;
 
 import com.google.gson.Gson;
+import com.hw.http.HttpTransports;
 
 import okhttp3.*;
 
@@ -39,8 +40,16 @@ public class Requests {
     private final OkHttpClient client;
 
     public Requests(Map<String, String> headers) {
+        this(headers, HttpTransports.get());
+    }
+
+    /**
+     * @param headers the headers sent with every request
+     * @param client  the client executing the requests, usually derived from a shared {@link HttpTransports}
+     */
+    public Requests(Map<String, String> headers, OkHttpClient client) {
         this.headers = headers;
-        this.client = new OkHttpClient();
+        this.client = client;
     }
 
     private Request buildRequest(String url, RequestBody body, String method) {
@@ -54,11 +63,15 @@ public class Requests {
         return builder.build();
     }
 
-    private Response executeRequest(Request request) throws IOException {
-        return client.newCall(request).execute();
+    public Response sendRequest(String url, String method, Map<String, Object> data) throws IOException {
+        return newCall(url, method, data).execute();
     }
 
-    public Response sendRequest(String url, String method, Map<String, Object> data) throws IOException {
+    /**
+     * Prepares a request without executing it, so that the caller may read the response incrementally and cancel
+     * the call.
+     */
+    public Call newCall(String url, String method, Map<String, Object> data) {
         RequestBody body = null;
 
         if (data != null) {
@@ -68,7 +81,7 @@ public class Requests {
         }
 
         Request request = buildRequest(url, body, method);
-        return executeRequest(request);
+        return client.newCall(request);
     }
 
     public Response get(String url) throws IOException {
@@ -34,10 +34,14 @@ import java.util.Map;
  */
 public class TextRequestsWrapper {
 
-    private final Map<String, String> headers;
+    private final Requests requests;
 
     public TextRequestsWrapper(Map<String, String> headers) {
-        this.headers = headers;
+        this(new Requests(headers));
+    }
+
+    public TextRequestsWrapper(Requests requests) {
+        this.requests = requests;
     }
 
     /**
@@ -65,31 +69,22 @@ public class TextRequestsWrapper {
     }
 
     public String get(String url) {
-        Requests requests = getRequests();
         return performRequest(requests, url, "GET", null);
     }
 
     public String post(String url, Map<String, Object> data) {
-        Requests requests = getRequests();
         return performRequest(requests, url, "POST", data);
     }
 
     public String patch(String url, Map<String, Object> data) {
-        Requests requests = getRequests();
         return performRequest(requests, url, "PATCH", data);
     }
 
     public String put(String url, Map<String, Object> data) {
-        Requests requests = getRequests();
         return performRequest(requests, url, "PUT", data);
     }
 
     public String delete(String url) {
-        Requests requests = getRequests();
         return performRequest(requests, url, "DELETE", null);
     }
-
-    private Requests getRequests() {
-        return new Requests(headers);
-    }
 }
@@ -54,6 +54,13 @@ public abstract class BaseChatMessageHistory {
      */
     public abstract void addMessage(BaseMessage message);
 
+    /**
+     * Add several messages to the store, stores able to write them at once should override it.
+     */
+    public void addMessages(List<BaseMessage> messages) {
+        messages.forEach(this::addMessage);
+    }
+
     /**
      * Remove all messages from the store
      */
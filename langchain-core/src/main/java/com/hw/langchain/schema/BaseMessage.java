@@ -20,8 +20,6 @@ package com.hw.langchain.schema;
 
 import com.fasterxml.jackson.core.type.TypeReference;
 import com.fasterxml.jackson.databind.ObjectMapper;
-import com.fasterxml.jackson.databind.module.SimpleModule;
-import com.hw.langchain.chains.query.constructor.JsonUtils;
 import com.hw.langchain.exception.LangChainException;
 
 import lombok.Data;
@@ -39,6 +37,8 @@ import java.util.Map;
 @NoArgsConstructor
 public abstract class BaseMessage {
 
+    private static final ObjectMapper OBJECT_MAPPER = new ObjectMapper();
+
     protected String content;
 
     protected Map<String, Object> additionalKwargs;
@@ -54,10 +54,7 @@ public abstract class BaseMessage {
     public abstract String type();
 
     public Map<String, Object> toMap() {
-        ObjectMapper objectMapper = new ObjectMapper();
-        SimpleModule module = new SimpleModule();
-        objectMapper.registerModule(module);
-        Map<String, Object> map = objectMapper.convertValue(this, new TypeReference<>() {
+        Map<String, Object> map = OBJECT_MAPPER.convertValue(this, new TypeReference<>() {
         });
         return Map.of("type", type(), "data", map);
     }
@@ -65,13 +62,13 @@ public abstract class BaseMessage {
     public static BaseMessage fromMap(Map<String, Object> message) {
         String type = (String) message.get("type");
         Object data = message.get("data");
-        String jsonStr = JsonUtils.toJsonStringWithIndent(data, 0);
+        // convert the map straight into the message, without printing and parsing it again
         return switch (type) {
-            case "ai" -> JsonUtils.convertFromJsonStr(jsonStr, AIMessage.class);
-            case "human" -> JsonUtils.convertFromJsonStr(jsonStr, HumanMessage.class);
-            case "system" -> JsonUtils.convertFromJsonStr(jsonStr, SystemMessage.class);
-            case "chat" -> JsonUtils.convertFromJsonStr(jsonStr, ChatMessage.class);
-            case "function" -> JsonUtils.convertFromJsonStr(jsonStr, FunctionMessage.class);
+            case "ai" -> OBJECT_MAPPER.convertValue(data, AIMessage.class);
+            case "human" -> OBJECT_MAPPER.convertValue(data, HumanMessage.class);
+            case "system" -> OBJECT_MAPPER.convertValue(data, SystemMessage.class);
+            case "chat" -> OBJECT_MAPPER.convertValue(data, ChatMessage.class);
+            case "function" -> OBJECT_MAPPER.convertValue(data, FunctionMessage.class);
             default -> throw new LangChainException(String.format("Got unexpected message type:%s", type));
         };
     }
@@ -40,6 +40,11 @@ public class LLMResult {
      */
     private Map<String, Object> llmOutput;
 
+    /**
+     * Errors of the inputs whose generations are empty, keyed by the index of the input.
+     */
+    private Map<Integer, Throwable> errors = Map.of();
+
     public LLMResult(List<? extends List<? extends Generation>> generations) {
         this.generations = generations;
     }
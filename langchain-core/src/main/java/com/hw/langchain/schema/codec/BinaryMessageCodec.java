@@ -0,0 +1,179 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.hw.langchain.schema.codec;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.hw.langchain.exception.LangChainException;
+import com.hw.langchain.schema.BaseMessage;
+import com.hw.langchain.schema.ChatMessage;
+import com.hw.langchain.schema.FunctionMessage;
+
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Versioned binary codec. The layout of version 1 is:
+ * <pre>
+ * byte    version
+ * byte    type, index in {@code ai, human, system, chat, function}
+ * string  content
+ * string  role for chat messages, name for function messages
+ * int     length of the additional kwargs, -1 when null, 0 when empty, followed by their compact JSON
+ * </pre>
+ * where a string is an int length, -1 when null, followed by its UTF-8 bytes.
+ *
+ * @author HamaWhite
+ */
+public class BinaryMessageCodec implements MessageCodec {
+
+    public static final BinaryMessageCodec INSTANCE = new BinaryMessageCodec();
+
+    public static final byte VERSION = 1;
+
+    private static final List<String> TYPES = List.of("ai", "human", "system", "chat", "function");
+
+    private static final byte[] EMPTY = new byte[0];
+
+    private BinaryMessageCodec() {
+    }
+
+    @Override
+    public byte[] encode(BaseMessage message) {
+        int type = TYPES.indexOf(message.type());
+        if (type < 0) {
+            throw new LangChainException(String.format("Got unexpected message type:%s", message.type()));
+        }
+        byte[] content = utf8(message.getContent());
+        byte[] extra = switch (message.type()) {
+            case "chat" -> utf8(((ChatMessage) message).getRole());
+            case "function" -> utf8(((FunctionMessage) message).getName());
+            default -> null;
+        };
+        byte[] additionalKwargs = encodeKwargs(message.getAdditionalKwargs());
+
+        ByteBuffer buffer = ByteBuffer.allocate(2 + length(content) + (extra != null ? length(extra) : 0)
+                + length(additionalKwargs));
+        buffer.put(VERSION).put((byte) type);
+        putBytes(buffer, content);
+        if (extra != null) {
+            putBytes(buffer, extra);
+        }
+        putBytes(buffer, additionalKwargs);
+        return buffer.array();
+    }
+
+    @Override
+    public BaseMessage decode(byte[] bytes) {
+        try {
+            ByteBuffer buffer = ByteBuffer.wrap(bytes);
+            byte version = buffer.get();
+            if (version != VERSION) {
+                throw new LangChainException(String.format("Unsupported message codec version:%s", version));
+            }
+            int typeIndex = buffer.get();
+            if (typeIndex < 0 || typeIndex >= TYPES.size()) {
+                throw new LangChainException(String.format("Got unexpected message type index:%s", typeIndex));
+            }
+            String type = TYPES.get(typeIndex);
+            String content = getString(buffer);
+            String role = "chat".equals(type) ? getString(buffer) : null;
+            String name = "function".equals(type) ? getString(buffer) : null;
+            Map<String, Object> additionalKwargs = decodeKwargs(getBytes(buffer));
+            return MessageFactory.newMessage(type, content, additionalKwargs, role, name);
+        } catch (BufferUnderflowException | IllegalArgumentException e) {
+            throw new LangChainException("Truncated or corrupted message", e);
+        }
+    }
+
+    private static byte[] encodeKwargs(Map<String, Object> additionalKwargs) {
+        if (additionalKwargs == null) {
+            return null;
+        }
+        if (additionalKwargs.isEmpty()) {
+            return EMPTY;
+        }
+        try {
+            return JsonMessageCodec.OBJECT_MAPPER.writeValueAsBytes(additionalKwargs);
+        } catch (JsonProcessingException e) {
+            throw new LangChainException("Failed to encode additional kwargs", e);
+        }
+    }
+
+    private static Map<String, Object> decodeKwargs(byte[] bytes) {
+        if (bytes == null) {
+            return null;
+        }
+        if (bytes.length == 0) {
+            return new HashMap<>();
+        }
+        try {
+            return JsonMessageCodec.OBJECT_MAPPER.readValue(bytes, JsonMessageCodec.MAP_TYPE);
+        } catch (IOException e) {
+            throw new LangChainException("Failed to decode additional kwargs", e);
+        }
+    }
+
+    private static byte[] utf8(String value) {
+        return value != null ? value.getBytes(StandardCharsets.UTF_8) : null;
+    }
+
+    private static int length(byte[] bytes) {
+        return Integer.BYTES + (bytes != null ? bytes.length : 0);
+    }
+
+    private static void putBytes(ByteBuffer buffer, byte[] bytes) {
+        if (bytes == null) {
+            buffer.putInt(-1);
+        } else {
+            buffer.putInt(bytes.length).put(bytes);
+        }
+    }
+
+    private static byte[] getBytes(ByteBuffer buffer) {
+        int length = buffer.getInt();
+        if (length < 0) {
+            return null;
+        }
+        if (length > buffer.remaining()) {
+            throw new BufferUnderflowException();
+        }
+        byte[] bytes = new byte[length];
+        buffer.get(bytes);
+        return bytes;
+    }
+
+    private static String getString(ByteBuffer buffer) {
+        int length = buffer.getInt();
+        if (length < 0) {
+            return null;
+        }
+        if (length > buffer.remaining()) {
+            throw new BufferUnderflowException();
+        }
+        String value = new String(buffer.array(), buffer.arrayOffset() + buffer.position(), length,
+                StandardCharsets.UTF_8);
+        buffer.position(buffer.position() + length);
+        return value;
+    }
+}
@@ -0,0 +1,147 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.hw.langchain.schema.codec;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.hw.langchain.exception.LangChainException;
+import com.hw.langchain.schema.BaseMessage;
+import com.hw.langchain.schema.ChatMessage;
+import com.hw.langchain.schema.FunctionMessage;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+
+/**
+ * Compact JSON codec streaming the message with a single {@link JsonGenerator} or {@link JsonParser} pass. The
+ * format is the one of {@link BaseMessage#toMap()}, {@code {"type": ..., "data": {"content": ..., ...}}}, so
+ * messages written by either are readable by both, whatever the order of the fields.
+ *
+ * @author HamaWhite
+ */
+public class JsonMessageCodec implements MessageCodec {
+
+    public static final JsonMessageCodec INSTANCE = new JsonMessageCodec();
+
+    /**
+     * Shared by the codecs, an ObjectMapper is thread-safe once configured.
+     */
+    static final ObjectMapper OBJECT_MAPPER = new ObjectMapper();
+
+    static final TypeReference<Map<String, Object>> MAP_TYPE = new TypeReference<>() {
+    };
+
+    private JsonMessageCodec() {
+    }
+
+    @Override
+    public byte[] encode(BaseMessage message) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(128);
+        try (JsonGenerator generator = OBJECT_MAPPER.createGenerator(out)) {
+            generator.writeStartObject();
+            generator.writeStringField("type", message.type());
+            generator.writeObjectFieldStart("data");
+            generator.writeStringField("content", message.getContent());
+            generator.writeObjectField("additionalKwargs", message.getAdditionalKwargs());
+            if (message instanceof ChatMessage chatMessage) {
+                generator.writeStringField("role", chatMessage.getRole());
+            } else if (message instanceof FunctionMessage functionMessage) {
+                generator.writeStringField("name", functionMessage.getName());
+            }
+            generator.writeEndObject();
+            generator.writeEndObject();
+        } catch (IOException e) {
+            throw new LangChainException("Failed to encode message", e);
+        }
+        return out.toByteArray();
+    }
+
+    public String encodeToString(BaseMessage message) {
+        return new String(encode(message), StandardCharsets.UTF_8);
+    }
+
+    @Override
+    public BaseMessage decode(byte[] bytes) {
+        try (JsonParser parser = OBJECT_MAPPER.createParser(bytes)) {
+            return decode(parser);
+        } catch (IOException e) {
+            throw new LangChainException("Failed to decode message", e);
+        }
+    }
+
+    public BaseMessage decode(String json) {
+        try (JsonParser parser = OBJECT_MAPPER.createParser(json)) {
+            return decode(parser);
+        } catch (IOException e) {
+            throw new LangChainException("Failed to decode message", e);
+        }
+    }
+
+    private BaseMessage decode(JsonParser parser) throws IOException {
+        expect(parser.nextToken(), JsonToken.START_OBJECT);
+        String type = null;
+        String content = null;
+        Map<String, Object> additionalKwargs = null;
+        String role = null;
+        String name = null;
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String field = parser.currentName();
+            JsonToken token = parser.nextToken();
+            if ("type".equals(field)) {
+                type = parser.getValueAsString();
+            } else if ("data".equals(field)) {
+                expect(token, JsonToken.START_OBJECT);
+                while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                    String dataField = parser.currentName();
+                    JsonToken valueToken = parser.nextToken();
+                    switch (dataField) {
+                        case "content" -> content = parser.getValueAsString();
+                        case "additionalKwargs" -> additionalKwargs =
+                                valueToken == JsonToken.VALUE_NULL ? null : parser.readValueAs(MAP_TYPE);
+                        case "role" -> role = parser.getValueAsString();
+                        case "name" -> name = parser.getValueAsString();
+                        default -> parser.skipChildren();
+                    }
+                }
+            } else {
+                parser.skipChildren();
+            }
+        }
+        if (type == null) {
+            throw new LangChainException("Message has no type");
+        }
+        return MessageFactory.newMessage(type, content, additionalKwargs, role, name);
+    }
+
+    private static void expect(JsonToken actual, JsonToken expected) {
+        if (actual != expected) {
+            throw new LangChainException(String.format("Expected %s but got %s", expected, actual));
+        }
+    }
+
+    @Override
+    public boolean isBinary() {
+        return false;
+    }
+}
@@ -0,0 +1,64 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.hw.langchain.schema.codec;
+
+import com.hw.langchain.exception.LangChainException;
+import com.hw.langchain.schema.BaseMessage;
+
+/**
+ * Serializes a {@link BaseMessage} to bytes and back, so that persistent chat message histories do not go through
+ * intermediate maps.
+ *
+ * @author HamaWhite
+ */
+public interface MessageCodec {
+
+    /**
+     * Encode the message, including its additional kwargs and the fields of its subtype.
+     */
+    byte[] encode(BaseMessage message);
+
+    /**
+     * Decode a message encoded by {@link #encode(BaseMessage)}.
+     *
+     * @throws LangChainException when the bytes are not a valid message
+     */
+    BaseMessage decode(byte[] bytes);
+
+    /**
+     * Whether the encoded messages are binary rather than UTF-8 text.
+     */
+    default boolean isBinary() {
+        return true;
+    }
+
+    /**
+     * Compact JSON codec, compatible with {@link BaseMessage#toMap()}.
+     */
+    static MessageCodec json() {
+        return JsonMessageCodec.INSTANCE;
+    }
+
+    /**
+     * Versioned binary codec.
+     */
+    static MessageCodec binary() {
+        return BinaryMessageCodec.INSTANCE;
+    }
+}
@@ -0,0 +1,60 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.hw.langchain.schema.codec;
+
+import com.hw.langchain.exception.LangChainException;
+import com.hw.langchain.schema.AIMessage;
+import com.hw.langchain.schema.BaseMessage;
+import com.hw.langchain.schema.ChatMessage;
+import com.hw.langchain.schema.FunctionMessage;
+import com.hw.langchain.schema.HumanMessage;
+import com.hw.langchain.schema.SystemMessage;
+
+import java.util.Map;
+
+/**
+ * @author HamaWhite
+ */
+class MessageFactory {
+
+    private MessageFactory() {
+    }
+
+    /**
+     * Create a message of the type with the fields read by a decoder.
+     */
+    static BaseMessage newMessage(String type, String content, Map<String, Object> additionalKwargs, String role,
+            String name) {
+        BaseMessage message = switch (type) {
+            case "ai" -> new AIMessage(content);
+            case "human" -> new HumanMessage(content);
+            case "system" -> new SystemMessage(content);
+            case "chat" -> new ChatMessage(content, role);
+            case "function" -> {
+                FunctionMessage functionMessage = new FunctionMessage();
+                functionMessage.setContent(content);
+                functionMessage.setName(name);
+                yield functionMessage;
+            }
+            default -> throw new LangChainException(String.format("Got unexpected message type:%s", type));
+        };
+        message.setAdditionalKwargs(additionalKwargs);
+        return message;
+    }
+}
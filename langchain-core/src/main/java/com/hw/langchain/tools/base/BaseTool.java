@@ -92,10 +92,9 @@ public abstract class BaseTool {
 
     public Pair<Object[], Map<String, Object>> toArgsAndKwargs(Object toolInput) {
         /*
-        * 20230308:入参为Map时转换，否则不进行转换
-        * 原逻辑入参为非String和非Map时会出现将toolInput强转为Map报错
-        * */
-        if(toolInput instanceof Map){
+         * 20230308:入参为Map时转换，否则不进行转换 原逻辑入参为非String和非Map时会出现将toolInput强转为Map报错
+         */
+        if (toolInput instanceof Map) {
             Map<String, Object> mapInput = (Map<String, Object>) toolInput;
             return Pair.of(new Object[]{}, mapInput);
         }
@@ -0,0 +1,57 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.hw.langchain.utils;
+
+import com.hw.langchain.exception.LangChainException;
+import com.knuddels.jtokkit.Encodings;
+import com.knuddels.jtokkit.api.Encoding;
+import com.knuddels.jtokkit.api.EncodingRegistry;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Shared jtokkit encodings. Building the registry loads every BPE rank file, so it is done once per JVM, and the
+ * encodings are thread-safe.
+ *
+ * @author HamaWhite
+ */
+public class EncodingUtils {
+
+    private EncodingUtils() {
+    }
+
+    private static final EncodingRegistry REGISTRY = Encodings.newDefaultEncodingRegistry();
+
+    private static final Map<String, Encoding> MODEL_ENCODINGS = new ConcurrentHashMap<>();
+
+    public static EncodingRegistry getRegistry() {
+        return REGISTRY;
+    }
+
+    /**
+     * Return the encoding used by the model.
+     *
+     * @throws LangChainException when the model is unknown
+     */
+    public static Encoding getEncodingForModel(String model) {
+        return MODEL_ENCODINGS.computeIfAbsent(model, key -> REGISTRY.getEncodingForModel(key)
+                .orElseThrow(() -> new LangChainException("Encoding not found for model: " + key)));
+    }
+}
@@ -18,6 +18,9 @@
 
 package com.hw.langchain.utils;
 
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -26,6 +29,7 @@ import io.github.resilience4j.retry.Retry;
 import io.github.resilience4j.retry.RetryConfig;
 
 import java.time.Duration;
+import java.util.function.Predicate;
 import java.util.function.Supplier;
 
 import static java.util.Objects.requireNonNull;
@@ -40,21 +44,52 @@ public class Resilience4jRetryUtils {
 
     private static final Logger LOG = LoggerFactory.getLogger(Resilience4jRetryUtils.class);
 
+    /**
+     * Retries are stateless between calls, so one is kept per configuration instead of building it, and registering
+     * its event consumer, on every call. The size bounds the entries left by predicates created per call.
+     */
+    private static final Cache<RetryKey, Retry> RETRIES = CacheBuilder.newBuilder().maximumSize(256).build();
+
     public static <T> T retryWithExponentialBackoff(int maxRetries, Supplier<T> action) {
         return retryWithExponentialBackoff(maxRetries, action, Duration.ofSeconds(4), 2, Duration.ofSeconds(16));
     }
 
+    /**
+     * Retry only the failures accepted by {@code retryOnException}, the others are rethrown immediately.
+     */
+    public static <T> T retryWithExponentialBackoff(int maxRetries, Supplier<T> action,
+            Predicate<Throwable> retryOnException) {
+        return retryWithExponentialBackoff(maxRetries, action, Duration.ofSeconds(4), 2, Duration.ofSeconds(16),
+                retryOnException);
+    }
+
     public static <T> T retryWithExponentialBackoff(int maxRetries, Supplier<T> action, Duration initialInterval,
             double multiplier, Duration maxInterval) {
+        return retryWithExponentialBackoff(maxRetries, action, initialInterval, multiplier, maxInterval, e -> true);
+    }
+
+    public static <T> T retryWithExponentialBackoff(int maxRetries, Supplier<T> action, Duration initialInterval,
+            double multiplier, Duration maxInterval, Predicate<Throwable> retryOnException) {
+        var key = new RetryKey(maxRetries, initialInterval, multiplier, maxInterval, retryOnException);
+        Retry retry = RETRIES.asMap().computeIfAbsent(key, Resilience4jRetryUtils::createRetry);
+        return retry.executeSupplier(action);
+    }
+
+    private static Retry createRetry(RetryKey key) {
         RetryConfig retryConfig = RetryConfig.custom()
-                .maxAttempts(maxRetries)
-                .intervalFunction(IntervalFunction.ofExponentialBackoff(initialInterval, multiplier, maxInterval))
+                .maxAttempts(key.maxRetries())
+                .retryOnException(key.retryOnException())
+                .intervalFunction(IntervalFunction.ofExponentialBackoff(key.initialInterval(), key.multiplier(),
+                        key.maxInterval()))
                 .build();
         Retry retry = Retry.of("retryWithExponentialBackoff", retryConfig);
 
         retry.getEventPublisher().onRetry(event -> LOG.warn("Retry failed on attempt #{} with exception: {}",
                 event.getNumberOfRetryAttempts(), requireNonNull(event.getLastThrowable()).getMessage()));
+        return retry;
+    }
 
-        return retry.executeSupplier(action);
+    private record RetryKey(int maxRetries, Duration initialInterval, double multiplier, Duration maxInterval,
+            Predicate<Throwable> retryOnException) {
     }
 }
@@ -18,7 +18,14 @@
 
 package com.hw.langchain.utils;
 
+import com.hw.langchain.exception.LangChainException;
+
+import java.util.ArrayDeque;
+import java.util.List;
+import java.util.Queue;
 import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
 
 /**
  * @author HamaWhite
@@ -28,6 +35,23 @@ public class ThreadPoolUtil {
     private ThreadPoolUtil() {
     }
 
+    /**
+     * Maximum number of threads of the shared pool, beyond which a task runs on the thread submitting it.
+     */
+    private static final int SHARED_POOL_SIZE = 64;
+
+    private static final class SharedPool {
+
+        private static final AtomicInteger THREAD_NUMBER = new AtomicInteger();
+
+        private static final ThreadPoolExecutor INSTANCE = new ThreadPoolExecutor(0, SHARED_POOL_SIZE, 60L,
+                TimeUnit.SECONDS, new SynchronousQueue<>(), runnable -> {
+                    Thread thread = new Thread(runnable, "langchain-worker-" + THREAD_NUMBER.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                }, new ThreadPoolExecutor.CallerRunsPolicy());
+    }
+
     public static ExecutorService createThreadPool(int maxConcurrency) {
         int corePoolSize = Math.min(maxConcurrency, Runtime.getRuntime().availableProcessors());
         long keepAliveTime = 0L;
@@ -39,4 +63,113 @@ public class ThreadPoolUtil {
         return new ThreadPoolExecutor(corePoolSize, maxConcurrency, keepAliveTime, unit, workQueue, threadFactory,
                 handler);
     }
+
+    /**
+     * Pool of daemon threads shared by the concurrent generations and batches, so that they do not create a pool per
+     * call. It runs at most {@value #SHARED_POOL_SIZE} tasks, a task submitted beyond that runs on the submitting
+     * thread, which also keeps nested batches from waiting on each other. It is never shut down.
+     */
+    public static Executor sharedExecutor() {
+        return SharedPool.INSTANCE;
+    }
+
+    /**
+     * Executor running at most {@code maxConcurrency} of its tasks at the same time on the given executor, the others
+     * wait in a queue. It holds no thread of its own and needs no shutdown.
+     */
+    public static Executor limit(Executor executor, int maxConcurrency) {
+        return new ConcurrencyLimitedExecutor(executor, maxConcurrency);
+    }
+
+    /**
+     * Apply the function to every item, up to {@code maxConcurrency} items at the same time on the shared executor,
+     * and return the results in the order of the items. The first failure in that order is thrown, and the items not
+     * started yet are skipped.
+     */
+    public static <T, R> List<R> mapConcurrently(List<T> items, int maxConcurrency,
+            Function<? super T, ? extends R> function) {
+        return mapConcurrently(items, maxConcurrency, function, sharedExecutor());
+    }
+
+    /**
+     * Apply the function to every item, up to {@code maxConcurrency} items at the same time on the given executor.
+     *
+     * @see #mapConcurrently(List, int, Function)
+     */
+    public static <T, R> List<R> mapConcurrently(List<T> items, int maxConcurrency,
+            Function<? super T, ? extends R> function, Executor executor) {
+        if (maxConcurrency == 1 || items.size() <= 1) {
+            return items.stream().<R>map(function).toList();
+        }
+        Executor limited = limit(executor, Math.min(maxConcurrency, items.size()));
+        List<CompletableFuture<R>> futures = items.stream()
+                .map(item -> CompletableFuture.<R>supplyAsync(() -> function.apply(item), limited))
+                .toList();
+        try {
+            return futures.stream().map(CompletableFuture::join).toList();
+        } catch (CompletionException e) {
+            throw e.getCause()instanceof RuntimeException cause ? cause : new LangChainException(e.getCause());
+        } finally {
+            // a completed future is skipped by the executor when its turn comes
+            futures.forEach(future -> future.cancel(false));
+        }
+    }
+
+    private static final class ConcurrencyLimitedExecutor implements Executor {
+
+        private final Executor delegate;
+
+        private final int maxConcurrency;
+
+        private final Queue<Runnable> queue = new ArrayDeque<>();
+
+        private int running;
+
+        private ConcurrencyLimitedExecutor(Executor delegate, int maxConcurrency) {
+            if (maxConcurrency <= 0) {
+                throw new IllegalArgumentException("maxConcurrency must be positive, got " + maxConcurrency);
+            }
+            this.delegate = delegate;
+            this.maxConcurrency = maxConcurrency;
+        }
+
+        @Override
+        public void execute(Runnable task) {
+            synchronized (this) {
+                if (running >= maxConcurrency) {
+                    queue.add(task);
+                    return;
+                }
+                running++;
+            }
+            dispatch(task);
+        }
+
+        private void dispatch(Runnable first) {
+            delegate.execute(() -> {
+                // the thread finishing a task goes on with the queued ones
+                Runnable task = first;
+                while (task != null) {
+                    boolean completed = false;
+                    try {
+                        task.run();
+                        completed = true;
+                    } finally {
+                        task = next();
+                        if (!completed && task != null) {
+                            dispatch(task);
+                        }
+                    }
+                }
+            });
+        }
+
+        private synchronized Runnable next() {
+            Runnable task = queue.poll();
+            if (task == null) {
+                running--;
+            }
+            return task;
+        }
+    }
 }
@@ -18,6 +18,7 @@
 
 package com.hw.langchain.vectorstores.base;
 
+import com.hw.langchain.embeddings.base.DenseVector;
 import com.hw.langchain.embeddings.base.Embeddings;
 import com.hw.langchain.schema.Document;
 
@@ -150,6 +151,19 @@ public abstract class VectorStore {
      */
     public abstract List<Document> similarSearchByVector(List<Float> embedding, int k, Map<String, Object> kwargs);
 
+    /**
+     * Return docs most similar to embedding vector. Stores working on primitive vectors should override this and
+     * adapt {@link #similarSearchByVector(List, int, Map)} to it.
+     *
+     * @param embedding Embedding to look up documents similar to.
+     * @param k         Number of Documents to return.
+     * @param kwargs    kwargs to be passed to similarity search
+     * @return List of Documents most similar to the query vector.
+     */
+    public List<Document> similarSearchByVector(DenseVector embedding, int k, Map<String, Object> kwargs) {
+        return similarSearchByVector(embedding.asList(), k, kwargs);
+    }
+
     public List<Document> maxMarginalRelevanceSearch(String query) {
         return maxMarginalRelevanceSearch(query, 4, 20, 0.5f);
     }
@@ -185,6 +199,21 @@ public abstract class VectorStore {
     public abstract List<Document> maxMarginalRelevanceSearchByVector(List<Float> embedding, int k, int fetchK,
             float lambdaMult);
 
+    /**
+     * Return docs selected using the maximal marginal relevance. Stores working on primitive vectors should override
+     * this and adapt {@link #maxMarginalRelevanceSearchByVector(List, int, int, float)} to it.
+     *
+     * @param embedding  Embedding to look up documents similar to.
+     * @param k          Number of Documents to return.
+     * @param fetchK     Number of Documents to fetch to pass to MMR algorithm.
+     * @param lambdaMult Number between 0 and 1 that determines the degree of diversity among the results.
+     * @return List of Documents selected by maximal marginal relevance.
+     */
+    public List<Document> maxMarginalRelevanceSearchByVector(DenseVector embedding, int k, int fetchK,
+            float lambdaMult) {
+        return maxMarginalRelevanceSearchByVector(embedding.asList(), k, fetchK, lambdaMult);
+    }
+
     /**
      * Return VectorStore initialized from documents and embeddings.
      */
@@ -0,0 +1,481 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.hw.langchain.vectorstores.hnsw;
+
+import java.util.*;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Predicate;
+
+import static com.hw.langchain.math.utils.MathUtils.dot;
+
+/**
+ * An in-memory Hierarchical Navigable Small World graph over primitive {@code float[]} vectors using cosine similarity.
+ * <p>
+ * Inserts may run concurrently: each node guards its own adjacency lists with a lock and publishes them as immutable
+ * {@code int[]} snapshots, so searches never take a lock.
+ * <p>
+ * See <a href="https://arxiv.org/abs/1603.09320">Efficient and robust approximate nearest neighbor search using
+ * Hierarchical Navigable Small World graphs</a>
+ *
+ * @param <T> type of the item attached to each vector
+ * @author HamaWhite
+ */
+public class HnswIndex<T> {
+
+    private static final int INITIAL_CAPACITY = 1024;
+
+    private final int m;
+
+    private final int maxM0;
+
+    private final int efConstruction;
+
+    private final double levelMultiplier;
+
+    private final Object allocationLock = new Object();
+
+    private final Object entryLock = new Object();
+
+    private volatile Node<T>[] nodes;
+
+    private volatile int size;
+
+    private volatile int dimension = -1;
+
+    private volatile Node<T> entryPoint;
+
+    /**
+     * @param m              number of bi-directional links created for every new element, level 0 keeps 2 * m.
+     * @param efConstruction size of the dynamic candidate list used while building the graph.
+     */
+    @SuppressWarnings("unchecked")
+    public HnswIndex(int m, int efConstruction) {
+        if (m < 2) {
+            throw new IllegalArgumentException("m must be at least 2, got " + m);
+        }
+        this.m = m;
+        this.maxM0 = 2 * m;
+        this.efConstruction = Math.max(efConstruction, m);
+        this.levelMultiplier = 1 / Math.log(m);
+        this.nodes = new Node[INITIAL_CAPACITY];
+    }
+
+    /**
+     * Number of vectors ever added, including the ones marked as deleted.
+     */
+    public int size() {
+        return size;
+    }
+
+    public int dimension() {
+        return dimension;
+    }
+
+    /**
+     * Add a vector to the graph, the vector is copied and normalized to unit length.
+     *
+     * @param vector the vector to add
+     * @param item   the item returned along with the vector in search results
+     * @return the internal id of the new node
+     */
+    public int add(float[] vector, T item) {
+        checkDimension(vector);
+        float[] normalized = normalize(vector);
+        Node<T> node = allocate(normalized, item, randomLevel());
+
+        Node<T> entry = entryPoint;
+        if (entry == null) {
+            synchronized (entryLock) {
+                if (entryPoint == null) {
+                    entryPoint = node;
+                    return node.id;
+                }
+                entry = entryPoint;
+            }
+        }
+
+        int current = entry.id;
+        float currentDistance = distance(normalized, entry.vector);
+        for (int level = entry.level; level > node.level; level--) {
+            Candidate closest = greedySearch(normalized, current, currentDistance, level);
+            current = closest.id;
+            currentDistance = closest.distance;
+        }
+
+        for (int level = Math.min(node.level, entry.level); level >= 0; level--) {
+            List<Candidate> candidates = searchLayer(normalized, current, efConstruction, level, null);
+            candidates.removeIf(candidate -> candidate.id == node.id);
+            if (candidates.isEmpty()) {
+                continue;
+            }
+            int[] neighbors = selectNeighbors(candidates, maxConnections(level));
+            node.lock.lock();
+            try {
+                if (node.neighborsAt(level).length == 0) {
+                    node.neighbors.set(level, neighbors);
+                } else {
+                    // concurrent inserts have already linked to this node, merge instead of overwriting
+                    for (int neighbor : neighbors) {
+                        connect(node, neighbor, level);
+                    }
+                }
+            } finally {
+                node.lock.unlock();
+            }
+            for (int neighbor : neighbors) {
+                connect(nodeAt(neighbor), node.id, level);
+            }
+            current = candidates.get(0).id;
+        }
+
+        if (node.level > entry.level) {
+            synchronized (entryLock) {
+                if (node.level > entryPoint.level) {
+                    entryPoint = node;
+                }
+            }
+        }
+        return node.id;
+    }
+
+    /**
+     * Mark a node as deleted, it stays in the graph for navigation but is never returned by searches.
+     */
+    public void markDeleted(int id) {
+        nodeAt(id).deleted = true;
+    }
+
+    public boolean isDeleted(int id) {
+        return nodeAt(id).deleted;
+    }
+
+    public T item(int id) {
+        return nodeAt(id).item;
+    }
+
+    /**
+     * Return a copy of the normalized vector stored for the node.
+     */
+    public float[] vector(int id) {
+        return nodeAt(id).vector.clone();
+    }
+
+    /**
+     * Approximate k nearest neighbors by cosine similarity.
+     *
+     * @param query    the query vector
+     * @param k        number of results to return
+     * @param ef       size of the dynamic candidate list, values below k are raised to k
+     * @param accepted predicate on the item, rejected and deleted nodes are skipped, may be null
+     * @return results ordered from the most similar to the least similar, fewer than k when the accepted nodes are
+     *         too sparse to be met within the ef nearest nodes explored, a larger ef finds more of them
+     */
+    public List<SearchResult<T>> search(float[] query, int k, int ef, Predicate<T> accepted) {
+        Node<T> entry = entryPoint;
+        if (entry == null || k <= 0) {
+            return List.of();
+        }
+        checkDimension(query);
+        float[] normalized = normalize(query);
+
+        int current = entry.id;
+        float currentDistance = distance(normalized, entry.vector);
+        for (int level = entry.level; level > 0; level--) {
+            Candidate closest = greedySearch(normalized, current, currentDistance, level);
+            current = closest.id;
+            currentDistance = closest.distance;
+        }
+
+        Predicate<Node<T>> filter = accepted == null
+                ? node -> !node.deleted
+                : node -> !node.deleted && accepted.test(node.item);
+        List<Candidate> candidates = searchLayer(normalized, current, Math.max(ef, k), 0, filter);
+
+        List<SearchResult<T>> results = new ArrayList<>(Math.min(k, candidates.size()));
+        for (int i = 0; i < candidates.size() && results.size() < k; i++) {
+            Candidate candidate = candidates.get(i);
+            Node<T> node = nodeAt(candidate.id);
+            results.add(new SearchResult<>(node.id, node.item, 1 - candidate.distance));
+        }
+        return results;
+    }
+
+    private Node<T> allocate(float[] vector, T item, int level) {
+        synchronized (allocationLock) {
+            int id = size;
+            if (id == nodes.length) {
+                nodes = Arrays.copyOf(nodes, nodes.length << 1);
+            }
+            Node<T> node = new Node<>(id, vector, item, level);
+            nodes[id] = node;
+            size = id + 1;
+            return node;
+        }
+    }
+
+    private Node<T> nodeAt(int id) {
+        if (id < 0 || id >= size) {
+            throw new IndexOutOfBoundsException("Node " + id + " does not exist, size is " + size);
+        }
+        return nodes[id];
+    }
+
+    private void checkDimension(float[] vector) {
+        if (dimension == -1) {
+            synchronized (allocationLock) {
+                if (dimension == -1) {
+                    dimension = vector.length;
+                }
+            }
+        }
+        if (vector.length != dimension) {
+            throw new IllegalArgumentException(String.format(
+                    "Vector dimension %d does not match index dimension %d.", vector.length, dimension));
+        }
+    }
+
+    private int randomLevel() {
+        double random = 1.0 - ThreadLocalRandom.current().nextDouble();
+        return (int) (-Math.log(random) * levelMultiplier);
+    }
+
+    private int maxConnections(int level) {
+        return level == 0 ? maxM0 : m;
+    }
+
+    private Candidate greedySearch(float[] query, int start, float startDistance, int level) {
+        int current = start;
+        float currentDistance = startDistance;
+        boolean changed = true;
+        while (changed) {
+            changed = false;
+            for (int neighbor : nodeAt(current).neighborsAt(level)) {
+                float d = distance(query, nodeAt(neighbor).vector);
+                if (d < currentDistance) {
+                    currentDistance = d;
+                    current = neighbor;
+                    changed = true;
+                }
+            }
+        }
+        return new Candidate(current, currentDistance);
+    }
+
+    /**
+     * Beam search on a single layer, results are sorted by ascending distance.
+     * <p>
+     * The exploration is bounded by the ef nearest visited nodes, whether the filter accepts them or not, so that a
+     * selective filter or many deleted nodes do not turn the search into a walk of the whole graph. The accepted nodes
+     * among the visited ones are collected on the side.
+     */
+    private List<Candidate> searchLayer(float[] query, int start, int ef, int level, Predicate<Node<T>> filter) {
+        BitSet visited = new BitSet(size);
+        PriorityQueue<Candidate> candidates = new PriorityQueue<>(Comparator.comparingDouble(Candidate::distance));
+        PriorityQueue<Candidate> nearest = new PriorityQueue<>(
+                Comparator.comparingDouble(Candidate::distance).reversed());
+        PriorityQueue<Candidate> results = filter == null
+                ? nearest
+                : new PriorityQueue<>(Comparator.comparingDouble(Candidate::distance).reversed());
+
+        Candidate first = new Candidate(start, distance(query, nodeAt(start).vector));
+        visited.set(start);
+        candidates.add(first);
+        nearest.add(first);
+        if (filter != null && filter.test(nodeAt(start))) {
+            results.add(first);
+        }
+
+        while (!candidates.isEmpty()) {
+            Candidate candidate = candidates.poll();
+            if (nearest.size() >= ef && candidate.distance > nearest.peek().distance) {
+                break;
+            }
+            for (int neighbor : nodeAt(candidate.id).neighborsAt(level)) {
+                if (visited.get(neighbor)) {
+                    continue;
+                }
+                visited.set(neighbor);
+                Node<T> node = nodeAt(neighbor);
+                float d = distance(query, node.vector);
+                Candidate next = new Candidate(neighbor, d);
+                if (nearest.size() < ef || d < nearest.peek().distance) {
+                    candidates.add(next);
+                    offer(nearest, next, ef);
+                }
+                if (filter != null && (results.size() < ef || d < results.peek().distance) && filter.test(node)) {
+                    offer(results, next, ef);
+                }
+            }
+        }
+
+        List<Candidate> sorted = new ArrayList<>(results);
+        sorted.sort(Comparator.comparingDouble(Candidate::distance));
+        return sorted;
+    }
+
+    /**
+     * Add the candidate to a max-heap holding the ef nearest candidates.
+     */
+    private static void offer(PriorityQueue<Candidate> heap, Candidate candidate, int ef) {
+        heap.add(candidate);
+        if (heap.size() > ef) {
+            heap.poll();
+        }
+    }
+
+    /**
+     * Neighbor selection heuristic which favours candidates closer to the base element than to any already
+     * selected neighbor, keeping the graph navigable on clustered data.
+     */
+    private int[] selectNeighbors(List<Candidate> candidates, int maxConnections) {
+        if (candidates.size() <= maxConnections) {
+            return candidates.stream().mapToInt(Candidate::id).toArray();
+        }
+        int[] selected = new int[maxConnections];
+        int count = 0;
+        for (Candidate candidate : candidates) {
+            if (count == maxConnections) {
+                break;
+            }
+            float[] vector = nodeAt(candidate.id).vector;
+            boolean good = true;
+            for (int i = 0; i < count; i++) {
+                if (distance(vector, nodeAt(selected[i]).vector) < candidate.distance) {
+                    good = false;
+                    break;
+                }
+            }
+            if (good) {
+                selected[count++] = candidate.id;
+            }
+        }
+        // fill up with the closest discarded candidates to keep the out-degree
+        for (int i = 0; i < candidates.size() && count < maxConnections; i++) {
+            int id = candidates.get(i).id;
+            if (!contains(selected, count, id)) {
+                selected[count++] = id;
+            }
+        }
+        return count == selected.length ? selected : Arrays.copyOf(selected, count);
+    }
+
+    private void connect(Node<T> node, int neighbor, int level) {
+        int maxConnections = maxConnections(level);
+        node.lock.lock();
+        try {
+            int[] current = node.neighborsAt(level);
+            if (contains(current, current.length, neighbor)) {
+                return;
+            }
+            int[] updated = Arrays.copyOf(current, current.length + 1);
+            updated[current.length] = neighbor;
+            if (updated.length > maxConnections) {
+                List<Candidate> candidates = new ArrayList<>(updated.length);
+                for (int id : updated) {
+                    candidates.add(new Candidate(id, distance(node.vector, nodeAt(id).vector)));
+                }
+                candidates.sort(Comparator.comparingDouble(Candidate::distance));
+                updated = selectNeighbors(candidates, maxConnections);
+            }
+            node.neighbors.set(level, updated);
+        } finally {
+            node.lock.unlock();
+        }
+    }
+
+    private static boolean contains(int[] array, int length, int value) {
+        for (int i = 0; i < length; i++) {
+            if (array[i] == value) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Cosine distance between two unit vectors.
+     */
+    private static float distance(float[] x, float[] y) {
+        return 1 - dot(x, y);
+    }
+
+    private static float[] normalize(float[] vector) {
+        double norm = 0;
+        for (float v : vector) {
+            norm += v * v;
+        }
+        norm = Math.sqrt(norm);
+        float[] normalized = new float[vector.length];
+        if (norm == 0) {
+            return normalized;
+        }
+        for (int i = 0; i < vector.length; i++) {
+            normalized[i] = (float) (vector[i] / norm);
+        }
+        return normalized;
+    }
+
+    private record Candidate(int id, float distance) {
+    }
+
+    /**
+     * A search hit with its cosine similarity to the query.
+     */
+    public record SearchResult<T>(
+    int id, T item,
+    float similarity)
+    {
+    }
+
+    private static final class Node<T> {
+
+        private static final int[] EMPTY = new int[0];
+
+        private final int id;
+
+        private final float[] vector;
+
+        private final T item;
+
+        private final int level;
+
+        private final AtomicReferenceArray<int[]> neighbors;
+
+        private final ReentrantLock lock = new ReentrantLock();
+
+        private volatile boolean deleted;
+
+        private Node(int id, float[] vector, T item, int level) {
+            this.id = id;
+            this.vector = vector;
+            this.item = item;
+            this.level = level;
+            this.neighbors = new AtomicReferenceArray<>(level + 1);
+            for (int i = 0; i <= level; i++) {
+                neighbors.set(i, EMPTY);
+            }
+        }
+
+        private int[] neighborsAt(int level) {
+            return level < neighbors.length() ? neighbors.get(level) : EMPTY;
+        }
+    }
+}
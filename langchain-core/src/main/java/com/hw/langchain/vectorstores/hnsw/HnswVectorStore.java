@@ -0,0 +1,223 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.hw.langchain.vectorstores.hnsw;
+
+import com.google.common.collect.Maps;
+import com.hw.langchain.embeddings.base.DenseVector;
+import com.hw.langchain.embeddings.base.Embeddings;
+import com.hw.langchain.schema.Document;
+import com.hw.langchain.vectorstores.base.VectorStore;
+import com.hw.langchain.vectorstores.hnsw.HnswIndex.SearchResult;
+
+import org.apache.commons.collections4.MapUtils;
+import org.apache.commons.lang3.tuple.Pair;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import lombok.Builder;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Predicate;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.hw.langchain.vectorstores.utils.Utils.maximalMarginalRelevance;
+
+/**
+ * Embedded vector store backed by an in-process {@link HnswIndex}, no network hop is involved in searches.
+ *
+ * @author HamaWhite
+ */
+@Builder
+public class HnswVectorStore extends VectorStore {
+
+    private static final Logger LOG = LoggerFactory.getLogger(HnswVectorStore.class);
+
+    /**
+     * Function used to embed the text.
+     */
+    private Embeddings embeddingFunction;
+
+    /**
+     * Number of bi-directional links created for every new element.
+     */
+    @Builder.Default
+    private int m = 16;
+
+    /**
+     * Size of the dynamic candidate list used while building the graph.
+     */
+    @Builder.Default
+    private int efConstruction = 200;
+
+    /**
+     * Size of the dynamic candidate list used while searching, raised to k when smaller.
+     */
+    @Builder.Default
+    private int efSearch = 64;
+
+    private HnswIndex<Entry> index;
+
+    private Map<String, Integer> idToNode;
+
+    /**
+     * Validate parameters and init the index
+     */
+    public HnswVectorStore init() {
+        checkArgument(efSearch > 0, "efSearch must be positive, got %s", efSearch);
+        this.index = new HnswIndex<>(m, efConstruction);
+        this.idToNode = new ConcurrentHashMap<>();
+        return this;
+    }
+
+    @Override
+    public List<String> addTexts(List<String> texts, List<Map<String, Object>> metadatas) {
+        List<DenseVector> embeddings = embeddingFunction.embedDocumentVectors(texts);
+        return addEmbeddings(texts, embeddings, metadatas);
+    }
+
+    private List<String> addEmbeddings(List<String> texts, List<DenseVector> embeddings,
+            List<Map<String, Object>> metadatas) {
+        checkArgument(metadatas == null || metadatas.isEmpty() || metadatas.size() == texts.size(),
+                "Number of metadatas %s must match number of texts %s", metadatas == null ? 0 : metadatas.size(),
+                texts.size());
+        List<String> ids = new ArrayList<>(texts.size());
+        for (int i = 0; i < texts.size(); i++) {
+            Map<String, Object> metadata = metadatas == null || metadatas.isEmpty()
+                    ? Maps.newHashMap()
+                    : Maps.newHashMap(metadatas.get(i));
+            String id = UUID.randomUUID().toString();
+            Entry entry = new Entry(id, new Document(texts.get(i), metadata));
+            int node = index.add(embeddings.get(i).values(), entry);
+            idToNode.put(id, node);
+            ids.add(id);
+        }
+        return ids;
+    }
+
+    @Override
+    public void delete(List<String> ids) {
+        for (String id : ids) {
+            Integer node = idToNode.remove(id);
+            if (node != null) {
+                index.markDeleted(node);
+            } else {
+                LOG.warn("Document with id {} not found, skipping.", id);
+            }
+        }
+    }
+
+    /**
+     * Return documents most similar to the query vector, along with their cosine similarity.
+     */
+    private List<Pair<Document, Float>> similaritySearchWithScoreByVector(float[] embedding, int k,
+            Map<String, Object> filter) {
+        Predicate<Entry> accepted = MapUtils.isEmpty(filter) ? null : entry -> matches(entry.document(), filter);
+        return index.search(embedding, k, efSearch, accepted).stream()
+                .map(result -> Pair.of(result.item().document(), result.similarity()))
+                .toList();
+    }
+
+    private static boolean matches(Document document, Map<String, Object> filter) {
+        Map<String, Object> metadata = document.getMetadata();
+        return filter.entrySet().stream()
+                .allMatch(e -> metadata != null && Objects.equals(metadata.get(e.getKey()), e.getValue()));
+    }
+
+    /**
+     * Return documents most similar to query.
+     *
+     * @param query  Text to look up documents similar to.
+     * @param k      Number of Documents to return.
+     * @param filter Metadata key-value pairs that must all match exactly, may be null
+     * @return List of Documents most similar to the query
+     */
+    @Override
+    public List<Document> similaritySearch(String query, int k, Map<String, Object> filter) {
+        float[] embedding = embeddingFunction.embedQueryVector(query).values();
+        return similaritySearchWithScoreByVector(embedding, k, filter).stream().map(Pair::getLeft).toList();
+    }
+
+    /**
+     * The relevance score is the cosine similarity, which is within [0, 1] for non-negative embeddings.
+     */
+    @Override
+    protected List<Pair<Document, Float>> innerSimilaritySearchWithRelevanceScores(String query, int k) {
+        float[] embedding = embeddingFunction.embedQueryVector(query).values();
+        return similaritySearchWithScoreByVector(embedding, k, null);
+    }
+
+    @Override
+    public List<Document> similarSearchByVector(List<Float> embedding, int k, Map<String, Object> kwargs) {
+        return similarSearchByVector(DenseVector.copyOf(embedding), k, kwargs);
+    }
+
+    @Override
+    public List<Document> similarSearchByVector(DenseVector embedding, int k, Map<String, Object> kwargs) {
+        return similaritySearchWithScoreByVector(embedding.values(), k, kwargs).stream()
+                .map(Pair::getLeft)
+                .toList();
+    }
+
+    @Override
+    public List<Document> maxMarginalRelevanceSearch(String query, int k, int fetchK, float lambdaMult) {
+        DenseVector embedding = embeddingFunction.embedQueryVector(query);
+        return maxMarginalRelevanceSearchByVector(embedding, k, fetchK, lambdaMult);
+    }
+
+    @Override
+    public List<Document> maxMarginalRelevanceSearchByVector(List<Float> embedding, int k, int fetchK,
+            float lambdaMult) {
+        return maxMarginalRelevanceSearchByVector(DenseVector.copyOf(embedding), k, fetchK, lambdaMult);
+    }
+
+    @Override
+    public List<Document> maxMarginalRelevanceSearchByVector(DenseVector embedding, int k, int fetchK,
+            float lambdaMult) {
+        List<SearchResult<Entry>> results = index.search(embedding.values(), fetchK, efSearch, null);
+        if (results.isEmpty()) {
+            return List.of();
+        }
+        float[][] embeddings = results.stream()
+                .map(result -> index.vector(result.id()))
+                .toArray(float[][]::new);
+        List<Integer> mmrSelected = maximalMarginalRelevance(embedding.values(), embeddings, k, lambdaMult);
+        return mmrSelected.stream()
+                .map(i -> results.get(i).item().document())
+                .toList();
+    }
+
+    @Override
+    public int fromTexts(List<String> texts, Embeddings embedding, List<Map<String, Object>> metadatas) {
+        if (embeddingFunction == null) {
+            embeddingFunction = embedding;
+        }
+        return addEmbeddings(texts, embedding.embedDocumentVectors(texts), metadatas).size();
+    }
+
+    /**
+     * Number of documents which have not been deleted.
+     */
+    public int size() {
+        return idToNode.size();
+    }
+
+    private record Entry(String id, Document document) {
+    }
+}
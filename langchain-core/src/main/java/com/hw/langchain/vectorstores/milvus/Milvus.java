@@ -19,7 +19,11 @@
 package com.hw.langchain.vectorstores.milvus;
 
 import com.google.common.collect.Maps;
+import com.google.common.util.concurrent.Futures;
+import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.MoreExecutors;
 import com.hw.langchain.embeddings.base.Embeddings;
+import com.hw.langchain.exception.LangChainException;
 import com.hw.langchain.schema.Document;
 import com.hw.langchain.vectorstores.base.VectorStore;
 
@@ -43,7 +47,10 @@ import io.milvus.response.SearchResultsWrapper;
 import lombok.Builder;
 
 import java.util.*;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicBoolean;
 
+import static com.google.common.base.Preconditions.checkArgument;
 import static com.hw.langchain.chains.query.constructor.JsonUtils.writeValueAsString;
 
 /**
@@ -86,8 +93,22 @@ public class Milvus extends VectorStore {
     @Builder.Default
     private int batchSize = 1000;
 
+    /**
+     * Maximum number of insert batches in flight at the same time.
+     */
+    @Builder.Default
+    private int maxInFlightBatches = 4;
+
+    /**
+     * Client to use, created from the connectParam when null.
+     */
     private MilvusClient milvusClient;
 
+    /**
+     * Whether the collection, its index and the search params are ready, they are set up once per instance.
+     */
+    private final AtomicBoolean initialized = new AtomicBoolean();
+
     /**
      * In order for a collection to be compatible, pk needs to be auto-id and int
      */
@@ -114,7 +135,10 @@ public class Milvus extends VectorStore {
     private Map<String, Object> searchParams;
 
     public Milvus init() {
-        milvusClient = new MilvusServiceClient(connectParam);
+        checkArgument(maxInFlightBatches > 0, "maxInFlightBatches must be positive, got %s", maxInFlightBatches);
+        if (milvusClient == null) {
+            milvusClient = new MilvusServiceClient(connectParam);
+        }
         // default search params when one is not provided.
         initDefaultSearchParams();
 
@@ -174,14 +198,33 @@ public class Milvus extends VectorStore {
         return milvusClient.hasCollection(requestParam).getData();
     }
 
+    /**
+     * Create the collection if needed, then cache its fields, index and search params and load it. This runs once, the
+     * following calls return immediately.
+     */
     private void innerInit(List<List<Float>> embeddings, List<Map<String, Object>> metadatas) {
-        if (CollectionUtils.isNotEmpty(embeddings)) {
-            createCollection(embeddings, metadatas);
+        if (initialized.get()) {
+            return;
+        }
+        synchronized (this) {
+            if (initialized.get()) {
+                return;
+            }
+            boolean exists = hasCollection();
+            if (!exists && CollectionUtils.isNotEmpty(embeddings)) {
+                createCollection(embeddings, metadatas);
+                exists = true;
+            }
+            if (!exists) {
+                // nothing to set up until the first texts are added
+                return;
+            }
+            extractFields();
+            createIndex();
+            createSearchParams();
+            load();
+            initialized.set(true);
         }
-        extractFields();
-        createIndex();
-        createSearchParams();
-        load();
     }
 
     public void createCollection(List<List<Float>> embeddings, List<Map<String, Object>> metadatas) {
@@ -251,6 +294,7 @@ public class Milvus extends VectorStore {
                         .build());
 
         CollectionSchema schema = response.getData().getSchema();
+        fields.clear();
         for (FieldSchema x : schema.getFieldsList()) {
             fields.add(x.getName());
         }
@@ -353,7 +397,8 @@ public class Milvus extends VectorStore {
 
         // total insert count
         int totalCount = embeddings.size();
-        List<String> pks = new ArrayList<>();
+        Semaphore window = new Semaphore(maxInFlightBatches);
+        List<ListenableFuture<R<MutationResult>>> futures = new ArrayList<>();
         for (int i = 0; i < totalCount; i += batchSize) {
             // grab end index
             int end = Math.min(i + batchSize, totalCount);
@@ -362,22 +407,58 @@ public class Milvus extends VectorStore {
             for (String field : fields) {
                 insertFields.add(new InsertParam.Field(field, insertDict.get(field).subList(i, end)));
             }
-            // insert into the collection.
+            // insert into the collection, up to maxInFlightBatches batches concurrently.
             InsertParam insertParam = InsertParam.newBuilder()
                     .withCollectionName(collectionName)
                     .withFields(insertFields)
                     .build();
-            var res = milvusClient.insert(insertParam);
-            pks.addAll(res.getData().getIDs().getStrId().getDataList());
+            acquire(window);
+            var future = milvusClient.insertAsync(insertParam);
+            future.addListener(window::release, MoreExecutors.directExecutor());
+            futures.add(future);
         }
+
+        List<String> pks = new ArrayList<>(totalCount);
+        for (var future : futures) {
+            IDs ids = checkResponse(Futures.getUnchecked(future), "insert").getIDs();
+            if (ids.hasIntId()) {
+                ids.getIntId().getDataList().forEach(id -> pks.add(String.valueOf(id)));
+            } else {
+                pks.addAll(ids.getStrId().getDataList());
+            }
+        }
+        // flush once after all the batches instead of relying on the periodic flush
+        checkResponse(milvusClient.flush(FlushParam.newBuilder().addCollectionName(collectionName).build()), "flush");
         return pks;
     }
 
+    private static void acquire(Semaphore window) {
+        try {
+            window.acquire();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new LangChainException("Interrupted while waiting for in-flight inserts", e);
+        }
+    }
+
+    private <T> T checkResponse(R<T> response, String operation) {
+        if (response.getStatus() != R.Status.Success.getCode()) {
+            throw new LangChainException(String.format("Failed to %s collection %s: %s", operation, collectionName,
+                    response.getMessage()), response.getException());
+        }
+        return response.getData();
+    }
+
     @Override
     public void delete(List<String> ids) {
     }
 
     private List<Pair<Document, Float>> similaritySearchWithScore(String query, int k, Map<String, Object> filter) {
+        innerInit(null, null);
+        if (!initialized.get()) {
+            LOG.warn("Collection {} does not exist, returning no results.", collectionName);
+            return List.of();
+        }
         // embed the query text.
         List<Float> embedding = embeddingFunction.embedQuery(query);
 
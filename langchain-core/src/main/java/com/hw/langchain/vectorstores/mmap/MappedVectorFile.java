@@ -0,0 +1,623 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.hw.langchain.vectorstores.mmap;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.hw.langchain.exception.LangChainException;
+import com.hw.langchain.schema.Document;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.FloatBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+import java.util.stream.IntStream;
+
+import static com.hw.langchain.chains.query.constructor.JsonUtils.convertFromJsonStr;
+import static com.hw.langchain.chains.query.constructor.JsonUtils.writeValueAsString;
+import static java.nio.file.StandardOpenOption.CREATE;
+import static java.nio.file.StandardOpenOption.READ;
+import static java.nio.file.StandardOpenOption.WRITE;
+
+/**
+ * Append-only, memory-mapped vector index stored in a directory.
+ * <ul>
+ * <li>{@code vectors.f32}: a 16 bytes header (magic, version, dimension, reserved) followed by contiguous
+ * little-endian float32 rows, normalized to unit length.</li>
+ * <li>{@code documents.idx}: one little-endian int64 per row, the offset of its record in {@code documents.dat}.</li>
+ * <li>{@code documents.dat}: per row an int32 length followed by the UTF-8 JSON of the text and metadata.</li>
+ * <li>{@code deleted.ids}: little-endian int32 row numbers which have been deleted.</li>
+ * <li>{@code ivf.centroids} and {@code ivf.lists}: optional inverted file built by {@link #buildIvf(int, int)}.</li>
+ * </ul>
+ * Opening maps the vectors file without copying it to the heap. Searches read an immutable snapshot and never block
+ * appends; rows written after the IVF was built are scanned exhaustively until it is rebuilt.
+ *
+ * @author HamaWhite
+ */
+public class MappedVectorFile implements Closeable {
+
+    private static final Logger LOG = LoggerFactory.getLogger(MappedVectorFile.class);
+
+    private static final int MAGIC = 0x4C435646;
+
+    private static final int VERSION = 1;
+
+    private static final int HEADER_BYTES = 16;
+
+    private static final int SCAN_CHUNK_ROWS = 1 << 16;
+
+    private static final String VECTORS_FILE = "vectors.f32";
+    private static final String OFFSETS_FILE = "documents.idx";
+    private static final String DOCUMENTS_FILE = "documents.dat";
+    private static final String DELETED_FILE = "deleted.ids";
+    private static final String CENTROIDS_FILE = "ivf.centroids";
+    private static final String LISTS_FILE = "ivf.lists";
+
+    private final Path directory;
+
+    private final FileChannel vectors;
+
+    private final FileChannel offsets;
+
+    private final FileChannel documents;
+
+    private final FileChannel deleted;
+
+    private int dimension;
+
+    private int rowsPerSegment;
+
+    private volatile Snapshot snapshot;
+
+    private MappedVectorFile(Path directory) throws IOException {
+        this.directory = directory;
+        Files.createDirectories(directory);
+        this.vectors = FileChannel.open(directory.resolve(VECTORS_FILE), CREATE, READ, WRITE);
+        this.offsets = FileChannel.open(directory.resolve(OFFSETS_FILE), CREATE, READ, WRITE);
+        this.documents = FileChannel.open(directory.resolve(DOCUMENTS_FILE), CREATE, READ, WRITE);
+        this.deleted = FileChannel.open(directory.resolve(DELETED_FILE), CREATE, READ, WRITE);
+    }
+
+    /**
+     * Open the index stored in the directory, creating an empty one if it does not exist.
+     */
+    public static MappedVectorFile open(Path directory) {
+        try {
+            MappedVectorFile file = new MappedVectorFile(directory);
+            file.load();
+            return file;
+        } catch (IOException e) {
+            throw new LangChainException("Failed to open vector index at " + directory, e);
+        }
+    }
+
+    private void load() throws IOException {
+        if (vectors.size() >= HEADER_BYTES) {
+            ByteBuffer header = readFully(vectors, 0, HEADER_BYTES);
+            if (header.getInt() != MAGIC) {
+                throw new LangChainException("%s is not a vector index file.", directory.resolve(VECTORS_FILE));
+            }
+            int version = header.getInt();
+            if (version != VERSION) {
+                throw new LangChainException("Unsupported vector index version %s.", version);
+            }
+            initDimension(header.getInt());
+        }
+        BitSet deletedRows = new BitSet();
+        ByteBuffer buffer = readFully(deleted, 0, (int) (deleted.size() / Integer.BYTES * Integer.BYTES));
+        while (buffer.hasRemaining()) {
+            deletedRows.set(buffer.getInt());
+        }
+        snapshot = createSnapshot(null, deletedRows, loadIvf());
+        LOG.info("Opened vector index {} with {} rows.", directory, snapshot.rows);
+    }
+
+    private void initDimension(int dimension) {
+        this.dimension = dimension;
+        this.rowsPerSegment = Math.max(1, (Integer.MAX_VALUE - HEADER_BYTES) / (dimension * Float.BYTES));
+    }
+
+    /**
+     * Number of rows, including the deleted ones.
+     */
+    public int size() {
+        return snapshot.rows;
+    }
+
+    public int dimension() {
+        return dimension;
+    }
+
+    public boolean isDeleted(int row) {
+        return snapshot.deleted.get(row);
+    }
+
+    /**
+     * Append rows and their documents, the returned row numbers are stable ids.
+     */
+    public synchronized List<Integer> append(List<float[]> embeddings, List<Document> docs) {
+        if (embeddings.size() != docs.size()) {
+            throw new IllegalArgumentException(String.format(
+                    "Number of embeddings %d must match number of documents %d", embeddings.size(), docs.size()));
+        }
+        if (embeddings.isEmpty()) {
+            return List.of();
+        }
+        try {
+            if (dimension == 0) {
+                writeHeader(embeddings.get(0).length);
+            }
+            int rowBytes = dimension * Float.BYTES;
+            int start = snapshot.rows;
+
+            ByteBuffer vectorBuffer = ByteBuffer.allocate(embeddings.size() * rowBytes).order(ByteOrder.LITTLE_ENDIAN);
+            for (float[] embedding : embeddings) {
+                checkDimension(embedding);
+                vectorBuffer.asFloatBuffer().put(normalize(embedding));
+                vectorBuffer.position(vectorBuffer.position() + rowBytes);
+            }
+            writeFully(vectors, vectorBuffer.flip(), HEADER_BYTES + (long) start * rowBytes);
+
+            long position = documents.size();
+            ByteBuffer offsetBuffer = ByteBuffer.allocate(docs.size() * Long.BYTES).order(ByteOrder.LITTLE_ENDIAN);
+            for (Document doc : docs) {
+                byte[] bytes = writeValueAsString(Map.of("text", doc.getPageContent(), "metadata",
+                        doc.getMetadata() == null ? Map.of() : doc.getMetadata())).getBytes(StandardCharsets.UTF_8);
+                ByteBuffer record = ByteBuffer.allocate(Integer.BYTES + bytes.length).order(ByteOrder.LITTLE_ENDIAN);
+                record.putInt(bytes.length).put(bytes).flip();
+                writeFully(documents, record, position);
+                offsetBuffer.putLong(position);
+                position += record.limit();
+            }
+            // the offsets file is written last, it defines how many rows are complete
+            writeFully(offsets, offsetBuffer.flip(), (long) start * Long.BYTES);
+
+            snapshot = createSnapshot(snapshot, snapshot.deleted, snapshot.ivf);
+            return IntStream.range(start, start + embeddings.size()).boxed().toList();
+        } catch (IOException e) {
+            throw new LangChainException("Failed to append to vector index at " + directory, e);
+        }
+    }
+
+    /**
+     * Mark rows as deleted, they are skipped by searches but keep their row numbers.
+     */
+    public synchronized void delete(Collection<Integer> rows) {
+        BitSet deletedRows = (BitSet) snapshot.deleted.clone();
+        ByteBuffer buffer = ByteBuffer.allocate(rows.size() * Integer.BYTES).order(ByteOrder.LITTLE_ENDIAN);
+        for (int row : rows) {
+            if (row < 0 || row >= snapshot.rows) {
+                throw new IndexOutOfBoundsException("Row " + row + " does not exist, size is " + snapshot.rows);
+            }
+            deletedRows.set(row);
+            buffer.putInt(row);
+        }
+        try {
+            writeFully(deleted, buffer.flip(), deleted.size());
+        } catch (IOException e) {
+            throw new LangChainException("Failed to delete from vector index at " + directory, e);
+        }
+        snapshot = new Snapshot(snapshot.segments, snapshot.rows, deletedRows, snapshot.ivf);
+    }
+
+    /**
+     * Flush pending writes to the storage device.
+     */
+    public synchronized void force() {
+        try {
+            vectors.force(false);
+            documents.force(false);
+            offsets.force(false);
+            deleted.force(false);
+        } catch (IOException e) {
+            throw new LangChainException("Failed to flush vector index at " + directory, e);
+        }
+    }
+
+    /**
+     * Read the document stored for a row.
+     */
+    public Document document(int row) {
+        try {
+            long position = readFully(offsets, (long) row * Long.BYTES, Long.BYTES).getLong();
+            int length = readFully(documents, position, Integer.BYTES).getInt();
+            ByteBuffer bytes = readFully(documents, position + Integer.BYTES, length);
+            Map<String, Object> map = convertFromJsonStr(StandardCharsets.UTF_8.decode(bytes).toString(),
+                    new TypeReference<>() {
+                    });
+            @SuppressWarnings("unchecked")
+            Map<String, Object> metadata = (Map<String, Object>) map.get("metadata");
+            return new Document((String) map.get("text"), metadata);
+        } catch (IOException e) {
+            throw new LangChainException("Failed to read document " + row + " from " + directory, e);
+        }
+    }
+
+    /**
+     * Return a copy of the normalized vector stored for a row.
+     */
+    public float[] vector(int row) {
+        Snapshot current = snapshot;
+        float[] vector = new float[dimension];
+        current.segments[row / rowsPerSegment].get((row % rowsPerSegment) * dimension, vector);
+        return vector;
+    }
+
+    /**
+     * Exact or, when an IVF has been built, approximate k nearest rows by cosine similarity.
+     *
+     * @param query  the query vector
+     * @param k      number of results to return
+     * @param nprobe number of inverted lists to scan, ignored without IVF
+     * @return hits ordered from the most similar to the least similar
+     */
+    public List<Hit> search(float[] query, int k, int nprobe) {
+        Snapshot current = snapshot;
+        if (current.rows == 0 || k <= 0) {
+            return List.of();
+        }
+        checkDimension(query);
+        float[] normalized = normalize(query);
+
+        TopK topK;
+        if (current.ivf == null) {
+            topK = scanRange(current, normalized, k, 0, current.rows);
+        } else {
+            topK = searchIvf(current, normalized, k, nprobe);
+        }
+        return topK.sorted();
+    }
+
+    private TopK scanRange(Snapshot current, float[] query, int k, int from, int to) {
+        int chunks = (to - from + SCAN_CHUNK_ROWS - 1) / SCAN_CHUNK_ROWS;
+        if (chunks <= 1) {
+            TopK topK = new TopK(k);
+            scan(current, query, from, to, topK);
+            return topK;
+        }
+        return IntStream.range(0, chunks).parallel()
+                .mapToObj(chunk -> {
+                    TopK topK = new TopK(k);
+                    int start = from + chunk * SCAN_CHUNK_ROWS;
+                    scan(current, query, start, Math.min(start + SCAN_CHUNK_ROWS, to), topK);
+                    return topK;
+                })
+                .reduce(TopK::merge)
+                .orElseGet(() -> new TopK(k));
+    }
+
+    private void scan(Snapshot current, float[] query, int from, int to, TopK topK) {
+        for (int row = from; row < to; row++) {
+            if (!current.deleted.get(row)) {
+                topK.offer(row, dot(current, query, row));
+            }
+        }
+    }
+
+    private TopK searchIvf(Snapshot current, float[] query, int k, int nprobe) {
+        Ivf ivf = current.ivf;
+        TopK closestLists = new TopK(Math.min(Math.max(nprobe, 1), ivf.nlist));
+        for (int list = 0; list < ivf.nlist; list++) {
+            closestLists.offer(list, dot(ivf.centroids, list * dimension, query));
+        }
+        TopK topK = new TopK(k);
+        for (Hit list : closestLists.sorted()) {
+            for (int i = ivf.listOffsets[list.row()]; i < ivf.listOffsets[list.row() + 1]; i++) {
+                int row = ivf.rows[i];
+                if (!current.deleted.get(row)) {
+                    topK.offer(row, dot(current, query, row));
+                }
+            }
+        }
+        // rows appended after the IVF was built are not assigned to any list yet
+        if (ivf.indexedRows < current.rows) {
+            topK.merge(scanRange(current, query, k, ivf.indexedRows, current.rows));
+        }
+        return topK;
+    }
+
+    /**
+     * Train an inverted file with spherical k-means and assign every current row to its closest centroid.
+     *
+     * @param nlist      number of inverted lists
+     * @param iterations number of k-means iterations
+     */
+    public synchronized void buildIvf(int nlist, int iterations) {
+        Snapshot current = snapshot;
+        if (current.rows < nlist) {
+            throw new IllegalArgumentException(
+                    String.format("At least %d rows are required to build %d lists, got %d.", nlist, nlist,
+                            current.rows));
+        }
+        int rows = current.rows;
+        float[] centroids = new float[nlist * dimension];
+        Random random = new Random(rows);
+        int[] seeds = random.ints(0, rows).distinct().limit(nlist).toArray();
+        for (int list = 0; list < nlist; list++) {
+            current.segments[seeds[list] / rowsPerSegment].get((seeds[list] % rowsPerSegment) * dimension,
+                    centroids, list * dimension, dimension);
+        }
+
+        int sampleSize = Math.min(rows, nlist * 256);
+        int[] sample = sampleSize == rows ? IntStream.range(0, rows).toArray()
+                : random.ints(0, rows).distinct().limit(sampleSize).toArray();
+        float[] row = new float[dimension];
+        for (int iteration = 0; iteration < iterations; iteration++) {
+            float[] sums = new float[nlist * dimension];
+            for (int r : sample) {
+                current.segments[r / rowsPerSegment].get((r % rowsPerSegment) * dimension, row);
+                int list = closestCentroid(centroids, nlist, row);
+                for (int j = 0; j < dimension; j++) {
+                    sums[list * dimension + j] += row[j];
+                }
+            }
+            for (int list = 0; list < nlist; list++) {
+                float[] mean = normalize(Arrays.copyOfRange(sums, list * dimension, (list + 1) * dimension));
+                // keep the previous centroid for empty clusters
+                if (hasNonZero(mean)) {
+                    System.arraycopy(mean, 0, centroids, list * dimension, dimension);
+                }
+            }
+        }
+
+        int[] assignments = new int[rows];
+        int[] counts = new int[nlist + 1];
+        for (int r = 0; r < rows; r++) {
+            current.segments[r / rowsPerSegment].get((r % rowsPerSegment) * dimension, row);
+            assignments[r] = closestCentroid(centroids, nlist, row);
+            counts[assignments[r] + 1]++;
+        }
+        int[] listOffsets = new int[nlist + 1];
+        for (int list = 0; list < nlist; list++) {
+            listOffsets[list + 1] = listOffsets[list] + counts[list + 1];
+        }
+        int[] cursor = Arrays.copyOf(listOffsets, nlist);
+        int[] listRows = new int[rows];
+        for (int r = 0; r < rows; r++) {
+            listRows[cursor[assignments[r]]++] = r;
+        }
+
+        Ivf ivf = new Ivf(nlist, rows, FloatBuffer.wrap(centroids), listOffsets, listRows);
+        writeIvf(ivf, centroids);
+        snapshot = new Snapshot(current.segments, current.rows, current.deleted, ivf);
+        LOG.info("Built IVF with {} lists over {} rows.", nlist, rows);
+    }
+
+    private static boolean hasNonZero(float[] vector) {
+        for (float v : vector) {
+            if (v != 0) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private int closestCentroid(float[] centroids, int nlist, float[] vector) {
+        int best = 0;
+        float bestScore = Float.NEGATIVE_INFINITY;
+        for (int list = 0; list < nlist; list++) {
+            float score = 0;
+            int base = list * dimension;
+            for (int j = 0; j < dimension; j++) {
+                score += centroids[base + j] * vector[j];
+            }
+            if (score > bestScore) {
+                bestScore = score;
+                best = list;
+            }
+        }
+        return best;
+    }
+
+    private void writeIvf(Ivf ivf, float[] centroids) {
+        try (FileChannel centroidsChannel = FileChannel.open(directory.resolve(CENTROIDS_FILE), CREATE, WRITE);
+                FileChannel listsChannel = FileChannel.open(directory.resolve(LISTS_FILE), CREATE, WRITE)) {
+            centroidsChannel.truncate(0);
+            ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES + centroids.length * Float.BYTES)
+                    .order(ByteOrder.LITTLE_ENDIAN);
+            header.putInt(MAGIC).putInt(VERSION).putInt(ivf.nlist).putInt(ivf.indexedRows);
+            header.asFloatBuffer().put(centroids);
+            writeFully(centroidsChannel, header.rewind(), 0);
+
+            listsChannel.truncate(0);
+            ByteBuffer lists = ByteBuffer.allocate((ivf.listOffsets.length + ivf.rows.length) * Integer.BYTES)
+                    .order(ByteOrder.LITTLE_ENDIAN);
+            lists.asIntBuffer().put(ivf.listOffsets).put(ivf.rows);
+            writeFully(listsChannel, lists, 0);
+        } catch (IOException e) {
+            throw new LangChainException("Failed to write IVF at " + directory, e);
+        }
+    }
+
+    private Ivf loadIvf() throws IOException {
+        Path centroidsPath = directory.resolve(CENTROIDS_FILE);
+        Path listsPath = directory.resolve(LISTS_FILE);
+        if (!Files.exists(centroidsPath) || !Files.exists(listsPath)) {
+            return null;
+        }
+        try (FileChannel centroidsChannel = FileChannel.open(centroidsPath, READ);
+                FileChannel listsChannel = FileChannel.open(listsPath, READ)) {
+            ByteBuffer header = readFully(centroidsChannel, 0, HEADER_BYTES);
+            if (header.getInt() != MAGIC || header.getInt() != VERSION) {
+                LOG.warn("Ignoring unreadable IVF at {}.", directory);
+                return null;
+            }
+            int nlist = header.getInt();
+            int indexedRows = header.getInt();
+            FloatBuffer centroids = centroidsChannel.map(FileChannel.MapMode.READ_ONLY, HEADER_BYTES,
+                    (long) nlist * dimension * Float.BYTES).order(ByteOrder.LITTLE_ENDIAN).asFloatBuffer();
+            int[] listOffsets = new int[nlist + 1];
+            int[] rows = new int[indexedRows];
+            ByteBuffer lists = readFully(listsChannel, 0, (nlist + 1 + indexedRows) * Integer.BYTES);
+            lists.asIntBuffer().get(listOffsets).get(rows);
+            return new Ivf(nlist, indexedRows, centroids, listOffsets, rows);
+        }
+    }
+
+    private void writeHeader(int dimension) throws IOException {
+        ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES).order(ByteOrder.LITTLE_ENDIAN);
+        header.putInt(MAGIC).putInt(VERSION).putInt(dimension).putInt(0).flip();
+        writeFully(vectors, header, 0);
+        initDimension(dimension);
+    }
+
+    /**
+     * Map the rows written so far. The segments filled up in the previous snapshot never change and are reused, only
+     * the tail segment that grew and the new ones are mapped.
+     */
+    private Snapshot createSnapshot(Snapshot previous, BitSet deletedRows, Ivf ivf) throws IOException {
+        if (dimension == 0) {
+            return new Snapshot(new FloatBuffer[0], 0, deletedRows, null);
+        }
+        long rowBytes = (long) dimension * Float.BYTES;
+        long vectorRows = (vectors.size() - HEADER_BYTES) / rowBytes;
+        int rows = (int) Math.min(vectorRows, offsets.size() / Long.BYTES);
+
+        int segmentCount = (rows + rowsPerSegment - 1) / rowsPerSegment;
+        FloatBuffer[] segments = new FloatBuffer[segmentCount];
+        int fullSegments = previous == null ? 0 : Math.min(previous.rows / rowsPerSegment, segmentCount);
+        System.arraycopy(previous == null ? segments : previous.segments, 0, segments, 0, fullSegments);
+        for (int i = fullSegments; i < segmentCount; i++) {
+            long firstRow = (long) i * rowsPerSegment;
+            long segmentRows = Math.min(rowsPerSegment, rows - firstRow);
+            segments[i] = vectors.map(FileChannel.MapMode.READ_ONLY, HEADER_BYTES + firstRow * rowBytes,
+                    segmentRows * rowBytes).order(ByteOrder.LITTLE_ENDIAN).asFloatBuffer();
+        }
+        return new Snapshot(segments, rows, deletedRows, ivf);
+    }
+
+    private float dot(Snapshot current, float[] query, int row) {
+        return dot(current.segments[row / rowsPerSegment], (row % rowsPerSegment) * dimension, query);
+    }
+
+    private static float dot(FloatBuffer buffer, int offset, float[] query) {
+        float dot = 0;
+        for (int i = 0; i < query.length; i++) {
+            dot += buffer.get(offset + i) * query[i];
+        }
+        return dot;
+    }
+
+    private void checkDimension(float[] vector) {
+        if (vector.length != dimension) {
+            throw new IllegalArgumentException(String.format(
+                    "Vector dimension %d does not match index dimension %d.", vector.length, dimension));
+        }
+    }
+
+    private static float[] normalize(float[] vector) {
+        double norm = 0;
+        for (float v : vector) {
+            norm += v * v;
+        }
+        norm = Math.sqrt(norm);
+        float[] normalized = new float[vector.length];
+        if (norm == 0) {
+            return normalized;
+        }
+        for (int i = 0; i < vector.length; i++) {
+            normalized[i] = (float) (vector[i] / norm);
+        }
+        return normalized;
+    }
+
+    private static ByteBuffer readFully(FileChannel channel, long position, int length) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(length).order(ByteOrder.LITTLE_ENDIAN);
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer, position + buffer.position()) < 0) {
+                throw new IOException("Unexpected end of file at position " + (position + buffer.position()));
+            }
+        }
+        return buffer.flip();
+    }
+
+    private static void writeFully(FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+        long written = 0;
+        while (buffer.hasRemaining()) {
+            written += channel.write(buffer, position + written);
+        }
+    }
+
+    @Override
+    public synchronized void close() {
+        try {
+            vectors.close();
+            offsets.close();
+            documents.close();
+            deleted.close();
+        } catch (IOException e) {
+            throw new LangChainException("Failed to close vector index at " + directory, e);
+        }
+    }
+
+    /**
+     * A row and its cosine similarity to the query.
+     */
+    public record Hit(int row, float similarity) {
+    }
+
+    private record Snapshot(FloatBuffer[] segments, int rows, BitSet deleted, Ivf ivf) {
+    }
+
+    private record Ivf(int nlist, int indexedRows, FloatBuffer centroids, int[] listOffsets, int[] rows) {
+    }
+
+    /**
+     * Bounded min-heap on similarity, keeping the k best rows.
+     */
+    private static final class TopK {
+
+        private final PriorityQueue<Hit> heap;
+
+        private final int k;
+
+        private TopK(int k) {
+            this.k = k;
+            this.heap = new PriorityQueue<>(k + 1, Comparator.comparingDouble(Hit::similarity));
+        }
+
+        private void offer(int row, float similarity) {
+            if (heap.size() < k) {
+                heap.add(new Hit(row, similarity));
+            } else if (similarity > heap.peek().similarity()) {
+                heap.poll();
+                heap.add(new Hit(row, similarity));
+            }
+        }
+
+        private TopK merge(TopK other) {
+            other.heap.forEach(hit -> offer(hit.row(), hit.similarity()));
+            return this;
+        }
+
+        private List<Hit> sorted() {
+            List<Hit> hits = new ArrayList<>(heap);
+            hits.sort(Comparator.comparingDouble(Hit::similarity).reversed());
+            return hits;
+        }
+    }
+}
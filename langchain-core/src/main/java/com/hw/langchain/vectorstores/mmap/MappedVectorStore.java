@@ -0,0 +1,242 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.hw.langchain.vectorstores.mmap;
+
+import com.google.common.collect.Maps;
+import com.hw.langchain.embeddings.base.DenseVector;
+import com.hw.langchain.embeddings.base.Embeddings;
+import com.hw.langchain.schema.Document;
+import com.hw.langchain.vectorstores.base.VectorStore;
+import com.hw.langchain.vectorstores.mmap.MappedVectorFile.Hit;
+
+import org.apache.commons.collections4.MapUtils;
+import org.apache.commons.lang3.tuple.Pair;
+
+import lombok.Builder;
+
+import java.io.Closeable;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+import static com.hw.langchain.vectorstores.utils.Utils.maximalMarginalRelevance;
+
+/**
+ * Vector store persisted in a {@link MappedVectorFile}, reopening the directory restores the index without calling
+ * the embeddings again.
+ *
+ * @author HamaWhite
+ */
+@Builder
+public class MappedVectorStore extends VectorStore implements Closeable {
+
+    /**
+     * Function used to embed the text.
+     */
+    private Embeddings embeddingFunction;
+
+    /**
+     * Directory holding the index files.
+     */
+    private String path;
+
+    /**
+     * Number of inverted lists scanned per query once an IVF has been built.
+     */
+    @Builder.Default
+    private int nprobe = 8;
+
+    /**
+     * Factor by which the number of candidates is increased when a metadata filter is applied.
+     */
+    @Builder.Default
+    private int filterOversampling = 4;
+
+    private MappedVectorFile file;
+
+    /**
+     * Validate parameters and open the index files
+     */
+    public MappedVectorStore init() {
+        checkNotNull(path, "path must not be null");
+        checkArgument(nprobe > 0, "nprobe must be positive, got %s", nprobe);
+        this.file = MappedVectorFile.open(Path.of(path));
+        return this;
+    }
+
+    @Override
+    public List<String> addTexts(List<String> texts, List<Map<String, Object>> metadatas) {
+        return addEmbeddings(texts, embeddingFunction.embedDocumentVectors(texts), metadatas);
+    }
+
+    private List<String> addEmbeddings(List<String> texts, List<DenseVector> embeddings,
+            List<Map<String, Object>> metadatas) {
+        checkArgument(metadatas == null || metadatas.isEmpty() || metadatas.size() == texts.size(),
+                "Number of metadatas %s must match number of texts %s", metadatas == null ? 0 : metadatas.size(),
+                texts.size());
+        List<Document> docs = new ArrayList<>(texts.size());
+        for (int i = 0; i < texts.size(); i++) {
+            Map<String, Object> metadata = metadatas == null || metadatas.isEmpty()
+                    ? Maps.newHashMap()
+                    : metadatas.get(i);
+            docs.add(new Document(texts.get(i), metadata));
+        }
+        List<float[]> vectors = embeddings.stream().map(DenseVector::values).toList();
+        return file.append(vectors, docs).stream().map(String::valueOf).toList();
+    }
+
+    /**
+     * Delete by the row ids returned from {@link #addTexts(List, List)}.
+     *
+     * @throws IllegalArgumentException if an id is not one of them, nothing is deleted then
+     */
+    @Override
+    public void delete(List<String> ids) {
+        List<Integer> rows = new ArrayList<>(ids.size());
+        for (String id : ids) {
+            rows.add(parseRow(id));
+        }
+        file.delete(rows);
+    }
+
+    private int parseRow(String id) {
+        int row;
+        try {
+            row = Integer.parseInt(id);
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Unknown id: " + id, e);
+        }
+        checkArgument(row >= 0 && row < file.size(), "Unknown id: %s", id);
+        return row;
+    }
+
+    /**
+     * Train an inverted file index, searches then only scan the {@code nprobe} closest lists.
+     *
+     * @param nlist      number of inverted lists, around the square root of the number of rows is a good start
+     * @param iterations number of k-means iterations
+     */
+    public void buildIvf(int nlist, int iterations) {
+        file.buildIvf(nlist, iterations);
+    }
+
+    private List<Pair<Document, Float>> similaritySearchWithScoreByVector(float[] embedding, int k,
+            Map<String, Object> filter) {
+        if (MapUtils.isEmpty(filter)) {
+            return file.search(embedding, k, nprobe).stream()
+                    .map(hit -> Pair.of(file.document(hit.row()), hit.similarity()))
+                    .toList();
+        }
+        List<Pair<Document, Float>> results = new ArrayList<>(k);
+        for (Hit hit : file.search(embedding, k * filterOversampling, nprobe)) {
+            Document document = file.document(hit.row());
+            if (matches(document, filter)) {
+                results.add(Pair.of(document, hit.similarity()));
+                if (results.size() == k) {
+                    break;
+                }
+            }
+        }
+        return results;
+    }
+
+    private static boolean matches(Document document, Map<String, Object> filter) {
+        Map<String, Object> metadata = document.getMetadata();
+        return filter.entrySet().stream()
+                .allMatch(e -> metadata != null && Objects.equals(metadata.get(e.getKey()), e.getValue()));
+    }
+
+    @Override
+    public List<Document> similaritySearch(String query, int k, Map<String, Object> filter) {
+        float[] embedding = embeddingFunction.embedQueryVector(query).values();
+        return similaritySearchWithScoreByVector(embedding, k, filter).stream().map(Pair::getLeft).toList();
+    }
+
+    @Override
+    protected List<Pair<Document, Float>> innerSimilaritySearchWithRelevanceScores(String query, int k) {
+        float[] embedding = embeddingFunction.embedQueryVector(query).values();
+        return similaritySearchWithScoreByVector(embedding, k, null);
+    }
+
+    @Override
+    public List<Document> similarSearchByVector(List<Float> embedding, int k, Map<String, Object> kwargs) {
+        return similarSearchByVector(DenseVector.copyOf(embedding), k, kwargs);
+    }
+
+    @Override
+    public List<Document> similarSearchByVector(DenseVector embedding, int k, Map<String, Object> kwargs) {
+        return similaritySearchWithScoreByVector(embedding.values(), k, kwargs).stream()
+                .map(Pair::getLeft)
+                .toList();
+    }
+
+    @Override
+    public List<Document> maxMarginalRelevanceSearch(String query, int k, int fetchK, float lambdaMult) {
+        DenseVector embedding = embeddingFunction.embedQueryVector(query);
+        return maxMarginalRelevanceSearchByVector(embedding, k, fetchK, lambdaMult);
+    }
+
+    @Override
+    public List<Document> maxMarginalRelevanceSearchByVector(List<Float> embedding, int k, int fetchK,
+            float lambdaMult) {
+        return maxMarginalRelevanceSearchByVector(DenseVector.copyOf(embedding), k, fetchK, lambdaMult);
+    }
+
+    @Override
+    public List<Document> maxMarginalRelevanceSearchByVector(DenseVector embedding, int k, int fetchK,
+            float lambdaMult) {
+        List<Hit> hits = file.search(embedding.values(), fetchK, nprobe);
+        if (hits.isEmpty()) {
+            return List.of();
+        }
+        float[][] embeddings = hits.stream()
+                .map(hit -> file.vector(hit.row()))
+                .toArray(float[][]::new);
+        List<Integer> mmrSelected = maximalMarginalRelevance(embedding.values(), embeddings, k, lambdaMult);
+        return mmrSelected.stream()
+                .map(i -> file.document(hits.get(i).row()))
+                .toList();
+    }
+
+    @Override
+    public int fromTexts(List<String> texts, Embeddings embedding, List<Map<String, Object>> metadatas) {
+        if (embeddingFunction == null) {
+            embeddingFunction = embedding;
+        }
+        int count = addEmbeddings(texts, embedding.embedDocumentVectors(texts), metadatas).size();
+        file.force();
+        return count;
+    }
+
+    /**
+     * Number of rows in the index, including the deleted ones.
+     */
+    public int size() {
+        return file.size();
+    }
+
+    @Override
+    public void close() {
+        file.close();
+    }
+}
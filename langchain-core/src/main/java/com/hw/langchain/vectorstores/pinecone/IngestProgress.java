@@ -0,0 +1,37 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.hw.langchain.vectorstores.pinecone;
+
+import java.time.Duration;
+
+/**
+ * Progress of an ingestion, reported after each upserted batch.
+ *
+ * @param completedBatches number of batches upserted so far
+ * @param totalBatches     number of batches of the ingestion
+ * @param upsertedCount    number of vectors upserted so far
+ * @param embedTime        time spent embedding so far
+ * @param upsertTime       summed latency of the upserts completed so far, it exceeds the wall time when upserts
+ *                         overlap
+ * @param elapsed          wall time since the ingestion started
+ * @author HamaWhite
+ */
+public record IngestProgress(int completedBatches, int totalBatches, int upsertedCount, Duration embedTime,
+        Duration upsertTime, Duration elapsed) {
+}
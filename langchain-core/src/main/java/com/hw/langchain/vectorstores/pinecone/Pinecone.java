@@ -19,7 +19,10 @@
 package com.hw.langchain.vectorstores.pinecone;
 
 import com.google.common.collect.Maps;
+import com.google.common.primitives.Floats;
+import com.hw.langchain.embeddings.base.DenseVector;
 import com.hw.langchain.embeddings.base.Embeddings;
+import com.hw.langchain.exception.LangChainException;
 import com.hw.langchain.schema.Document;
 import com.hw.langchain.vectorstores.base.VectorStore;
 import com.hw.pinecone.IndexClient;
@@ -34,13 +37,22 @@ import org.slf4j.LoggerFactory;
 import lombok.Builder;
 import lombok.Getter;
 
+import java.time.Duration;
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Consumer;
 import java.util.function.Function;
 import java.util.stream.IntStream;
 import java.util.stream.Stream;
 
+import static com.google.common.base.Preconditions.checkArgument;
 import static com.google.common.base.Preconditions.checkNotNull;
-import static com.hw.langchain.vectorstores.utils.Nd4jUtils.createFromList;
 import static com.hw.langchain.vectorstores.utils.Utils.maximalMarginalRelevance;
 
 /**
@@ -69,10 +81,29 @@ public class Pinecone extends VectorStore {
     @Builder.Default
     private String namespace = "";
 
+    /**
+     * Embeddings used by addTexts, set by fromTexts when null. The embeddingFunction is applied text by text when
+     * neither is set.
+     */
+    private Embeddings embedding;
+
+    /**
+     * Maximum number of embedded batches waiting for or being upserted, the embedding of the next batches overlaps
+     * with their upserts.
+     */
+    @Builder.Default
+    private int maxInFlightBatches = 4;
+
+    /**
+     * Called after each upserted batch, from the thread completing the upsert.
+     */
+    private Consumer<IngestProgress> progressListener;
+
     /**
      * Validate parameters and init client
      */
     public Pinecone init() {
+        checkArgument(maxInFlightBatches > 0, "maxInFlightBatches must be positive, got %s", maxInFlightBatches);
         List<String> indexes = client.listIndexes();
 
         if (indexes.contains(indexName)) {
@@ -91,7 +122,16 @@ public class Pinecone extends VectorStore {
 
     @Override
     public List<String> addTexts(List<String> texts, List<Map<String, Object>> metadatas) {
-        return null;
+        List<String> ids = createIdsBatch(texts.size());
+        ingest(texts, metadatas, ids, this::embedDocuments);
+        return ids;
+    }
+
+    private List<DenseVector> embedDocuments(List<String> texts) {
+        if (embedding != null) {
+            return embedding.embedDocumentVectors(texts);
+        }
+        return texts.stream().map(text -> DenseVector.copyOf(embeddingFunction.apply(text))).toList();
     }
 
     @Override
@@ -179,8 +219,8 @@ public class Pinecone extends VectorStore {
         QueryResponse results = index.query(queryRequest);
 
         List<Integer> mmrSelected = maximalMarginalRelevance(
-                createFromList(embedding),
-                results.getMatches().stream().map(ScoredVector::getValues).toList(),
+                Floats.toArray(embedding),
+                results.getMatches().stream().map(ScoredVector::getValuesArray).toArray(float[][]::new),
                 k,
                 lambdaMult);
 
@@ -196,24 +236,114 @@ public class Pinecone extends VectorStore {
 
     @Override
     public int fromTexts(List<String> texts, Embeddings embedding, List<Map<String, Object>> metadatas) {
-        int total = 0;
-        for (int i = 0; i < texts.size(); i += batchSize) {
-            // set end position of batch
+        if (this.embedding == null) {
+            this.embedding = embedding;
+        }
+        return ingest(texts, metadatas, createIdsBatch(texts.size()), embedding::embedDocumentVectors);
+    }
+
+    /**
+     * Embed and upsert the texts batch by batch. The embedding of a batch overlaps with the upserts of the previous
+     * ones, and at most maxInFlightBatches embedded batches are held in memory.
+     *
+     * @return number of upserted vectors
+     */
+    private int ingest(List<String> texts, List<Map<String, Object>> metadatas, List<String> ids,
+            Function<List<String>, List<DenseVector>> embedder) {
+        checkArgument(metadatas == null || metadatas.isEmpty() || metadatas.size() == texts.size(),
+                "Number of metadatas %s must match number of texts %s", metadatas == null ? 0 : metadatas.size(),
+                texts.size());
+        int totalBatches = (texts.size() + batchSize - 1) / batchSize;
+        long start = System.nanoTime();
+        Semaphore window = new Semaphore(maxInFlightBatches);
+        AtomicReference<Throwable> failure = new AtomicReference<>();
+        AtomicBoolean aborted = new AtomicBoolean();
+        AtomicInteger completedBatches = new AtomicInteger();
+        AtomicInteger upsertedCount = new AtomicInteger();
+        AtomicLong upsertNanos = new AtomicLong();
+        long embedNanos = 0;
+        List<CompletableFuture<?>> upserts = new ArrayList<>(totalBatches);
+
+        for (int i = 0; i < texts.size() && failure.get() == null; i += batchSize) {
             int iEnd = Math.min(i + batchSize, texts.size());
-            // get batch of texts and ids
             List<String> linesBatch = texts.subList(i, iEnd);
-            // create ids if not provided
-            List<String> idsBatch = createIdsBatch(iEnd - i);
-            // create embeddings
-            var embeds = embedding.embedDocuments(linesBatch);
-            // prepare metadata and upsert batch
+            acquire(window);
+
+            long embedStart = System.nanoTime();
+            List<DenseVector> embeds;
+            try {
+                embeds = embedder.apply(linesBatch);
+            } catch (RuntimeException e) {
+                window.release();
+                synchronized (aborted) {
+                    aborted.set(true);
+                }
+                awaitUpserts(upserts, e);
+                throw e;
+            }
+            embedNanos += System.nanoTime() - embedStart;
+            long totalEmbedNanos = embedNanos;
+
             var metadata = createMetadata(linesBatch, metadatas, i, iEnd);
-            List<Vector> vectors = createVectors(idsBatch, embeds, metadata);
-            // upsert to Pinecone
-            var response = index.upsert(new UpsertRequest(vectors, namespace));
-            total += response.getUpsertedCount();
+            List<Vector> vectors = createVectors(ids.subList(i, iEnd), embeds, metadata);
+            long upsertStart = System.nanoTime();
+            upserts.add(index.upsertAsync(new UpsertRequest(vectors, namespace)).whenComplete((response, e) -> {
+                window.release();
+                upsertNanos.addAndGet(System.nanoTime() - upsertStart);
+                if (e != null) {
+                    failure.compareAndSet(null, e);
+                    return;
+                }
+                int completed = completedBatches.incrementAndGet();
+                int upserted = upsertedCount.addAndGet(response.getUpsertedCount());
+                var progress = new IngestProgress(completed, totalBatches, upserted, Duration.ofNanos(totalEmbedNanos),
+                        Duration.ofNanos(upsertNanos.get()), Duration.ofNanos(System.nanoTime() - start));
+                LOG.debug("Upserted batch {}/{}, {} vectors", completed, totalBatches, upserted);
+                if (progressListener != null) {
+                    // no progress is reported once the embedding has failed
+                    synchronized (aborted) {
+                        if (!aborted.get()) {
+                            progressListener.accept(progress);
+                        }
+                    }
+                }
+            }));
+        }
+
+        try {
+            CompletableFuture.allOf(upserts.toArray(CompletableFuture[]::new)).join();
+        } catch (CompletionException e) {
+            throw new LangChainException("Failed to upsert to Pinecone index " + indexName, e.getCause());
+        }
+        if (failure.get() != null) {
+            throw new LangChainException("Failed to upsert to Pinecone index " + indexName, failure.get());
+        }
+        LOG.info("Ingested {} vectors in {} batches in {} ms, embedding {} ms, upsert latency sum {} ms",
+                upsertedCount.get(), totalBatches, (System.nanoTime() - start) / 1_000_000, embedNanos / 1_000_000,
+                upsertNanos.get() / 1_000_000);
+        return upsertedCount.get();
+    }
+
+    /**
+     * Wait for the outstanding upserts, attaching their failures to the given one as suppressed exceptions.
+     */
+    private static void awaitUpserts(List<CompletableFuture<?>> upserts, Throwable failure) {
+        for (CompletableFuture<?> upsert : upserts) {
+            try {
+                upsert.join();
+            } catch (CompletionException e) {
+                failure.addSuppressed(e.getCause());
+            }
+        }
+    }
+
+    private static void acquire(Semaphore window) {
+        try {
+            window.acquire();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new LangChainException("Interrupted while waiting for in-flight upserts", e);
         }
-        return total;
     }
 
     private List<String> createIdsBatch(int batchSize) {
@@ -226,8 +356,9 @@ public class Pinecone extends VectorStore {
     private List<Map<String, Object>> createMetadata(List<String> linesBatch, List<Map<String, Object>> metadatas,
             int start, int end) {
         List<Map<String, Object>> metadata = new ArrayList<>();
-        if (metadatas != null) {
-            metadata.addAll(metadatas.subList(start, end));
+        if (metadatas != null && !metadatas.isEmpty()) {
+            // copy so that the text key is not added to the maps of the caller
+            metadatas.subList(start, end).forEach(m -> metadata.add(Maps.newHashMap(m)));
         } else {
             for (int i = 0; i < linesBatch.size(); i++) {
                 metadata.add(Maps.newHashMap());
@@ -239,10 +370,10 @@ public class Pinecone extends VectorStore {
         return metadata;
     }
 
-    private List<Vector> createVectors(List<String> idsBatch, List<List<Float>> embeds,
+    private List<Vector> createVectors(List<String> idsBatch, List<DenseVector> embeds,
             List<Map<String, Object>> metadata) {
         return IntStream.range(0, idsBatch.size())
-                .mapToObj(k -> new Vector(idsBatch.get(k), embeds.get(k), metadata.get(k)))
+                .mapToObj(k -> new Vector(idsBatch.get(k), embeds.get(k).values(), metadata.get(k)))
                 .toList();
     }
 }
@@ -18,17 +18,15 @@
 
 package com.hw.langchain.vectorstores.utils;
 
-import com.google.common.collect.Lists;
+import com.google.common.primitives.Floats;
 
 import org.nd4j.linalg.api.ndarray.INDArray;
-import org.nd4j.linalg.factory.Nd4j;
-import org.nd4j.linalg.ops.transforms.Transforms;
 
 import java.util.ArrayList;
 import java.util.List;
 
-import static com.hw.langchain.math.utils.MathUtils.cosineSimilarity;
-import static com.hw.langchain.vectorstores.utils.Nd4jUtils.createFromList;
+import static com.hw.langchain.math.utils.MathUtils.dot;
+import static com.hw.langchain.math.utils.MathUtils.norm;
 import static java.lang.Float.NEGATIVE_INFINITY;
 
 /**
@@ -43,38 +41,82 @@ public class Utils {
 
     /**
      * Calculate maximal marginal relevance.
+     *
+     * @see #maximalMarginalRelevance(float[], float[][], int, float)
      */
     public static List<Integer> maximalMarginalRelevance(INDArray queryEmbedding, List<List<Float>> embeddingList,
             int k, float lambdaMult) {
-        if (Math.min(k, embeddingList.size()) <= 0) {
+        float[][] embeddings = embeddingList.stream().map(Floats::toArray).toArray(float[][]::new);
+        return maximalMarginalRelevance(queryEmbedding.toFloatVector(), embeddings, k, lambdaMult);
+    }
+
+    /**
+     * Calculate maximal marginal relevance.
+     * <p>
+     * The maximum similarity of every candidate to the selected set is kept in a running vector and updated with the
+     * single row selected in each round, so a round costs O(n * dim) instead of O(n * selected * dim).
+     *
+     * @param queryEmbedding query vector
+     * @param embeddingList  candidate vectors, all of the same length as the query
+     * @param k              number of indices to select
+     * @param lambdaMult     between 0 and 1, 0 corresponds to maximum diversity and 1 to minimum diversity
+     * @return indices into embeddingList in the order they were selected
+     */
+    public static List<Integer> maximalMarginalRelevance(float[] queryEmbedding, float[][] embeddingList, int k,
+            float lambdaMult) {
+        int n = embeddingList.length;
+        int limit = Math.min(k, n);
+        if (limit <= 0) {
             return new ArrayList<>();
         }
-        if (queryEmbedding.rank() == 1) {
-            queryEmbedding = Nd4j.expandDims(queryEmbedding, 0);
+
+        float[] norms = new float[n];
+        float[] similarityToQuery = new float[n];
+        float queryNorm = norm(queryEmbedding);
+        int mostSimilar = 0;
+        for (int i = 0; i < n; i++) {
+            norms[i] = norm(embeddingList[i]);
+            similarityToQuery[i] = cosine(queryEmbedding, queryNorm, embeddingList[i], norms[i]);
+            if (similarityToQuery[i] > similarityToQuery[mostSimilar]) {
+                mostSimilar = i;
+            }
         }
-        INDArray similarityToQuery = cosineSimilarity(queryEmbedding, embeddingList).getRow(0);
-        int mostSimilar = Nd4j.argMax(similarityToQuery).getInt(0);
-        List<Integer> idxs = Lists.newArrayList(mostSimilar);
-        INDArray selected = createFromList(embeddingList.get(mostSimilar));
 
-        while (idxs.size() < Math.min(k, embeddingList.size())) {
+        float[] maxSimilarityToSelected = new float[n];
+        boolean[] selected = new boolean[n];
+        List<Integer> idxs = new ArrayList<>(limit);
+        int idxToAdd = mostSimilar;
+        while (true) {
+            idxs.add(idxToAdd);
+            selected[idxToAdd] = true;
+            if (idxs.size() == limit) {
+                return idxs;
+            }
+
+            float[] added = embeddingList[idxToAdd];
+            float addedNorm = norms[idxToAdd];
+            boolean first = idxs.size() == 1;
             float bestScore = NEGATIVE_INFINITY;
-            int idxToAdd = -1;
-            INDArray similarityToSelected = cosineSimilarity(embeddingList, selected);
-            for (int i = 0; i < similarityToQuery.columns(); i++) {
-                if (idxs.contains(i)) {
+            idxToAdd = -1;
+            for (int i = 0; i < n; i++) {
+                if (selected[i]) {
                     continue;
                 }
-                float redundantScore = Transforms.max(similarityToSelected.getRow(i), 0).getFloat(0);
-                float equationScore = lambdaMult * similarityToQuery.getFloat(i) - (1 - lambdaMult) * redundantScore;
+                float similarity = cosine(embeddingList[i], norms[i], added, addedNorm);
+                if (first || similarity > maxSimilarityToSelected[i]) {
+                    maxSimilarityToSelected[i] = similarity;
+                }
+                float equationScore = lambdaMult * similarityToQuery[i] - (1 - lambdaMult) * maxSimilarityToSelected[i];
                 if (equationScore > bestScore) {
                     bestScore = equationScore;
                     idxToAdd = i;
                 }
             }
-            idxs.add(idxToAdd);
-            selected = Nd4j.vstack(selected, createFromList(embeddingList.get(idxToAdd)));
         }
-        return idxs;
+    }
+
+    private static float cosine(float[] x, float xNorm, float[] y, float yNorm) {
+        float normProduct = xNorm * yNorm;
+        return normProduct == 0 ? 0 : dot(x, y) / normProduct;
     }
 }
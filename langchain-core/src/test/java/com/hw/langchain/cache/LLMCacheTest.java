@@ -0,0 +1,143 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.hw.langchain.cache;
+
+import com.hw.langchain.chat.models.base.FailurePolicy;
+import com.hw.langchain.chat.models.fake.FakeChatModel;
+import com.hw.langchain.llms.fake.FakeLLM;
+import com.hw.langchain.schema.AIMessage;
+import com.hw.langchain.schema.BaseMessage;
+import com.hw.langchain.schema.ChatGeneration;
+import com.hw.langchain.schema.Generation;
+import com.hw.langchain.schema.HumanMessage;
+import com.hw.langchain.schema.LLMResult;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+/**
+ * @author HamaWhite
+ */
+class LLMCacheTest {
+
+    private static List<String> texts(LLMResult result) {
+        return result.getGenerations().stream()
+                .map(generations -> generations.isEmpty() ? null : generations.get(0).getText())
+                .toList();
+    }
+
+    @Test
+    void testLLMSendsOnlyMissesInOneBatch() {
+        BaseCache cache = new InMemoryCache(100);
+        FakeLLM llm = FakeLLM.builder().cache(cache).build();
+
+        assertEquals(List.of("FOO", "BAR", "FOO"), texts(llm.generate(List.of("foo", "bar", "foo"), null)));
+        LLMResult result = llm.generate(List.of("bar", "baz", "foo", "qux"), null);
+
+        assertEquals(List.of("BAR", "BAZ", "FOO", "QUX"), texts(result));
+        // duplicates are generated once, and only the misses are sent
+        assertEquals(List.of(List.of("foo", "bar"), List.of("baz", "qux")), llm.getRequests());
+        assertEquals(Map.of("prompts", 2), result.getLlmOutput());
+
+        assertEquals("FOO", llm.call("foo"));
+        assertEquals(2, llm.getRequests().size());
+    }
+
+    @Test
+    void testParametersAndStopArePartOfTheKey() {
+        BaseCache cache = new InMemoryCache(100);
+        FakeLLM cold = FakeLLM.builder().cache(cache).temperature(0).build();
+        FakeLLM hot = FakeLLM.builder().cache(cache).temperature(1).build();
+
+        cold.generate(List.of("foo"), null);
+        cold.generate(List.of("foo"), List.of("\n"));
+        hot.generate(List.of("foo"), null);
+        FakeLLM.builder().cache(cache).temperature(0).build().generate(List.of("foo"), null);
+
+        assertEquals(2, cold.getRequests().size());
+        assertEquals(1, hot.getRequests().size());
+    }
+
+    @Test
+    void testChatModelCachesSuccessfulPrompts(@TempDir Path directory) {
+        FakeChatModel chat = FakeChatModel.builder()
+                .cache(new FileCache(directory))
+                .maxConcurrency(2)
+                .failurePolicy(FailurePolicy.PARTIAL_RESULTS)
+                .build();
+        List<List<BaseMessage>> prompts = List.of(List.of(new HumanMessage("foo")), List.of(new HumanMessage("fail")),
+                List.of(new HumanMessage("bar")));
+
+        LLMResult first = chat.generate(prompts);
+        assertEquals(Map.of(1, first.getErrors().get(1)), first.getErrors());
+
+        LLMResult second = chat.generate(prompts);
+        assertEquals(Arrays.asList("foo", null, "bar"), texts(second));
+        assertThat(second.getErrors()).containsOnlyKeys(1);
+        // the failed prompt is retried, the others are served from the cache
+        assertEquals(4, chat.getCalls());
+        assertThat(second.getGenerations().get(2).get(0)).isInstanceOf(ChatGeneration.class);
+        assertEquals("bar", chat.call(List.of(new HumanMessage("bar"))).getContent());
+        assertEquals(4, chat.getCalls());
+    }
+
+    @Test
+    void testFileCacheRoundTrip(@TempDir Path directory) {
+        FileCache cache = new FileCache(directory);
+        Generation generation = new Generation("foo", Map.of("finishReason", "stop"));
+        ChatGeneration chatGeneration = new ChatGeneration(new AIMessage("bar"));
+        cache.update("prompt", "llm", List.of(generation, chatGeneration));
+
+        List<Generation> generations = new FileCache(directory).lookup("prompt", "llm");
+        assertEquals(generation, generations.get(0));
+        assertThat(generations.get(1)).isInstanceOf(ChatGeneration.class);
+        assertEquals(new AIMessage("bar").toMap(), ((ChatGeneration) generations.get(1)).getMessage().toMap());
+        assertNull(cache.lookup("prompt", "other"));
+
+        cache.clear();
+        assertNull(cache.lookup("prompt", "llm"));
+    }
+
+    @Test
+    void testInMemoryCacheEviction() throws InterruptedException {
+        InMemoryCache lru = new InMemoryCache(2);
+        List<Generation> generations = List.of(new Generation("foo"));
+        lru.update("a", "llm", generations);
+        lru.update("b", "llm", generations);
+        lru.lookup("a", "llm");
+        lru.update("c", "llm", generations);
+        assertEquals(generations, lru.lookup("a", "llm"));
+        assertNull(lru.lookup("b", "llm"));
+
+        InMemoryCache ttl = new InMemoryCache(10, Duration.ofMillis(50));
+        ttl.update("a", "llm", generations);
+        Thread.sleep(100);
+        assertNull(ttl.lookup("a", "llm"));
+    }
+}
@@ -0,0 +1,200 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.hw.langchain.cache;
+
+import com.hw.langchain.chat.models.fake.FakeChatModel;
+import com.hw.langchain.embeddings.base.Embeddings;
+import com.hw.langchain.llms.fake.FakeLLM;
+import com.hw.langchain.schema.Generation;
+import com.hw.langchain.schema.HumanMessage;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+/**
+ * @author HamaWhite
+ */
+class SemanticCacheTest {
+
+    private static final Map<String, List<Float>> VECTORS = Map.of(
+            "What is the capital of France?", List.of(1f, 0f, 0f),
+            "what's the capital of france", List.of(0.99f, 0.1f, 0f),
+            "What is the capital of Spain?", List.of(0.8f, 0.6f, 0f),
+            "How is the weather?", List.of(0f, 0f, 1f));
+
+    private final AtomicInteger embeddedTexts = new AtomicInteger();
+
+    private final Embeddings embeddings = new Embeddings() {
+
+        @Override
+        public List<List<Float>> embedDocuments(List<String> texts) {
+            embeddedTexts.addAndGet(texts.size());
+            return texts.stream().map(VECTORS::get).toList();
+        }
+
+        @Override
+        public List<Float> embedQuery(String text) {
+            return embedDocuments(List.of(text)).get(0);
+        }
+    };
+
+    private final AtomicLong now = new AtomicLong();
+
+    private final Clock clock = new Clock() {
+
+        @Override
+        public ZoneId getZone() {
+            return ZoneOffset.UTC;
+        }
+
+        @Override
+        public Clock withZone(ZoneId zone) {
+            return this;
+        }
+
+        @Override
+        public Instant instant() {
+            return Instant.ofEpochMilli(now.get());
+        }
+    };
+
+    private SemanticCache.SemanticCacheBuilder cache() {
+        return SemanticCache.builder().embeddings(embeddings).similarityThreshold(0.95f).clock(clock);
+    }
+
+    @Test
+    void testNearDuplicatePromptHits() {
+        SemanticCache cache = cache().build().init();
+        FakeLLM llm = FakeLLM.builder().cache(cache).build();
+
+        assertEquals("WHAT IS THE CAPITAL OF FRANCE?", llm.predict("What is the capital of France?"));
+        assertEquals("WHAT IS THE CAPITAL OF FRANCE?", llm.predict("what's the capital of france"));
+        assertEquals("WHAT IS THE CAPITAL OF SPAIN?", llm.predict("What is the capital of Spain?"));
+        assertEquals(2, llm.getRequests().size());
+
+        // another model never sees these generations
+        FakeLLM other = FakeLLM.builder().cache(cache).temperature(1).build();
+        assertEquals("WHAT'S THE CAPITAL OF FRANCE", other.predict("what's the capital of france"));
+
+        // the prompts cached verbatim are not embedded again
+        int embedded = embeddedTexts.get();
+        llm.predict("What is the capital of Spain?");
+        assertEquals(embedded, embeddedTexts.get());
+
+        SemanticCache.Stats stats = cache.stats();
+        assertEquals(2, stats.hitCount());
+        assertEquals(3, stats.missCount());
+        assertEquals(3, stats.size());
+    }
+
+    @Test
+    void testLeastRecentlyUsedEviction() {
+        SemanticCache cache = cache().maxSize(2).build().init();
+        List<Generation> generations = List.of(new Generation("foo"));
+        cache.update("What is the capital of France?", "llm", generations);
+        cache.update("What is the capital of Spain?", "llm", generations);
+        cache.lookup("what's the capital of france", "llm");
+        cache.update("How is the weather?", "llm", generations);
+
+        assertEquals(generations, cache.lookup("What is the capital of France?", "llm"));
+        assertNull(cache.lookup("What is the capital of Spain?", "llm"));
+        assertEquals(1, cache.stats().evictionCount());
+    }
+
+    @Test
+    void testExpiredPromptsMiss() {
+        SemanticCache cache = cache().timeToLive(Duration.ofMinutes(1)).build().init();
+        List<Generation> generations = List.of(new Generation("foo"));
+        cache.update("What is the capital of France?", "llm", generations);
+
+        now.set(Duration.ofSeconds(59).toMillis());
+        assertEquals(generations, cache.lookup("what's the capital of france", "llm"));
+        now.set(Duration.ofMinutes(1).toMillis());
+        assertNull(cache.lookup("what's the capital of france", "llm"));
+        assertNull(cache.lookup("What is the capital of France?", "llm"));
+        assertEquals(0, cache.stats().size());
+    }
+
+    @Test
+    void testIndexIsRebuiltAfterEvictions() {
+        SemanticCache cache = cache().maxSize(1).build().init();
+        for (int i = 0; i < 50; i++) {
+            String prompt = i % 2 == 0 ? "What is the capital of France?" : "How is the weather?";
+            cache.update(prompt, "llm", List.of(new Generation(String.valueOf(i))));
+        }
+        assertEquals(List.of(new Generation("49")), cache.lookup("How is the weather?", "llm"));
+        assertNull(cache.lookup("what's the capital of france", "llm"));
+        assertEquals(1, cache.stats().size());
+    }
+
+    /**
+     * Embeds the character trigrams of the text, so that texts sharing most of their characters are similar.
+     */
+    private static List<Float> trigrams(String text) {
+        float[] vector = new float[256];
+        for (int i = 0; i + 3 <= text.length(); i++) {
+            vector[Math.floorMod(text.substring(i, i + 3).hashCode(), vector.length)]++;
+        }
+        List<Float> values = new ArrayList<>(vector.length);
+        for (float value : vector) {
+            values.add(value);
+        }
+        return values;
+    }
+
+    @Test
+    void testUnrelatedShortChatQuestionsMiss() {
+        Embeddings trigramEmbeddings = new Embeddings() {
+
+            @Override
+            public List<List<Float>> embedDocuments(List<String> texts) {
+                return texts.stream().map(SemanticCacheTest::trigrams).toList();
+            }
+
+            @Override
+            public List<Float> embedQuery(String text) {
+                return trigrams(text);
+            }
+        };
+        SemanticCache cache =
+                SemanticCache.builder().embeddings(trigramEmbeddings).similarityThreshold(0.85f).build().init();
+        FakeChatModel chat = FakeChatModel.builder().cache(cache).build();
+
+        // the serialized messages around the two questions are identical, only their text tells them apart
+        assertEquals("hi there", chat.call(List.of(new HumanMessage("hi there"))).getContent());
+        assertEquals("what is 2+2?", chat.call(List.of(new HumanMessage("what is 2+2?"))).getContent());
+        assertEquals(2, chat.getCalls());
+
+        assertEquals("hi there", chat.call(List.of(new HumanMessage("hi there!"))).getContent());
+        assertEquals(2, chat.getCalls());
+    }
+}
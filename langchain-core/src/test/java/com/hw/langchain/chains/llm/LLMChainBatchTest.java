@@ -0,0 +1,126 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.hw.langchain.chains.llm;
+
+import com.hw.langchain.chains.conversation.base.ConversationChain;
+import com.hw.langchain.chat.models.base.FailurePolicy;
+import com.hw.langchain.chat.models.fake.FakeChatModel;
+import com.hw.langchain.llms.openai.BaseOpenAI;
+import com.hw.langchain.prompts.prompt.PromptTemplate;
+import com.hw.langchain.schema.Generation;
+import com.hw.langchain.schema.LLMResult;
+
+import org.junit.jupiter.api.Test;
+
+import lombok.experimental.SuperBuilder;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/**
+ * @author HamaWhite
+ */
+class LLMChainBatchTest {
+
+    private static final PromptTemplate PROMPT = new PromptTemplate(List.of("product"), "Name a {product} maker");
+
+    /**
+     * Fake OpenAI model answering with the prompt in upper case, and recording the size of each request.
+     */
+    @SuperBuilder
+    static class FakeOpenAI extends BaseOpenAI {
+
+        private final List<Integer> requestSizes = new CopyOnWriteArrayList<>();
+
+        @Override
+        protected LLMResult innerGenerate(List<String> prompts, List<String> stop) {
+            requestSizes.add(prompts.size());
+            return new LLMResult(prompts.stream()
+                    .map(prompt -> List.of(new Generation(prompt.toUpperCase())))
+                    .toList());
+        }
+    }
+
+    private static List<Map<String, Object>> inputs(int count) {
+        return IntStream.range(0, count)
+                .<Map<String, Object>>mapToObj(i -> Map.of("product", "sock" + i))
+                .toList();
+    }
+
+    @Test
+    void testApplySendsProviderSizedBatches() {
+        FakeOpenAI llm = FakeOpenAI.builder().batchSize(4).build();
+        LLMChain chain = new LLMChain(llm, PROMPT);
+
+        List<Map<String, String>> outputs = chain.apply(inputs(10), 3);
+
+        assertThat(llm.requestSizes).containsExactlyInAnyOrder(4, 4, 2);
+        assertEquals(IntStream.range(0, 10).mapToObj(i -> Map.of("text", "NAME A SOCK" + i + " MAKER")).toList(),
+                outputs);
+    }
+
+    @Test
+    void testBatchRunsChatPromptsConcurrently() {
+        FakeChatModel chat = FakeChatModel.builder().latency(50).build();
+        LLMChain chain = new LLMChain(chat, PROMPT);
+
+        List<Map<String, String>> outputs = chain.batch(inputs(8), 4);
+
+        assertEquals(4, chat.getMaxInFlight());
+        assertEquals(8, outputs.size());
+        assertEquals(Map.of("product", "sock7", "text", "Name a sock7 maker"), outputs.get(7));
+    }
+
+    @Test
+    void testBatchWithMemoryRunsSequentially() {
+        FakeChatModel chat = FakeChatModel.builder().latency(10).build();
+        ConversationChain chain = new ConversationChain(chat);
+
+        List<Map<String, String>> outputs = chain.batch(List.of(Map.of("input", "foo"), Map.of("input", "bar"),
+                Map.of("input", "baz")), 4);
+
+        assertEquals(1, chat.getMaxInFlight());
+        // the last run sees the conversation of the previous ones
+        assertThat(outputs.get(2).get("response")).contains("Human: foo", "Human: bar");
+    }
+
+    @Test
+    void testFailedPromptUnderPartialResultsIsThrown() {
+        FakeChatModel chat = FakeChatModel.builder()
+                .maxConcurrency(2)
+                .failurePolicy(FailurePolicy.PARTIAL_RESULTS)
+                .build();
+        LLMChain chain = new LLMChain(chat, new PromptTemplate(List.of("product"), "{product}"));
+        List<Map<String, Object>> inputs = List.of(Map.of("product", "sock"), Map.of("product", "fail shoe"),
+                Map.of("product", "fail hat"));
+
+        // the error of the second input is reported instead of parsing its empty generations
+        var exception = assertThrows(IllegalArgumentException.class, () -> chain.apply(inputs, 2));
+        assertEquals("Failed to generate: fail shoe", exception.getMessage());
+        exception = assertThrows(IllegalArgumentException.class, () -> chain.batch(inputs, 2));
+        assertEquals("Failed to generate: fail shoe", exception.getMessage());
+        assertThrows(IllegalArgumentException.class, () -> chain.run("fail"));
+    }
+}
@@ -0,0 +1,130 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.hw.langchain.chat.models.base;
+
+import com.hw.langchain.chat.models.fake.FakeChatModel;
+import com.hw.langchain.schema.BaseMessage;
+import com.hw.langchain.schema.ChatGeneration;
+import com.hw.langchain.schema.HumanMessage;
+import com.hw.langchain.schema.LLMResult;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Map;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/**
+ * @author HamaWhite
+ */
+class BaseChatModelTest {
+
+    private static List<List<BaseMessage>> prompts(String... contents) {
+        return IntStream.range(0, contents.length)
+                .mapToObj(i -> List.<BaseMessage>of(new HumanMessage(contents[i])))
+                .toList();
+    }
+
+    private static List<String> contents(LLMResult result) {
+        return result.getGenerations().stream()
+                .map(generations -> generations.isEmpty() ? null
+                        : ((ChatGeneration) generations.get(0)).getMessage().getContent())
+                .toList();
+    }
+
+    @Test
+    void testAsyncPredictMessagesWithoutStreaming() {
+        FakeChatModel model = FakeChatModel.builder().build();
+        List<BaseMessage> chunks = model.asyncPredictMessages(List.of(new HumanMessage("foo"))).collectList().block();
+
+        assertThat(chunks).extracting(BaseMessage::getContent).containsExactly("foo");
+    }
+
+    @Test
+    void testConcurrentGenerationKeepsOrder() {
+        FakeChatModel model = FakeChatModel.builder().latency(50).maxConcurrency(4).build();
+        String[] contents = IntStream.range(0, 12).mapToObj(i -> "prompt" + i).toArray(String[]::new);
+
+        LLMResult result = model.generate(prompts(contents));
+
+        assertEquals(List.of(contents), contents(result));
+        assertEquals(Map.of("tokens", 10 * 7 + 2 * 8), result.getLlmOutput());
+        assertThat(result.getErrors()).isEmpty();
+        assertEquals(4, model.getMaxInFlight());
+    }
+
+    @Test
+    void testFailFast() {
+        FakeChatModel model = FakeChatModel.builder().latency(50).maxConcurrency(2).build();
+        List<List<BaseMessage>> prompts = prompts("a", "fail", "b", "c", "d", "e", "f", "g");
+
+        var exception = assertThrows(IllegalArgumentException.class, () -> model.generate(prompts));
+        assertEquals("Failed to generate: fail", exception.getMessage());
+        // the prompts queued behind the failure are cancelled
+        assertThat(model.getCalls()).isLessThan(8);
+
+        FakeChatModel sequential = FakeChatModel.builder().build();
+        assertThrows(IllegalArgumentException.class, () -> sequential.generate(prompts));
+        assertEquals(2, sequential.getCalls());
+    }
+
+    @Test
+    void testFailFastWhenTheFailingPromptIsTheSlowest() {
+        FakeChatModel model = FakeChatModel.builder().latency(20).maxConcurrency(3).build();
+        List<List<BaseMessage>> prompts = prompts("a", "b", "slow fail");
+        // the failure completes last, racing the wait for every prompt
+        for (int i = 0; i < 20; i++) {
+            var exception = assertThrows(IllegalArgumentException.class, () -> model.generate(prompts));
+            assertEquals("Failed to generate: slow fail", exception.getMessage());
+        }
+    }
+
+    @Test
+    void testPartialResults() {
+        for (int maxConcurrency : new int[]{1, 3}) {
+            FakeChatModel model = FakeChatModel.builder()
+                    .maxConcurrency(maxConcurrency)
+                    .failurePolicy(FailurePolicy.PARTIAL_RESULTS)
+                    .build();
+
+            LLMResult result = model.generate(prompts("a", "fail1", "bb", "fail2"));
+
+            assertThat(contents(result)).containsExactly("a", null, "bb", null);
+            assertEquals(Map.of("tokens", 3), result.getLlmOutput());
+            assertThat(result.getErrors()).containsOnlyKeys(1, 3);
+            assertThat(result.getErrors().get(3)).hasMessage("Failed to generate: fail2");
+        }
+    }
+
+    @Test
+    void testSinglePromptFailureUnderPartialResults() {
+        FakeChatModel model = FakeChatModel.builder().failurePolicy(FailurePolicy.PARTIAL_RESULTS).build();
+
+        // the recorded failure is thrown rather than an empty generation list being indexed
+        var exception = assertThrows(IllegalArgumentException.class, () -> model.predict("fail"));
+        assertEquals("Failed to generate: fail", exception.getMessage());
+        assertThrows(IllegalArgumentException.class,
+                () -> model.predictMessages(List.of(new HumanMessage("fail")), null));
+        assertEquals("ok", model.predict("ok"));
+    }
+}
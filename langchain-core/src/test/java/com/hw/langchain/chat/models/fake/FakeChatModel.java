@@ -0,0 +1,89 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.hw.langchain.chat.models.fake;
+
+import com.hw.langchain.chat.models.base.BaseChatModel;
+import com.hw.langchain.schema.AIMessage;
+import com.hw.langchain.schema.BaseMessage;
+import com.hw.langchain.schema.ChatGeneration;
+import com.hw.langchain.schema.ChatResult;
+
+import lombok.experimental.SuperBuilder;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Fake chat model answering with the content of the last message, and failing when it contains "fail". Messages
+ * containing "slow" take three times the latency.
+ *
+ * @author HamaWhite
+ */
+@SuperBuilder
+public class FakeChatModel extends BaseChatModel {
+
+    /**
+     * Latency of each generation, in milliseconds.
+     */
+    private long latency;
+
+    private final AtomicInteger calls = new AtomicInteger();
+
+    private final AtomicInteger inFlight = new AtomicInteger();
+
+    private final AtomicInteger maxInFlight = new AtomicInteger();
+
+    @Override
+    public ChatResult innerGenerate(List<BaseMessage> messages, List<String> stop) {
+        calls.incrementAndGet();
+        maxInFlight.accumulateAndGet(inFlight.incrementAndGet(), Math::max);
+        String content = messages.get(messages.size() - 1).getContent();
+        try {
+            Thread.sleep(content.contains("slow") ? 3 * latency : latency);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException(e);
+        } finally {
+            inFlight.decrementAndGet();
+        }
+        if (content.contains("fail")) {
+            throw new IllegalArgumentException("Failed to generate: " + content);
+        }
+        return new ChatResult(List.of(new ChatGeneration(new AIMessage(content))), Map.of("tokens", content.length()));
+    }
+
+    @Override
+    public Map<String, Object> combineLlmOutputs(List<Map<String, Object>> llmOutputs) {
+        return Map.of("tokens", llmOutputs.stream().mapToInt(output -> (int) output.get("tokens")).sum());
+    }
+
+    @Override
+    public String llmType() {
+        return "fake-chat-model";
+    }
+
+    public int getCalls() {
+        return calls.get();
+    }
+
+    public int getMaxInFlight() {
+        return maxInFlight.get();
+    }
+}
@@ -0,0 +1,143 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.hw.langchain.chat.models.openai;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.hw.langchain.chains.llm.LLMChain;
+import com.hw.langchain.llms.openai.OpenAIChat;
+import com.hw.langchain.prompts.prompt.PromptTemplate;
+import com.hw.langchain.schema.AIMessage;
+import com.hw.langchain.schema.BaseMessage;
+import com.hw.langchain.schema.HumanMessage;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Runs against a local server streaming the words of the last message back, one chunk per word.
+ *
+ * @author HamaWhite
+ */
+class ChatOpenAIStreamTest {
+
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+
+    private HttpServer server;
+
+    private String openaiApiBase;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+        server.createContext("/chat/completions", this::handle);
+        server.start();
+        openaiApiBase = "http://localhost:" + server.getAddress().getPort() + "/";
+    }
+
+    @AfterEach
+    void tearDown() {
+        server.stop(0);
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        JsonNode request = MAPPER.readTree(exchange.getRequestBody());
+        JsonNode messages = request.get("messages");
+        String content = messages.get(messages.size() - 1).get("content").asText();
+
+        exchange.getResponseHeaders().add("Content-Type", "text/event-stream");
+        exchange.sendResponseHeaders(200, 0);
+        try (OutputStream os = exchange.getResponseBody()) {
+            write(os, Map.of("role", "assistant"), null);
+            String[] words = content.split(" ");
+            for (int i = 0; i < words.length; i++) {
+                write(os, Map.of("content", (i == 0 ? "" : " ") + words[i]), null);
+            }
+            write(os, Map.of(), "stop");
+            os.write("data: [DONE]\n\n".getBytes(StandardCharsets.UTF_8));
+        }
+    }
+
+    private static void write(OutputStream os, Map<String, String> delta, String finishReason) throws IOException {
+        Map<String, Object> choice = finishReason == null
+                ? Map.of("index", 0, "delta", delta)
+                : Map.of("index", 0, "delta", delta, "finish_reason", finishReason);
+        String chunk = MAPPER.writeValueAsString(Map.of("object", "chat.completion.chunk", "choices", List.of(choice)));
+        os.write(("data: " + chunk + "\n\n").getBytes(StandardCharsets.UTF_8));
+        os.flush();
+    }
+
+    private ChatOpenAI.ChatOpenAIBuilder<?, ?> chat() {
+        return ChatOpenAI.builder().openaiApiKey("test").openaiApiBase(openaiApiBase);
+    }
+
+    @Test
+    void testAsyncPredictMessages() {
+        ChatOpenAI chat = chat().build().init();
+        List<BaseMessage> chunks =
+                chat.asyncPredictMessages(List.of(new HumanMessage("I love programming"))).collectList()
+                        .block();
+
+        assertThat(chunks).allMatch(AIMessage.class::isInstance)
+                .extracting(BaseMessage::getContent)
+                .containsExactly("I", " love", " programming");
+        assertEquals(List.of("Hello", " world"), chat.asyncPredict("Hello world").collectList().block());
+    }
+
+    @Test
+    void testStreamedResponseIsConcatenated() {
+        ChatOpenAI chat = chat().stream(true).build().init();
+        assertEquals("I love programming", chat.predict("I love programming"));
+    }
+
+    @Test
+    void testStreamedOutputOmitsTokenUsage() {
+        ChatOpenAI chat = chat().stream(true).build().init();
+        var result = chat.generate(List.of(List.of(new HumanMessage("Hello world"))));
+
+        assertEquals(Map.of("model_name", chat.model), result.getLlmOutput());
+    }
+
+    @Test
+    void testLLMChainStreamsChatModel() {
+        var prompt = new PromptTemplate(List.of("product"), "Name a {product} maker");
+        LLMChain chain = new LLMChain(chat().build().init(), prompt);
+
+        assertEquals(List.of("Name", " a", " sock", " maker"), chain.asyncRun("sock").collectList().block());
+    }
+
+    @Test
+    void testOpenAIChatAsyncPredict() {
+        OpenAIChat llm = OpenAIChat.builder().openaiApiKey("test").openaiApiBase(openaiApiBase).build().init();
+        assertEquals(List.of("Hello", " world"), llm.asyncPredict("Hello world").collectList().block());
+    }
+}
@@ -0,0 +1,132 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.hw.langchain.embeddings.cache;
+
+import com.hw.langchain.embeddings.base.Embeddings;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * @author HamaWhite
+ */
+class CacheBackedEmbeddingsTest {
+
+    @TempDir
+    Path tempDir;
+
+    /**
+     * Embeds a text as its length and first character, recording every text it is asked to embed.
+     */
+    private static class RecordingEmbeddings implements Embeddings {
+
+        private final List<String> embedded = new ArrayList<>();
+
+        @Override
+        public List<List<Float>> embedDocuments(List<String> texts) {
+            embedded.addAll(texts);
+            return texts.stream().map(this::embedQuery).toList();
+        }
+
+        @Override
+        public List<Float> embedQuery(String text) {
+            return List.of((float) text.length(), (float) text.charAt(0));
+        }
+    }
+
+    private static CacheBackedEmbeddings cacheBacked(Embeddings underlying, List<EmbeddingStore> stores) {
+        return CacheBackedEmbeddings.builder()
+                .underlyingEmbeddings(underlying)
+                .namespace("fake-model")
+                .stores(stores)
+                .build()
+                .init();
+    }
+
+    @Test
+    void testOnlyMissesAreEmbedded() {
+        var underlying = new RecordingEmbeddings();
+        var embeddings = cacheBacked(underlying, List.of(new InMemoryEmbeddingStore(100)));
+
+        assertEquals(underlying.embedDocuments(List.of("foo", "bar")),
+                embeddings.embedDocuments(List.of("foo", "bar")));
+        underlying.embedded.clear();
+
+        var result = embeddings.embedDocuments(List.of("bar", "hello", "foo", "hello"));
+        assertEquals(List.of("hello"), underlying.embedded);
+        assertEquals(List.of(List.of(3f, (float) 'b'), List.of(5f, (float) 'h'), List.of(3f, (float) 'f'),
+                List.of(5f, (float) 'h')), result);
+    }
+
+    @Test
+    void testReturnedVectorsDoNotAliasTheMemoryStore() {
+        var underlying = new RecordingEmbeddings();
+        var embeddings = cacheBacked(underlying, List.of(new InMemoryEmbeddingStore(100)));
+
+        // both the freshly embedded and the cached vector may be modified by the caller
+        embeddings.embedDocumentVectors(List.of("foo")).get(0).values()[0] = -1;
+        embeddings.embedDocumentVectors(List.of("foo")).get(0).values()[0] = -1;
+        assertEquals(List.of(List.of(3f, (float) 'f')), embeddings.embedDocuments(List.of("foo")));
+        assertEquals(List.of("foo"), underlying.embedded);
+    }
+
+    @Test
+    void testFileStoreSurvivesReopenAndBackfillsMemory() {
+        var underlying = new RecordingEmbeddings();
+        Path file = tempDir.resolve("embeddings.bin");
+        try (var fileStore = new FileEmbeddingStore(file)) {
+            cacheBacked(underlying, List.of(fileStore)).embedDocuments(List.of("foo", "bar"));
+        }
+        underlying.embedded.clear();
+
+        var memoryStore = new InMemoryEmbeddingStore(100);
+        try (var fileStore = new FileEmbeddingStore(file)) {
+            assertEquals(2, fileStore.size());
+            var embeddings = cacheBacked(underlying, List.of(memoryStore, fileStore));
+            var result = embeddings.embedDocuments(List.of("foo", "bar", "baz"));
+
+            assertEquals(List.of("baz"), underlying.embedded);
+            assertEquals(List.of(3f, (float) 'f'), result.get(0));
+            assertEquals(3, memoryStore.size());
+            assertEquals(3, fileStore.size());
+        }
+    }
+
+    @Test
+    void testNamespaceSeparatesModels() {
+        var underlying = new RecordingEmbeddings();
+        var store = new InMemoryEmbeddingStore(100);
+        cacheBacked(underlying, List.of(store)).embedDocuments(List.of("foo"));
+
+        CacheBackedEmbeddings.builder()
+                .underlyingEmbeddings(underlying)
+                .namespace("other-model")
+                .stores(List.of(store))
+                .build()
+                .init()
+                .embedDocuments(List.of("foo"));
+        assertEquals(List.of("foo", "foo"), underlying.embedded);
+    }
+}
@@ -0,0 +1,61 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.hw.langchain.embeddings.openai;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * @author HamaWhite
+ */
+class ChunkAveragerTest {
+
+    @Test
+    void testWeightedAverageIsNormalized() {
+        ChunkAverager averager = new ChunkAverager();
+        averager.add(new float[]{1, 0}, 3);
+        averager.add(new float[]{0, 1}, 1);
+        // (3 * [1, 0] + 1 * [0, 1]) / 4 = [0.75, 0.25], normalized by sqrt(0.625)
+        float norm = (float) Math.sqrt(0.75 * 0.75 + 0.25 * 0.25);
+        assertArrayEquals(new float[]{0.75f / norm, 0.25f / norm}, averager.averageAndReset(), 1e-6f);
+        assertTrue(averager.isEmpty());
+    }
+
+    @Test
+    void testAveragerIsReusable() {
+        ChunkAverager averager = new ChunkAverager();
+        averager.add(new float[]{3, 4}, 10);
+        averager.add(new float[]{3, 4}, 5);
+        assertArrayEquals(new float[]{0.6f, 0.8f}, averager.averageAndReset(), 1e-6f);
+
+        float[] single = {0, 2};
+        averager.add(single, 7);
+        float[] average = averager.averageAndReset();
+        assertArrayEquals(new float[]{0, 1}, average, 1e-6f);
+        // a single chunk is normalized in place
+        assertTrue(single == average);
+
+        averager.add(new float[]{1, 1, 1}, 1);
+        assertThrows(IllegalArgumentException.class, () -> averager.add(new float[]{1, 1}, 1));
+        assertThrows(IllegalStateException.class, new ChunkAverager()::averageAndReset);
+    }
+}
@@ -0,0 +1,150 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.hw.langchain.embeddings.openai;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.hw.langchain.embeddings.base.DenseVector;
+import com.hw.langchain.utils.EncodingUtils;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Runs against a local server which embeds a token array as {@code [first token, 1]}, in base64 when requested, and
+ * answers the first request with a 429.
+ *
+ * @author HamaWhite
+ */
+class OpenAIEmbeddingsTest {
+
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+
+    private final AtomicInteger requests = new AtomicInteger();
+
+    private final AtomicInteger inFlight = new AtomicInteger();
+
+    private final AtomicInteger maxInFlight = new AtomicInteger();
+
+    private HttpServer server;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+        server.setExecutor(Executors.newCachedThreadPool());
+        server.createContext("/embeddings", this::handle);
+        server.start();
+    }
+
+    @AfterEach
+    void tearDown() {
+        server.stop(0);
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        maxInFlight.accumulateAndGet(inFlight.incrementAndGet(), Math::max);
+        try {
+            if (requests.getAndIncrement() == 0) {
+                respond(exchange, 429, "{\"error\":{\"message\":\"Rate limit reached\",\"type\":\"requests\"}}");
+                return;
+            }
+            JsonNode request = MAPPER.readTree(exchange.getRequestBody());
+            JsonNode input = request.get("input");
+            boolean base64 = "base64".equals(request.path("encoding_format").asText());
+            StringBuilder data = new StringBuilder();
+            for (int i = 0; i < input.size(); i++) {
+                float[] vector = {input.get(i).get(0).asInt(), 1};
+                data.append(i == 0 ? "" : ",")
+                        .append(String.format("{\"object\":\"embedding\",\"index\":%d,\"embedding\":%s}", i,
+                                base64 ? '"' + encode(vector) + '"' : Arrays.toString(vector)));
+            }
+            Thread.sleep(50);
+            respond(exchange, 200, "{\"object\":\"list\",\"data\":[" + data + "]}");
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            inFlight.decrementAndGet();
+        }
+    }
+
+    private static String encode(float[] vector) {
+        ByteBuffer buffer = ByteBuffer.allocate(vector.length * Float.BYTES).order(ByteOrder.LITTLE_ENDIAN);
+        buffer.asFloatBuffer().put(vector);
+        return Base64.getEncoder().encodeToString(buffer.array());
+    }
+
+    private static void respond(HttpExchange exchange, int status, String body) throws IOException {
+        byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().add("Content-Type", "application/json");
+        exchange.sendResponseHeaders(status, bytes.length);
+        try (OutputStream os = exchange.getResponseBody()) {
+            os.write(bytes);
+        }
+    }
+
+    @Test
+    void testConcurrentEmbedDocuments() {
+        var embeddings = OpenAIEmbeddings.builder()
+                .openaiApiKey("test-key")
+                .openaiApiBase("http://localhost:" + server.getAddress().getPort() + "/")
+                .chunkSize(1)
+                .maxConcurrency(4)
+                .requestsPerMinute(6000)
+                .tokensPerMinute(60000)
+                .build()
+                .init();
+
+        List<String> texts = IntStream.range(0, 12).mapToObj(i -> String.valueOf(100 + i)).toList();
+        List<DenseVector> result = embeddings.embedDocumentVectors(texts);
+
+        assertEquals(texts.size(), result.size());
+        for (int i = 0; i < texts.size(); i++) {
+            assertArrayEquals(expected(texts.get(i)), result.get(i).values(), 1e-6f);
+        }
+        assertThat(maxInFlight.get()).isGreaterThan(1);
+        // one request per batch plus the rate limited attempt
+        assertEquals(texts.size() + 1, requests.get());
+    }
+
+    private static float[] expected(String text) {
+        int token = EncodingUtils.getEncodingForModel("text-embedding-ada-002").encode(text).get(0);
+        double norm = Math.sqrt((double) token * token + 1);
+        return new float[]{(float) (token / norm), (float) (1 / norm)};
+    }
+}
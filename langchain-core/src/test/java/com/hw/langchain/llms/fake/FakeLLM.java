@@ -0,0 +1,71 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.hw.langchain.llms.fake;
+
+import com.hw.langchain.llms.base.BaseLLM;
+import com.hw.langchain.schema.AsyncLLMResult;
+import com.hw.langchain.schema.Generation;
+import com.hw.langchain.schema.LLMResult;
+
+import lombok.experimental.SuperBuilder;
+import reactor.core.publisher.Flux;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * Fake LLM answering with the prompt in upper case, and recording the prompts of each request.
+ *
+ * @author HamaWhite
+ */
+@SuperBuilder
+public class FakeLLM extends BaseLLM {
+
+    private float temperature;
+
+    private final List<List<String>> requests = new CopyOnWriteArrayList<>();
+
+    @Override
+    public String llmType() {
+        return "fake-llm";
+    }
+
+    @Override
+    public Map<String, Object> identifyingParams() {
+        return Map.of("temperature", temperature);
+    }
+
+    @Override
+    protected LLMResult innerGenerate(List<String> prompts, List<String> stop) {
+        requests.add(prompts);
+        return new LLMResult(prompts.stream()
+                .map(prompt -> List.of(new Generation(prompt.toUpperCase())))
+                .toList(), Map.of("prompts", prompts.size()));
+    }
+
+    @Override
+    protected Flux<AsyncLLMResult> asyncInnerGenerate(List<String> prompts, List<String> stop) {
+        throw new UnsupportedOperationException();
+    }
+
+    public List<List<String>> getRequests() {
+        return requests;
+    }
+}
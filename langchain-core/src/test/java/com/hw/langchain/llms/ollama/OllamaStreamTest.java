@@ -0,0 +1,160 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.hw.langchain.llms.ollama;
+
+import com.hw.langchain.exception.LangChainException;
+import com.hw.langchain.schema.GenerationChunk;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Runs against a local server which writes the NDJSON lines of a generation only as the test lets it.
+ *
+ * @author HamaWhite
+ */
+class OllamaStreamTest {
+
+    private final CountDownLatch firstChunkReceived = new CountDownLatch(1);
+
+    private final CountDownLatch disconnected = new CountDownLatch(1);
+
+    private HttpServer server;
+
+    private Ollama llm;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+        server.setExecutor(Executors.newCachedThreadPool());
+        server.createContext("/api/generate", this::handle);
+        server.createContext("/endless/api/generate", this::handleEndless);
+        server.createContext("/failing/api/generate", exchange -> {
+            exchange.sendResponseHeaders(500, -1);
+            exchange.close();
+        });
+        server.start();
+        llm = Ollama.builder().baseUrl("http://localhost:" + server.getAddress().getPort()).build().init();
+    }
+
+    @AfterEach
+    void tearDown() {
+        server.stop(0);
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        exchange.sendResponseHeaders(200, 0);
+        try (OutputStream os = exchange.getResponseBody()) {
+            write(os, "{\"model\":\"llama2\",\"response\":\" Foo\",\"done\":false}\n");
+            if (!firstChunkReceived.await(5, TimeUnit.SECONDS)) {
+                return;
+            }
+            write(os, "{\"model\":\"llama2\",\"response\":\"!\",\"done\":false}\n");
+            write(os, "{\"model\":\"llama2\",\"done\":true,\"eval_count\":2}\n");
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (IOException e) {
+            disconnected.countDown();
+        }
+    }
+
+    /**
+     * Writes until it notices that the connection is gone.
+     */
+    private void handleEndless(HttpExchange exchange) throws IOException {
+        exchange.sendResponseHeaders(200, 0);
+        try (OutputStream os = exchange.getResponseBody()) {
+            for (int line = 0; line < 10_000; line++) {
+                write(os, "{\"response\":\"" + "x".repeat(1024) + "\",\"done\":false}\n");
+                Thread.sleep(1);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (IOException e) {
+            disconnected.countDown();
+        }
+    }
+
+    private static void write(OutputStream os, String line) throws IOException {
+        os.write(line.getBytes(StandardCharsets.UTF_8));
+        os.flush();
+    }
+
+    @Test
+    void testChunksArriveAsTheyAreWritten() {
+        List<String> texts = llm.streamGenerate("Say foo:", null)
+                .doOnNext(chunk -> firstChunkReceived.countDown())
+                .map(GenerationChunk::getText)
+                .collectList()
+                .block(Duration.ofSeconds(10));
+
+        // the server writes the rest of the generation only after the first chunk was received
+        assertEquals(List.of(" Foo", "!", ""), texts);
+    }
+
+    @Test
+    void testAsyncPredictAndPredict() {
+        firstChunkReceived.countDown();
+        assertEquals(List.of(" Foo", "!", ""), llm.asyncPredict("Say foo:").collectList().block());
+
+        var result = llm.generate(List.of("Say foo:"), null);
+        GenerationChunk chunk = (GenerationChunk) result.getGenerations().get(0).get(0);
+        assertEquals(" Foo!", chunk.getText());
+        assertThat(chunk.getGenerationInfo()).containsEntry("eval_count", 2);
+    }
+
+    @Test
+    void testCancellationClosesTheConnection() throws InterruptedException {
+        Ollama endless = Ollama.builder()
+                .baseUrl("http://localhost:" + server.getAddress().getPort() + "/endless")
+                .build()
+                .init();
+        endless.streamGenerate("Say foo:", null).take(1).blockLast(Duration.ofSeconds(10));
+
+        assertTrue(disconnected.await(10, TimeUnit.SECONDS));
+    }
+
+    @Test
+    void testUnsuccessfulResponse() {
+        Ollama failing = Ollama.builder()
+                .baseUrl("http://localhost:" + server.getAddress().getPort() + "/failing")
+                .build()
+                .init();
+        var exception = assertThrows(LangChainException.class, () -> failing.predict("Say foo:"));
+        assertTrue(exception.getMessage().startsWith("Failed with status code 500"));
+    }
+}
@@ -0,0 +1,151 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.hw.langchain.memory.buffer;
+
+import com.hw.langchain.memory.chat.message.histories.database.ChatMessageRepository;
+import com.hw.langchain.memory.chat.message.histories.database.DataBaseChatMessageHistory;
+import com.hw.langchain.schema.AIMessage;
+import com.hw.langchain.schema.BaseMessage;
+import com.hw.langchain.schema.HumanMessage;
+import com.hw.langchain.utils.EncodingUtils;
+import com.knuddels.jtokkit.api.Encoding;
+
+import org.junit.jupiter.api.Test;
+
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * @author HamaWhite
+ */
+class TokenBufferMemoryMessagePickerTest {
+
+    private final List<String> encoded = new ArrayList<>();
+
+    private final Encoding encoding = countingEncoding();
+
+    private Encoding countingEncoding() {
+        Encoding delegate = EncodingUtils.getEncodingForModel("gpt-3.5-turbo");
+        return (Encoding) Proxy.newProxyInstance(Encoding.class.getClassLoader(), new Class<?>[]{Encoding.class},
+                (proxy, method, args) -> {
+                    if (method.getName().startsWith("countTokens")) {
+                        encoded.add((String) args[0]);
+                    }
+                    return method.invoke(delegate, args);
+                });
+    }
+
+    private static List<BaseMessage> messages(int count) {
+        return IntStream.range(0, count)
+                .mapToObj(i -> i % 2 == 0 ? new HumanMessage("question " + i) : new AIMessage("answer " + i))
+                .map(BaseMessage.class::cast)
+                .toList();
+    }
+
+    private int budget(List<BaseMessage> messages) {
+        return messages.stream().mapToInt(message -> encoding.countTokensOrdinary(message.getContent()) + 4).sum();
+    }
+
+    @Test
+    void testKeepsNewestMessagesWithinBudget() {
+        List<BaseMessage> messages = messages(10);
+        // exactly the budget of the last 3 messages
+        int budget = budget(messages.subList(7, 10));
+        var picker = new TokenBufferMemoryMessagePicker(encoding, budget, 4, 100);
+        assertEquals(encoding.countTokensOrdinary("question 0") + 4,
+                picker.countTokens(new HumanMessage("question 0")));
+
+        assertEquals(messages.subList(7, 10), picker.pickMemoryMessage(messages));
+        assertEquals(messages.subList(0, 2), picker.pickMemoryMessage(messages.subList(0, 2)));
+
+        var tight = new TokenBufferMemoryMessagePicker(encoding, 5, 4, 100);
+        assertEquals(List.of(), tight.pickMemoryMessage(messages));
+    }
+
+    @Test
+    void testTokenCountsAreMemoized() {
+        var picker = new TokenBufferMemoryMessagePicker(encoding, 1000, 4, 100);
+        List<BaseMessage> history = new ArrayList<>(messages(6));
+        picker.pickMemoryMessage(history);
+        assertEquals(6, encoded.size());
+
+        // a new turn, loaded as new instances, only encodes its two messages
+        encoded.clear();
+        List<BaseMessage> reloaded = new ArrayList<>(messages(6));
+        reloaded.add(new HumanMessage("how are you"));
+        reloaded.add(new AIMessage("fine"));
+        assertEquals(8, picker.pickMemoryMessage(reloaded).size());
+        assertEquals(List.of("fine", "how are you"), encoded);
+    }
+
+    @Test
+    void testReadsDatabaseHistoryFromTheTail() {
+        List<BaseMessage> stored = messages(100);
+        List<Integer> tailSizes = new ArrayList<>();
+        ChatMessageRepository repository = new ChatMessageRepository() {
+
+            @Override
+            public List<BaseMessage> loadMessage(String sessionId) {
+                throw new AssertionError("the whole history must not be loaded");
+            }
+
+            @Override
+            public List<BaseMessage> loadLastMessages(String sessionId, int n) {
+                tailSizes.add(n);
+                return stored.subList(Math.max(0, stored.size() - n), stored.size());
+            }
+
+            @Override
+            public void saveMessage(String sessionId, BaseMessage baseMessage) {
+            }
+
+            @Override
+            public void clearSessionChatMessage(String sessionId) {
+            }
+        };
+
+        var picker = new TokenBufferMemoryMessagePicker(encoding, budget(stored.subList(60, 100)), 4, 1000);
+        var memory = new ConversationBufferLimitedMemory(picker, true,
+                new DataBaseChatMessageHistory("session", repository));
+        List<?> history = (List<?>) memory.loadMemoryVariables(Map.of()).get("history");
+        assertEquals(stored.subList(60, 100), history);
+        assertEquals(List.of(16, 32, 64), tailSizes);
+
+        tailSizes.clear();
+        var everything = new TokenBufferMemoryMessagePicker(encoding, 100_000, 4, 1000);
+        assertEquals(stored, everything.pickMemoryMessage(new DataBaseChatMessageHistory("session", repository)));
+        assertThat(tailSizes).containsExactly(16, 32, 64, 128);
+    }
+
+    @Test
+    void testConversationTokenBufferMemory() {
+        var memory = new ConversationTokenBufferMemory("gpt-3.5-turbo", budget(messages(10).subList(5, 10)));
+        for (int i = 0; i < 10; i += 2) {
+            memory.saveContext(Map.of("input", "question " + i), Map.of("output", "answer " + (i + 1)));
+        }
+        assertEquals("AI: answer 5\nHuman: question 6\nAI: answer 7\nHuman: question 8\nAI: answer 9",
+                memory.loadMemoryVariables(Map.of()).get("history"));
+    }
+}
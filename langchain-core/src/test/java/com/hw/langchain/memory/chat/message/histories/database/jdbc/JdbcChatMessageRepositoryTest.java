@@ -0,0 +1,247 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.hw.langchain.memory.chat.message.histories.database.jdbc;
+
+import com.hw.langchain.exception.LangChainException;
+import com.hw.langchain.memory.buffer.ConversationBufferWindowMemory;
+import com.hw.langchain.schema.AIMessage;
+import com.hw.langchain.schema.BaseMessage;
+import com.hw.langchain.schema.HumanMessage;
+import com.hw.langchain.schema.codec.MessageCodec;
+
+import org.h2.jdbcx.JdbcDataSource;
+import org.junit.jupiter.api.Test;
+
+import javax.sql.DataSource;
+
+import java.lang.reflect.Proxy;
+import java.sql.SQLException;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BooleanSupplier;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * @author HamaWhite
+ */
+class JdbcChatMessageRepositoryTest {
+
+    private final AtomicInteger connections = new AtomicInteger();
+
+    /**
+     * While set, connections are refused.
+     */
+    private final AtomicBoolean unavailable = new AtomicBoolean();
+
+    private DataSource createDataSource() {
+        JdbcDataSource dataSource = new JdbcDataSource();
+        dataSource.setURL("jdbc:h2:mem:" + UUID.randomUUID() + ";DB_CLOSE_DELAY=-1");
+        return (DataSource) Proxy.newProxyInstance(DataSource.class.getClassLoader(), new Class<?>[]{DataSource.class},
+                (proxy, method, args) -> {
+                    if (method.getName().equals("getConnection")) {
+                        connections.incrementAndGet();
+                        if (unavailable.get()) {
+                            throw new SQLException("database unavailable");
+                        }
+                    }
+                    return method.invoke(dataSource, args);
+                });
+    }
+
+    private JdbcChatMessageRepository createRepository(DataSource dataSource, boolean writeBehind, MessageCodec codec) {
+        return JdbcChatMessageRepository.builder()
+                .dataSource(dataSource)
+                .createTable(true)
+                .codec(codec)
+                .pageSize(3)
+                .writeBehind(writeBehind)
+                .build()
+                .init();
+    }
+
+    private JdbcChatMessageRepository.JdbcChatMessageRepositoryBuilder writeBehindBuilder(DataSource dataSource) {
+        return JdbcChatMessageRepository.builder()
+                .dataSource(dataSource)
+                .createTable(true)
+                .writeBehind(true);
+    }
+
+    private static void await(BooleanSupplier condition) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (!condition.getAsBoolean()) {
+            assertTrue(System.nanoTime() < deadline, "timed out");
+            Thread.sleep(10);
+        }
+    }
+
+    private static List<String> contents(List<?> messages) {
+        return messages.stream().map(message -> ((BaseMessage) message).getContent()).toList();
+    }
+
+    @Test
+    void testWindowMemory() {
+        JdbcChatMessageRepository repository = createRepository(createDataSource(), false, MessageCodec.json());
+        var memory = new ConversationBufferWindowMemory(2, true, new JdbcChatMessageHistory("session", repository));
+        var other = new ConversationBufferWindowMemory(2, true, new JdbcChatMessageHistory("other", repository));
+        other.saveContext(Map.of("input", "foo"), Map.of("output", "bar"));
+
+        for (int i = 0; i < 5; i++) {
+            int before = connections.get();
+            memory.saveContext(Map.of("input", "q" + i), Map.of("output", "a" + i));
+            // both messages of the turn are inserted by one batch
+            assertEquals(before + 1, connections.get());
+        }
+
+        List<?> history = (List<?>) memory.loadMemoryVariables(Map.of()).get("history");
+        assertEquals(List.of("q3", "a3", "q4", "a4"), contents(history));
+        assertEquals(List.of(new HumanMessage("q3"), new AIMessage("a3")), history.subList(0, 2));
+
+        // loading the whole session pages by seq, 3 rows at a time
+        assertEquals(IntStream.range(0, 5).boxed().flatMap(i -> List.of("q" + i, "a" + i).stream()).toList(),
+                contents(repository.loadMessage("session")));
+        assertEquals(List.of("a0", "q1", "a1"), contents(repository.loadMessages("session", 1, 4)));
+        assertEquals(List.of("foo", "bar"), contents(repository.loadLastMessages("other", 10)));
+
+        memory.clear();
+        assertEquals(List.of(), repository.loadMessage("session"));
+        assertEquals(2, repository.loadMessage("other").size());
+    }
+
+    @Test
+    void testWriteBehind() {
+        DataSource dataSource = createDataSource();
+        JdbcChatMessageRepository repository = createRepository(dataSource, true, MessageCodec.binary());
+        for (int i = 0; i < 50; i++) {
+            repository.saveMessages("session", List.of(new HumanMessage("q" + i), new AIMessage("a" + i)));
+        }
+        // reads flush whatever the background thread has not inserted yet
+        assertEquals(100, repository.loadMessage("session").size());
+        assertEquals(List.of("q49", "a49"), contents(repository.loadLastMessages("session", 2)));
+
+        // closing flushes the buffer, the rows are visible to another repository
+        repository.saveMessage("session", new HumanMessage("last"));
+        repository.close();
+        JdbcChatMessageRepository reader = createRepository(dataSource, false, MessageCodec.binary());
+        assertEquals(List.of("a49", "last"), contents(reader.loadLastMessages("session", 2)));
+        assertEquals(101, reader.loadMessage("session").size());
+    }
+
+    @Test
+    void testFailedFlushIsRetriedWithBackoff() throws InterruptedException {
+        DataSource dataSource = createDataSource();
+        JdbcChatMessageRepository repository =
+                writeBehindBuilder(dataSource).retryBackoff(Duration.ofMillis(50)).build().init();
+        JdbcChatMessageRepository reader = createRepository(dataSource, false, MessageCodec.json());
+
+        unavailable.set(true);
+        int before = connections.get();
+        repository.saveMessage("session", new HumanMessage("q"));
+        await(() -> connections.get() >= before + 2);
+        unavailable.set(false);
+
+        // no read or save triggers it, the background flush retries by itself
+        await(() -> reader.loadMessage("session").size() == 1);
+        repository.close();
+    }
+
+    @Test
+    void testMessagesAreDeadLetteredAfterMaxAttempts() throws InterruptedException {
+        Map<String, List<BaseMessage>> deadLetters = new ConcurrentHashMap<>();
+        JdbcChatMessageRepository repository = writeBehindBuilder(createDataSource())
+                .retryBackoff(Duration.ofMillis(10))
+                .maxAttempts(3)
+                .deadLetterHandler(deadLetters::put)
+                .build()
+                .init();
+
+        unavailable.set(true);
+        int before = connections.get();
+        repository.saveMessages("session", List.of(new HumanMessage("q"), new AIMessage("a")));
+        await(() -> deadLetters.containsKey("session"));
+        assertEquals(before + 3, connections.get());
+        assertEquals(List.of("q", "a"), contents(deadLetters.get("session")));
+
+        unavailable.set(false);
+        assertEquals(List.of(), repository.loadMessage("session"));
+        repository.close();
+    }
+
+    @Test
+    void testFullBufferInsertsOnTheCallerThread() throws InterruptedException {
+        DataSource dataSource = createDataSource();
+        JdbcChatMessageRepository repository = writeBehindBuilder(dataSource)
+                .retryBackoff(Duration.ofHours(1))
+                .maxBufferSize(2)
+                .build()
+                .init();
+
+        unavailable.set(true);
+        int before = connections.get();
+        repository.saveMessages("session", List.of(new HumanMessage("q"), new AIMessage("a")));
+        await(() -> connections.get() > before);
+        // the database is down and the buffer is full, the caller sees the failure
+        assertThrows(LangChainException.class, () -> repository.saveMessage("session", new HumanMessage("next")));
+
+        unavailable.set(false);
+        repository.saveMessage("session", new HumanMessage("next"));
+        JdbcChatMessageRepository reader = createRepository(dataSource, false, MessageCodec.json());
+        assertEquals(List.of("q", "a", "next"), contents(reader.loadMessage("session")));
+        repository.close();
+    }
+
+    @Test
+    void testReadFlushesOnlyItsSession() throws InterruptedException {
+        DataSource dataSource = createDataSource();
+        JdbcChatMessageRepository repository =
+                writeBehindBuilder(dataSource).retryBackoff(Duration.ofHours(1)).build().init();
+
+        // park the background flush on a long backoff, so only reads insert
+        unavailable.set(true);
+        int before = connections.get();
+        repository.saveMessage("other", new HumanMessage("foo"));
+        await(() -> connections.get() > before);
+        unavailable.set(false);
+        repository.saveMessage("session", new HumanMessage("q"));
+
+        assertEquals(List.of("q"), contents(repository.loadMessage("session")));
+        JdbcChatMessageRepository reader = createRepository(dataSource, false, MessageCodec.json());
+        assertEquals(List.of(), reader.loadMessage("other"));
+        assertEquals(List.of("foo"), contents(repository.loadMessage("other")));
+        repository.close();
+    }
+
+    @Test
+    void testSaveAfterCloseIsRejected() {
+        JdbcChatMessageRepository repository = writeBehindBuilder(createDataSource()).build().init();
+        repository.close();
+        var exception = assertThrows(IllegalStateException.class,
+                () -> repository.saveMessage("session", new HumanMessage("q")));
+        assertEquals("Cannot save chat messages, the write-behind repository is closed", exception.getMessage());
+    }
+}
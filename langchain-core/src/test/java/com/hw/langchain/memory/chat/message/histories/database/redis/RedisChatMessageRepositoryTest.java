@@ -0,0 +1,155 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.hw.langchain.memory.chat.message.histories.database.redis;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.hw.langchain.chains.query.constructor.JsonUtils;
+import com.hw.langchain.memory.buffer.ConversationBufferWindowMemory;
+import com.hw.langchain.schema.AIMessage;
+import com.hw.langchain.schema.BaseMessage;
+import com.hw.langchain.schema.HumanMessage;
+import com.hw.langchain.schema.codec.MessageCodec;
+
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mockito;
+import org.redisson.api.RBatch;
+import org.redisson.api.RList;
+import org.redisson.api.RListAsync;
+import org.redisson.api.RedissonClient;
+
+import java.time.Duration;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * @author HamaWhite
+ */
+class RedisChatMessageRepositoryTest {
+
+    private final RedissonClient redissonClient = Mockito.mock(RedissonClient.class);
+
+    @SuppressWarnings("unchecked")
+    private final RList<String> messageList = Mockito.mock(RList.class);
+
+    private final List<String> stored = IntStream.range(0, 10)
+            .mapToObj(i -> (BaseMessage) (i % 2 == 0 ? new HumanMessage("q" + i) : new AIMessage("a" + i)))
+            .map(message -> JsonUtils.toJsonStringWithIndent(message.toMap()))
+            .toList();
+
+    RedisChatMessageRepositoryTest() {
+        when(redissonClient.<String>getList("message_store" + "session")).thenReturn(messageList);
+        // emulate LRANGE, negative indexes count from the end and the stop index is inclusive
+        when(messageList.range(anyInt(), anyInt())).thenAnswer(invocation -> {
+            int start = invocation.<Integer>getArgument(0);
+            int stop = invocation.<Integer>getArgument(1);
+            int from = Math.max(0, start < 0 ? stored.size() + start : start);
+            int to = Math.min(stored.size() - 1, stop < 0 ? stored.size() + stop : stop);
+            return from > to ? List.of() : stored.subList(from, to + 1);
+        });
+    }
+
+    @Test
+    void testLoadLastMessagesUsesRange() {
+        var repository = RedisChatMessageRepository.builder()
+                .redissonClient(redissonClient)
+                .keyPrefix("message_store")
+                .build();
+
+        List<BaseMessage> messages = repository.loadLastMessages("session", 3);
+        assertEquals(List.of("a7", "q8", "a9"), messages.stream().map(BaseMessage::getContent).toList());
+        assertEquals(10, repository.loadLastMessages("session", 20).size());
+        assertEquals(List.of(), repository.loadLastMessages("session", 0));
+
+        assertEquals(List.of("q2", "a3"), repository.loadMessages("session", 2, 4).stream()
+                .map(BaseMessage::getContent).toList());
+        verify(redissonClient, never()).getQueue(Mockito.anyString());
+    }
+
+    @Test
+    void testWindowMemoryReadsOnlyTheWindow() {
+        var memory =
+                new ConversationBufferWindowMemory(2, true, new RedisChatMessageHistory("session", redissonClient));
+
+        List<?> history = (List<?>) memory.loadMemoryVariables(Map.of()).get("history");
+        assertEquals(List.of("q6", "a7", "q8", "a9"),
+                history.stream().map(m -> ((BaseMessage) m).getContent()).toList());
+        verify(messageList).range(-4, -1);
+        verify(messageList, never()).readAll();
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void testSaveContextWritesTurnInOneBatch() {
+        RBatch batch = Mockito.mock(RBatch.class);
+        RListAsync<String> batchList = Mockito.mock(RListAsync.class);
+        when(redissonClient.createBatch()).thenReturn(batch);
+        when(batch.<String>getList("message_store" + "session")).thenReturn(batchList);
+
+        var memory = new ConversationBufferWindowMemory(2, true,
+                new RedisChatMessageHistory("session", redissonClient, 60));
+        memory.saveContext(Map.of("input", "hi"), Map.of("output", "hello"));
+
+        ArgumentCaptor<Collection<String>> captor = ArgumentCaptor.forClass(Collection.class);
+        verify(batchList).addAllAsync(captor.capture());
+        verify(batchList).expireAsync(Duration.ofSeconds(60));
+        verify(batch).execute();
+        verify(redissonClient, never()).getQueue(Mockito.anyString());
+
+        List<String> encoded = List.copyOf(captor.getValue());
+        assertThat(encoded).hasSize(2).noneMatch(json -> json.contains("\n") || json.contains(" \""));
+        assertEquals(List.of(new HumanMessage("hi"), new AIMessage("hello")), encoded.stream()
+                .map(json -> BaseMessage.fromMap(JsonUtils.convertFromJsonStr(json, new TypeReference<>() {
+                }))).toList());
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void testBinaryCodecReadsLegacyJson() {
+        RBatch batch = Mockito.mock(RBatch.class);
+        RListAsync<Object> batchList = Mockito.mock(RListAsync.class);
+        when(redissonClient.createBatch()).thenReturn(batch);
+        when(batch.getList("session")).thenReturn(batchList);
+        var repository = RedisChatMessageRepository.builder()
+                .redissonClient(redissonClient)
+                .codec(MessageCodec.binary())
+                .build();
+
+        repository.saveMessage("session", new HumanMessage("hi"));
+        ArgumentCaptor<Collection<Object>> captor = ArgumentCaptor.forClass(Collection.class);
+        verify(batchList).addAllAsync(captor.capture());
+        byte[] encoded = (byte[]) captor.getValue().iterator().next();
+
+        // a list mixing a JSON message written before the codec change and a binary one
+        RList<Object> list = Mockito.mock(RList.class);
+        when(redissonClient.getList("session")).thenReturn(list);
+        when(list.range(-2, -1)).thenReturn(List.of(stored.get(0), encoded));
+        assertEquals(List.of(new HumanMessage("q0"), new HumanMessage("hi")),
+                repository.loadLastMessages("session", 2));
+    }
+}
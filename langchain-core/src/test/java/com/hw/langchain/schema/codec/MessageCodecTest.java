@@ -0,0 +1,107 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.hw.langchain.schema.codec;
+
+import com.hw.langchain.chains.query.constructor.JsonUtils;
+import com.hw.langchain.exception.LangChainException;
+import com.hw.langchain.schema.AIMessage;
+import com.hw.langchain.schema.BaseMessage;
+import com.hw.langchain.schema.ChatMessage;
+import com.hw.langchain.schema.FunctionMessage;
+import com.hw.langchain.schema.HumanMessage;
+import com.hw.langchain.schema.SystemMessage;
+
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/**
+ * @author HamaWhite
+ */
+class MessageCodecTest {
+
+    private static List<BaseMessage> messages() {
+        AIMessage aiMessage = new AIMessage("");
+        aiMessage.setAdditionalKwargs(Map.of("function_call", Map.of("name", "search", "arguments", "{\"q\": 1}")));
+
+        FunctionMessage functionMessage = new FunctionMessage();
+        functionMessage.setContent("sunny, 25°C");
+        functionMessage.setName("get_weather");
+        functionMessage.setAdditionalKwargs(Map.of("id", 7, "tags", List.of("a", "b")));
+
+        return List.of(new HumanMessage("hi"), aiMessage, new SystemMessage("be nice"),
+                new ChatMessage("hello", "assistant"), functionMessage, new HumanMessage(null));
+    }
+
+    @Test
+    void testRoundTrip() {
+        for (MessageCodec codec : List.of(MessageCodec.json(), MessageCodec.binary())) {
+            for (BaseMessage message : messages()) {
+                BaseMessage decoded = codec.decode(codec.encode(message));
+                assertEquals(message.getClass(), decoded.getClass());
+                assertEquals(message.toMap(), decoded.toMap());
+            }
+        }
+    }
+
+    @Test
+    void testJsonIsCompatibleWithToMap() {
+        JsonMessageCodec codec = JsonMessageCodec.INSTANCE;
+        for (BaseMessage message : messages()) {
+            // fields in another order, pretty-printed, with an unknown field
+            String legacy = JsonUtils.toJsonStringWithIndent(Map.of("data", message.toMap().get("data"),
+                    "extra", List.of(1, 2), "type", message.type()));
+            assertEquals(message.toMap(), codec.decode(legacy).toMap());
+
+            String json = codec.encodeToString(message);
+            assertThat(json).doesNotContain("\n");
+            assertEquals(message.toMap(),
+                    BaseMessage.fromMap(JsonUtils.convertFromJsonStr(json, JsonMessageCodec.MAP_TYPE)).toMap());
+        }
+    }
+
+    @Test
+    void testBinaryIsVersionedAndCompact() {
+        BaseMessage message = new HumanMessage("hi");
+        byte[] bytes = BinaryMessageCodec.INSTANCE.encode(message);
+        assertEquals(BinaryMessageCodec.VERSION, bytes[0]);
+        assertThat(bytes.length).isLessThan(JsonMessageCodec.INSTANCE.encode(message).length);
+
+        byte[] future = bytes.clone();
+        future[0] = 2;
+        assertThrows(LangChainException.class, () -> BinaryMessageCodec.INSTANCE.decode(future));
+
+        byte[] truncated = Arrays.copyOf(bytes, bytes.length - 1);
+        assertThrows(LangChainException.class, () -> BinaryMessageCodec.INSTANCE.decode(truncated));
+    }
+
+    @Test
+    void testUnknownType() {
+        byte[] json = "{\"type\": \"tool\", \"data\": {\"content\": \"x\"}}".getBytes(StandardCharsets.UTF_8);
+        assertThrows(LangChainException.class, () -> JsonMessageCodec.INSTANCE.decode(json));
+        assertThrows(LangChainException.class, () -> JsonMessageCodec.INSTANCE.decode("{\"data\": {}}"));
+    }
+}
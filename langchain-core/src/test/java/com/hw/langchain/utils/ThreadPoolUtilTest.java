@@ -0,0 +1,76 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.hw.langchain.utils;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * @author HamaWhite
+ */
+class ThreadPoolUtilTest {
+
+    private static void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    @Test
+    void testMapConcurrentlyIsLimitedOnTheSharedPool() {
+        AtomicInteger inFlight = new AtomicInteger();
+        AtomicInteger maxInFlight = new AtomicInteger();
+        Set<String> threads = ConcurrentHashMap.newKeySet();
+        List<Integer> items = IntStream.range(0, 20).boxed().toList();
+
+        for (int round = 0; round < 3; round++) {
+            List<Integer> results = ThreadPoolUtil.mapConcurrently(items, 4, item -> {
+                maxInFlight.accumulateAndGet(inFlight.incrementAndGet(), Math::max);
+                threads.add(Thread.currentThread().getName());
+                sleep(10);
+                inFlight.decrementAndGet();
+                return item * 2;
+            });
+            assertEquals(items.stream().map(item -> item * 2).toList(), results);
+        }
+        assertEquals(4, maxInFlight.get());
+        assertThat(threads).allMatch(name -> name.startsWith("langchain-worker-"));
+    }
+
+    @Test
+    void testNestedBatchesBeyondThePoolSizeComplete() {
+        // 16 outer items each running 16 inner ones need more threads than the shared pool has
+        List<Integer> results = ThreadPoolUtil.mapConcurrently(IntStream.range(0, 16).boxed().toList(), 16,
+                outer -> ThreadPoolUtil.mapConcurrently(IntStream.range(0, 16).boxed().toList(), 16, inner -> {
+                    sleep(5);
+                    return 1;
+                }).stream().mapToInt(Integer::intValue).sum());
+        assertThat(results).hasSize(16).containsOnly(16);
+    }
+}
@@ -0,0 +1,180 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.hw.langchain.vectorstores.hnsw;
+
+import com.hw.langchain.embeddings.base.Embeddings;
+import com.hw.langchain.schema.Document;
+import com.hw.langchain.vectorstores.fake.embeddings.FakeEmbeddings;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.*;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.IntStream;
+
+import static com.hw.langchain.vectorstores.fake.embeddings.FakeEmbeddings.FAKE_TEXTS;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * @author HamaWhite
+ */
+class HnswVectorStoreTest {
+
+    private HnswVectorStore hnswFromTexts(List<Map<String, Object>> metadatas) {
+        Embeddings embedding = new FakeEmbeddings();
+        HnswVectorStore hnsw = HnswVectorStore.builder()
+                .embeddingFunction(embedding)
+                .build()
+                .init();
+        hnsw.fromTexts(FAKE_TEXTS, embedding, metadatas);
+        return hnsw;
+    }
+
+    @Test
+    void testSimilaritySearch() {
+        HnswVectorStore docSearch = hnswFromTexts(null);
+        List<Document> output = docSearch.similaritySearch("foo", 1, Map.of());
+        assertEquals(List.of(new Document("foo")), output);
+    }
+
+    @Test
+    void testSimilaritySearchWithFilter() {
+        List<Map<String, Object>> metadatas = List.of(Map.of("page", 0), Map.of("page", 1), Map.of("page", 2));
+        HnswVectorStore docSearch = hnswFromTexts(metadatas);
+        List<Document> output = docSearch.similaritySearch("foo", 1, Map.of("page", 2));
+        assertEquals(List.of(new Document("baz", Map.of("page", 2))), output);
+    }
+
+    @Test
+    void testDelete() {
+        Embeddings embedding = new FakeEmbeddings();
+        HnswVectorStore docSearch = HnswVectorStore.builder()
+                .embeddingFunction(embedding)
+                .build()
+                .init();
+        List<String> ids = docSearch.addTexts(FAKE_TEXTS, null);
+        docSearch.delete(ids.subList(0, 1));
+
+        assertEquals(2, docSearch.size());
+        assertEquals(List.of(new Document("bar")), docSearch.similaritySearch("foo", 1, null));
+    }
+
+    @Test
+    void testRelevanceScores() {
+        HnswVectorStore docSearch = hnswFromTexts(null);
+        var output = docSearch.similaritySearchWithRelevanceScores("foo", 3);
+        assertThat(output).hasSize(3);
+        assertEquals(new Document("foo"), output.get(0).getLeft());
+        assertEquals(1.0f, output.get(0).getRight(), 1e-6);
+        assertThat(output).allSatisfy(pair -> assertThat(pair.getRight()).isBetween(0.0f, 1.0001f));
+    }
+
+    @Test
+    void testMaxMarginalRelevanceSearch() {
+        HnswVectorStore docSearch = hnswFromTexts(null);
+        List<Document> output = docSearch.maxMarginalRelevanceSearch("foo", 2, 3, 0.5f);
+        assertThat(output).hasSize(2);
+        assertEquals(new Document("foo"), output.get(0));
+    }
+
+    @Test
+    void testRecallWithConcurrentInserts() throws InterruptedException {
+        int dim = 32;
+        int count = 2000;
+        Random random = new Random(42);
+        float[][] vectors = new float[count][dim];
+        for (float[] vector : vectors) {
+            for (int j = 0; j < dim; j++) {
+                vector[j] = random.nextFloat() * 2 - 1;
+            }
+        }
+
+        HnswIndex<Integer> index = new HnswIndex<>(16, 100);
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        IntStream.range(0, count).forEach(i -> executor.execute(() -> index.add(vectors[i], i)));
+        executor.shutdown();
+        assertThat(executor.awaitTermination(1, TimeUnit.MINUTES)).isTrue();
+        assertEquals(count, index.size());
+
+        int k = 10;
+        int hits = 0;
+        int queries = 50;
+        for (int q = 0; q < queries; q++) {
+            float[] query = vectors[random.nextInt(count)];
+            Set<Integer> expected = bruteForce(vectors, query, k);
+            for (var result : index.search(query, k, 64, null)) {
+                if (expected.contains(result.item())) {
+                    hits++;
+                }
+            }
+        }
+        assertThat((double) hits / (queries * k)).isGreaterThan(0.9);
+    }
+
+    @Test
+    void testSelectiveFilterDoesNotWalkTheWholeGraph() {
+        int dim = 32;
+        int count = 5000;
+        Random random = new Random(42);
+        HnswIndex<Integer> index = new HnswIndex<>(16, 100);
+        float[][] vectors = new float[count][dim];
+        for (int i = 0; i < count; i++) {
+            for (int j = 0; j < dim; j++) {
+                vectors[i][j] = random.nextFloat() * 2 - 1;
+            }
+            index.add(vectors[i], i);
+        }
+        // tombstones do not widen the search either
+        IntStream.range(0, count / 2).forEach(i -> index.markDeleted(i * 2 + 1));
+
+        // the filter is tested once per live node visited on the bottom layer, a walk of the graph tests all 2500
+        AtomicInteger evaluations = new AtomicInteger();
+        var results = index.search(vectors[100], 10, 64, item -> {
+            evaluations.incrementAndGet();
+            return item % 100 == 0;
+        });
+        assertThat(evaluations.get()).isLessThan(count / 5);
+        assertThat(results).isNotEmpty().allMatch(result -> result.item() % 100 == 0);
+        assertEquals(100, results.get(0).item());
+    }
+
+    private static Set<Integer> bruteForce(float[][] vectors, float[] query, int k) {
+        return IntStream.range(0, vectors.length)
+                .boxed()
+                .sorted(Comparator.comparingDouble(i -> -cosine(vectors[i], query)))
+                .limit(k)
+                .collect(HashSet::new, Set::add, Set::addAll);
+    }
+
+    private static double cosine(float[] x, float[] y) {
+        double dot = 0;
+        double normX = 0;
+        double normY = 0;
+        for (int i = 0; i < x.length; i++) {
+            dot += x[i] * y[i];
+            normX += x[i] * x[i];
+            normY += y[i] * y[i];
+        }
+        return dot / Math.sqrt(normX * normY);
+    }
+}
@@ -0,0 +1,122 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.hw.langchain.vectorstores.milvus;
+
+import com.google.common.collect.ConcurrentHashMultiset;
+import com.google.common.collect.Multiset;
+import com.google.common.util.concurrent.Futures;
+import com.hw.langchain.vectorstores.fake.embeddings.FakeEmbeddings;
+
+import org.junit.jupiter.api.Test;
+
+import io.milvus.client.MilvusClient;
+import io.milvus.grpc.*;
+import io.milvus.param.R;
+import io.milvus.param.dml.InsertParam;
+
+import java.lang.reflect.Proxy;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.IntStream;
+import java.util.stream.LongStream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Ingestion against an in-process {@link MilvusClient} counting the calls it receives.
+ *
+ * @author HamaWhite
+ */
+class MilvusIngestTest {
+
+    private final Multiset<String> calls = ConcurrentHashMultiset.create();
+
+    private final AtomicBoolean collectionExists = new AtomicBoolean();
+
+    private final AtomicBoolean indexExists = new AtomicBoolean();
+
+    private final AtomicLong nextId = new AtomicLong();
+
+    private Object invoke(String method, Object[] args) {
+        calls.add(method);
+        return switch (method) {
+            case "hasCollection" -> R.success(collectionExists.get());
+            case "createCollection" -> {
+                collectionExists.set(true);
+                yield R.success();
+            }
+            case "describeCollection" -> R.success(DescribeCollectionResponse.newBuilder()
+                    .setSchema(CollectionSchema.newBuilder()
+                            .addFields(FieldSchema.newBuilder().setName("pk"))
+                            .addFields(FieldSchema.newBuilder().setName("text"))
+                            .addFields(FieldSchema.newBuilder().setName("vector")))
+                    .build());
+            case "describeIndex" -> indexExists.get() ? R.success(DescribeIndexResponse.newBuilder()
+                    .addIndexDescriptions(IndexDescription.newBuilder()
+                            .setFieldName("vector")
+                            .addParams(KeyValuePair.newBuilder().setKey("index_type").setValue("HNSW"))
+                            .addParams(KeyValuePair.newBuilder().setKey("metric_type").setValue("L2")))
+                    .build()) : R.success();
+            case "createIndex" -> {
+                indexExists.set(true);
+                yield R.success();
+            }
+            case "insertAsync" -> {
+                int rows = ((InsertParam) args[0]).getRowCount();
+                LongArray ids = LongArray.newBuilder()
+                        .addAllData(LongStream.range(0, rows).map(i -> nextId.getAndIncrement()).boxed().toList())
+                        .build();
+                yield Futures.immediateFuture(R.success(MutationResult.newBuilder()
+                        .setIDs(IDs.newBuilder().setIntId(ids))
+                        .build()));
+            }
+            default -> R.success();
+        };
+    }
+
+    private Milvus createMilvus() {
+        MilvusClient client = (MilvusClient) Proxy.newProxyInstance(MilvusClient.class.getClassLoader(),
+                new Class<?>[]{MilvusClient.class}, (proxy, method, args) -> invoke(method.getName(), args));
+        return Milvus.builder()
+                .embeddingFunction(new FakeEmbeddings())
+                .milvusClient(client)
+                .batchSize(2)
+                .build()
+                .init();
+    }
+
+    @Test
+    void testCollectionIsInitializedOnce() {
+        Milvus milvus = createMilvus();
+        List<String> ids = IntStream.range(0, 3)
+                .mapToObj(i -> milvus.addTexts(List.of("foo" + i, "bar" + i, "baz" + i), null))
+                .flatMap(List::stream)
+                .toList();
+
+        assertEquals(IntStream.range(0, 9).mapToObj(String::valueOf).toList(), ids);
+        assertEquals(1, calls.count("createCollection"));
+        assertEquals(1, calls.count("describeCollection"));
+        assertEquals(1, calls.count("createIndex"));
+        assertEquals(1, calls.count("loadCollection"));
+        // two batches per call, and a single flush after them
+        assertEquals(6, calls.count("insertAsync"));
+        assertEquals(3, calls.count("flush"));
+    }
+}
@@ -0,0 +1,144 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.hw.langchain.vectorstores.mmap;
+
+import com.hw.langchain.embeddings.base.Embeddings;
+import com.hw.langchain.schema.Document;
+import com.hw.langchain.vectorstores.fake.embeddings.FakeEmbeddings;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.util.*;
+import java.util.stream.IntStream;
+
+import static com.hw.langchain.vectorstores.fake.embeddings.FakeEmbeddings.FAKE_TEXTS;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/**
+ * @author HamaWhite
+ */
+class MappedVectorStoreTest {
+
+    @TempDir
+    Path tempDir;
+
+    private MappedVectorStore openStore(Embeddings embedding) {
+        return MappedVectorStore.builder()
+                .embeddingFunction(embedding)
+                .path(tempDir.toString())
+                .build()
+                .init();
+    }
+
+    @Test
+    void testSimilaritySearch() {
+        Embeddings embedding = new FakeEmbeddings();
+        try (MappedVectorStore docSearch = openStore(embedding)) {
+            docSearch.fromTexts(FAKE_TEXTS, embedding, List.of(Map.of("page", 0), Map.of("page", 1),
+                    Map.of("page", 2)));
+
+            assertEquals(List.of(new Document("foo", Map.of("page", 0))),
+                    docSearch.similaritySearch("foo", 1, null));
+            assertEquals(List.of(new Document("baz", Map.of("page", 2))),
+                    docSearch.similaritySearch("foo", 1, Map.of("page", 2)));
+        }
+    }
+
+    @Test
+    void testReopenWithoutReEmbedding() {
+        Embeddings embedding = new FakeEmbeddings();
+        try (MappedVectorStore docSearch = openStore(embedding)) {
+            List<String> ids = docSearch.addTexts(FAKE_TEXTS, null);
+            docSearch.delete(ids.subList(0, 1));
+        }
+
+        try (MappedVectorStore docSearch = openStore(embedding)) {
+            assertEquals(3, docSearch.size());
+            assertEquals(List.of(new Document("bar")), docSearch.similaritySearch("foo", 1, null));
+
+            docSearch.addTexts(List.of("qux"), null);
+            assertEquals(4, docSearch.size());
+            assertThat(docSearch.similaritySearch("foo", 4, null)).hasSize(3);
+        }
+    }
+
+    @Test
+    void testDeleteUnknownIds() {
+        try (MappedVectorStore docSearch = openStore(new FakeEmbeddings())) {
+            List<String> ids = docSearch.addTexts(FAKE_TEXTS, null);
+
+            var exception = assertThrows(IllegalArgumentException.class, () -> docSearch.delete(List.of("doc-1")));
+            assertEquals("Unknown id: doc-1", exception.getMessage());
+            assertThrows(IllegalArgumentException.class, () -> docSearch.delete(List.of(ids.get(0), "3")));
+            assertThrows(IllegalArgumentException.class, () -> docSearch.delete(List.of("-1")));
+            // nothing is deleted when an id is invalid
+            assertEquals(List.of(new Document("foo")), docSearch.similaritySearch("foo", 1, null));
+        }
+    }
+
+    @Test
+    void testMaxMarginalRelevanceSearch() {
+        Embeddings embedding = new FakeEmbeddings();
+        try (MappedVectorStore docSearch = openStore(embedding)) {
+            docSearch.fromDocuments(FAKE_TEXTS.stream().map(Document::new).toList(), embedding);
+            List<Document> output = docSearch.maxMarginalRelevanceSearch("foo", 2, 3, 0.5f);
+            assertThat(output).hasSize(2);
+            assertEquals(new Document("foo"), output.get(0));
+        }
+    }
+
+    @Test
+    void testIvfRecall() {
+        int dim = 16;
+        int count = 4000;
+        Random random = new Random(7);
+        List<float[]> vectors = IntStream.range(0, count).mapToObj(i -> {
+            float[] vector = new float[dim];
+            for (int j = 0; j < dim; j++) {
+                vector[j] = (float) random.nextGaussian();
+            }
+            return vector;
+        }).toList();
+        List<Document> docs = IntStream.range(0, count).mapToObj(i -> new Document(String.valueOf(i))).toList();
+
+        try (MappedVectorFile file = MappedVectorFile.open(tempDir)) {
+            file.append(vectors, docs);
+            float[] query = vectors.get(123);
+            Set<Integer> exact = new HashSet<>();
+            file.search(query, 10, 1).forEach(hit -> exact.add(hit.row()));
+            assertThat(exact).contains(123);
+
+            file.buildIvf(64, 10);
+            List<MappedVectorFile.Hit> approximate = file.search(query, 10, 16);
+            assertEquals(123, approximate.get(0).row());
+            long overlap = approximate.stream().filter(hit -> exact.contains(hit.row())).count();
+            assertThat(overlap).isGreaterThanOrEqualTo(7);
+        }
+
+        try (MappedVectorFile reopened = MappedVectorFile.open(tempDir)) {
+            assertEquals(count, reopened.size());
+            assertEquals(123, reopened.search(vectors.get(123), 1, 16).get(0).row());
+            assertEquals(new Document("123"), reopened.document(123));
+        }
+    }
+}
@@ -0,0 +1,161 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.hw.langchain.vectorstores.pinecone;
+
+import com.hw.langchain.exception.LangChainException;
+import com.hw.langchain.vectorstores.fake.embeddings.FakeEmbeddings;
+import com.hw.pinecone.IndexClient;
+import com.hw.pinecone.entity.vector.UpsertRequest;
+import com.hw.pinecone.entity.vector.UpsertResponse;
+import com.hw.pinecone.entity.vector.Vector;
+import com.hw.pinecone.service.VectorService;
+
+import org.junit.jupiter.api.Test;
+
+import io.reactivex.Single;
+
+import java.lang.reflect.Proxy;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/**
+ * Ingestion against an in-process {@link VectorService} whose upserts take 50 ms.
+ *
+ * @author HamaWhite
+ */
+class PineconeIngestTest {
+
+    private final List<Vector> upserted = new CopyOnWriteArrayList<>();
+
+    private final AtomicInteger inFlight = new AtomicInteger();
+
+    private final AtomicInteger maxInFlight = new AtomicInteger();
+
+    private final List<IngestProgress> progress = new CopyOnWriteArrayList<>();
+
+    private Pinecone createPinecone(boolean failing) {
+        VectorService service = (VectorService) Proxy.newProxyInstance(VectorService.class.getClassLoader(),
+                new Class<?>[]{VectorService.class}, (proxy, method, args) -> {
+                    UpsertRequest request = (UpsertRequest) args[0];
+                    return Single.fromCallable(() -> upsert(request, failing));
+                });
+        return Pinecone.builder()
+                .index(new IndexClient(service))
+                .indexName("test")
+                .batchSize(2)
+                .maxInFlightBatches(3)
+                .progressListener(progress::add)
+                .build();
+    }
+
+    private UpsertResponse upsert(UpsertRequest request, boolean failing) throws InterruptedException {
+        maxInFlight.accumulateAndGet(inFlight.incrementAndGet(), Math::max);
+        try {
+            Thread.sleep(50);
+            if (failing) {
+                throw new IllegalStateException("upsert failed");
+            }
+            upserted.addAll(request.getVectors());
+            UpsertResponse response = new UpsertResponse();
+            response.setUpsertedCount(request.getVectors().size());
+            return response;
+        } finally {
+            inFlight.decrementAndGet();
+        }
+    }
+
+    /**
+     * Embeddings failing on the batch containing the text "fail".
+     */
+    private static FakeEmbeddings failingEmbeddings() {
+        return new FakeEmbeddings() {
+
+            @Override
+            public List<List<Float>> embedDocuments(List<String> texts) {
+                if (texts.contains("fail")) {
+                    throw new IllegalArgumentException("embedding failed");
+                }
+                return super.embedDocuments(texts);
+            }
+        };
+    }
+
+    @Test
+    void testFromTextsPipelinesUpserts() {
+        List<String> texts = IntStream.range(0, 11).mapToObj(i -> "text" + i).toList();
+        int count = createPinecone(false).fromTexts(texts, new FakeEmbeddings(), null);
+
+        assertEquals(11, count);
+        assertEquals(11, upserted.size());
+        assertThat(maxInFlight.get()).isBetween(2, 3);
+        assertEquals(6, progress.size());
+        IngestProgress last = progress.stream().filter(p -> p.completedBatches() == 6).findFirst().orElseThrow();
+        assertEquals(11, last.upsertedCount());
+        assertEquals(6, last.totalBatches());
+    }
+
+    @Test
+    void testAddTextsReturnsUpsertedIds() {
+        Pinecone pinecone = createPinecone(false);
+        pinecone.fromTexts(List.of("foo"), new FakeEmbeddings(), null);
+        upserted.clear();
+
+        Map<String, Object> metadata = Map.of("page", 1);
+        List<String> ids = pinecone.addTexts(List.of("bar", "baz", "qux"), List.of(metadata, metadata, metadata));
+
+        assertThat(upserted).extracting(Vector::getId).containsExactlyInAnyOrderElementsOf(ids);
+        assertEquals(Map.of("page", 1, "text", "bar"), upserted.stream()
+                .filter(v -> v.getId().equals(ids.get(0))).findFirst().orElseThrow().getMetadata());
+    }
+
+    @Test
+    void testUpsertFailure() {
+        Pinecone pinecone = createPinecone(true);
+        List<String> texts = List.of("foo", "bar", "baz");
+        var embeddings = new FakeEmbeddings();
+        assertThrows(LangChainException.class, () -> pinecone.fromTexts(texts, embeddings, null));
+    }
+
+    @Test
+    void testEmbeddingFailureAwaitsUpserts() {
+        Pinecone pinecone = createPinecone(true);
+        List<String> texts = List.of("foo", "bar", "baz", "fail");
+        var e = assertThrows(IllegalArgumentException.class,
+                () -> pinecone.fromTexts(texts, failingEmbeddings(), null));
+        assertEquals(0, inFlight.get());
+        assertThat(e.getSuppressed()).extracting(Throwable::getMessage).containsExactly("upsert failed");
+    }
+
+    @Test
+    void testNoProgressAfterEmbeddingFailure() {
+        Pinecone pinecone = createPinecone(false);
+        List<String> texts = List.of("foo", "bar", "baz", "fail");
+        assertThrows(IllegalArgumentException.class, () -> pinecone.fromTexts(texts, failingEmbeddings(), null));
+        assertEquals(0, inFlight.get());
+        assertEquals(2, upserted.size());
+        assertThat(progress).isEmpty();
+    }
+}
@@ -0,0 +1,69 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.hw.langchain.vectorstores.utils;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static com.hw.langchain.vectorstores.utils.Utils.maximalMarginalRelevance;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * @author HamaWhite
+ */
+class UtilsTest {
+
+    @Test
+    void testMaximalMarginalRelevanceLambdaZero() {
+        float[] queryEmbedding = {0.3f, 0.5f, 0.1f, 0.9f, 0.2f};
+        float[][] embeddingList = {queryEmbedding, queryEmbedding, new float[5]};
+        assertEquals(List.of(0, 2), maximalMarginalRelevance(queryEmbedding, embeddingList, 2, 0));
+    }
+
+    @Test
+    void testMaximalMarginalRelevanceLambdaOne() {
+        float[] queryEmbedding = {0.3f, 0.5f, 0.1f, 0.9f, 0.2f};
+        float[][] embeddingList = {queryEmbedding, queryEmbedding, new float[5]};
+        assertEquals(List.of(0, 1), maximalMarginalRelevance(queryEmbedding, embeddingList, 2, 1));
+    }
+
+    /**
+     * Vectors that are 30, 45 and 75 degrees from query vector (cosine similarity of 0.87, 0.71, 0.26) and the latter
+     * two are 15 and 60 degree from the first (cosine similarity 0.97 and 0.71). So for 3rd vector be chosen, must be
+     * case that 0.71lambda - 0.97(1 - lambda) < 0.26lambda - 0.71(1-lambda), so lambda ~< .26 / .71
+     */
+    @Test
+    void testMaximalMarginalRelevance() {
+        float[] queryEmbedding = {1, 0};
+        float sqrt3 = (float) Math.sqrt(3);
+        float[][] embeddingList = {{sqrt3, 1}, {1, 1}, {1, 2 + sqrt3}};
+
+        assertEquals(List.of(0, 2), maximalMarginalRelevance(queryEmbedding, embeddingList, 2, 25f / 71));
+        assertEquals(List.of(0, 1), maximalMarginalRelevance(queryEmbedding, embeddingList, 2, 27f / 71));
+    }
+
+    @Test
+    void testMaximalMarginalRelevanceKLargerThanCandidates() {
+        float[] queryEmbedding = {1, 0};
+        float[][] embeddingList = {{0, 1}, {1, 0}};
+        assertEquals(List.of(1, 0), maximalMarginalRelevance(queryEmbedding, embeddingList, 5, 0.5f));
+        assertEquals(List.of(), maximalMarginalRelevance(queryEmbedding, new float[0][], 5, 0.5f));
+    }
+}
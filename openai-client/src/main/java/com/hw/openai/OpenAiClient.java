@@ -20,6 +20,9 @@ package com.hw.openai;
 
 import com.fasterxml.jackson.databind.DeserializationFeature;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.hw.http.HttpTransports;
+import com.hw.http.TransportProfile;
 import com.hw.openai.common.OpenAiError;
 import com.hw.openai.common.OpenaiApiType;
 import com.hw.openai.entity.chat.ChatCompletion;
@@ -35,18 +38,21 @@ import com.hw.openai.entity.image.ImageResp;
 import com.hw.openai.entity.models.Model;
 import com.hw.openai.entity.models.ModelResp;
 import com.hw.openai.exception.OpenAiException;
+import com.hw.openai.ratelimit.OpenAiRateLimiter;
 import com.hw.openai.service.OpenAiService;
-import com.hw.openai.stream.ResponseBodyCallback;
+import com.hw.openai.service.StreamingJacksonConverterFactory;
 import com.hw.openai.stream.SSE;
+import com.hw.openai.stream.SseFlowable;
+import com.hw.openai.stream.StreamStats;
 import com.hw.openai.utils.ProxyUtils;
 
 import org.apache.commons.lang3.StringUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import io.reactivex.BackpressureStrategy;
 import io.reactivex.Flowable;
 import io.reactivex.Single;
+import io.reactivex.disposables.Disposable;
 import lombok.Builder;
 import lombok.Data;
 import okhttp3.Interceptor;
@@ -58,13 +64,17 @@ import retrofit2.Call;
 import retrofit2.HttpException;
 import retrofit2.Retrofit;
 import retrofit2.adapter.rxjava2.RxJava2CallAdapterFactory;
-import retrofit2.converter.jackson.JacksonConverterFactory;
 
 import java.io.Closeable;
 import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.UncheckedIOException;
 import java.util.EnumSet;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Consumer;
 
 import static java.util.Objects.requireNonNull;
 
@@ -110,8 +120,34 @@ public class OpenAiClient implements Closeable {
 
     private List<Interceptor> interceptorList;
 
+    /**
+     * Connection pool and dispatcher settings, shared with every client of an equal profile.
+     */
+    @Builder.Default
+    private TransportProfile transportProfile = TransportProfile.DEFAULT;
+
+    /**
+     * Paces the requests within the quota, share one instance among the clients calling with the same quota.
+     * Requests are not limited when it is null.
+     */
+    private OpenAiRateLimiter rateLimiter;
+
+    /**
+     * Receives the timings of every stream, such as the time to the first token, may be null.
+     */
+    private Consumer<StreamStats> streamStatsListener;
+
+    /**
+     * Runs the blocking calls on the calling thread, so they are not capped by the dispatcher of the transport.
+     */
     private OpenAiService service;
 
+    /**
+     * Runs the {@code *Async} calls on the dispatcher of the transport, at most
+     * {@link TransportProfile#getMaxRequestsPerHost()} at a time per host.
+     */
+    private OpenAiService asyncService;
+
     private OkHttpClient httpClient;
 
     private ObjectMapper objectMapper;
@@ -125,7 +161,7 @@ public class OpenAiClient implements Closeable {
         initializeOpenaiApiBase();
         openaiProxy = getOrEnvOrDefault(openaiProxy, "OPENAI_PROXY");
 
-        OkHttpClient.Builder httpClientBuilder = new OkHttpClient.Builder()
+        OkHttpClient.Builder httpClientBuilder = HttpTransports.get(transportProfile).newBuilder()
                 .connectTimeout(requestTimeout, TimeUnit.SECONDS)
                 .readTimeout(requestTimeout, TimeUnit.SECONDS)
                 .writeTimeout(requestTimeout, TimeUnit.SECONDS)
@@ -147,6 +183,9 @@ public class OpenAiClient implements Closeable {
             Request request = requestBuilder.build();
             return chain.proceed(request);
         });
+        if (rateLimiter != null) {
+            httpClientBuilder.addInterceptor(rateLimiter);
+        }
 
         // Add HttpLogging interceptor
         HttpLoggingInterceptor loggingInterceptor = new HttpLoggingInterceptor(LOG::debug);
@@ -166,15 +205,19 @@ public class OpenAiClient implements Closeable {
         if (objectMapper == null) {
             objectMapper = defaultObjectMapper();
         }
+        this.service = createService(RxJava2CallAdapterFactory.create());
+        this.asyncService = createService(RxJava2CallAdapterFactory.createAsync());
+        return this;
+    }
+
+    private OpenAiService createService(RxJava2CallAdapterFactory callAdapterFactory) {
         Retrofit retrofit = new Retrofit.Builder()
                 .baseUrl(openaiApiBase)
-                .addCallAdapterFactory(RxJava2CallAdapterFactory.create())
-                .addConverterFactory(JacksonConverterFactory.create(objectMapper))
+                .addCallAdapterFactory(callAdapterFactory)
+                .addConverterFactory(StreamingJacksonConverterFactory.create(objectMapper))
                 .client(httpClient)
                 .build();
-
-        this.service = retrofit.create(OpenAiService.class);
-        return this;
+        return retrofit.create(OpenAiService.class);
     }
 
     private void initializeOpenaiApiBase() {
@@ -253,8 +296,22 @@ public class OpenAiClient implements Closeable {
      */
     public CompletionResp createCompletion(Completion completion) {
         return isAzureApiType()
-                ? execute(service.createCompletion(completion.getModel(), openaiApiVersion, completion))
-                : execute(service.createCompletion(completion));
+                ? execute(service.createCompletion(completion.getModel(), openaiApiVersion, completion), completion)
+                : execute(service.createCompletion(completion), completion);
+    }
+
+    /**
+     * Creates a completion for the provided prompt and parameters without blocking the calling thread.
+     *
+     * @param completion the completion object containing the prompt and parameters
+     * @return a future of the completion response, completed exceptionally with an {@link OpenAiException} when
+     * the request fails with an OpenAI error
+     */
+    public CompletableFuture<CompletionResp> createCompletionAsync(Completion completion) {
+        return isAzureApiType()
+                ? executeAsync(asyncService.createCompletion(completion.getModel(), openaiApiVersion, completion),
+                        completion)
+                : executeAsync(asyncService.createCompletion(completion), completion);
     }
 
     /**
@@ -265,7 +322,7 @@ public class OpenAiClient implements Closeable {
      */
     public Flowable<CompletionChunk> streamCompletion(Completion completion) {
         completion.setStream(true);
-        return stream(service.streamCompletion(completion), CompletionChunk.class);
+        return stream(service.streamCompletion(completion), CompletionChunk.class, completion);
     }
 
     /**
@@ -288,8 +345,23 @@ public class OpenAiClient implements Closeable {
      */
     public ChatCompletionResp createChatCompletion(ChatCompletion chatCompletion) {
         return isAzureApiType()
-                ? execute(service.createChatCompletion(chatCompletion.getModel(), openaiApiVersion, chatCompletion))
-                : execute(service.createChatCompletion(chatCompletion));
+                ? execute(service.createChatCompletion(chatCompletion.getModel(), openaiApiVersion, chatCompletion),
+                        chatCompletion)
+                : execute(service.createChatCompletion(chatCompletion), chatCompletion);
+    }
+
+    /**
+     * Creates a model response for the given chat conversation without blocking the calling thread.
+     *
+     * @param chatCompletion the chat completion object containing the conversation
+     * @return a future of the chat completion response, completed exceptionally with an {@link OpenAiException}
+     * when the request fails with an OpenAI error
+     */
+    public CompletableFuture<ChatCompletionResp> createChatCompletionAsync(ChatCompletion chatCompletion) {
+        return isAzureApiType()
+                ? executeAsync(asyncService.createChatCompletion(chatCompletion.getModel(), openaiApiVersion,
+                        chatCompletion), chatCompletion)
+                : executeAsync(asyncService.createChatCompletion(chatCompletion), chatCompletion);
     }
 
     /**
@@ -300,7 +372,7 @@ public class OpenAiClient implements Closeable {
      */
     public Flowable<ChatCompletionChunk> streamChatCompletion(ChatCompletion chatCompletion) {
         chatCompletion.setStream(true);
-        return stream(service.streamChatCompletion(chatCompletion), ChatCompletionChunk.class);
+        return stream(service.streamChatCompletion(chatCompletion), ChatCompletionChunk.class, chatCompletion);
     }
 
     /**
@@ -311,8 +383,22 @@ public class OpenAiClient implements Closeable {
      */
     public EmbeddingResp createEmbedding(Embedding embedding) {
         return isAzureApiType()
-                ? execute(service.createEmbedding(embedding.getModel(), openaiApiVersion, embedding))
-                : execute(service.createEmbedding(embedding));
+                ? execute(service.createEmbedding(embedding.getModel(), openaiApiVersion, embedding), embedding)
+                : execute(service.createEmbedding(embedding), embedding);
+    }
+
+    /**
+     * Creates an embedding vector representing the input text without blocking the calling thread.
+     *
+     * @param embedding The Embedding object containing the input text.
+     * @return a future of the embedding vector response, completed exceptionally with an {@link OpenAiException}
+     * when the request fails with an OpenAI error
+     */
+    public CompletableFuture<EmbeddingResp> createEmbeddingAsync(Embedding embedding) {
+        return isAzureApiType()
+                ? executeAsync(asyncService.createEmbedding(embedding.getModel(), openaiApiVersion, embedding),
+                        embedding)
+                : executeAsync(asyncService.createEmbedding(embedding), embedding);
     }
 
     /**
@@ -322,7 +408,7 @@ public class OpenAiClient implements Closeable {
      * @return the image result response
      */
     public ImageResp createImage(CreateImageReq request) {
-        return execute(service.createImage(request));
+        return execute(service.createImage(request), request);
     }
 
     /**
@@ -335,34 +421,33 @@ public class OpenAiClient implements Closeable {
     }
 
     /**
-     * Calls the Open AI api and returns a Flowable of SSE for streaming omitting the last message.
-     *
-     * @param apiCall The api call
-     */
-    private Flowable<SSE> stream(Call<ResponseBody> apiCall) {
-        return stream(apiCall, false);
-    }
-
-    /**
-     * Calls the Open AI api and returns a Flowable of SSE for streaming.
+     * Calls the Open AI api and returns a Flowable of SSE for streaming. The response is read as the subscriber
+     * requests events.
      *
      * @param apiCall  The api call
      * @param emitDone If true the last message ([DONE]) is emitted
      */
     public Flowable<SSE> stream(Call<ResponseBody> apiCall, boolean emitDone) {
-        return Flowable.create(emitter -> apiCall.enqueue(new ResponseBodyCallback(emitter, emitDone, objectMapper)),
-                BackpressureStrategy.BUFFER);
+        return paced(stream(apiCall, emitDone, decoder -> new SSE(decoder.dataAsString())), null);
     }
 
     /**
-     * Calls the Open AI api and returns a Flowable of type T for streaming
-     * omitting the last message.
+     * Calls the Open AI api and returns a Flowable of type T for streaming omitting the last message. The payload of
+     * each event is parsed from its bytes, without building a String.
      *
      * @param apiCall The api call
      * @param clazz   Class of type T to return
      */
-    private <T> Flowable<T> stream(Call<ResponseBody> apiCall, Class<T> clazz) {
-        return stream(apiCall).map(sse -> objectMapper.readValue(sse.data(), clazz));
+    private <T> Flowable<T> stream(Call<ResponseBody> apiCall, Class<T> clazz, Object body) {
+        ObjectReader reader = objectMapper.readerFor(clazz);
+        return paced(stream(apiCall, false, decoder -> reader.readValue(decoder.data(), 0, decoder.length())), body);
+    }
+
+    private <T> Flowable<T> stream(Call<ResponseBody> apiCall, boolean emitDone,
+            SseFlowable.EventReader<T> eventReader) {
+        return SseFlowable.create(apiCall, emitDone, eventReader, streamStatsListener)
+                .onErrorResumeNext((Throwable e) -> Flowable.error(
+                        e instanceof HttpException httpException ? translateHttpException(httpException) : e));
     }
 
     /**
@@ -372,34 +457,109 @@ public class OpenAiClient implements Closeable {
         try {
             return apiCall.blockingGet();
         } catch (HttpException e) {
-            try {
-                if (e.response() != null) {
-                    try (ResponseBody responseBody = requireNonNull(e.response()).errorBody()) {
-                        if (responseBody != null) {
-                            String errorBody = responseBody.string();
-                            OpenAiError error = objectMapper.readValue(errorBody, OpenAiError.class);
-                            throw new OpenAiException(error, e, e.code());
-                        }
+            throw translateHttpException(e);
+        }
+    }
+
+    /**
+     * Calls the Open AI api on the dispatcher of the transport, so no thread waits for the response. Cancelling the
+     * returned future cancels the HTTP call.
+     */
+    public <T> CompletableFuture<T> executeAsync(Single<T> apiCall) {
+        CompletableFuture<T> future = new CompletableFuture<>();
+        Disposable disposable = apiCall.subscribe(future::complete, e -> future.completeExceptionally(
+                e instanceof HttpException httpException ? translateHttpException(httpException) : e));
+        future.whenComplete((result, e) -> {
+            if (future.isCancelled()) {
+                disposable.dispose();
+            }
+        });
+        return future;
+    }
+
+    /**
+     * Calls the Open AI api once the rate limiter allows the request. The wait happens on the calling thread before
+     * the call is dispatched, so it does not count against the call timeout.
+     */
+    private <T> T execute(Single<T> apiCall, Object body) {
+        if (rateLimiter == null) {
+            return execute(apiCall);
+        }
+        OpenAiRateLimiter.Permit permit;
+        try {
+            permit = rateLimiter.acquire(body);
+        } catch (InterruptedIOException e) {
+            throw new UncheckedIOException(e);
+        }
+        try {
+            return execute(apiCall);
+        } finally {
+            permit.release();
+        }
+    }
+
+    private <T> CompletableFuture<T> executeAsync(Single<T> apiCall, Object body) {
+        return rateLimiter == null
+                ? executeAsync(apiCall)
+                : executeAsync(paced(apiCall.toFlowable(), body).singleOrError());
+    }
+
+    /**
+     * Subscribes to the call once the rate limiter allows the request, waiting on its timer rather than on a thread,
+     * and releases the permit when the call terminates or is cancelled. A stream holds its permit until it ends.
+     */
+    private <T> Flowable<T> paced(Flowable<T> apiCall, Object body) {
+        if (rateLimiter == null) {
+            return apiCall;
+        }
+        return Flowable.defer(() -> {
+            CompletableFuture<OpenAiRateLimiter.Permit> future = rateLimiter.acquireAsync(body);
+            AtomicBoolean subscribed = new AtomicBoolean();
+            return Single.<OpenAiRateLimiter.Permit>create(emitter -> {
+                emitter.setCancellable(() -> future.cancel(false));
+                future.whenComplete((permit, e) -> {
+                    if (e != null) {
+                        emitter.tryOnError(e);
+                        return;
+                    }
+                    emitter.onSuccess(permit);
+                    if (!subscribed.get()) {
+                        // disposed before the call was subscribed
+                        permit.release();
                     }
-                }
-                throw e;
-            } catch (IOException ex) {
-                // couldn't parse OpenAI error
-                throw e;
+                });
+            }).flatMapPublisher(permit -> {
+                subscribed.set(true);
+                return apiCall.doFinally(permit::release);
+            });
+        });
+    }
+
+    /**
+     * Parses the OpenAI error of a failed request, returning the original exception if there is none.
+     */
+    private RuntimeException translateHttpException(HttpException e) {
+        if (e.response() == null) {
+            return e;
+        }
+        try (ResponseBody responseBody = requireNonNull(e.response()).errorBody()) {
+            if (responseBody != null) {
+                String errorBody = responseBody.string();
+                OpenAiError error = objectMapper.readValue(errorBody, OpenAiError.class);
+                return new OpenAiException(error, e, e.code());
             }
+        } catch (IOException ex) {
+            // couldn't parse OpenAI error
         }
+        return e;
     }
 
     /**
-     * Closes the HttpClient connection pool.
+     * The connection pool and dispatcher are shared with the other clients of the transport profile, so they are left
+     * open, use {@link HttpTransports#shutdown()} to release them.
      */
     @Override
     public void close() {
-        // Cancel all ongoing requests
-        httpClient.dispatcher().cancelAll();
-
-        // Shut down the connection pool (if any)
-        httpClient.connectionPool().evictAll();
-        httpClient.dispatcher().executorService().shutdown();
+        // nothing is owned by this client
     }
 }
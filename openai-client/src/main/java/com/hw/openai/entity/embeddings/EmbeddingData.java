@@ -18,8 +18,16 @@
 
 package com.hw.openai.entity.embeddings;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.fasterxml.jackson.annotation.JsonProperty;
+import com.fasterxml.jackson.databind.annotation.JsonDeserialize;
+
+import lombok.AccessLevel;
 import lombok.Data;
+import lombok.Getter;
+import lombok.Setter;
 
+import java.util.ArrayList;
 import java.util.List;
 
 /**
@@ -32,5 +40,52 @@ public class EmbeddingData {
 
     private Integer index;
 
-    private List<Float> embedding;
+    /**
+     * The embedding vector, decoded straight into a primitive array without boxing every dimension.
+     */
+    @Getter(AccessLevel.NONE)
+    @Setter(AccessLevel.NONE)
+    @JsonProperty("embedding")
+    @JsonDeserialize(using = EmbeddingVectorDeserializer.class)
+    private float[] embedding;
+
+    /**
+     * The embedding vector as a boxed copy, prefer {@link #getEmbeddingArray()}.
+     */
+    @JsonIgnore
+    public List<Float> getEmbedding() {
+        if (embedding == null) {
+            return null;
+        }
+        List<Float> values = new ArrayList<>(embedding.length);
+        for (float value : embedding) {
+            values.add(value);
+        }
+        return values;
+    }
+
+    @JsonIgnore
+    public void setEmbedding(List<Float> embedding) {
+        if (embedding == null) {
+            this.embedding = null;
+            return;
+        }
+        this.embedding = new float[embedding.size()];
+        for (int i = 0; i < this.embedding.length; i++) {
+            this.embedding[i] = embedding.get(i);
+        }
+    }
+
+    /**
+     * The embedding vector, without copying it.
+     */
+    @JsonIgnore
+    public float[] getEmbeddingArray() {
+        return embedding;
+    }
+
+    @JsonIgnore
+    public void setEmbeddingArray(float[] embedding) {
+        this.embedding = embedding;
+    }
 }
@@ -0,0 +1,69 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.hw.openai.entity.embeddings;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.DeserializationContext;
+import com.fasterxml.jackson.databind.deser.std.StdDeserializer;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.Arrays;
+
+/**
+ * Decode an embedding from the parser tokens into a {@code float[]}, accepting both the float array and the base64
+ * {@link EncodingFormat encoding formats}.
+ *
+ * @author HamaWhite
+ */
+public class EmbeddingVectorDeserializer extends StdDeserializer<float[]> {
+
+    private static final int INITIAL_CAPACITY = 256;
+
+    public EmbeddingVectorDeserializer() {
+        super(float[].class);
+    }
+
+    @Override
+    public float[] deserialize(JsonParser p, DeserializationContext ctx) throws IOException {
+        if (p.currentToken() == JsonToken.VALUE_STRING) {
+            return decodeBase64(p.getBinaryValue());
+        }
+        if (p.currentToken() != JsonToken.START_ARRAY) {
+            return (float[]) ctx.handleUnexpectedToken(float[].class, p);
+        }
+        float[] vector = new float[INITIAL_CAPACITY];
+        int size = 0;
+        while (p.nextToken() != JsonToken.END_ARRAY) {
+            if (size == vector.length) {
+                vector = Arrays.copyOf(vector, size * 2);
+            }
+            vector[size++] = p.getFloatValue();
+        }
+        return size == vector.length ? vector : Arrays.copyOf(vector, size);
+    }
+
+    private static float[] decodeBase64(byte[] bytes) {
+        float[] vector = new float[bytes.length / Float.BYTES];
+        ByteBuffer.wrap(bytes).order(ByteOrder.LITTLE_ENDIAN).asFloatBuffer().get(vector);
+        return vector;
+    }
+}
@@ -0,0 +1,55 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.hw.openai.entity.embeddings;
+
+import com.fasterxml.jackson.annotation.JsonCreator;
+import com.fasterxml.jackson.annotation.JsonValue;
+
+/**
+ * Format of the returned embeddings, base64 carries the little-endian float32 bytes.
+ *
+ * @author HamaWhite
+ */
+public enum EncodingFormat {
+
+    FLOAT("float"),
+
+    BASE64("base64");
+
+    private final String value;
+
+    EncodingFormat(String value) {
+        this.value = value;
+    }
+
+    @JsonValue
+    public String getValue() {
+        return value;
+    }
+
+    @JsonCreator
+    public static EncodingFormat fromValue(String value) {
+        for (EncodingFormat item : EncodingFormat.values()) {
+            if (item.value.equalsIgnoreCase(value)) {
+                return item;
+            }
+        }
+        throw new IllegalArgumentException("Invalid value: " + value);
+    }
+}
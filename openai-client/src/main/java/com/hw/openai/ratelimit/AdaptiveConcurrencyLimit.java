@@ -0,0 +1,112 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.hw.openai.ratelimit;
+
+import java.util.ArrayDeque;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Concurrency limit adjusted by additive increase and multiplicative decrease: every successful response raises it by
+ * {@code 1 / limit}, so it grows by about one per round trip of the whole window, and a throttled response scales it
+ * by {@code backoffRatio}. The requests already in flight when the limit is lowered cannot lower it again, so a single
+ * burst of 429 responses counts as one congestion signal.
+ *
+ * @author HamaWhite
+ */
+final class AdaptiveConcurrencyLimit {
+
+    private final int minLimit;
+
+    private final int maxLimit;
+
+    private final double backoffRatio;
+
+    private double limit;
+
+    private int inFlight;
+
+    private final Queue<CompletableFuture<Void>> waiters = new ArrayDeque<>();
+
+    private long started;
+
+    /**
+     * Number of requests started when the limit was last lowered.
+     */
+    private long startedAtDecrease;
+
+    AdaptiveConcurrencyLimit(int minLimit, int maxLimit, double backoffRatio) {
+        this.minLimit = minLimit;
+        this.maxLimit = maxLimit;
+        this.backoffRatio = backoffRatio;
+        this.limit = maxLimit;
+    }
+
+    /**
+     * Take a free slot under the current limit, or queue for one without blocking the caller. Cancelling the
+     * returned future gives up the place in the queue.
+     */
+    synchronized CompletableFuture<Void> acquireAsync() {
+        CompletableFuture<Void> slot = new CompletableFuture<>();
+        waiters.add(slot);
+        grant();
+        return slot;
+    }
+
+    synchronized void release() {
+        inFlight--;
+        grant();
+    }
+
+    /**
+     * Record that a request is sent.
+     *
+     * @return the ticket of the request, to hand back to {@link #onThrottled(long)}
+     */
+    synchronized long start() {
+        return ++started;
+    }
+
+    synchronized void onSuccess() {
+        limit = Math.min(maxLimit, limit + 1 / limit);
+        grant();
+    }
+
+    synchronized void onThrottled(long ticket) {
+        if (ticket > startedAtDecrease) {
+            limit = Math.max(minLimit, limit * backoffRatio);
+            startedAtDecrease = started;
+        }
+    }
+
+    /**
+     * Hand the free slots to the waiters in arrival order, skipping the ones given up.
+     */
+    private void grant() {
+        while (inFlight < (int) limit && !waiters.isEmpty()) {
+            if (waiters.poll().complete(null)) {
+                inFlight++;
+            }
+        }
+    }
+
+    synchronized int limit() {
+        return (int) limit;
+    }
+}
@@ -0,0 +1,294 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.hw.openai.ratelimit;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import lombok.Builder;
+import okhttp3.Interceptor;
+import okhttp3.Request;
+import okhttp3.Response;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.LongSupplier;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Client-side limiter of the requests sent to OpenAI. It paces requests and tokens per minute with token buckets kept
+ * in line with the {@code x-ratelimit-*} response headers, estimates the tokens of each request with jtokkit, and
+ * adjusts the number of requests in flight AIMD-style when the server answers 429. One instance is meant to be shared
+ * by all the clients calling with the same quota.
+ * <p>
+ * The client acquires a {@link Permit} before dispatching each request and releases it when the response is consumed,
+ * the interceptor only follows the responses. Waiting before the dispatch keeps the waits out of the call timeout and
+ * off the threads and per-host slots of the shared dispatcher.
+ *
+ * @author HamaWhite
+ */
+@Builder
+public class OpenAiRateLimiter implements Interceptor {
+
+    private static final Logger LOG = LoggerFactory.getLogger(OpenAiRateLimiter.class);
+
+    private static final Pattern DURATION_PART = Pattern.compile("(\\d+(?:\\.\\d+)?)(ms|h|m|s)");
+
+    /**
+     * Requests per minute allowed by the quota, zero learns it from the {@code x-ratelimit-limit-requests} header.
+     */
+    private long requestsPerMinute;
+
+    /**
+     * Tokens per minute allowed by the quota, zero learns it from the {@code x-ratelimit-limit-tokens} header.
+     */
+    private long tokensPerMinute;
+
+    /**
+     * Requests allowed in flight while the server does not throttle.
+     */
+    @Builder.Default
+    private int maxConcurrency = 16;
+
+    /**
+     * Requests still allowed in flight however often the server throttles.
+     */
+    @Builder.Default
+    private int minConcurrency = 1;
+
+    /**
+     * Factor applied to the concurrency limit on a 429 response.
+     */
+    @Builder.Default
+    private double backoffRatio = 0.5;
+
+    @Builder.Default
+    private LongSupplier nanoTime = System::nanoTime;
+
+    private TokenBucket requestBucket;
+
+    private TokenBucket tokenBucket;
+
+    private AdaptiveConcurrencyLimit concurrencyLimit;
+
+    private TokenEstimator tokenEstimator;
+
+    /**
+     * Validates the limits and creates the buckets.
+     */
+    public OpenAiRateLimiter init() {
+        if (requestsPerMinute < 0 || tokensPerMinute < 0) {
+            throw new IllegalArgumentException("requestsPerMinute and tokensPerMinute must not be negative");
+        }
+        if (minConcurrency < 1 || maxConcurrency < minConcurrency) {
+            throw new IllegalArgumentException(String.format(
+                    "Expected 1 <= minConcurrency <= maxConcurrency, got %d and %d", minConcurrency, maxConcurrency));
+        }
+        if (backoffRatio <= 0 || backoffRatio >= 1) {
+            throw new IllegalArgumentException("backoffRatio must be in (0, 1), got " + backoffRatio);
+        }
+        requestBucket = new TokenBucket(requestsPerMinute, nanoTime);
+        tokenBucket = new TokenBucket(tokensPerMinute, nanoTime);
+        concurrencyLimit = new AdaptiveConcurrencyLimit(minConcurrency, maxConcurrency, backoffRatio);
+        tokenEstimator = new TokenEstimator();
+        return this;
+    }
+
+    /**
+     * The number of requests currently allowed in flight.
+     */
+    public int getConcurrencyLimit() {
+        return concurrencyLimit.limit();
+    }
+
+    /**
+     * Wait, without blocking a thread, until a request with the body is allowed: a concurrency slot is free and the
+     * request and token buckets have room. Call it before the HTTP call is dispatched, so the wait neither counts
+     * against the call timeout nor holds a thread or a per-host slot of the dispatcher. Cancelling the returned
+     * future gives up the wait.
+     *
+     * @param body the entity sent as the JSON body, used to estimate its tokens, may be null
+     * @return a future of the permit, to release once the response is consumed
+     */
+    public CompletableFuture<Permit> acquireAsync(Object body) {
+        long tokens = tokenBucket.isLimited() ? estimateTokens(body) : 0;
+        CompletableFuture<Permit> future = new CompletableFuture<>();
+        CompletableFuture<Void> slot = concurrencyLimit.acquireAsync();
+        slot.thenRun(() -> {
+            Permit permit = new Permit();
+            long delay = Math.max(requestBucket.reserve(1), tokenBucket.reserve(tokens));
+            if (delay <= 0) {
+                grant(future, permit);
+            } else {
+                Timer.INSTANCE.schedule(() -> grant(future, permit), delay, TimeUnit.NANOSECONDS);
+            }
+        });
+        future.whenComplete((permit, e) -> {
+            if (future.isCancelled()) {
+                slot.cancel(false);
+            }
+        });
+        return future;
+    }
+
+    /**
+     * Wait on the calling thread until a request with the body is allowed, see {@link #acquireAsync(Object)}.
+     *
+     * @throws InterruptedIOException when the thread is interrupted while waiting
+     */
+    public Permit acquire(Object body) throws InterruptedIOException {
+        CompletableFuture<Permit> future = acquireAsync(body);
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            future.cancel(false);
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while waiting for the rate limit");
+        } catch (ExecutionException e) {
+            throw new IllegalStateException(e.getCause());
+        }
+    }
+
+    private static void grant(CompletableFuture<Permit> future, Permit permit) {
+        if (!future.complete(permit)) {
+            // the wait was given up meanwhile
+            permit.release();
+        }
+    }
+
+    private long estimateTokens(Object body) {
+        try {
+            return tokenEstimator.estimate(body);
+        } catch (RuntimeException e) {
+            LOG.debug("Failed to estimate the tokens of the request", e);
+            return 0;
+        }
+    }
+
+    /**
+     * Only observes the responses, to follow the rate limit headers and the throttling of the server. The waits happen
+     * in {@link #acquireAsync(Object)}, before the call is dispatched.
+     */
+    @Override
+    public Response intercept(Chain chain) throws IOException {
+        Request request = chain.request();
+        if (!"POST".equals(request.method())) {
+            return chain.proceed(request);
+        }
+        long ticket = concurrencyLimit.start();
+        Response response = chain.proceed(request);
+        onResponse(response, ticket);
+        return response;
+    }
+
+    /**
+     * A concurrency slot granted by {@link #acquireAsync(Object)}, released at most once.
+     */
+    public final class Permit {
+
+        private final AtomicBoolean released = new AtomicBoolean();
+
+        private Permit() {
+        }
+
+        public void release() {
+            if (released.compareAndSet(false, true)) {
+                concurrencyLimit.release();
+            }
+        }
+    }
+
+    /**
+     * Completes the delayed permits, it never runs a request itself.
+     */
+    private static class Timer {
+
+        private static final ScheduledExecutorService INSTANCE =
+                Executors.newSingleThreadScheduledExecutor(runnable -> {
+                    Thread thread = new Thread(runnable, "openai-rate-limiter");
+                    thread.setDaemon(true);
+                    return thread;
+                });
+    }
+
+    private void onResponse(Response response, long ticket) {
+        requestBucket.update(parseLong(response.header("x-ratelimit-limit-requests")),
+                parseLong(response.header("x-ratelimit-remaining-requests")),
+                parseDuration(response.header("x-ratelimit-reset-requests")));
+        tokenBucket.update(parseLong(response.header("x-ratelimit-limit-tokens")),
+                parseLong(response.header("x-ratelimit-remaining-tokens")),
+                parseDuration(response.header("x-ratelimit-reset-tokens")));
+
+        if (response.code() == 429) {
+            concurrencyLimit.onThrottled(ticket);
+            Duration retryAfter = parseDuration(response.header("retry-after"));
+            if (retryAfter != null) {
+                // honoured even when no limit is configured or reported
+                requestBucket.pause(retryAfter);
+            }
+            LOG.debug("Request was throttled, concurrency limit is now {}", concurrencyLimit.limit());
+        } else if (response.isSuccessful()) {
+            concurrencyLimit.onSuccess();
+        }
+    }
+
+    private static long parseLong(String value) {
+        try {
+            return value == null ? -1 : Long.parseLong(value.trim());
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+
+    /**
+     * Parses the durations of the rate limit headers, such as {@code 20ms}, {@code 1s} or {@code 6m0s}, and the
+     * seconds of a {@code Retry-After} header.
+     */
+    static Duration parseDuration(String value) {
+        if (value == null || value.isBlank()) {
+            return null;
+        }
+        value = value.trim();
+        if (parseLong(value) >= 0) {
+            return Duration.ofSeconds(parseLong(value));
+        }
+        Matcher matcher = DURATION_PART.matcher(value);
+        double millis = 0;
+        int end = 0;
+        while (matcher.find() && matcher.start() == end) {
+            double amount = Double.parseDouble(matcher.group(1));
+            millis += amount * switch (matcher.group(2)) {
+                case "h" -> 3_600_000;
+                case "m" -> 60_000;
+                case "ms" -> 1;
+                default -> 1_000;
+            };
+            end = matcher.end();
+        }
+        return end == value.length() ? Duration.ofNanos((long) (millis * 1_000_000)) : null;
+    }
+}
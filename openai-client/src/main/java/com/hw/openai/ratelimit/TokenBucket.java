@@ -0,0 +1,134 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.hw.openai.ratelimit;
+
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongSupplier;
+
+/**
+ * A bucket refilled with {@code capacity} permits per minute. Reservations may overdraw it, so a burst of callers is
+ * paced by the debt each of them leaves behind instead of racing for the next refill.
+ *
+ * @author HamaWhite
+ */
+final class TokenBucket {
+
+    private static final double NANOS_PER_MINUTE = TimeUnit.MINUTES.toNanos(1);
+
+    private final LongSupplier nanoTime;
+
+    /**
+     * Capacity given by the user, the limit reported by the server is used when it is zero.
+     */
+    private final long configuredCapacity;
+
+    private long capacity;
+
+    private double available;
+
+    private long lastRefill;
+
+    /**
+     * Time until which no permit is granted, set by a Retry-After hint.
+     */
+    private long pausedUntil;
+
+    TokenBucket(long capacity, LongSupplier nanoTime) {
+        this.nanoTime = nanoTime;
+        this.configuredCapacity = capacity;
+        this.capacity = capacity;
+        this.available = capacity;
+        this.lastRefill = nanoTime.getAsLong();
+        this.pausedUntil = lastRefill;
+    }
+
+    /**
+     * Take the permits from the bucket.
+     *
+     * @return the nanoseconds to wait before the permits may be used, zero when they are available now
+     */
+    synchronized long reserve(long permits) {
+        long paused = Math.max(0, pausedUntil - nanoTime.getAsLong());
+        if (capacity <= 0) {
+            return paused;
+        }
+        refill();
+        // a request larger than the whole bucket waits for a full bucket instead of forever
+        available -= Math.min(permits, capacity);
+        return Math.max(paused, available >= 0 ? 0 : (long) Math.ceil(-available / ratePerNano()));
+    }
+
+    /**
+     * Grant no permit for the duration, whether a capacity is known or not.
+     */
+    synchronized void pause(Duration duration) {
+        long until = nanoTime.getAsLong() + duration.toNanos();
+        if (until - pausedUntil > 0) {
+            pausedUntil = until;
+        }
+    }
+
+    /**
+     * Align the bucket with the rate limit headers of a response, which also account for the other clients sharing
+     * the quota.
+     *
+     * @param limit     the permits per minute reported by the server, or a negative value when missing
+     * @param remaining the permits left reported by the server, or a negative value when missing
+     * @param reset     the time until the server refills the quota, or null when missing
+     */
+    synchronized void update(long limit, long remaining, Duration reset) {
+        if (configuredCapacity <= 0 && limit > 0) {
+            if (capacity <= 0) {
+                available = limit;
+                lastRefill = nanoTime.getAsLong();
+            }
+            capacity = limit;
+        }
+        if (capacity <= 0 || remaining < 0) {
+            return;
+        }
+        refill();
+        if (remaining == 0 && reset != null) {
+            // nothing is left until the reset, which may be longer than the refill of a single permit
+            available = Math.min(available, -ratePerNano() * reset.toNanos());
+        } else {
+            available = Math.min(available, remaining);
+        }
+    }
+
+    synchronized boolean isLimited() {
+        return capacity > 0;
+    }
+
+    synchronized double available() {
+        refill();
+        return available;
+    }
+
+    private void refill() {
+        long now = nanoTime.getAsLong();
+        available = Math.min(capacity, available + (now - lastRefill) * ratePerNano());
+        lastRefill = now;
+    }
+
+    private double ratePerNano() {
+        return capacity / NANOS_PER_MINUTE;
+    }
+}
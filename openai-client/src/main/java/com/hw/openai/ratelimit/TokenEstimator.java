@@ -0,0 +1,121 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.hw.openai.ratelimit;
+
+import com.hw.openai.entity.chat.ChatCompletion;
+import com.hw.openai.entity.chat.ChatMessage;
+import com.hw.openai.entity.completions.Completion;
+import com.hw.openai.entity.embeddings.Embedding;
+import com.knuddels.jtokkit.Encodings;
+import com.knuddels.jtokkit.api.Encoding;
+import com.knuddels.jtokkit.api.EncodingRegistry;
+import com.knuddels.jtokkit.api.EncodingType;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Estimates the tokens a request counts against the tokens per minute quota: the tokens of the prompt, messages or
+ * input, plus the completion tokens it may generate. It reads the typed request entities, a token array is counted
+ * by its size without visiting its elements.
+ *
+ * @author HamaWhite
+ */
+final class TokenEstimator {
+
+    /**
+     * Tokens added by the chat format around each message.
+     */
+    private static final int TOKENS_PER_MESSAGE = 4;
+
+    private final Map<String, Encoding> encodings = new ConcurrentHashMap<>();
+
+    /**
+     * Estimate the tokens of a request entity, other requests such as images count no token.
+     */
+    long estimate(Object body) {
+        if (body instanceof ChatCompletion chatCompletion) {
+            Encoding encoding = encoding(chatCompletion.getModel());
+            long tokens = 0;
+            List<ChatMessage> messages = Objects.requireNonNullElse(chatCompletion.getMessages(), List.of());
+            for (ChatMessage message : messages) {
+                tokens += TOKENS_PER_MESSAGE + count(message.getContent(), encoding)
+                        + count(message.getName(), encoding);
+            }
+            return tokens + maxTokens(chatCompletion.getMaxTokens(), chatCompletion.getN(), null);
+        }
+        if (body instanceof Completion completion) {
+            return count(completion.getPrompt(), encoding(completion.getModel()))
+                    + maxTokens(completion.getMaxTokens(), completion.getN(), completion.getBestOf());
+        }
+        if (body instanceof Embedding embedding) {
+            return count(embedding.getInput(), encoding(embedding.getModel()));
+        }
+        return 0;
+    }
+
+    private static long maxTokens(Integer maxTokens, Integer n, Integer bestOf) {
+        int choices = Math.max(Objects.requireNonNullElse(n, 1), Objects.requireNonNullElse(bestOf, 1));
+        return Objects.requireNonNullElse(maxTokens, 0) * (long) Math.max(choices, 1);
+    }
+
+    /**
+     * Count the tokens of a text, a token array, or a list of them.
+     */
+    private static long count(Object value, Encoding encoding) {
+        if (value instanceof String text) {
+            return encoding.countTokens(text);
+        }
+        if (value instanceof int[] tokens) {
+            return tokens.length;
+        }
+        if (value instanceof Collection<?> items) {
+            if (items.isEmpty()) {
+                return 0;
+            }
+            if (items.iterator().next() instanceof Number) {
+                // a token array
+                return items.size();
+            }
+            long tokens = 0;
+            for (Object item : items) {
+                tokens += count(item, encoding);
+            }
+            return tokens;
+        }
+        return 0;
+    }
+
+    private Encoding encoding(String model) {
+        return encodings.computeIfAbsent(Objects.requireNonNullElse(model, ""),
+                key -> Registry.INSTANCE.getEncodingForModel(key)
+                        .orElseGet(() -> Registry.INSTANCE.getEncoding(EncodingType.CL100K_BASE)));
+    }
+
+    /**
+     * Building the registry loads every BPE rank file, so it is deferred until a token limit is known.
+     */
+    private static class Registry {
+
+        private static final EncodingRegistry INSTANCE = Encodings.newDefaultEncodingRegistry();
+    }
+}
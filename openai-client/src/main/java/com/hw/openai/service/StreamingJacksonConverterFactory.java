@@ -0,0 +1,69 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.hw.openai.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+
+import okhttp3.RequestBody;
+import okhttp3.ResponseBody;
+import retrofit2.Converter;
+import retrofit2.Retrofit;
+import retrofit2.converter.jackson.JacksonConverterFactory;
+
+import java.lang.annotation.Annotation;
+import java.lang.reflect.Type;
+
+/**
+ * Jackson converter parsing responses from the raw UTF-8 byte stream as it arrives, instead of from a decoded
+ * character stream as {@link JacksonConverterFactory} does. Large embedding responses are never buffered as text.
+ *
+ * @author HamaWhite
+ */
+public class StreamingJacksonConverterFactory extends Converter.Factory {
+
+    private final ObjectMapper objectMapper;
+
+    private final JacksonConverterFactory delegate;
+
+    private StreamingJacksonConverterFactory(ObjectMapper objectMapper) {
+        this.objectMapper = objectMapper;
+        this.delegate = JacksonConverterFactory.create(objectMapper);
+    }
+
+    public static StreamingJacksonConverterFactory create(ObjectMapper objectMapper) {
+        return new StreamingJacksonConverterFactory(objectMapper);
+    }
+
+    @Override
+    public Converter<ResponseBody, ?> responseBodyConverter(Type type, Annotation[] annotations, Retrofit retrofit) {
+        ObjectReader reader = objectMapper.readerFor(objectMapper.getTypeFactory().constructType(type));
+        return body -> {
+            try (body) {
+                return reader.readValue(body.byteStream());
+            }
+        };
+    }
+
+    @Override
+    public Converter<?, RequestBody> requestBodyConverter(Type type, Annotation[] parameterAnnotations,
+            Annotation[] methodAnnotations, Retrofit retrofit) {
+        return delegate.requestBodyConverter(type, parameterAnnotations, methodAnnotations, retrofit);
+    }
+}
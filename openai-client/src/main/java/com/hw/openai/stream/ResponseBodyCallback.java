@@ -21,7 +21,6 @@ package com.hw.openai.stream;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.hw.openai.common.OpenAiError;
 import com.hw.openai.exception.OpenAiException;
-import com.hw.openai.exception.SSEFormatException;
 
 import io.reactivex.FlowableEmitter;
 import lombok.NonNull;
@@ -31,17 +30,13 @@ import retrofit2.Callback;
 import retrofit2.HttpException;
 import retrofit2.Response;
 
-import java.io.BufferedReader;
-import java.io.IOException;
-import java.io.InputStream;
-import java.io.InputStreamReader;
-import java.nio.charset.StandardCharsets;
-
 import static com.hw.openai.OpenAiClient.defaultObjectMapper;
 
 /**
  * Callback to parse Server Sent Events (SSE) from raw InputStream and
  * emit the events with io.reactivex.FlowableEmitter to allow streaming of SSE.
+ * <p>
+ * It pushes every event regardless of the demand of the subscriber, {@link SseFlowable} reads them on request.
  *
  * @author HamaWhite
  */
@@ -65,7 +60,6 @@ public class ResponseBodyCallback implements Callback<ResponseBody> {
 
     @Override
     public void onResponse(@NonNull Call<ResponseBody> call, @NonNull Response<ResponseBody> response) {
-        BufferedReader reader = null;
         try {
             if (!response.isSuccessful()) {
                 HttpException e = new HttpException(response);
@@ -78,43 +72,23 @@ public class ResponseBodyCallback implements Callback<ResponseBody> {
                     }
                 }
             }
-            String line;
-            SSE sse = null;
             try (ResponseBody responseBody = response.body()) {
                 if (responseBody != null) {
-                    InputStream in = responseBody.byteStream();
-                    reader = new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8));
-
-                    while (!emitter.isCancelled() && (line = reader.readLine()) != null) {
-                        if (line.startsWith("data:")) {
-                            String data = line.substring(5).trim();
-                            sse = new SSE(data);
-                        } else if (line.isEmpty() && sse != null) {
-                            if (sse.isDone()) {
-                                if (emitDone) {
-                                    emitter.onNext(sse);
-                                }
-                                break;
+                    SseDecoder decoder = new SseDecoder(responseBody.source());
+                    while (!emitter.isCancelled() && decoder.next()) {
+                        if (decoder.isDone()) {
+                            if (emitDone) {
+                                emitter.onNext(new SSE(decoder.dataAsString()));
                             }
-                            emitter.onNext(sse);
-                            sse = null;
-                        } else {
-                            throw new SSEFormatException("Invalid sse format! " + line);
+                            break;
                         }
+                        emitter.onNext(new SSE(decoder.dataAsString()));
                     }
                 }
             }
             emitter.onComplete();
         } catch (Throwable t) {
             onFailure(call, t);
-        } finally {
-            if (reader != null) {
-                try {
-                    reader.close();
-                } catch (IOException e) {
-                    // do nothing
-                }
-            }
         }
     }
 
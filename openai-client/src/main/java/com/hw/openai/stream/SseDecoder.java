@@ -0,0 +1,152 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.hw.openai.stream;
+
+import com.hw.openai.exception.SSEFormatException;
+
+import okio.Buffer;
+import okio.BufferedSource;
+import okio.ByteString;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * Byte-level decoder of Server Sent Events. Lines are located in the buffer of the source and the {@code data:}
+ * payload of an event is copied once into a reusable array, so decoding allocates nothing per event and the payload
+ * can be handed to a Jackson parser without building a String.
+ *
+ * @author HamaWhite
+ */
+public final class SseDecoder {
+
+    private static final ByteString DATA = ByteString.encodeUtf8("data:");
+
+    private static final ByteString DONE = ByteString.encodeUtf8("[DONE]");
+
+    private static final ByteString[] IGNORED_FIELDS = {
+            ByteString.encodeUtf8(":"),
+            ByteString.encodeUtf8("event:"),
+            ByteString.encodeUtf8("id:"),
+            ByteString.encodeUtf8("retry:")
+    };
+
+    private final BufferedSource source;
+
+    private byte[] data = new byte[1024];
+
+    private int length;
+
+    public SseDecoder(BufferedSource source) {
+        this.source = source;
+    }
+
+    /**
+     * Reads up to the blank line ending the next event with data, events without data are skipped.
+     *
+     * @return false when the stream ended, an event left unterminated at the end is dropped
+     * @throws SSEFormatException when a line is not a known field
+     */
+    public boolean next() throws IOException, SSEFormatException {
+        length = -1;
+        long newline;
+        while ((newline = source.indexOf((byte) '\n')) != -1) {
+            // the line is buffered now, so it is matched against the buffer without waiting for more bytes
+            Buffer buffer = source.buffer();
+            long lineLength = newline > 0 && buffer.getByte(newline - 1) == '\r' ? newline - 1 : newline;
+            if (lineLength == 0) {
+                source.skip(newline + 1);
+                if (length >= 0) {
+                    return true;
+                }
+            } else if (buffer.rangeEquals(0, DATA)) {
+                readData(buffer, lineLength);
+                source.skip(newline + 1 - lineLength);
+            } else if (isIgnored(buffer)) {
+                source.skip(newline + 1);
+            } else {
+                throw new SSEFormatException("Invalid sse format! " + source.readUtf8(lineLength));
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Appends the value of a data line, the payloads of consecutive data lines are joined by a newline.
+     */
+    private void readData(Buffer buffer, long lineLength) throws IOException {
+        long skip = DATA.size();
+        if (lineLength > skip && buffer.getByte(skip) == ' ') {
+            skip++;
+        }
+        source.skip(skip);
+        int valueLength = Math.toIntExact(lineLength - skip);
+        int offset = length < 0 ? 0 : length + 1;
+        if (data.length < offset + valueLength) {
+            data = Arrays.copyOf(data, Math.max(data.length * 2, offset + valueLength));
+        }
+        if (length >= 0) {
+            data[length] = '\n';
+        }
+        for (int read = 0; read < valueLength;) {
+            read += buffer.read(data, offset + read, valueLength - read);
+        }
+        length = offset + valueLength;
+    }
+
+    private static boolean isIgnored(Buffer buffer) {
+        for (ByteString field : IGNORED_FIELDS) {
+            if (buffer.rangeEquals(0, field)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * The payload of the current event, valid up to {@link #length()} and until the next call to {@link #next()}.
+     */
+    public byte[] data() {
+        return data;
+    }
+
+    public int length() {
+        return length;
+    }
+
+    public String dataAsString() {
+        return new String(data, 0, length, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Whether the current event is the {@code [DONE]} terminator of OpenAI streams.
+     */
+    public boolean isDone() {
+        if (length != DONE.size()) {
+            return false;
+        }
+        for (int i = 0; i < length; i++) {
+            if (data[i] != DONE.getByte(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
@@ -0,0 +1,161 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.hw.openai.stream;
+
+import io.reactivex.Emitter;
+import io.reactivex.Flowable;
+import io.reactivex.schedulers.Schedulers;
+import okhttp3.ResponseBody;
+import retrofit2.Call;
+import retrofit2.HttpException;
+import retrofit2.Response;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.function.Consumer;
+
+/**
+ * Streams the events of a call as a {@link Flowable} that reads the response only when the subscriber requests, so a
+ * slow subscriber leaves the bytes in the socket instead of an unbounded buffer.
+ *
+ * @author HamaWhite
+ */
+public final class SseFlowable {
+
+    private SseFlowable() {
+    }
+
+    /**
+     * Reads the value of the current event of the decoder.
+     */
+    @FunctionalInterface
+    public interface EventReader<T> {
+
+        T read(SseDecoder decoder) throws IOException;
+    }
+
+    /**
+     * Creates a stream executing the call on subscription, on the IO scheduler.
+     *
+     * @param call          the call, cloned when it was already executed
+     * @param emitDone      whether the {@code [DONE]} event is emitted
+     * @param eventReader   reads the value of an event
+     * @param statsListener receives the timings of the stream, may be null
+     * @return the stream, failing with an {@link HttpException} when the response is not successful
+     */
+    public static <T> Flowable<T> create(Call<ResponseBody> call, boolean emitDone, EventReader<T> eventReader,
+            Consumer<StreamStats> statsListener) {
+        return Flowable.defer(() -> {
+            Call<ResponseBody> execution = call.isExecuted() ? call.clone() : call;
+            return Flowable.<T, State>generate(() -> new State(execution, statsListener), (state, emitter) -> {
+                state.next(emitter, emitDone, eventReader);
+            }, State::close)
+                    .doOnCancel(execution::cancel);
+        }).subscribeOn(Schedulers.io());
+    }
+
+    private static final class State {
+
+        private final long startTime = System.nanoTime();
+
+        private final Call<ResponseBody> call;
+
+        private final Consumer<StreamStats> statsListener;
+
+        private ResponseBody body;
+
+        private SseDecoder decoder;
+
+        private long firstEventTime;
+
+        private int eventCount;
+
+        private boolean done;
+
+        private boolean reported;
+
+        State(Call<ResponseBody> call, Consumer<StreamStats> statsListener) {
+            this.call = call;
+            this.statsListener = statsListener;
+        }
+
+        <T> void next(Emitter<T> emitter, boolean emitDone, EventReader<T> eventReader) {
+            try {
+                if (decoder == null) {
+                    execute();
+                }
+                if (done || !decoder.next()) {
+                    report();
+                    emitter.onComplete();
+                    return;
+                }
+                if (decoder.isDone()) {
+                    done = true;
+                    if (!emitDone) {
+                        report();
+                        emitter.onComplete();
+                        return;
+                    }
+                } else if (eventCount++ == 0) {
+                    firstEventTime = System.nanoTime();
+                }
+                emitter.onNext(eventReader.read(decoder));
+            } catch (Throwable t) {
+                if (call.isCanceled()) {
+                    // the subscriber is gone, the failure is the cancellation of the call
+                    emitter.onComplete();
+                } else {
+                    report();
+                    emitter.onError(t);
+                }
+            }
+        }
+
+        private void execute() throws IOException {
+            Response<ResponseBody> response = call.execute();
+            if (!response.isSuccessful()) {
+                throw new HttpException(response);
+            }
+            body = response.body();
+            if (body == null) {
+                throw new IOException("Response body is empty");
+            }
+            decoder = new SseDecoder(body.source());
+        }
+
+        void close() {
+            if (body != null) {
+                body.close();
+            }
+            report();
+        }
+
+        /**
+         * Reports the stats once, before the subscriber sees the end of the stream when it was not cancelled.
+         */
+        private void report() {
+            if (statsListener != null && !reported) {
+                reported = true;
+                long now = System.nanoTime();
+                Duration timeToFirstEvent = eventCount > 0 ? Duration.ofNanos(firstEventTime - startTime) : null;
+                statsListener.accept(new StreamStats(timeToFirstEvent, eventCount, Duration.ofNanos(now - startTime)));
+            }
+        }
+    }
+}
@@ -0,0 +1,183 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.hw.openai;
+
+import com.hw.http.TransportProfile;
+import com.hw.openai.entity.chat.ChatCompletion;
+import com.hw.openai.entity.chat.ChatCompletionResp;
+import com.hw.openai.entity.chat.ChatMessage;
+import com.hw.openai.entity.embeddings.Embedding;
+import com.hw.openai.exception.OpenAiException;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/**
+ * Asynchronous calls against a local server whose responses take 300 ms.
+ *
+ * @author HamaWhite
+ */
+class OpenAiClientAsyncTest {
+
+    private static final String CHAT_RESPONSE = """
+            {
+              "id": "chatcmpl-1",
+              "object": "chat.completion",
+              "model": "gpt-3.5-turbo",
+              "choices": [{"index": 0, "message": {"role": "assistant", "content": "pong"}, "finish_reason": "stop"}]
+            }""";
+
+    private static final String ERROR_RESPONSE = """
+            {"error": {"message": "Rate limit reached", "type": "requests", "code": "rate_limit_exceeded"}}""";
+
+    private final AtomicInteger inFlight = new AtomicInteger();
+
+    private final AtomicInteger maxInFlight = new AtomicInteger();
+
+    private HttpServer server;
+
+    private ExecutorService executor;
+
+    private OpenAiClient client;
+
+    @BeforeEach
+    void setup() throws IOException {
+        server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+        server.createContext("/chat/completions", exchange -> respond(exchange, 200, CHAT_RESPONSE));
+        server.createContext("/embeddings", exchange -> respond(exchange, 429, ERROR_RESPONSE));
+        executor = Executors.newCachedThreadPool();
+        server.setExecutor(executor);
+        server.start();
+
+        client = OpenAiClient.builder()
+                .openaiApiBase("http://localhost:" + server.getAddress().getPort() + "/")
+                .openaiApiKey("test")
+                .build()
+                .init();
+    }
+
+    @AfterEach
+    void cleanup() {
+        server.stop(0);
+        executor.shutdownNow();
+    }
+
+    private void respond(HttpExchange exchange, int code, String body) throws IOException {
+        maxInFlight.accumulateAndGet(inFlight.incrementAndGet(), Math::max);
+        try {
+            Thread.sleep(300);
+            byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+            exchange.getResponseHeaders().add("Content-Type", "application/json");
+            exchange.sendResponseHeaders(code, bytes.length);
+            exchange.getResponseBody().write(bytes);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            inFlight.decrementAndGet();
+            exchange.close();
+        }
+    }
+
+    @Test
+    void testChatCompletionsRunConcurrently() {
+        List<CompletableFuture<ChatCompletionResp>> futures = IntStream.range(0, 8)
+                .mapToObj(i -> client.createChatCompletionAsync(ChatCompletion.builder()
+                        .model("gpt-3.5-turbo")
+                        .messages(List.of(ChatMessage.of("ping " + i)))
+                        .build()))
+                .toList();
+        // all the requests were issued without waiting for a response
+        assertThat(futures).noneMatch(CompletableFuture::isDone);
+
+        List<String> contents = futures.stream()
+                .map(CompletableFuture::join)
+                .map(resp -> resp.getChoices().get(0).getMessage().getContent())
+                .toList();
+        assertThat(contents).hasSize(8).containsOnly("pong");
+        assertThat(maxInFlight.get()).isGreaterThan(1);
+    }
+
+    @Test
+    void testOpenAiErrorIsMapped() {
+        CompletableFuture<?> future = client.createEmbeddingAsync(Embedding.builder()
+                .model("text-embedding-ada-002")
+                .input(List.of("foo"))
+                .build());
+
+        CompletionException exception = assertThrows(CompletionException.class, future::join);
+        OpenAiException cause = (OpenAiException) exception.getCause();
+        assertEquals(429, cause.statusCode);
+        assertEquals("rate_limit_exceeded", cause.code);
+        assertEquals("Rate limit reached", cause.getMessage());
+
+        // the blocking call maps the same error
+        Embedding embedding = Embedding.builder().model("text-embedding-ada-002").input(List.of("bar")).build();
+        assertThrows(OpenAiException.class, () -> client.createEmbedding(embedding));
+    }
+
+    @Test
+    void testBlockingCallsAreNotCappedByTheDispatcher() throws Exception {
+        OpenAiClient serialClient = OpenAiClient.builder()
+                .openaiApiBase("http://localhost:" + server.getAddress().getPort() + "/")
+                .openaiApiKey("test")
+                .transportProfile(TransportProfile.builder().name("serial").maxRequestsPerHost(1).build())
+                .build()
+                .init();
+        ChatCompletion chatCompletion = ChatCompletion.builder()
+                .model("gpt-3.5-turbo")
+                .messages(List.of(ChatMessage.of("ping")))
+                .build();
+
+        // blocking calls run on their own threads, not queued behind the single request allowed per host
+        List<Future<ChatCompletionResp>> futures =
+                executor.invokeAll(Collections.nCopies(4, () -> serialClient.createChatCompletion(chatCompletion)));
+        for (Future<ChatCompletionResp> future : futures) {
+            assertEquals("pong", future.get().getChoices().get(0).getMessage().getContent());
+        }
+        assertThat(maxInFlight.get()).isGreaterThan(1);
+
+        // whereas the async calls are
+        maxInFlight.set(0);
+        List<CompletableFuture<ChatCompletionResp>> asyncFutures = IntStream.range(0, 4)
+                .mapToObj(i -> serialClient.createChatCompletionAsync(chatCompletion))
+                .toList();
+        asyncFutures.forEach(CompletableFuture::join);
+        assertEquals(1, maxInFlight.get());
+    }
+}
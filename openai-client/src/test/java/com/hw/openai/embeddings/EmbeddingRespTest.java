@@ -0,0 +1,94 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.hw.openai.embeddings;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.hw.openai.OpenAiClient;
+import com.hw.openai.entity.embeddings.Embedding;
+import com.hw.openai.entity.embeddings.EmbeddingResp;
+import com.hw.openai.entity.embeddings.EncodingFormat;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * @author HamaWhite
+ */
+class EmbeddingRespTest {
+
+    private final ObjectMapper objectMapper = OpenAiClient.defaultObjectMapper();
+
+    private EmbeddingResp parse(String embedding) throws IOException {
+        String json = """
+                {
+                  "object": "list",
+                  "data": [{"object": "embedding", "index": 0, "embedding": %s}],
+                  "model": "text-embedding-ada-002",
+                  "usage": {"prompt_tokens": 2, "total_tokens": 2}
+                }""".formatted(embedding);
+        return objectMapper.readValue(new ByteArrayInputStream(json.getBytes(StandardCharsets.UTF_8)),
+                EmbeddingResp.class);
+    }
+
+    @Test
+    void testDecodeFloatArray() throws IOException {
+        var resp = parse("[0.5, -1.25, 3e-3]");
+        assertArrayEquals(new float[]{0.5f, -1.25f, 3e-3f}, resp.getData().get(0).getEmbeddingArray());
+        assertEquals(List.of(0.5f, -1.25f, 3e-3f), resp.getData().get(0).getEmbedding());
+        // it is written back as a plain array
+        assertEquals("[0.5,-1.25,0.003]", objectMapper.readTree(objectMapper.writeValueAsString(resp.getData().get(0)))
+                .get("embedding").toString());
+    }
+
+    @Test
+    void testDecodeBase64() throws IOException {
+        // little-endian float32 bytes of [0.5, -1.25, 2.0]
+        var resp = parse("\"AAAAPwAAoL8AAABA\"");
+        assertArrayEquals(new float[]{0.5f, -1.25f, 2.0f}, resp.getData().get(0).getEmbeddingArray());
+    }
+
+    @Test
+    void testDecodeLongFloatArray() throws IOException {
+        float[] expected = new float[1536];
+        StringBuilder sb = new StringBuilder("[");
+        for (int i = 0; i < expected.length; i++) {
+            expected[i] = i / 1000f;
+            sb.append(i == 0 ? "" : ",").append(expected[i]);
+        }
+        assertArrayEquals(expected, parse(sb.append("]").toString()).getData().get(0).getEmbeddingArray());
+    }
+
+    @Test
+    void testSerializeEncodingFormat() throws IOException {
+        var embedding = Embedding.builder()
+                .model("text-embedding-ada-002")
+                .input(List.of("hello"))
+                .encodingFormat(EncodingFormat.BASE64)
+                .build();
+        assertThat(objectMapper.writeValueAsString(embedding)).contains("\"encoding_format\":\"base64\"");
+    }
+}
@@ -0,0 +1,272 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.hw.openai.ratelimit;
+
+import com.hw.openai.OpenAiClient;
+import com.hw.openai.entity.chat.ChatCompletion;
+import com.hw.openai.entity.chat.ChatMessage;
+import com.hw.openai.entity.completions.Completion;
+import com.hw.openai.entity.embeddings.Embedding;
+import com.hw.openai.exception.OpenAiException;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * @author HamaWhite
+ */
+class OpenAiRateLimiterTest {
+
+    private static final String CHAT_RESPONSE = """
+            {"choices": [{"index": 0, "message": {"role": "assistant", "content": "pong"}}]}""";
+
+    private static final String ERROR_RESPONSE = """
+            {"error": {"message": "Rate limit reached", "type": "requests", "code": "rate_limit_exceeded"}}""";
+
+    private final AtomicLong now = new AtomicLong();
+
+    @Test
+    void testTokenBucketPacesReservations() {
+        TokenBucket bucket = new TokenBucket(60, now::get);
+        assertEquals(0, bucket.reserve(60));
+        // each reservation waits behind the debt of the previous one
+        assertEquals(TimeUnit.SECONDS.toNanos(1), bucket.reserve(1));
+        assertEquals(TimeUnit.SECONDS.toNanos(2), bucket.reserve(1));
+
+        now.addAndGet(TimeUnit.SECONDS.toNanos(62));
+        assertEquals(60, bucket.available(), 1e-6);
+        // a request larger than the bucket waits for a full bucket
+        bucket.reserve(1000);
+        assertEquals(TimeUnit.MINUTES.toNanos(1), bucket.reserve(60));
+    }
+
+    @Test
+    void testTokenBucketFollowsHeaders() {
+        TokenBucket bucket = new TokenBucket(0, now::get);
+        assertEquals(0, bucket.reserve(1000));
+        assertFalse(bucket.isLimited());
+
+        // the limit is learned and the quota used by other clients is taken into account
+        bucket.update(600, 100, Duration.ofSeconds(1));
+        assertEquals(100, bucket.available(), 1e-6);
+        bucket.update(600, 0, Duration.ofSeconds(10));
+        assertEquals(TimeUnit.SECONDS.toNanos(10) + TimeUnit.MILLISECONDS.toNanos(100), bucket.reserve(1));
+        // a configured capacity is kept
+        TokenBucket configured = new TokenBucket(60, now::get);
+        configured.update(600, 30, null);
+        assertEquals(30, configured.available(), 1e-6);
+        configured.update(600, -1, null);
+        assertEquals(30, configured.available(), 1e-6);
+    }
+
+    @Test
+    void testConcurrencyLimitIsAdditiveIncreaseMultiplicativeDecrease() {
+        AdaptiveConcurrencyLimit limit = new AdaptiveConcurrencyLimit(1, 8, 0.5);
+        List<Long> tickets = new CopyOnWriteArrayList<>();
+        for (int i = 0; i < 8; i++) {
+            assertTrue(limit.acquireAsync().isDone());
+            tickets.add(limit.start());
+        }
+        // the ninth request queues until a slot is released
+        CompletableFuture<Void> queued = limit.acquireAsync();
+        assertFalse(queued.isDone());
+
+        // a burst of 429 responses to the requests in flight halves the limit once
+        tickets.forEach(limit::onThrottled);
+        tickets.forEach(ticket -> limit.release());
+        assertEquals(4, limit.limit());
+        assertTrue(queued.isDone());
+        limit.release();
+
+        assertTrue(limit.acquireAsync().isDone());
+        limit.onThrottled(limit.start());
+        limit.release();
+        assertEquals(2, limit.limit());
+        for (int i = 0; i < 4; i++) {
+            limit.onSuccess();
+        }
+        assertEquals(3, limit.limit());
+    }
+
+    @Test
+    void testCancelledWaiterGivesUpItsPlace() {
+        AdaptiveConcurrencyLimit limit = new AdaptiveConcurrencyLimit(1, 1, 0.5);
+        limit.acquireAsync();
+        CompletableFuture<Void> cancelled = limit.acquireAsync();
+        CompletableFuture<Void> next = limit.acquireAsync();
+        cancelled.cancel(false);
+        limit.release();
+        assertTrue(next.isDone());
+        assertFalse(limit.acquireAsync().isDone());
+    }
+
+    @Test
+    void testRetryAfterPausesAnUnlimitedBucket() {
+        TokenBucket bucket = new TokenBucket(0, now::get);
+        bucket.pause(Duration.ofSeconds(2));
+        assertEquals(TimeUnit.SECONDS.toNanos(2), bucket.reserve(1));
+        now.addAndGet(TimeUnit.SECONDS.toNanos(2));
+        assertEquals(0, bucket.reserve(1));
+    }
+
+    @Test
+    void testParseDuration() {
+        assertEquals(Duration.ofMinutes(6), OpenAiRateLimiter.parseDuration("6m0s"));
+        assertEquals(Duration.ofMillis(20), OpenAiRateLimiter.parseDuration("20ms"));
+        assertEquals(Duration.ofMillis(1500), OpenAiRateLimiter.parseDuration("1.5s"));
+        assertEquals(Duration.ofSeconds(61), OpenAiRateLimiter.parseDuration("1m1s"));
+        assertEquals(Duration.ofSeconds(2), OpenAiRateLimiter.parseDuration("2"));
+        assertNull(OpenAiRateLimiter.parseDuration("soon"));
+        assertNull(OpenAiRateLimiter.parseDuration(null));
+    }
+
+    @Test
+    void testTokenEstimate() {
+        TokenEstimator estimator = new TokenEstimator();
+        // 4 tokens of chat format, "hello world", and two choices of at most 10 tokens
+        assertEquals(4 + 2 + 2 * 10, estimator.estimate(ChatCompletion.builder()
+                .model("gpt-3.5-turbo")
+                .messages(List.of(ChatMessage.of("hello world")))
+                .maxTokens(10)
+                .n(2)
+                .build()));
+        assertEquals(4 + 1, estimator.estimate(ChatCompletion.builder()
+                .model("gpt-3.5-turbo")
+                .messages(List.of(ChatMessage.of("ping")))
+                .build()));
+        // token arrays count their size
+        assertEquals(5, estimator.estimate(Embedding.builder()
+                .model("text-embedding-ada-002")
+                .input(List.of(List.of(1, 2, 3), new int[]{4, 5}))
+                .build()));
+        assertEquals(2 + 16, estimator.estimate(Completion.builder()
+                .model("text-davinci-003")
+                .prompt(List.of("hello world"))
+                .maxTokens(16)
+                .build()));
+        assertEquals(0, estimator.estimate(Map.of("prompt", "hello world")));
+    }
+
+    @Test
+    void testClientIsPacedByResponseHeaders() throws IOException {
+        List<Long> received = new CopyOnWriteArrayList<>();
+        HttpServer server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+        server.createContext("/chat/completions", exchange -> {
+            received.add(System.nanoTime());
+            exchange.getResponseHeaders().add("x-ratelimit-limit-requests", "600");
+            exchange.getResponseHeaders().add("x-ratelimit-remaining-requests", "0");
+            exchange.getResponseHeaders().add("x-ratelimit-reset-requests", "300ms");
+            respond(exchange, 200, CHAT_RESPONSE);
+        });
+        server.createContext("/embeddings", exchange -> respond(exchange, 429, ERROR_RESPONSE));
+        server.start();
+        try {
+            OpenAiRateLimiter rateLimiter = OpenAiRateLimiter.builder().maxConcurrency(16).build().init();
+            OpenAiClient client = OpenAiClient.builder()
+                    .openaiApiBase("http://localhost:" + server.getAddress().getPort() + "/")
+                    .openaiApiKey("test")
+                    .rateLimiter(rateLimiter)
+                    .build()
+                    .init();
+
+            for (int i = 0; i < 2; i++) {
+                client.createChatCompletion(ChatCompletion.builder()
+                        .model("gpt-3.5-turbo")
+                        .messages(List.of(ChatMessage.of("ping")))
+                        .build());
+            }
+            assertThat(received.get(1) - received.get(0)).isGreaterThanOrEqualTo(TimeUnit.MILLISECONDS.toNanos(250));
+
+            Embedding embedding = Embedding.builder().model("text-embedding-ada-002").input(List.of("foo")).build();
+            assertThrows(OpenAiException.class, () -> client.createEmbedding(embedding));
+            assertEquals(8, rateLimiter.getConcurrencyLimit());
+        } finally {
+            server.stop(0);
+        }
+    }
+
+    private static void respond(HttpExchange exchange, int code, String body) throws IOException {
+        byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().add("Content-Type", "application/json");
+        exchange.sendResponseHeaders(code, bytes.length);
+        exchange.getResponseBody().write(bytes);
+        exchange.close();
+    }
+
+    @Test
+    void testWaitLongerThanRequestTimeout() throws Exception {
+        AtomicInteger requests = new AtomicInteger();
+        List<Long> received = new CopyOnWriteArrayList<>();
+        HttpServer server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+        server.createContext("/chat/completions", exchange -> {
+            received.add(System.nanoTime());
+            if (requests.getAndIncrement() == 0) {
+                // no limit headers, only a hint longer than the request timeout
+                exchange.getResponseHeaders().add("Retry-After", "2");
+                respond(exchange, 429, ERROR_RESPONSE);
+            } else {
+                respond(exchange, 200, CHAT_RESPONSE);
+            }
+        });
+        server.start();
+        try {
+            OpenAiClient client = OpenAiClient.builder()
+                    .openaiApiBase("http://localhost:" + server.getAddress().getPort() + "/")
+                    .openaiApiKey("test")
+                    .requestTimeout(1)
+                    .rateLimiter(OpenAiRateLimiter.builder().build().init())
+                    .build()
+                    .init();
+            ChatCompletion chatCompletion = ChatCompletion.builder()
+                    .model("gpt-3.5-turbo")
+                    .messages(List.of(ChatMessage.of("ping")))
+                    .build();
+
+            assertThrows(OpenAiException.class, () -> client.createChatCompletion(chatCompletion));
+            // the two second wait happens before the call, so the one second call timeout does not cancel it
+            assertEquals("pong", client.createChatCompletion(chatCompletion).getChoices().get(0).getMessage()
+                    .getContent());
+            assertEquals("pong", client.createChatCompletionAsync(chatCompletion).get(5, TimeUnit.SECONDS)
+                    .getChoices().get(0).getMessage().getContent());
+            assertThat(received.get(1) - received.get(0)).isGreaterThanOrEqualTo(TimeUnit.MILLISECONDS.toNanos(1900));
+        } finally {
+            server.stop(0);
+        }
+    }
+}
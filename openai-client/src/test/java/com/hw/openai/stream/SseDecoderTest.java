@@ -0,0 +1,88 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.hw.openai.stream;
+
+import com.hw.openai.exception.SSEFormatException;
+
+import org.junit.jupiter.api.Test;
+
+import okio.Buffer;
+
+import java.io.IOException;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * @author HamaWhite
+ */
+class SseDecoderTest {
+
+    private static SseDecoder decoder(String text) {
+        return new SseDecoder(new Buffer().writeUtf8(text));
+    }
+
+    @Test
+    void testDecodeEvents() throws IOException, SSEFormatException {
+        SseDecoder decoder = decoder("""
+                : keep-alive
+                event: message
+                id: 1
+                data: {"a": 1}
+
+                data:no space\r
+                \r
+                data: first
+                data: second
+
+                data: [DONE]
+
+                """);
+        assertTrue(decoder.next());
+        assertEquals("{\"a\": 1}", decoder.dataAsString());
+        assertTrue(decoder.next());
+        assertEquals("no space", decoder.dataAsString());
+        assertTrue(decoder.next());
+        assertEquals("first\nsecond", decoder.dataAsString());
+        assertFalse(decoder.isDone());
+        assertTrue(decoder.next());
+        assertTrue(decoder.isDone());
+        assertFalse(decoder.next());
+    }
+
+    @Test
+    void testLargePayloadAndUnterminatedEvent() throws IOException, SSEFormatException {
+        String payload = "x".repeat(5000);
+        SseDecoder decoder = decoder("data: " + payload + "\n\ndata: partial\n");
+        assertTrue(decoder.next());
+        assertEquals(payload.length(), decoder.length());
+        assertEquals(payload, decoder.dataAsString());
+        // an event is dispatched by its blank line only
+        assertFalse(decoder.next());
+    }
+
+    @Test
+    void testInvalidLine() {
+        SseDecoder decoder = decoder("bad: line\n\n");
+        SSEFormatException exception = assertThrows(SSEFormatException.class, decoder::next);
+        assertEquals("Invalid sse format! bad: line", exception.getMessage());
+    }
+}
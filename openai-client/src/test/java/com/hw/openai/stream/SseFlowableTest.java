@@ -0,0 +1,102 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.hw.openai.stream;
+
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.hw.openai.OpenAiClient;
+import com.hw.openai.entity.chat.ChatCompletionChunk;
+
+import org.junit.jupiter.api.Test;
+
+import io.reactivex.subscribers.TestSubscriber;
+import okhttp3.MediaType;
+import okhttp3.ResponseBody;
+import retrofit2.HttpException;
+import retrofit2.Response;
+import retrofit2.mock.Calls;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+
+/**
+ * @author HamaWhite
+ */
+class SseFlowableTest {
+
+    private static final ObjectReader READER = OpenAiClient.defaultObjectMapper().readerFor(ChatCompletionChunk.class);
+
+    private static ResponseBody body(int events) {
+        String text = IntStream.range(0, events)
+                .mapToObj(i -> "data: {\"id\": \"chunk-" + i
+                        + "\", \"choices\": [{\"index\": 0, \"delta\": {\"content\": \"" + i + "\"}}]}\n\n")
+                .collect(Collectors.joining("", "", "data: [DONE]\n\n"));
+        return ResponseBody.create(MediaType.get("text/event-stream"), text);
+    }
+
+    @Test
+    void testEventsAreReadOnRequest() {
+        List<StreamStats> stats = new CopyOnWriteArrayList<>();
+        TestSubscriber<ChatCompletionChunk> subscriber = SseFlowable.create(Calls.response(body(100)), false,
+                decoder -> READER.<ChatCompletionChunk>readValue(decoder.data(), 0, decoder.length()), stats::add)
+                .test(0);
+
+        subscriber.requestMore(2).awaitCount(2);
+        subscriber.assertValueCount(2).assertNotComplete();
+        assertEquals("1", subscriber.values().get(1).getChoices().get(0).getMessage().getContent());
+
+        subscriber.requestMore(Long.MAX_VALUE).awaitDone(5, TimeUnit.SECONDS);
+        subscriber.assertValueCount(100).assertComplete();
+        assertEquals(1, stats.size());
+        assertEquals(100, stats.get(0).eventCount());
+        assertNotNull(stats.get(0).timeToFirstEvent());
+    }
+
+    @Test
+    void testEmitDoneAndCancel() {
+        TestSubscriber<SSE> subscriber = SseFlowable.create(Calls.response(body(1)), true,
+                decoder -> new SSE(decoder.dataAsString()), null)
+                .test();
+        subscriber.awaitDone(5, TimeUnit.SECONDS).assertValueCount(2).assertComplete();
+        assertEquals("[DONE]", subscriber.values().get(1).data());
+
+        TestSubscriber<SSE> cancelled = SseFlowable.create(Calls.response(body(10)), false,
+                decoder -> new SSE(decoder.dataAsString()), null)
+                .take(3)
+                .test();
+        cancelled.awaitDone(5, TimeUnit.SECONDS).assertValueCount(3).assertComplete();
+        assertEquals("{\"id\": \"chunk-2\", \"choices\": [{\"index\": 0, \"delta\": {\"content\": \"2\"}}]}",
+                cancelled.values().get(2).data());
+    }
+
+    @Test
+    void testUnsuccessfulResponse() {
+        ResponseBody body = ResponseBody.create(MediaType.get("application/json"), "{}");
+        SseFlowable.create(Calls.<ResponseBody>response(Response.error(401, body)), false,
+                decoder -> new SSE(decoder.dataAsString()), null)
+                .test()
+                .awaitDone(5, TimeUnit.SECONDS)
+                .assertError(HttpException.class);
+    }
+}
@@ -21,6 +21,10 @@ package com.hw.pinecone;
 import com.hw.pinecone.entity.vector.*;
 import com.hw.pinecone.service.VectorService;
 
+import io.reactivex.schedulers.Schedulers;
+
+import java.util.concurrent.CompletableFuture;
+
 /**
  * @author HamaWhite
  */
@@ -85,4 +89,19 @@ public class IndexClient {
     public UpsertResponse upsert(UpsertRequest request) {
         return vectorService.upsert(request).blockingGet();
     }
+
+    /**
+     * Asynchronous version of {@link #upsert(UpsertRequest)}, the request runs on the RxJava io scheduler so that
+     * several upserts can be in flight at the same time.
+     *
+     * @param request the UpsertRequest containing the vectors to be upsert
+     * @return a future completed with the UpsertResponse, or exceptionally when the upsert fails
+     */
+    public CompletableFuture<UpsertResponse> upsertAsync(UpsertRequest request) {
+        CompletableFuture<UpsertResponse> future = new CompletableFuture<>();
+        vectorService.upsert(request)
+                .subscribeOn(Schedulers.io())
+                .subscribe(future::complete, future::completeExceptionally);
+        return future;
+    }
 }
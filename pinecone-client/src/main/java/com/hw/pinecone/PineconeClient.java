@@ -20,6 +20,8 @@ package com.hw.pinecone;
 
 import com.fasterxml.jackson.databind.DeserializationFeature;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.hw.http.HttpTransports;
+import com.hw.http.TransportProfile;
 import com.hw.pinecone.entity.index.CreateIndexRequest;
 import com.hw.pinecone.entity.index.IndexDescription;
 import com.hw.pinecone.service.IndexService;
@@ -71,6 +73,12 @@ public class PineconeClient implements Closeable {
     @Builder.Default
     protected long requestTimeout = 16;
 
+    /**
+     * Connection pool and dispatcher settings, shared with every client of an equal profile.
+     */
+    @Builder.Default
+    private TransportProfile transportProfile = TransportProfile.DEFAULT;
+
     private OkHttpClient httpClient;
 
     private IndexService indexService;
@@ -101,7 +109,7 @@ public class PineconeClient implements Closeable {
      * @return the initialized PineconeClient instance
      */
     public Retrofit createRetrofit(String baseUrl) {
-        OkHttpClient.Builder httpClientBuilder = new OkHttpClient.Builder()
+        OkHttpClient.Builder httpClientBuilder = HttpTransports.get(transportProfile).newBuilder()
                 .connectTimeout(requestTimeout, TimeUnit.SECONDS)
                 .readTimeout(requestTimeout, TimeUnit.SECONDS)
                 .writeTimeout(requestTimeout, TimeUnit.SECONDS)
@@ -148,16 +156,12 @@ public class PineconeClient implements Closeable {
     }
 
     /**
-     * Closes the HttpClient connection pool.
+     * The connection pool and dispatcher are shared with the other clients of the transport profile, so they are left
+     * open, use {@link HttpTransports#shutdown()} to release them.
      */
     @Override
     public void close() {
-        // Cancel all ongoing requests
-        httpClient.dispatcher().cancelAll();
-
-        // Shut down the connection pool (if any)
-        httpClient.connectionPool().evictAll();
-        httpClient.dispatcher().executorService().shutdown();
+        // nothing is owned by this client
     }
 
     private String getOrFromEnv(String originalValue, String envKey) {
@@ -18,10 +18,15 @@
 
 package com.hw.pinecone.entity.vector;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import com.fasterxml.jackson.annotation.JsonProperty;
 
+import lombok.AccessLevel;
 import lombok.Data;
+import lombok.Getter;
+import lombok.Setter;
 
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
 
@@ -45,7 +50,10 @@ public class ScoredVector {
     /**
      * This is the vector data, if it is requested.
      */
-    private List<Float> values;
+    @Getter(AccessLevel.NONE)
+    @Setter(AccessLevel.NONE)
+    @JsonProperty("values")
+    private float[] values;
 
     /**
      * This is the sparse data, if it is requested.
@@ -57,4 +65,45 @@ public class ScoredVector {
      * This is the metadata, if it is requested.
      */
     public Map<String, Object> metadata;
+
+    /**
+     * The vector data as a boxed copy, prefer {@link #getValuesArray()}.
+     */
+    @JsonIgnore
+    public List<Float> getValues() {
+        if (values == null) {
+            return null;
+        }
+        List<Float> list = new ArrayList<>(values.length);
+        for (float value : values) {
+            list.add(value);
+        }
+        return list;
+    }
+
+    @JsonIgnore
+    public void setValues(List<Float> values) {
+        this.values = values == null ? null : toArray(values);
+    }
+
+    /**
+     * The vector data, without copying it.
+     */
+    @JsonIgnore
+    public float[] getValuesArray() {
+        return values;
+    }
+
+    @JsonIgnore
+    public void setValuesArray(float[] values) {
+        this.values = values;
+    }
+
+    private static float[] toArray(List<Float> values) {
+        float[] array = new float[values.size()];
+        for (int i = 0; i < array.length; i++) {
+            array[i] = values.get(i);
+        }
+        return array;
+    }
 }
@@ -18,13 +18,18 @@
 
 package com.hw.pinecone.entity.vector;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import com.fasterxml.jackson.annotation.JsonInclude;
 import com.fasterxml.jackson.annotation.JsonProperty;
 
+import lombok.AccessLevel;
 import lombok.Data;
+import lombok.Getter;
 import lombok.NoArgsConstructor;
+import lombok.Setter;
 
 import java.io.Serializable;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
 
@@ -44,7 +49,10 @@ public class Vector implements Serializable {
     /**
      * This is the vector data included in the request.
      */
-    private List<Float> values;
+    @Getter(AccessLevel.NONE)
+    @Setter(AccessLevel.NONE)
+    @JsonProperty("values")
+    private float[] values;
 
     /**
      * Vector sparse data. Represented as a list of indices and a list of corresponded values,
@@ -58,14 +66,63 @@ public class Vector implements Serializable {
      */
     public Map<String, Object> metadata;
 
-    public Vector(String id, List<Float> values) {
+    public Vector(String id, float[] values) {
         this.id = id;
         this.values = values;
     }
 
-    public Vector(String id, List<Float> values, Map<String, Object> metadata) {
+    public Vector(String id, float[] values, Map<String, Object> metadata) {
         this.id = id;
         this.values = values;
         this.metadata = metadata;
     }
+
+    public Vector(String id, List<Float> values) {
+        this(id, toArray(values));
+    }
+
+    public Vector(String id, List<Float> values, Map<String, Object> metadata) {
+        this(id, toArray(values), metadata);
+    }
+
+    /**
+     * The vector data as a boxed copy, prefer {@link #getValuesArray()}.
+     */
+    @JsonIgnore
+    public List<Float> getValues() {
+        if (values == null) {
+            return null;
+        }
+        List<Float> list = new ArrayList<>(values.length);
+        for (float value : values) {
+            list.add(value);
+        }
+        return list;
+    }
+
+    @JsonIgnore
+    public void setValues(List<Float> values) {
+        this.values = values == null ? null : toArray(values);
+    }
+
+    /**
+     * The vector data, without copying it.
+     */
+    @JsonIgnore
+    public float[] getValuesArray() {
+        return values;
+    }
+
+    @JsonIgnore
+    public void setValuesArray(float[] values) {
+        this.values = values;
+    }
+
+    private static float[] toArray(List<Float> values) {
+        float[] array = new float[values.size()];
+        for (int i = 0; i < array.length; i++) {
+            array[i] = values.get(i);
+        }
+        return array;
+    }
 }